@@ -0,0 +1,681 @@
+package com.revolsys.collection.bplus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.page.MappedSegmentPageManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.io.page.PageManager;
+
+/**
+ * A disk based B+ tree with primitive int or long keys and byte[] values. The values are either
+ * a fixed number of bytes or are length prefixed. Keys and values are stored without boxing or
+ * Java serialization, so very large indexes (e.g. object id to file offset) can be created without
+ * GC pressure.
+ *
+ * The tree is created using a {@link Loader} from keys in ascending order, each page is filled
+ * and written once. After loading the tree is read only and can be used by multiple threads
+ * concurrently if the {@link PageManager} supports concurrent readers.
+ *
+ * <pre>
+ * Page 0: int magic, byte keySize, int valueSize, int rootPageIndex, int height, long size,
+ *         int firstLeafPageIndex
+ * Leaf: byte LEAF, short count, int nextPageIndex, keys[count],
+ *       (variable values) short valueEnd[count], value bytes
+ * Interior: byte INTERIOR, short count, int 0, int childPageIndex[count + 1], keys[count]
+ * </pre>
+ */
+public class BPlusTreeLongMap implements BaseCloseable {
+
+  public interface EntryConsumer {
+    /**
+     * Accept an entry. The bytes array is reused for each entry.
+     *
+     * @param key The key.
+     * @param bytes The array containing the value.
+     * @param length The number of bytes in the value.
+     */
+    void accept(long key, byte[] bytes, int length);
+  }
+
+  private static class InteriorBuilder {
+    private final int[] childPageIndexes;
+
+    private int count = -1;
+
+    private long firstKey;
+
+    private final long[] keys;
+
+    private InteriorBuilder(final int maxKeyCount) {
+      this.keys = new long[maxKeyCount];
+      this.childPageIndexes = new int[maxKeyCount + 1];
+    }
+  }
+
+  /**
+   * Load a {@link BPlusTreeLongMap} from entries in ascending key order.
+   */
+  public static class Loader {
+    private int firstLeafPageIndex = -1;
+
+    private final List<InteriorBuilder> interiorLevels = new ArrayList<>();
+
+    private final int interiorMaxKeyCount;
+
+    private final int keySize;
+
+    private long lastKey;
+
+    private int leafCount;
+
+    private final long[] leafKeys;
+
+    private final short[] leafValueEnds;
+
+    private final byte[] leafValues;
+
+    private int leafValueSize;
+
+    private final PageManager pageManager;
+
+    private final int pageSize;
+
+    private Page previousLeaf;
+
+    private long size;
+
+    private final int valueSize;
+
+    private Loader(final PageManager pageManager, final int keySize, final int valueSize) {
+      this.pageManager = pageManager;
+      this.keySize = keySize;
+      this.valueSize = valueSize;
+      this.pageSize = pageManager.getPageSize();
+      if (this.pageSize > 65535) {
+        throw new IllegalArgumentException("Page size must be <= 65535 not " + this.pageSize);
+      }
+      if (pageManager.getNumPages() != 0) {
+        throw new IllegalArgumentException("Page manager must be empty");
+      }
+      final Page headerPage = pageManager.newPage();
+      pageManager.releasePage(headerPage);
+
+      final int leafEntrySize;
+      if (valueSize < 0) {
+        leafEntrySize = keySize + 2 + 1;
+      } else {
+        leafEntrySize = keySize + valueSize;
+      }
+      final int maxLeafCount = (this.pageSize - LEAF_HEADER_SIZE) / leafEntrySize;
+      if (maxLeafCount < 2) {
+        throw new IllegalArgumentException("Page size " + this.pageSize + " too small");
+      }
+      this.leafKeys = new long[maxLeafCount];
+      this.leafValueEnds = new short[maxLeafCount];
+      this.leafValues = new byte[this.pageSize];
+      this.interiorMaxKeyCount = (this.pageSize - INTERIOR_HEADER_SIZE - 4) / (keySize + 4);
+    }
+
+    /**
+     * Add an entry, the key must be greater than the previous key.
+     *
+     * @param key The key.
+     * @param bytes The value.
+     */
+    public void add(final long key, final byte[] bytes) {
+      add(key, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Add an entry, the key must be greater than the previous key.
+     *
+     * @param key The key.
+     * @param bytes The array containing the value.
+     * @param offset The offset of the value in the array.
+     * @param length The number of bytes in the value.
+     */
+    public void add(final long key, final byte[] bytes, final int offset, final int length) {
+      if (this.size > 0 && key <= this.lastKey) {
+        throw new IllegalArgumentException(
+          "Keys must be in ascending order " + key + " <= " + this.lastKey);
+      }
+      if (this.keySize == 4 && (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE)) {
+        throw new IllegalArgumentException("Key " + key + " is not an int");
+      }
+      if (this.valueSize >= 0) {
+        if (length != this.valueSize) {
+          throw new IllegalArgumentException(
+            "Value must have " + this.valueSize + " bytes not " + length);
+        }
+        if (this.leafCount == this.leafKeys.length) {
+          writeLeaf();
+        }
+      } else {
+        final int maxLength = this.pageSize - LEAF_HEADER_SIZE - this.keySize - 2;
+        if (length > maxLength) {
+          throw new IllegalArgumentException(
+            "Value must be <= " + maxLength + " bytes not " + length);
+        }
+        final int leafSize = LEAF_HEADER_SIZE + (this.leafCount + 1) * (this.keySize + 2)
+          + this.leafValueSize + length;
+        if (this.leafCount == this.leafKeys.length || leafSize > this.pageSize) {
+          writeLeaf();
+        }
+      }
+      this.leafKeys[this.leafCount] = key;
+      System.arraycopy(bytes, offset, this.leafValues, this.leafValueSize, length);
+      this.leafValueSize += length;
+      this.leafValueEnds[this.leafCount] = (short)this.leafValueSize;
+      this.leafCount++;
+      this.lastKey = key;
+      this.size++;
+    }
+
+    public void add(final long key, final int value) {
+      final byte[] bytes = new byte[4];
+      bytes[0] = (byte)(value >>> 24);
+      bytes[1] = (byte)(value >>> 16);
+      bytes[2] = (byte)(value >>> 8);
+      bytes[3] = (byte)value;
+      add(key, bytes, 0, 4);
+    }
+
+    public void add(final long key, final long value) {
+      final byte[] bytes = new byte[8];
+      for (int i = 0; i < 8; i++) {
+        bytes[i] = (byte)(value >>> 56 - i * 8);
+      }
+      add(key, bytes, 0, 8);
+    }
+
+    private void addChild(final int level, final long firstKey, final int pageIndex) {
+      if (level == this.interiorLevels.size()) {
+        this.interiorLevels.add(new InteriorBuilder(this.interiorMaxKeyCount));
+      }
+      final InteriorBuilder builder = this.interiorLevels.get(level);
+      if (builder.count == this.interiorMaxKeyCount) {
+        final int interiorPageIndex = writeInterior(builder);
+        addChild(level + 1, builder.firstKey, interiorPageIndex);
+        builder.count = -1;
+      }
+      if (builder.count == -1) {
+        builder.firstKey = firstKey;
+        builder.childPageIndexes[0] = pageIndex;
+        builder.count = 0;
+      } else {
+        builder.keys[builder.count] = firstKey;
+        builder.count++;
+        builder.childPageIndexes[builder.count] = pageIndex;
+      }
+    }
+
+    /**
+     * Write any remaining entries and create the map.
+     *
+     * @return The map.
+     */
+    public BPlusTreeLongMap build() {
+      if (this.leafCount > 0 || this.firstLeafPageIndex == -1) {
+        writeLeaf();
+      }
+      if (this.previousLeaf != null) {
+        this.pageManager.releasePage(this.previousLeaf);
+        this.previousLeaf = null;
+      }
+      int rootPageIndex = this.firstLeafPageIndex;
+      int height = 1;
+      for (int level = 0; level < this.interiorLevels.size(); level++) {
+        final InteriorBuilder builder = this.interiorLevels.get(level);
+        final boolean topLevel = level == this.interiorLevels.size() - 1;
+        if (topLevel && builder.count == 0) {
+          rootPageIndex = builder.childPageIndexes[0];
+          height = level + 1;
+        } else {
+          final int pageIndex = writeInterior(builder);
+          height = level + 2;
+          if (topLevel) {
+            rootPageIndex = pageIndex;
+          } else {
+            addChild(level + 1, builder.firstKey, pageIndex);
+          }
+        }
+      }
+      final Page headerPage = this.pageManager.getPage(0);
+      try {
+        headerPage.setOffset(0);
+        headerPage.writeInt(MAGIC);
+        headerPage.writeByte((byte)this.keySize);
+        headerPage.writeInt(this.valueSize);
+        headerPage.writeInt(rootPageIndex);
+        headerPage.writeInt(height);
+        headerPage.writeLong(this.size);
+        headerPage.writeInt(this.firstLeafPageIndex);
+      } finally {
+        this.pageManager.releasePage(headerPage);
+      }
+      return new BPlusTreeLongMap(this.pageManager);
+    }
+
+    private int writeInterior(final InteriorBuilder builder) {
+      final Page page = this.pageManager.newPage();
+      try {
+        page.setOffset(0);
+        page.writeByte(BPlusTreeMap.INTERIOR);
+        page.writeShort((short)builder.count);
+        page.writeInt(0);
+        for (int i = 0; i <= builder.count; i++) {
+          page.writeInt(builder.childPageIndexes[i]);
+        }
+        for (int i = 0; i < builder.count; i++) {
+          writeKey(page, this.keySize, builder.keys[i]);
+        }
+        return page.getIndex();
+      } finally {
+        this.pageManager.releasePage(page);
+      }
+    }
+
+    private void writeLeaf() {
+      final Page page = this.pageManager.newPage();
+      final int pageIndex = page.getIndex();
+      if (this.previousLeaf == null) {
+        this.firstLeafPageIndex = pageIndex;
+      } else {
+        this.previousLeaf.setOffset(3);
+        this.previousLeaf.writeInt(pageIndex);
+        this.pageManager.releasePage(this.previousLeaf);
+      }
+      page.setOffset(0);
+      page.writeByte(BPlusTreeMap.LEAF);
+      page.writeShort((short)this.leafCount);
+      page.writeInt(-1);
+      for (int i = 0; i < this.leafCount; i++) {
+        writeKey(page, this.keySize, this.leafKeys[i]);
+      }
+      if (this.valueSize < 0) {
+        for (int i = 0; i < this.leafCount; i++) {
+          page.writeShort(this.leafValueEnds[i]);
+        }
+      }
+      page.writeBytes(this.leafValues, 0, this.leafValueSize);
+      this.previousLeaf = page;
+      if (this.leafCount > 0) {
+        addChild(0, this.leafKeys[0], pageIndex);
+      } else {
+        addChild(0, 0, pageIndex);
+      }
+      this.leafCount = 0;
+      this.leafValueSize = 0;
+    }
+  }
+
+  private static final int INTERIOR_HEADER_SIZE = 7;
+
+  private static final int LEAF_HEADER_SIZE = 7;
+
+  private static final int MAGIC = 0x42544c4d;
+
+  public static Loader newIntLoader(final PageManager pageManager, final int valueSize) {
+    return new Loader(pageManager, 4, valueSize);
+  }
+
+  /**
+   * Create a loader for a tree with int keys in a temporary file.
+   *
+   * @param valueSize The number of bytes in each value or -1 for variable length values.
+   * @return The loader.
+   */
+  public static Loader newIntTempDisk(final int valueSize) {
+    return newIntLoader(newTempPageManager(), valueSize);
+  }
+
+  public static Loader newLongLoader(final PageManager pageManager, final int valueSize) {
+    return new Loader(pageManager, 8, valueSize);
+  }
+
+  /**
+   * Create a loader for a tree with long keys in a temporary file.
+   *
+   * @param valueSize The number of bytes in each value or -1 for variable length values.
+   * @return The loader.
+   */
+  public static Loader newLongTempDisk(final int valueSize) {
+    return newLongLoader(newTempPageManager(), valueSize);
+  }
+
+  private static PageManager newTempPageManager() {
+    final File file = FileUtil.newTempFile("long", ".btree");
+    return new MappedSegmentPageManager(file, 8192, MappedSegmentPageManager.DEFAULT_SEGMENT_SIZE);
+  }
+
+  private static long readKey(final Page page, final int keySize) {
+    if (keySize == 4) {
+      return page.readInt();
+    } else {
+      return page.readLong();
+    }
+  }
+
+  private static void writeKey(final Page page, final int keySize, final long key) {
+    if (keySize == 4) {
+      page.writeInt((int)key);
+    } else {
+      page.writeLong(key);
+    }
+  }
+
+  private final int firstLeafPageIndex;
+
+  private final int height;
+
+  private final int keySize;
+
+  private PageManager pageManager;
+
+  private final int rootPageIndex;
+
+  private final long size;
+
+  private final int valueSize;
+
+  /**
+   * Open a map that was previously created using a {@link Loader}.
+   *
+   * @param pageManager The page manager containing the tree.
+   */
+  public BPlusTreeLongMap(final PageManager pageManager) {
+    this.pageManager = pageManager;
+    final Page headerPage = pageManager.getPageRead(0);
+    try {
+      headerPage.setOffset(0);
+      if (headerPage.readInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a " + getClass().getSimpleName());
+      }
+      this.keySize = headerPage.readByte();
+      this.valueSize = headerPage.readInt();
+      this.rootPageIndex = headerPage.readInt();
+      this.height = headerPage.readInt();
+      this.size = headerPage.readLong();
+      this.firstLeafPageIndex = headerPage.readInt();
+    } finally {
+      pageManager.releasePage(headerPage);
+    }
+  }
+
+  @Override
+  public void close() {
+    final PageManager pageManager = this.pageManager;
+    this.pageManager = null;
+    if (pageManager instanceof BaseCloseable) {
+      ((BaseCloseable)pageManager).close();
+    }
+  }
+
+  /**
+   * Visit the entries with fromKey <= key <= toKey in key order.
+   *
+   * @param fromKey The minimum key.
+   * @param toKey The maximum key.
+   * @param action The action to perform on each entry.
+   * @return The number of entries visited.
+   */
+  public long forEach(final long fromKey, final long toKey, final EntryConsumer action) {
+    long count = 0;
+    if (fromKey <= toKey) {
+      final byte[] bytes = new byte[this.pageManager.getPageSize()];
+      Page page = getLeafPage(fromKey);
+      int index = lowerBound(page, fromKey);
+      try {
+        while (page != null) {
+          final int leafCount = getCount(page);
+          for (; index < leafCount; index++) {
+            page.setOffset(LEAF_HEADER_SIZE + index * this.keySize);
+            final long key = readKey(page, this.keySize);
+            if (key > toKey) {
+              return count;
+            }
+            final int length = readValue(page, leafCount, index, bytes);
+            action.accept(key, bytes, length);
+            count++;
+          }
+          page.setOffset(3);
+          final int nextPageIndex = page.readInt();
+          this.pageManager.releasePage(page);
+          page = null;
+          if (nextPageIndex != -1) {
+            page = this.pageManager.getPageRead(nextPageIndex);
+            index = 0;
+          }
+        }
+      } finally {
+        if (page != null) {
+          this.pageManager.releasePage(page);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Visit all the entries in key order.
+   *
+   * @param action The action to perform on each entry.
+   * @return The number of entries visited.
+   */
+  public long forEach(final EntryConsumer action) {
+    return forEach(Long.MIN_VALUE, Long.MAX_VALUE, action);
+  }
+
+  /**
+   * Get the value for the key.
+   *
+   * @param key The key.
+   * @return The value or null if the key does not exist.
+   */
+  public byte[] get(final long key) {
+    final Page page = getLeafPage(key);
+    try {
+      final int index = indexOf(page, key);
+      if (index < 0) {
+        return null;
+      } else {
+        final byte[] bytes = new byte[this.pageManager.getPageSize()];
+        final int length = readValue(page, getCount(page), index, bytes);
+        final byte[] value = new byte[length];
+        System.arraycopy(bytes, 0, value, 0, length);
+        return value;
+      }
+    } finally {
+      this.pageManager.releasePage(page);
+    }
+  }
+
+  private int getCount(final Page page) {
+    page.setOffset(1);
+    return page.readShort() & 0xFFFF;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Get the value for a key where the values are 4 byte ints.
+   *
+   * @param key The key.
+   * @param defaultValue The value to return if the key does not exist.
+   * @return The value.
+   */
+  public int getInt(final long key, final int defaultValue) {
+    final Page page = getLeafPage(key);
+    try {
+      final int index = indexOf(page, key);
+      if (index < 0) {
+        return defaultValue;
+      } else {
+        setValueOffset(page, getCount(page), index);
+        return page.readInt();
+      }
+    } finally {
+      this.pageManager.releasePage(page);
+    }
+  }
+
+  public int getKeySize() {
+    return this.keySize;
+  }
+
+  private Page getLeafPage(final long key) {
+    Page page = this.pageManager.getPageRead(this.rootPageIndex);
+    try {
+      while (true) {
+        page.setOffset(0);
+        final byte pageType = page.readByte();
+        if (pageType == BPlusTreeMap.LEAF) {
+          final Page leafPage = page;
+          page = null;
+          return leafPage;
+        } else if (pageType == BPlusTreeMap.INTERIOR) {
+          final int count = page.readShort() & 0xFFFF;
+          final int keysOffset = INTERIOR_HEADER_SIZE + (count + 1) * 4;
+          int low = 0;
+          int high = count - 1;
+          while (low <= high) {
+            final int mid = low + high >>> 1;
+            page.setOffset(keysOffset + mid * this.keySize);
+            final long midKey = readKey(page, this.keySize);
+            if (midKey <= key) {
+              low = mid + 1;
+            } else {
+              high = mid - 1;
+            }
+          }
+          page.setOffset(INTERIOR_HEADER_SIZE + low * 4);
+          final int childPageIndex = page.readInt();
+          this.pageManager.releasePage(page);
+          page = null;
+          page = this.pageManager.getPageRead(childPageIndex);
+        } else {
+          throw new IllegalArgumentException("Unknown page type " + pageType);
+        }
+      }
+    } finally {
+      if (page != null) {
+        this.pageManager.releasePage(page);
+      }
+    }
+  }
+
+  /**
+   * Get the value for a key where the values are 8 byte longs.
+   *
+   * @param key The key.
+   * @param defaultValue The value to return if the key does not exist.
+   * @return The value.
+   */
+  public long getLong(final long key, final long defaultValue) {
+    final Page page = getLeafPage(key);
+    try {
+      final int index = indexOf(page, key);
+      if (index < 0) {
+        return defaultValue;
+      } else {
+        setValueOffset(page, getCount(page), index);
+        return page.readLong();
+      }
+    } finally {
+      this.pageManager.releasePage(page);
+    }
+  }
+
+  public PageManager getPageManager() {
+    return this.pageManager;
+  }
+
+  /**
+   * Get the number of bytes in each value.
+   *
+   * @return The number of bytes or -1 for variable length values.
+   */
+  public int getValueSize() {
+    return this.valueSize;
+  }
+
+  private int indexOf(final Page page, final long key) {
+    final int index = lowerBound(page, key);
+    if (index < getCount(page)) {
+      page.setOffset(LEAF_HEADER_SIZE + index * this.keySize);
+      if (readKey(page, this.keySize) == key) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Get the index of the first key in the leaf that is >= key.
+   */
+  private int lowerBound(final Page page, final long key) {
+    int low = 0;
+    int high = getCount(page) - 1;
+    while (low <= high) {
+      final int mid = low + high >>> 1;
+      page.setOffset(LEAF_HEADER_SIZE + mid * this.keySize);
+      final long midKey = readKey(page, this.keySize);
+      if (midKey < key) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private int readValue(final Page page, final int leafCount, final int index,
+    final byte[] bytes) {
+    final int length = setValueOffset(page, leafCount, index);
+    page.readBytes(bytes, 0, length);
+    return length;
+  }
+
+  /**
+   * Set the offset of the page to the start of the value and return the length of the value.
+   */
+  private int setValueOffset(final Page page, final int leafCount, final int index) {
+    final int valuesOffset = LEAF_HEADER_SIZE + leafCount * this.keySize;
+    if (this.valueSize < 0) {
+      final int endsOffset = valuesOffset;
+      final int valuesStart = endsOffset + leafCount * 2;
+      int start = 0;
+      if (index > 0) {
+        page.setOffset(endsOffset + (index - 1) * 2);
+        start = page.readShort() & 0xFFFF;
+      } else {
+        page.setOffset(endsOffset);
+      }
+      final int end = page.readShort() & 0xFFFF;
+      page.setOffset(valuesStart + start);
+      return end - start;
+    } else {
+      page.setOffset(valuesOffset + index * this.valueSize);
+      return this.valueSize;
+    }
+  }
+
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + this.size + ", height=" + this.height;
+  }
+}
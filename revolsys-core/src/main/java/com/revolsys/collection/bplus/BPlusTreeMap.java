@@ -12,8 +12,8 @@ import java.util.Set;
 import com.revolsys.collection.map.MapKeySetEntrySet;
 import com.revolsys.comparator.Comparators;
 import com.revolsys.io.FileUtil;
-import com.revolsys.io.page.FileMappedPageManager;
 import com.revolsys.io.page.FilePageManager;
+import com.revolsys.io.page.MappedSegmentPageManager;
 import com.revolsys.io.page.MemoryPageManager;
 import com.revolsys.io.page.MethodPageValueManager;
 import com.revolsys.io.page.Page;
@@ -128,10 +128,25 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     return map;
   }
 
+  public static <K extends Comparable<K>, V> Map<K, V> newTempDisk(
+    final PageValueManager<K> keyManager, final PageValueManager<V> valueManager) {
+    return newTempDisk(keyManager, valueManager, MappedSegmentPageManager.DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Create a map backed by a temporary file mapped in large segments. Large pages reduce the
+   * depth of the tree for large maps.
+   *
+   * @param keyManager The key manager.
+   * @param valueManager The value manager.
+   * @param pageSize The page size in bytes.
+   * @return The map.
+   */
   public static <K extends Comparable<K>, V> Map<K, V> newTempDisk(PageValueManager<K> keyManager,
-    PageValueManager<V> valueManager) {
+    PageValueManager<V> valueManager, final int pageSize) {
     final File file = FileUtil.newTempFile("temp", ".bplustree");
-    final PageManager pageManager = new FileMappedPageManager(file);
+    final PageManager pageManager = new MappedSegmentPageManager(file, pageSize,
+      MappedSegmentPageManager.DEFAULT_SEGMENT_SIZE);
 
     if (keyManager instanceof SerializablePageValueManager) {
       final SerializablePageValueManager<K> serializeableManager = (SerializablePageValueManager<K>)keyManager;
@@ -204,8 +219,11 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     this.minSize = (int)(this.fillFactor * pages.getPageSize());
     if (pages.getNumPages() == 0) {
       final Page rootPage = pages.newPage();
-      writeLeafHeader(rootPage, LEAF, -1);
-      pages.releasePage(rootPage);
+      try {
+        writeLeafHeader(rootPage, LEAF, -1);
+      } finally {
+        pages.releasePage(rootPage);
+      }
     }
   }
 
@@ -215,18 +233,19 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
   }
 
   protected V get(final int pageIndex, final K key) {
-    V result;
-    final Page page = this.pages.getPage(pageIndex);
-    final byte pageType = page.readByte();
-    if (pageType == INTERIOR) {
-      result = getInterior(page, key);
-    } else if (pageType == LEAF) {
-      result = getLeaf(page, key);
-    } else {
-      throw new IllegalArgumentException("Unknown page type " + pageType);
+    final Page page = this.pages.getPageRead(pageIndex);
+    try {
+      final byte pageType = page.readByte();
+      if (pageType == INTERIOR) {
+        return getInterior(page, key);
+      } else if (pageType == LEAF) {
+        return getLeaf(page, key);
+      } else {
+        throw new IllegalArgumentException("Unknown page type " + pageType);
+      }
+    } finally {
+      this.pages.releasePage(page);
     }
-    this.pages.releasePage(page);
-    return result;
   }
 
   @Override
@@ -268,21 +287,20 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
   @SuppressWarnings("unchecked")
   <T> int getLeafValues(final List<T> values, int pageIndex, final boolean key) {
     values.clear();
-    final Page page = this.pages.getPage(pageIndex);
-
-    final byte pageType = page.readByte();
-    while (pageType == INTERIOR) {
-      page.readShort(); // skip num bytes
-      pageIndex = page.readInt();
-      this.pages.releasePage(page);
-    }
+    final Page page = this.pages.getPageRead(pageIndex);
+    try {
+      final byte pageType = page.readByte();
+      while (pageType == INTERIOR) {
+        page.readShort(); // skip num bytes
+        pageIndex = page.readInt();
+        this.pages.releasePage(page);
+      }
 
-    if (pageType != LEAF) {
-      throw new IllegalArgumentException("Unknown page type " + pageType);
-    }
+      if (pageType != LEAF) {
+        throw new IllegalArgumentException("Unknown page type " + pageType);
+      }
 
-    // TODO traverse to leaf
-    try {
+      // TODO traverse to leaf
       final int numBytes = page.readShort();
       final int nextPageId = page.readInt();
       while (page.getOffset() < numBytes) {
@@ -372,18 +390,19 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
 
   protected PutResult put(final int pageIndex, final Integer nextPageIndex, final K key,
     final V value) {
-    PutResult result;
     final Page page = this.pages.getPage(pageIndex);
-    final byte pageType = page.readByte();
-    if (pageType == INTERIOR) {
-      result = putInterior(page, key, value);
-    } else if (pageType == LEAF) {
-      result = putLeaf(page, nextPageIndex, key, value);
-    } else {
-      throw new IllegalArgumentException("Unknown page type " + pageType);
+    try {
+      final byte pageType = page.readByte();
+      if (pageType == INTERIOR) {
+        return putInterior(page, key, value);
+      } else if (pageType == LEAF) {
+        return putLeaf(page, nextPageIndex, key, value);
+      } else {
+        throw new IllegalArgumentException("Unknown page type " + pageType);
+      }
+    } finally {
+      this.pages.releasePage(page);
     }
-    this.pages.releasePage(page);
-    return result;
   }
 
   @Override
@@ -392,22 +411,28 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     final PutResult result = put(this.rootPageIndex, -1, key, value);
     if (result.wasSplit()) {
       final Page rootPage = this.pages.getPage(this.rootPageIndex);
-      final Page leftPage = this.pages.newPage();
-      leftPage.setContent(rootPage);
+      try {
+        final Page leftPage = this.pages.newPage();
+        try {
+          leftPage.setContent(rootPage);
 
-      rootPage.clear();
-      writePageHeader(rootPage, INTERIOR);
+          rootPage.clear();
+          writePageHeader(rootPage, INTERIOR);
 
-      final int firstChildPageIndex = leftPage.getIndex();
-      rootPage.writeInt(firstChildPageIndex);
+          final int firstChildPageIndex = leftPage.getIndex();
+          rootPage.writeInt(firstChildPageIndex);
 
-      final byte[] keyBytes = result.newKeyBytes;
-      rootPage.writeBytes(keyBytes);
+          final byte[] keyBytes = result.newKeyBytes;
+          rootPage.writeBytes(keyBytes);
 
-      rootPage.writeBytes(result.newPageIndexBytes);
-      setNumBytes(rootPage);
-      this.pages.releasePage(rootPage);
-      this.pages.releasePage(leftPage);
+          rootPage.writeBytes(result.newPageIndexBytes);
+          setNumBytes(rootPage);
+        } finally {
+          this.pages.releasePage(leftPage);
+        }
+      } finally {
+        this.pages.releasePage(rootPage);
+      }
     }
     if (!result.hasOldValue) {
       this.size++;
@@ -629,12 +654,15 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     } else {
       setInteriorKeyAndValueBytes(page, keysBytes, pageIndexBytes, 0, splitIndex);
       final Page rightPage = this.pages.newPage();
-      setInteriorKeyAndValueBytes(rightPage, keysBytes, pageIndexBytes, splitIndex,
-        keysBytes.size());
-
-      result.newPageIndexBytes = MethodPageValueManager.getValueIntBytes(rightPage.getIndex());
-      result.newKeyBytes = keysBytes.get(splitIndex);
-      this.pages.releasePage(rightPage);
+      try {
+        setInteriorKeyAndValueBytes(rightPage, keysBytes, pageIndexBytes, splitIndex,
+          keysBytes.size());
+
+        result.newPageIndexBytes = MethodPageValueManager.getValueIntBytes(rightPage.getIndex());
+        result.newKeyBytes = keysBytes.get(splitIndex);
+      } finally {
+        this.pages.releasePage(rightPage);
+      }
     }
   }
 
@@ -659,14 +687,17 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
       setLeafKeyAndValueBytes(page, keysBytes, valuesBytes, 0, keysBytes.size(), nextPageIndex);
     } else {
       final Page rightPage = this.pages.newPage();
-      final int rightPageIndex = rightPage.getIndex();
-      setLeafKeyAndValueBytes(page, keysBytes, valuesBytes, 0, splitIndex, rightPageIndex);
-      setLeafKeyAndValueBytes(rightPage, keysBytes, valuesBytes, splitIndex, keysBytes.size(),
-        nextPageIndex);
-
-      result.newPageIndexBytes = MethodPageValueManager.getValueIntBytes(rightPageIndex);
-      result.newKeyBytes = keysBytes.get(splitIndex);
-      this.pages.releasePage(rightPage);
+      try {
+        final int rightPageIndex = rightPage.getIndex();
+        setLeafKeyAndValueBytes(page, keysBytes, valuesBytes, 0, splitIndex, rightPageIndex);
+        setLeafKeyAndValueBytes(rightPage, keysBytes, valuesBytes, splitIndex, keysBytes.size(),
+          nextPageIndex);
+
+        result.newPageIndexBytes = MethodPageValueManager.getValueIntBytes(rightPageIndex);
+        result.newKeyBytes = keysBytes.get(splitIndex);
+      } finally {
+        this.pages.releasePage(rightPage);
+      }
     }
   }
 
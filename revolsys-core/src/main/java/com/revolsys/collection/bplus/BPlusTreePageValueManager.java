@@ -29,22 +29,25 @@ public class BPlusTreePageValueManager<T> implements PageValueManager<T> {
   public void disposeBytes(final byte[] bytes) {
     final int pageIndex = MethodPageValueManager.getIntValue(bytes);
     Page dataPage = this.pageManager.getPage(pageIndex);
-    dataPage.setOffset(0);
-    byte pageType = dataPage.readByte();
-    while (pageType == BPlusTreeMap.EXTENDED) {
-      BPlusTreeMap.skipHeader(dataPage);
-      final int nextPageIndex = dataPage.readInt();
-      this.pageManager.removePage(dataPage);
-      dataPage = this.pageManager.getPage(nextPageIndex);
+    try {
       dataPage.setOffset(0);
-      pageType = dataPage.readByte();
-    }
-    if (pageType == BPlusTreeMap.DATA) {
-      this.pageManager.removePage(dataPage);
+      byte pageType = dataPage.readByte();
+      while (pageType == BPlusTreeMap.EXTENDED) {
+        BPlusTreeMap.skipHeader(dataPage);
+        final int nextPageIndex = dataPage.readInt();
+        this.pageManager.removePage(dataPage);
+        dataPage = this.pageManager.getPage(nextPageIndex);
+        dataPage.setOffset(0);
+        pageType = dataPage.readByte();
+      }
+      if (pageType == BPlusTreeMap.DATA) {
+        this.pageManager.removePage(dataPage);
+      } else {
+        throw new IllegalArgumentException(
+          "Expecting a data page " + BPlusTreeMap.DATA + " not " + pageType);
+      }
+    } finally {
       this.pageManager.releasePage(dataPage);
-    } else {
-      throw new IllegalArgumentException(
-        "Expecting a data page " + BPlusTreeMap.DATA + " not " + pageType);
     }
   }
 
@@ -64,12 +67,15 @@ public class BPlusTreePageValueManager<T> implements PageValueManager<T> {
       final int pageIndex = page.getIndex();
       while (valueBytes.length + 3 > offset + pageSize) {
         final Page nextPage = this.pageManager.newPage();
-        BPlusTreeMap.writePageHeader(page, BPlusTreeMap.EXTENDED);
-        page.writeInt(nextPage.getIndex());
-        page.writeBytes(valueBytes, offset, pageSize - 7);
-        BPlusTreeMap.setNumBytes(page);
-        this.pageManager.releasePage(page);
-        page = nextPage;
+        try {
+          BPlusTreeMap.writePageHeader(page, BPlusTreeMap.EXTENDED);
+          page.writeInt(nextPage.getIndex());
+          page.writeBytes(valueBytes, offset, pageSize - 7);
+          BPlusTreeMap.setNumBytes(page);
+        } finally {
+          this.pageManager.releasePage(page);
+          page = nextPage;
+        }
         offset += pageSize - 7;
       }
 
@@ -86,7 +92,7 @@ public class BPlusTreePageValueManager<T> implements PageValueManager<T> {
   @Override
   public <V extends T> V getValue(final byte[] indexBytes) {
     final int pageIndex = MethodPageValueManager.getIntValue(indexBytes);
-    Page dataPage = this.pageManager.getPage(pageIndex);
+    Page dataPage = this.pageManager.getPageRead(pageIndex);
     try {
       dataPage.setOffset(0);
       byte pageType = dataPage.readByte();
@@ -99,7 +105,7 @@ public class BPlusTreePageValueManager<T> implements PageValueManager<T> {
         pageBytes.add(bytes);
         size += bytes.length;
         this.pageManager.releasePage(dataPage);
-        dataPage = this.pageManager.getPage(nextPageIndex);
+        dataPage = this.pageManager.getPageRead(nextPageIndex);
         dataPage.setOffset(0);
         pageType = dataPage.readByte();
       }
@@ -0,0 +1,414 @@
+package com.revolsys.collection.map;
+
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe least recently used cache with primitive long keys. The entries are split across
+ * lock stripes using the hash of the key so threads accessing different keys rarely contend on the
+ * same lock. Each stripe evicts its least recently used entries when the stripe's share of the
+ * maximum size or maximum weight is exceeded. Pinned entries are never evicted.
+ *
+ * <p>Values are loaded outside of the stripe lock so a slow load doesn't block other threads. If
+ * two threads load the same key at the same time the value loaded first is kept.</p>
+ *
+ * @param <V> The type of value.
+ */
+public class StripedLongLruCache<V> {
+
+  private static class Node<V> {
+    private Node<V> bucketNext;
+
+    private final int hash;
+
+    private final long key;
+
+    private Node<V> next;
+
+    private int pinCount;
+
+    private Node<V> previous;
+
+    private final V value;
+
+    private final long weight;
+
+    private Node(final long key, final int hash, final V value, final long weight) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  private class Stripe {
+    private Node<V>[] buckets = newBuckets(16);
+
+    /** Sentinel, head.next is the least recently used, head.previous the most recently used. */
+    private final Node<V> head = new Node<>(0, 0, null, 0);
+
+    private int size;
+
+    private long weight;
+
+    private Stripe() {
+      this.head.next = this.head;
+      this.head.previous = this.head;
+    }
+
+    private synchronized void clear() {
+      this.buckets = newBuckets(16);
+      this.head.next = this.head;
+      this.head.previous = this.head;
+      this.size = 0;
+      this.weight = 0;
+    }
+
+    private void evict() {
+      final int maxSize = StripedLongLruCache.this.stripeMaxSize;
+      final long maxWeight = StripedLongLruCache.this.stripeMaxWeight;
+      Node<V> node = this.head.next;
+      while ((this.size > maxSize || this.weight > maxWeight) && node != this.head) {
+        final Node<V> next = node.next;
+        if (node.pinCount == 0) {
+          removeNode(node);
+        }
+        node = next;
+      }
+    }
+
+    private synchronized V get(final long key, final int hash, final boolean pin) {
+      final Node<V> node = getNode(key, hash);
+      if (node == null) {
+        return null;
+      } else {
+        if (pin) {
+          node.pinCount++;
+        }
+        moveToMostRecent(node);
+        return node.value;
+      }
+    }
+
+    private Node<V> getNode(final long key, final int hash) {
+      final Node<V>[] buckets = this.buckets;
+      Node<V> node = buckets[hash & buckets.length - 1];
+      while (node != null) {
+        if (node.key == key) {
+          return node;
+        }
+        node = node.bucketNext;
+      }
+      return null;
+    }
+
+    private void linkMostRecent(final Node<V> node) {
+      final Node<V> head = this.head;
+      final Node<V> last = head.previous;
+      node.previous = last;
+      node.next = head;
+      last.next = node;
+      head.previous = node;
+    }
+
+    private void moveToMostRecent(final Node<V> node) {
+      if (this.head.previous != node) {
+        unlink(node);
+        linkMostRecent(node);
+      }
+    }
+
+    private synchronized V put(final long key, final int hash, final V value, final long weight,
+      final boolean pin) {
+      final Node<V> existingNode = getNode(key, hash);
+      if (existingNode != null) {
+        if (pin) {
+          existingNode.pinCount++;
+        }
+        moveToMostRecent(existingNode);
+        return existingNode.value;
+      } else {
+        final Node<V> node = new Node<>(key, hash, value, weight);
+        if (pin) {
+          node.pinCount = 1;
+        }
+        if (this.size >= this.buckets.length) {
+          resize();
+        }
+        final Node<V>[] buckets = this.buckets;
+        final int index = hash & buckets.length - 1;
+        node.bucketNext = buckets[index];
+        buckets[index] = node;
+        linkMostRecent(node);
+        this.size++;
+        this.weight += weight;
+        evict();
+        return value;
+      }
+    }
+
+    private synchronized V remove(final long key, final int hash) {
+      final Node<V> node = getNode(key, hash);
+      if (node == null) {
+        return null;
+      } else {
+        removeNode(node);
+        return node.value;
+      }
+    }
+
+    private void removeNode(final Node<V> node) {
+      final Node<V>[] buckets = this.buckets;
+      final int index = node.hash & buckets.length - 1;
+      Node<V> previous = null;
+      for (Node<V> current = buckets[index]; current != null; current = current.bucketNext) {
+        if (current == node) {
+          if (previous == null) {
+            buckets[index] = node.bucketNext;
+          } else {
+            previous.bucketNext = node.bucketNext;
+          }
+          break;
+        }
+        previous = current;
+      }
+      unlink(node);
+      this.size--;
+      this.weight -= node.weight;
+    }
+
+    private void resize() {
+      final Node<V>[] oldBuckets = this.buckets;
+      final Node<V>[] buckets = newBuckets(oldBuckets.length * 2);
+      final int mask = buckets.length - 1;
+      for (Node<V> node : oldBuckets) {
+        while (node != null) {
+          final Node<V> next = node.bucketNext;
+          final int index = node.hash & mask;
+          node.bucketNext = buckets[index];
+          buckets[index] = node;
+          node = next;
+        }
+      }
+      this.buckets = buckets;
+    }
+
+    private synchronized void trim() {
+      evict();
+    }
+
+    private void unlink(final Node<V> node) {
+      node.previous.next = node.next;
+      node.next.previous = node.previous;
+      node.previous = null;
+      node.next = null;
+    }
+
+    private synchronized void unpin(final long key, final int hash) {
+      final Node<V> node = getNode(key, hash);
+      if (node != null && node.pinCount > 0) {
+        node.pinCount--;
+        if (node.pinCount == 0) {
+          evict();
+        }
+      }
+    }
+  }
+
+  public static final int DEFAULT_STRIPE_COUNT = 16;
+
+  private static int hash(final long key) {
+    final long hash = key * 0x9E3779B97F4A7C15L;
+    return (int)(hash ^ hash >>> 32);
+  }
+
+  /**
+   * Pack two int values (e.g. a tile x and y index) into a single long key.
+   *
+   * @param x The x value in the upper 32 bits.
+   * @param y The y value in the lower 32 bits.
+   * @return The key.
+   */
+  public static long toKey(final int x, final int y) {
+    return (long)x << 32 | y & 0xFFFFFFFFL;
+  }
+
+  private int maxSize;
+
+  private long maxWeight = Long.MAX_VALUE;
+
+  private final int stripeMask;
+
+  private volatile int stripeMaxSize;
+
+  private volatile long stripeMaxWeight = Long.MAX_VALUE;
+
+  private final Stripe[] stripes;
+
+  private ToLongFunction<? super V> weigher = value -> 0;
+
+  public StripedLongLruCache(final int maxSize) {
+    this(maxSize, DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * @param maxSize The maximum number of entries.
+   * @param stripeCount The number of lock stripes, rounded up to a power of 2. The count is
+   * reduced for small caches so each stripe can hold at least 8 entries.
+   */
+  @SuppressWarnings("unchecked")
+  public StripedLongLruCache(final int maxSize, final int stripeCount) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be > 0 not " + maxSize);
+    }
+    int count = 1;
+    while (count < stripeCount) {
+      count <<= 1;
+    }
+    while (count > 1 && maxSize / count < 8) {
+      count >>>= 1;
+    }
+    this.stripes = new StripedLongLruCache.Stripe[count];
+    for (int i = 0; i < count; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.stripeMask = count - 1;
+    setMaxSize(maxSize);
+  }
+
+  public void clear() {
+    for (final Stripe stripe : this.stripes) {
+      stripe.clear();
+    }
+  }
+
+  /**
+   * Get the cached value.
+   *
+   * @param key The key.
+   * @return The value or null if it isn't in the cache.
+   */
+  public V get(final long key) {
+    final int hash = hash(key);
+    return getStripe(hash).get(key, hash, false);
+  }
+
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  public long getMaxWeight() {
+    return this.maxWeight;
+  }
+
+  /**
+   * Get the cached value, loading and caching it if it isn't in the cache. Null values are not
+   * cached.
+   *
+   * @param key The key.
+   * @param loader The function to load the value.
+   * @return The value.
+   */
+  public V getOrLoad(final long key, final LongFunction<? extends V> loader) {
+    return getOrLoad(key, loader, false);
+  }
+
+  private V getOrLoad(final long key, final LongFunction<? extends V> loader, final boolean pin) {
+    final int hash = hash(key);
+    final Stripe stripe = getStripe(hash);
+    final V cachedValue = stripe.get(key, hash, pin);
+    if (cachedValue != null) {
+      return cachedValue;
+    } else {
+      final V value = loader.apply(key);
+      if (value == null) {
+        return null;
+      } else {
+        final long weight = this.weigher.applyAsLong(value);
+        return stripe.put(key, hash, value, weight, pin);
+      }
+    }
+  }
+
+  private Stripe getStripe(final int hash) {
+    return this.stripes[hash >>> 24 & this.stripeMask];
+  }
+
+  public long getWeight() {
+    long weight = 0;
+    for (final Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        weight += stripe.weight;
+      }
+    }
+    return weight;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Node<V>[] newBuckets(final int size) {
+    return new Node[size];
+  }
+
+  /**
+   * Get the value, loading it if required, and pin it in the cache so it won't be evicted until
+   * {@link #unpin(long)} is called the same number of times.
+   *
+   * @param key The key.
+   * @param loader The function to load the value.
+   * @return The value or null if the value could not be loaded.
+   */
+  public V pin(final long key, final LongFunction<? extends V> loader) {
+    return getOrLoad(key, loader, true);
+  }
+
+  public V remove(final long key) {
+    final int hash = hash(key);
+    return getStripe(hash).remove(key, hash);
+  }
+
+  public void setMaxSize(final int maxSize) {
+    this.maxSize = maxSize;
+    final int stripeCount = this.stripes.length;
+    this.stripeMaxSize = Math.max(1, (maxSize + stripeCount - 1) / stripeCount);
+    for (final Stripe stripe : this.stripes) {
+      stripe.trim();
+    }
+  }
+
+  /**
+   * Set the maximum total weight (e.g. memory size in bytes) of the cached values as calculated
+   * by the {@link #setWeigher(ToLongFunction)}.
+   *
+   * @param maxWeight The maximum weight.
+   */
+  public void setMaxWeight(final long maxWeight) {
+    this.maxWeight = maxWeight;
+    if (maxWeight == Long.MAX_VALUE) {
+      this.stripeMaxWeight = Long.MAX_VALUE;
+    } else {
+      this.stripeMaxWeight = Math.max(1, maxWeight / this.stripes.length);
+    }
+    for (final Stripe stripe : this.stripes) {
+      stripe.trim();
+    }
+  }
+
+  public void setWeigher(final ToLongFunction<? super V> weigher) {
+    this.weigher = weigher;
+  }
+
+  public int size() {
+    int size = 0;
+    for (final Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  public void unpin(final long key) {
+    final int hash = hash(key);
+    getStripe(hash).unpin(key, hash);
+  }
+}
@@ -67,10 +67,20 @@ public class ThreadSharedProperties {
   }
 
   public static Map<Object, Object> getThreadGroupProperties() {
+    final Thread thread = Thread.currentThread();
+    final ThreadGroup threadGroup = thread.getThreadGroup();
+    return getThreadGroupProperties(threadGroup);
+  }
+
+  /**
+   * Get the properties a new thread in the thread group would use.
+   *
+   * @param threadGroup The thread group.
+   * @return The properties.
+   */
+  public static Map<Object, Object> getThreadGroupProperties(final ThreadGroup threadGroup) {
     synchronized (threadGroupProperties) {
       Map<Object, Object> properties = null;
-      final Thread thread = Thread.currentThread();
-      final ThreadGroup threadGroup = thread.getThreadGroup();
       if (threadGroup != null) {
         properties = threadGroupProperties.get(threadGroup);
       }
@@ -93,6 +103,17 @@ public class ThreadSharedProperties {
     }
   }
 
+  /**
+   * Use the properties for the current thread. This is used for threads such as virtual threads
+   * where the properties can't be shared using a {@link ThreadGroup}.
+   *
+   * @param properties The properties, typically from
+   * {@link #getThreadGroupProperties(ThreadGroup)} when the thread was created.
+   */
+  public static void initialiseThread(final Map<Object, Object> properties) {
+    threadProperties.set(properties);
+  }
+
   public static void initialiseThreadGroup(final ThreadGroup threadGroup) {
     final Map<Object, Object> properties = getLocalProperties();
     synchronized (threadGroupProperties) {
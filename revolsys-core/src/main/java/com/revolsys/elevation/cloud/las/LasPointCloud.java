@@ -18,7 +18,9 @@ import com.revolsys.elevation.cloud.PointCloud;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
 import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
 import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
+import com.revolsys.elevation.cloud.las.zip.LasZipParallelChunkedReader;
 import com.revolsys.elevation.cloud.las.zip.LasZipPointCloudWriterFactory;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
@@ -66,6 +68,8 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private boolean classificationsLoaded;
 
+  private int decompressSelective = LasZipDecompressSelective.ALL;
+
   private boolean exists;
 
   private double fileGpsTime = 0;
@@ -140,6 +144,13 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   @Override
   public void forEachPoint(final Consumer<? super LasPoint> action) {
+    try (
+      LasZipParallelChunkedReader chunkedReader = newParallelChunkedReader()) {
+      if (chunkedReader != null) {
+        chunkedReader.forEach(action);
+        return;
+      }
+    }
     final Iterable<LasPoint> iterable = iterable();
     try {
       iterable.forEach(action);
@@ -151,6 +162,24 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Call the action for each point. For chunked LASzip files the chunks are decompressed and the
+   * action called in parallel, the points are not in the order of the file and the action must be
+   * thread safe.
+   *
+   * @param action The action to perform on each point.
+   */
+  public void forEachPointParallel(final Consumer<? super LasPoint> action) {
+    try (
+      LasZipParallelChunkedReader chunkedReader = newParallelChunkedReader()) {
+      if (chunkedReader != null) {
+        chunkedReader.forEachParallel(action);
+        return;
+      }
+    }
+    forEachPoint(action);
+  }
+
   @Override
   public BoundingBox getBoundingBox() {
     if (this.header == null) {
@@ -181,6 +210,10 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  public int getDecompressSelective() {
+    return this.decompressSelective;
+  }
+
   @Override
   public Predicate<Point> getDefaultFilter() {
     return point -> LasClassification.GROUND == ((LasPoint)point).getClassification();
@@ -271,6 +304,33 @@ public class LasPointCloud extends BaseObjectWithProperties
     return this.header.newLasPoint(this, x, y, z);
   }
 
+  private LasZipParallelChunkedReader newParallelChunkedReader() {
+    if (this.allLoaded || !this.points.isEmpty()) {
+      return null;
+    } else {
+      ChannelReader reader = this.reader;
+      this.reader = null;
+      if (reader == null) {
+        reader = open();
+      }
+      if (reader == null) {
+        return null;
+      } else {
+        try {
+          final LasZipParallelChunkedReader chunkedReader = LasZipParallelChunkedReader
+            .newReader(this, reader);
+          if (chunkedReader == null) {
+            this.reader = reader;
+          }
+          return chunkedReader;
+        } catch (RuntimeException | Error e) {
+          reader.close();
+          throw e;
+        }
+      }
+    }
+  }
+
   @Override
   public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -339,6 +399,27 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.byteBuffer = byteBuffer;
   }
 
+  /**
+   * Set the {@link LasZipDecompressSelective} flags for the layers to decompress when reading
+   * layered (point format 6-10) LASzip files. The fields in the skipped layers are not decoded
+   * and will not contain the values from the file.
+   *
+   * @param decompressSelective The layers to decompress.
+   */
+  public void setDecompressSelective(final int decompressSelective) {
+    this.decompressSelective = decompressSelective;
+  }
+
+  /**
+   * Only decompress the layers required to read the fields when reading layered LASzip files.
+   *
+   * @param fieldNames The names of the fields to read (e.g. x, y, z, classification).
+   * @see #setDecompressSelective(int)
+   */
+  public void setDecompressSelectiveFieldNames(final Iterable<String> fieldNames) {
+    this.decompressSelective = LasZipDecompressSelective.getDecompressSelective(fieldNames);
+  }
+
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
     this.geometryFactory = geometryFactory;
   }
@@ -46,4 +46,79 @@ public interface LasZipDecompressSelective {
 
   int Z = 0x00000001;
 
+  /**
+   * Get the flags for the layers that must be decompressed to read the fields. The X, Y, return
+   * and scanner channel values are always decompressed.
+   *
+   * @param fieldNames The names of the point fields (e.g. x, y, z, classification).
+   * @return The flags.
+   */
+  static int getDecompressSelective(final Iterable<String> fieldNames) {
+    int decompressSelective = CHANNEL_RETURNS_XY;
+    for (final String fieldName : fieldNames) {
+      switch (fieldName) {
+        case "x":
+        case "y":
+        case "returnNumber":
+        case "numberOfReturns":
+        case "scannerChannel":
+        break;
+        case "z":
+        case "geometry":
+          decompressSelective |= Z;
+        break;
+        case "classification":
+          decompressSelective |= CLASSIFICATION;
+        break;
+        case "scanDirectionFlag":
+        case "edgeOfFlightLine":
+        case "synthetic":
+        case "keyPoint":
+        case "withheld":
+        case "overlap":
+        case "classificationFlags":
+          decompressSelective |= FLAGS;
+        break;
+        case "intensity":
+          decompressSelective |= INTENSITY;
+        break;
+        case "scanAngle":
+        case "scanAngleRank":
+          decompressSelective |= SCAN_ANGLE;
+        break;
+        case "userData":
+          decompressSelective |= USER_DATA;
+        break;
+        case "pointSourceID":
+          decompressSelective |= POINT_SOURCE;
+        break;
+        case "gpsTime":
+          decompressSelective |= GPS_TIME;
+        break;
+        case "red":
+        case "green":
+        case "blue":
+          decompressSelective |= RGB;
+        break;
+        case "nir":
+          decompressSelective |= NIR;
+        break;
+        case "wavePacketDescriptorIndex":
+        case "byteOffsetToWaveformData":
+        case "waveformPacketSizeInBytes":
+        case "returnPointWaveformLocation":
+        case "xT":
+        case "yT":
+        case "zT":
+          decompressSelective |= WAVEPACKET;
+        break;
+        case "extraBytes":
+          decompressSelective |= EXTRA_BYTES;
+        break;
+        default:
+          throw new IllegalArgumentException("Unknown LAS point field: " + fieldName);
+      }
+    }
+    return decompressSelective;
+  }
 }
@@ -323,6 +323,17 @@ public class LasZipHeader implements MapSerializer {
     return itemCodecs;
   }
 
+  public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec,
+    final int decompressSelective) {
+    final LasZipItemCodec[] itemCodecs = newLazCodecs(codec);
+    if (decompressSelective != LasZipDecompressSelective.ALL) {
+      for (final LasZipItemCodec itemCodec : itemCodecs) {
+        itemCodec.setDecompressSelective(decompressSelective);
+      }
+    }
+    return itemCodecs;
+  }
+
   private void requestVersion(final int requested_version) {
     for (int i = 0; i < this.itemCount; i++) {
       switch (this.types[i]) {
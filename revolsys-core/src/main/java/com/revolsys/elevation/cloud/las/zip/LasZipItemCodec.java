@@ -46,6 +46,15 @@ public interface LasZipItemCodec {
   default void readChunkSizes() {
   }
 
+  /**
+   * Set the layers to decompress using the {@link LasZipDecompressSelective} flags. Codecs that
+   * don't store the values in separate layers always decompress all the values.
+   *
+   * @param decompressSelective The layers to decompress.
+   */
+  default void setDecompressSelective(final int decompressSelective) {
+  }
+
   default int U32_ZERO_BIT_0(final int n) {
     return n & 0xFFFFFFFE;
   }
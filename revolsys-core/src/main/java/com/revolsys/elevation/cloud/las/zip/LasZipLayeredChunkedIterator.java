@@ -39,7 +39,7 @@ public class LasZipLayeredChunkedIterator extends LasPointCloudIterator {
     super(pointCloud, reader);
     this.decoder = new ArithmeticDecoder();
     final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
-    this.codecs = lasZipHeader.newLazCodecs(this.decoder);
+    this.codecs = lasZipHeader.newLazCodecs(this.decoder, pointCloud.getDecompressSelective());
 
     this.chunk_size = lasZipHeader.getChunkSize();
     this.chunk_count = this.chunk_size;
@@ -0,0 +1,314 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.DataReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * Decompress the chunks of a chunked LASzip point cloud in parallel. The chunk table gives the
+ * byte offset and point count of each chunk and each chunk can be decoded independently. The
+ * compressed bytes of the chunks are read sequentially and decoded by tasks on a
+ * {@link ForkJoinPool}, each task using its own {@link ArithmeticDecoder} and
+ * {@link LasZipItemCodec} set.
+ */
+public class LasZipParallelChunkedReader implements BaseCloseable {
+
+  private class ChunkDecoder {
+    private final ArithmeticDecoder decoder = new ArithmeticDecoder();
+
+    private final LasZipItemCodec[] codecs = LasZipParallelChunkedReader.this.lasZipHeader
+      .newLazCodecs(this.decoder, LasZipParallelChunkedReader.this.pointCloud
+        .getDecompressSelective());
+
+    private void decode(final byte[] bytes, final int pointCount,
+      final Consumer<? super LasPoint> action) {
+      final LasPointCloud pointCloud = LasZipParallelChunkedReader.this.pointCloud;
+      final LasPointFormat pointFormat = LasZipParallelChunkedReader.this.pointFormat;
+      final LasZipItemCodec[] codecs = this.codecs;
+      try (
+        ChannelReader in = new ChannelReader(new ByteArrayInputStream(bytes))) {
+        in.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        final LasPoint firstPoint = pointFormat.readLasPoint(pointCloud, in);
+        int context = 0;
+        if (LasZipParallelChunkedReader.this.layered) {
+          this.decoder.init(in, false);
+          in.getInt(); // point count unused
+          for (final LasZipItemCodec codec : codecs) {
+            codec.readChunkSizes();
+          }
+          for (final LasZipItemCodec codec : codecs) {
+            context = codec.init(firstPoint, context);
+          }
+        } else {
+          for (final LasZipItemCodec codec : codecs) {
+            context = codec.init(firstPoint, context);
+          }
+          this.decoder.init(in);
+        }
+        action.accept(firstPoint);
+        for (int i = 1; i < pointCount; i++) {
+          final LasPoint point = pointFormat.newLasPoint(pointCloud);
+          for (final LasZipItemCodec codec : codecs) {
+            context = codec.read(point, context);
+          }
+          action.accept(point);
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the chunk table of the point cloud and construct a new reader.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader positioned at the start of the point data.
+   * @return The reader or null if the point cloud isn't chunked or the chunk table could not be
+   * read. In that case the reader is returned to the start of the point data.
+   */
+  public static LasZipParallelChunkedReader newReader(final LasPointCloud pointCloud,
+    final ChannelReader reader) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    if (lasZipHeader == null || lasZipHeader.isCompressor(LasZipCompressorType.POINTWISE)
+      || !reader.isSeekable()) {
+      return null;
+    }
+    final long pointStart = reader.position();
+    final LasZipParallelChunkedReader chunkedReader = new LasZipParallelChunkedReader(pointCloud,
+      lasZipHeader, reader);
+    if (chunkedReader.readChunkTable()) {
+      return chunkedReader;
+    } else {
+      reader.seek(pointStart);
+      return null;
+    }
+  }
+
+  private int chunkCount;
+
+  private int[] chunkPointCounts;
+
+  private long[] chunkStarts;
+
+  private final Queue<ChunkDecoder> decoders = new ConcurrentLinkedQueue<>();
+
+  private final boolean layered;
+
+  private final LasZipHeader lasZipHeader;
+
+  private int maxPendingChunkCount;
+
+  private final LasPointCloud pointCloud;
+
+  private final LasPointFormat pointFormat;
+
+  private ForkJoinPool pool;
+
+  private ChannelReader reader;
+
+  private LasZipParallelChunkedReader(final LasPointCloud pointCloud,
+    final LasZipHeader lasZipHeader, final ChannelReader reader) {
+    this.pointCloud = pointCloud;
+    this.lasZipHeader = lasZipHeader;
+    this.reader = reader;
+    this.pointFormat = pointCloud.getPointFormat();
+    this.layered = lasZipHeader.isCompressor(LasZipCompressorType.LAYERED_CHUNKED);
+    setPool(ForkJoinPool.commonPool());
+  }
+
+  @Override
+  public void close() {
+    final DataReader reader = this.reader;
+    this.reader = null;
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  private void decodeChunk(final byte[] bytes, final int pointCount,
+    final Consumer<? super LasPoint> action) {
+    ChunkDecoder decoder = this.decoders.poll();
+    if (decoder == null) {
+      decoder = new ChunkDecoder();
+    }
+    try {
+      decoder.decode(bytes, pointCount, action);
+    } catch (final RuntimeException e) {
+      throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(), e);
+    } finally {
+      this.decoders.add(decoder);
+    }
+  }
+
+  private List<LasPoint> decodeChunk(final byte[] bytes, final int pointCount) {
+    final List<LasPoint> points = new ArrayList<>(pointCount);
+    decodeChunk(bytes, pointCount, points::add);
+    return points;
+  }
+
+  /**
+   * Decode the chunks in parallel and call the action for each point in the order of the file.
+   * The action is called on the calling thread so it doesn't need to be thread safe.
+   *
+   * @param action The action to perform on each point.
+   */
+  public void forEach(final Consumer<? super LasPoint> action) {
+    final Deque<ForkJoinTask<List<LasPoint>>> tasks = new ArrayDeque<>();
+    try {
+      for (int i = 0; i < this.chunkCount; i++) {
+        if (tasks.size() >= this.maxPendingChunkCount) {
+          final List<LasPoint> points = tasks.removeFirst().join();
+          points.forEach(action);
+        }
+        final byte[] bytes = readChunk(i);
+        final int pointCount = this.chunkPointCounts[i];
+        tasks.addLast(this.pool.submit(() -> decodeChunk(bytes, pointCount)));
+      }
+      while (!tasks.isEmpty()) {
+        final List<LasPoint> points = tasks.removeFirst().join();
+        points.forEach(action);
+      }
+    } finally {
+      for (final ForkJoinTask<?> task : tasks) {
+        task.cancel(false);
+      }
+      close();
+    }
+  }
+
+  /**
+   * Decode the chunks in parallel and call the action for each point on the thread that decoded
+   * the chunk. The points are not returned in the order of the file and the action must be thread
+   * safe.
+   *
+   * @param action The action to perform on each point.
+   */
+  public void forEachParallel(final Consumer<? super LasPoint> action) {
+    final Deque<ForkJoinTask<?>> tasks = new ArrayDeque<>();
+    try {
+      for (int i = 0; i < this.chunkCount; i++) {
+        if (tasks.size() >= this.maxPendingChunkCount) {
+          tasks.removeFirst().join();
+        }
+        final byte[] bytes = readChunk(i);
+        final int pointCount = this.chunkPointCounts[i];
+        tasks.addLast(this.pool.submit(() -> decodeChunk(bytes, pointCount, action)));
+      }
+      while (!tasks.isEmpty()) {
+        tasks.removeFirst().join();
+      }
+    } finally {
+      for (final ForkJoinTask<?> task : tasks) {
+        task.cancel(false);
+      }
+      close();
+    }
+  }
+
+  public int getChunkCount() {
+    return this.chunkCount;
+  }
+
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  private byte[] readChunk(final int chunkIndex) {
+    final ChannelReader reader = this.reader;
+    if (reader == null) {
+      throw new IllegalStateException("Reader is closed: " + this.pointCloud.getResource());
+    }
+    final long start = this.chunkStarts[chunkIndex];
+    final int byteCount = (int)(this.chunkStarts[chunkIndex + 1] - start);
+    reader.seek(start);
+    return reader.getBytes(byteCount);
+  }
+
+  private boolean readChunkTable() {
+    final ChannelReader reader = this.reader;
+    final long pointCount = this.pointCloud.getPointCount();
+    final long chunkSize = this.lasZipHeader.getChunkSize();
+    final boolean variableChunkSize = chunkSize == Integer.MAX_VALUE;
+    try {
+      long chunkTableStart = reader.getLong();
+      final long chunksStart = reader.position();
+      if (chunkTableStart + 8 == chunksStart) {
+        // Compressor was interrupted before the chunk table was written
+        return false;
+      } else if (chunkTableStart == -1) {
+        // Chunk table position written at the end for non-seekable output
+        reader.seekEnd(8);
+        chunkTableStart = reader.getLong();
+      }
+      reader.seek(chunkTableStart);
+      final int version = reader.getInt();
+      if (version != 0) {
+        return false;
+      }
+      final int chunkCount = reader.getInt();
+      final long[] chunkStarts = new long[chunkCount + 1];
+      final int[] chunkPointCounts = new int[chunkCount];
+      chunkStarts[0] = chunksStart;
+      if (chunkCount > 0) {
+        final ArithmeticDecoder decoder = new ArithmeticDecoder();
+        decoder.init(reader);
+        final ArithmeticCodingInteger ic = new ArithmeticCodingInteger(decoder, 32, 2);
+        ic.initDecompressor();
+        int previousPointCount = 0;
+        int previousByteCount = 0;
+        long remainingPointCount = pointCount;
+        for (int i = 0; i < chunkCount; i++) {
+          int chunkPointCount;
+          if (variableChunkSize) {
+            chunkPointCount = ic.decompress(previousPointCount, 0);
+            previousPointCount = chunkPointCount;
+          } else {
+            chunkPointCount = (int)Math.min(chunkSize, remainingPointCount);
+          }
+          final int byteCount = ic.decompress(previousByteCount, 1);
+          previousByteCount = byteCount;
+          if (byteCount <= 0 || chunkPointCount <= 0) {
+            return false;
+          }
+          chunkPointCounts[i] = chunkPointCount;
+          chunkStarts[i + 1] = chunkStarts[i] + byteCount;
+          remainingPointCount -= chunkPointCount;
+        }
+        if (remainingPointCount != 0 || chunkStarts[chunkCount] > chunkTableStart) {
+          return false;
+        }
+      } else if (pointCount > 0) {
+        return false;
+      }
+      this.chunkCount = chunkCount;
+      this.chunkStarts = chunkStarts;
+      this.chunkPointCounts = chunkPointCounts;
+      return true;
+    } catch (final RuntimeException e) {
+      return false;
+    }
+  }
+
+  public void setPool(final ForkJoinPool pool) {
+    this.pool = pool;
+    this.maxPendingChunkCount = Math.max(2, pool.getParallelism() * 2);
+  }
+}
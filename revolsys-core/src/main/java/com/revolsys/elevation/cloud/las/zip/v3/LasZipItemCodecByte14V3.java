@@ -60,12 +60,7 @@ public class LasZipItemCodecByte14V3 implements LasZipItemCodec {
     for (int i = 0; i < this.contexts.length; i++) {
       this.contexts[i] = new LasZipContextByte(codec, size);
     }
-    final int decompressSelective = LasZipDecompressSelective.ALL;
-    for (int i = 0; i < this.byteDecoders.length; i++) {
-      final ArithmeticDecoderByteArray byteDecoder = this.byteDecoders[i];
-      byteDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.BYTE0 << i);
-
-    }
+    setDecompressSelective(LasZipDecompressSelective.ALL);
   }
 
   @Override
@@ -113,9 +108,7 @@ public class LasZipItemCodecByte14V3 implements LasZipItemCodec {
 
     for (int i = 0; i < this.byteDecoders.length; i++) {
       final ArithmeticDecoderByteArray byteDecoder = this.byteDecoders[i];
-      if (byteDecoder.readBytes(in)) {
-        this.bytesChanged[i] = true;
-      }
+      this.bytesChanged[i] = byteDecoder.readBytes(in);
     }
 
     for (final LasZipContextByte context : this.contexts) {
@@ -127,6 +120,16 @@ public class LasZipItemCodecByte14V3 implements LasZipItemCodec {
     return this.currentContextIndex;
   }
 
+  @Override
+  public void setDecompressSelective(final int decompressSelective) {
+    if (this.byteDecoders != null) {
+      for (int i = 0; i < this.byteDecoders.length; i++) {
+        final ArithmeticDecoderByteArray byteDecoder = this.byteDecoders[i];
+        byteDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.BYTE0 << i);
+      }
+    }
+  }
+
   @Override
   public int write(final LasPoint point, final int contextIndex) {
     return contextIndex;
@@ -196,17 +196,7 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
     for (int i = 0; i < this.contexts.length; i++) {
       this.contexts[i] = new LasZipContextPoint14();
     }
-    final int decompressSelective = LasZipDecompressSelective.ALL;
-    this.dec_Z.setEnabled(decompressSelective, LasZipDecompressSelective.Z);
-    this.dec_classification.setEnabled(decompressSelective,
-      LasZipDecompressSelective.CLASSIFICATION);
-    this.dec_flags.setEnabled(decompressSelective, LasZipDecompressSelective.FLAGS);
-    this.dec_intensity.setEnabled(decompressSelective, LasZipDecompressSelective.INTENSITY);
-    this.dec_scan_angle.setEnabled(decompressSelective, LasZipDecompressSelective.SCAN_ANGLE);
-    this.dec_user_data.setEnabled(decompressSelective, LasZipDecompressSelective.USER_DATA);
-    this.dec_point_source.setEnabled(decompressSelective, LasZipDecompressSelective.POINT_SOURCE);
-    this.dec_gps_time.setEnabled(decompressSelective, LasZipDecompressSelective.GPS_TIME);
-
+    setDecompressSelective(LasZipDecompressSelective.ALL);
   }
 
   @Override
@@ -618,6 +608,19 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
       this.dec_scan_angle, this.dec_point_source, this.dec_gps_time);
   }
 
+  @Override
+  public void setDecompressSelective(final int decompressSelective) {
+    this.dec_Z.setEnabled(decompressSelective, LasZipDecompressSelective.Z);
+    this.dec_classification.setEnabled(decompressSelective,
+      LasZipDecompressSelective.CLASSIFICATION);
+    this.dec_flags.setEnabled(decompressSelective, LasZipDecompressSelective.FLAGS);
+    this.dec_intensity.setEnabled(decompressSelective, LasZipDecompressSelective.INTENSITY);
+    this.dec_scan_angle.setEnabled(decompressSelective, LasZipDecompressSelective.SCAN_ANGLE);
+    this.dec_user_data.setEnabled(decompressSelective, LasZipDecompressSelective.USER_DATA);
+    this.dec_point_source.setEnabled(decompressSelective, LasZipDecompressSelective.POINT_SOURCE);
+    this.dec_gps_time.setEnabled(decompressSelective, LasZipDecompressSelective.GPS_TIME);
+  }
+
   @Override
   public int write(final LasPoint point, int contextIndex) {
     final LasZipContextPoint14 context = this.contexts[this.current_context];
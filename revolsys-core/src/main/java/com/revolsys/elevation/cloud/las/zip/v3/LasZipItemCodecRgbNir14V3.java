@@ -62,9 +62,7 @@ public class LasZipItemCodecRgbNir14V3 implements LasZipItemCodec {
     for (int i = 0; i < this.contexts.length; i++) {
       this.contexts[i] = new LasZipContextRgbNir();
     }
-    final int decompressSelective = LasZipDecompressSelective.ALL;
-    this.rgbDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.RGB);
-    this.nirDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.NIR);
+    setDecompressSelective(LasZipDecompressSelective.ALL);
   }
 
   @Override
@@ -137,6 +135,12 @@ public class LasZipItemCodecRgbNir14V3 implements LasZipItemCodec {
     return this.currentContextIndex;
   }
 
+  @Override
+  public void setDecompressSelective(final int decompressSelective) {
+    this.rgbDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.RGB);
+    this.nirDecoder.setEnabled(decompressSelective, LasZipDecompressSelective.NIR);
+  }
+
   @Override
   public int write(final LasPoint point, final int contextIndex) {
     LasZipContextRgbNir context = this.contexts[this.currentContextIndex];
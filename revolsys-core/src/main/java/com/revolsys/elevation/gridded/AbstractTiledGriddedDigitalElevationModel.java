@@ -1,21 +1,34 @@
 package com.revolsys.elevation.gridded;
 
-import java.util.Map;
-
-import org.jeometry.common.collection.map.LruMap;
-
+import com.revolsys.collection.map.StripedLongLruCache;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.grid.AbstractGrid;
-import com.revolsys.util.IntPair;
 
 public abstract class AbstractTiledGriddedDigitalElevationModel extends AbstractGrid
   implements GriddedElevationModel {
 
+  /**
+   * The last tile used by a thread, used to avoid the cache lookup for consecutive cells in the
+   * same tile.
+   */
+  private static class LastTile {
+    private int cacheGeneration = -1;
+
+    private GriddedElevationModel model;
+
+    private int tileIndexX;
+
+    private int tileIndexY;
+  }
+
+  private volatile int cacheGeneration;
+
   protected int gridTileSize;
 
-  private final LruMap<IntPair, GriddedElevationModel> models = new LruMap<>(5000);
+  private final ThreadLocal<LastTile> lastTile = ThreadLocal.withInitial(LastTile::new);
 
-  private final IntPair getKey = new IntPair();
+  private final StripedLongLruCache<GriddedElevationModel> models = new StripedLongLruCache<>(
+    5000);
 
   private final double tileWidth;
 
@@ -27,13 +40,17 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     this.gridTileSize = gridTileSize;
     this.tileWidth = gridTileSize * gridCellSize;
     this.tileHeight = gridTileSize * gridCellSize;
+    this.models.setWeigher(this::getModelMemorySize);
   }
 
   @Override
   public void clear() {
-    synchronized (this.models) {
-      this.models.clear();
-    }
+    clearModels();
+  }
+
+  private void clearModels() {
+    this.cacheGeneration++;
+    this.models.clear();
   }
 
   @Override
@@ -41,9 +58,7 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     try {
       closeDo();
     } finally {
-      synchronized (this.models) {
-        this.models.clear();
-      }
+      clearModels();
     }
   }
 
@@ -56,23 +71,37 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
   }
 
   protected GriddedElevationModel getModel(final int gridX, final int gridY) {
-    GriddedElevationModel model;
-    final Map<IntPair, GriddedElevationModel> models = this.models;
-    final int tileIndexX = (int)Math.floor(gridX / this.tileWidth);
-    final int tileIndexY = (int)Math.floor(gridY / this.tileHeight);
-    synchronized (models) {
-      final IntPair getKey = this.getKey;
-      getKey.setValues(tileIndexX, tileIndexY);
-
-      model = models.get(getKey);
-      if (model == null) {
-        final double tileX = tileIndexX * this.tileWidth;
-        final double tileY = tileIndexY * this.tileHeight;
-        model = newModel(tileX, tileY);
-        models.put(getKey.clone(), model);
+    final int tileSize = this.gridTileSize;
+    final int tileIndexX = Math.floorDiv(gridX, tileSize);
+    final int tileIndexY = Math.floorDiv(gridY, tileSize);
+    final int cacheGeneration = this.cacheGeneration;
+    final LastTile lastTile = this.lastTile.get();
+    if (lastTile.cacheGeneration == cacheGeneration && lastTile.tileIndexX == tileIndexX
+      && lastTile.tileIndexY == tileIndexY) {
+      return lastTile.model;
+    } else {
+      final long key = StripedLongLruCache.toKey(tileIndexX, tileIndexY);
+      final GriddedElevationModel model = this.models.getOrLoad(key,
+        k -> newModel(tileIndexX, tileIndexY));
+      if (model != null) {
+        lastTile.cacheGeneration = cacheGeneration;
+        lastTile.tileIndexX = tileIndexX;
+        lastTile.tileIndexY = tileIndexY;
+        lastTile.model = model;
       }
+      return model;
     }
-    return model;
+  }
+
+  /**
+   * Get the estimated memory size of a tile used to limit the memory used by the cache.
+   *
+   * @param model The tile.
+   * @return The memory size in bytes.
+   * @see #setCacheMaxMemory(long)
+   */
+  protected long getModelMemorySize(final GriddedElevationModel model) {
+    return (long)model.getGridWidth() * model.getGridHeight() * Integer.BYTES;
   }
 
   @Override
@@ -82,8 +111,8 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
       return Double.NaN;
     } else {
       final int tileSize = this.gridTileSize;
-      final int gridCellX = gridX % tileSize;
-      final int gridCellY = gridY % tileSize;
+      final int gridCellX = Math.floorMod(gridX, tileSize);
+      final int gridCellY = Math.floorMod(gridY, tileSize);
       return model.getValue(gridCellX, gridCellY);
     }
   }
@@ -104,8 +133,41 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     throw new UnsupportedOperationException();
   }
 
+  private GriddedElevationModel newModel(final int tileIndexX, final int tileIndexY) {
+    final double tileX = tileIndexX * this.tileWidth;
+    final double tileY = tileIndexY * this.tileHeight;
+    return newModel(tileX, tileY);
+  }
+
   protected abstract GriddedElevationModel newModel(double tileX, double tileY);
 
+  /**
+   * Load the tile containing the grid cell and pin it in the cache so it won't be evicted until
+   * {@link #unpinModel(int, int)} is called.
+   *
+   * @param gridX The grid x index.
+   * @param gridY The grid y index.
+   * @return The tile or null if it doesn't exist.
+   */
+  public GriddedElevationModel pinModel(final int gridX, final int gridY) {
+    final int tileSize = this.gridTileSize;
+    final int tileIndexX = Math.floorDiv(gridX, tileSize);
+    final int tileIndexY = Math.floorDiv(gridY, tileSize);
+    final long key = StripedLongLruCache.toKey(tileIndexX, tileIndexY);
+    return this.models.pin(key, k -> newModel(tileIndexX, tileIndexY));
+  }
+
+  /**
+   * Set the maximum estimated memory size in bytes of the cached tiles.
+   *
+   * @param maxMemory The memory size in bytes.
+   * @return this
+   */
+  public AbstractTiledGriddedDigitalElevationModel setCacheMaxMemory(final long maxMemory) {
+    this.models.setMaxWeight(maxMemory);
+    return this;
+  }
+
   public AbstractTiledGriddedDigitalElevationModel setCacheSize(final int cacheSize) {
     this.models.setMaxSize(cacheSize);
     return this;
@@ -113,10 +175,19 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
 
   public void setGridTileSize(final int gridTileSize) {
     this.gridTileSize = gridTileSize;
+    clearModels();
   }
 
   @Override
   public void setValue(final int x, final int y, final double elevation) {
   }
 
+  public void unpinModel(final int gridX, final int gridY) {
+    final int tileSize = this.gridTileSize;
+    final int tileIndexX = Math.floorDiv(gridX, tileSize);
+    final int tileIndexY = Math.floorDiv(gridY, tileSize);
+    final long key = StripedLongLruCache.toKey(tileIndexX, tileIndexY);
+    this.models.unpin(key);
+  }
+
 }
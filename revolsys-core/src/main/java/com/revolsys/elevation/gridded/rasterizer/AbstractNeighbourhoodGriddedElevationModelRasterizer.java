@@ -0,0 +1,194 @@
+package com.revolsys.elevation.gridded.rasterizer;
+
+import java.awt.image.DataBuffer;
+import java.util.Arrays;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.grid.Grid;
+
+/**
+ * Base class for rasterizers that calculate the colour of a cell from the 3x3 neighbourhood of
+ * elevations around the cell.
+ *
+ * <pre>
+ * a b c
+ * d e f
+ * g h i
+ * </pre>
+ *
+ * <p>Neighbours outside the grid or with null values are extrapolated from the other
+ * neighbours. When rasterizing rows the elevations are read once per row into primitive row
+ * windows instead of reading each neighbour from the elevation model.</p>
+ */
+public abstract class AbstractNeighbourhoodGriddedElevationModelRasterizer
+  extends AbstractGriddedElevationModelRasterizer {
+
+  protected double oneDivCellSizeTimes8;
+
+  public AbstractNeighbourhoodGriddedElevationModelRasterizer(final String type,
+    final String iconName) {
+    super(type, iconName);
+  }
+
+  private int getNeighbourhoodValue(double a, double b, double c, double d, final double e,
+    double f, double g, double h, double i) {
+    if (!Double.isFinite(d)) {
+      if (Double.isFinite(f)) {
+        d = e - (f - e);
+      } else {
+        d = e;
+        f = e;
+      }
+    } else if (!Double.isFinite(f)) {
+      f = e;
+    }
+    if (!Double.isFinite(a)) {
+      if (Double.isFinite(g)) {
+        a = d - (g - d);
+      } else {
+        a = d;
+      }
+    }
+    if (!Double.isFinite(b)) {
+      if (Double.isFinite(h)) {
+        b = e - (h - e);
+      } else {
+        b = e;
+      }
+    }
+    if (!Double.isFinite(c)) {
+      if (Double.isFinite(i)) {
+        c = f - (i - f);
+      } else {
+        c = f;
+      }
+    }
+    if (!Double.isFinite(g)) {
+      g = d - (a - d);
+    }
+    if (!Double.isFinite(h)) {
+      h = e - (b - e);
+    }
+    if (!Double.isFinite(i)) {
+      i = f - (c - f);
+    }
+    return getValue(a, b, c, d, f, g, h, i);
+  }
+
+  public double getOneDivCellSizeTimes8() {
+    return this.oneDivCellSizeTimes8;
+  }
+
+  /**
+   * Calculate the colour from the neighbours of the cell. All the values are finite.
+   */
+  protected abstract int getValue(double a, double b, double c, double d, double f, double g,
+    double h, double i);
+
+  @Override
+  public int getValue(final int gridX, final int gridY) {
+    final GriddedElevationModel elevationModel = this.elevationModel;
+    final int width = this.width;
+    final int height = this.height;
+
+    double a = Double.NaN;
+    double b = Double.NaN;
+    double c = Double.NaN;
+    double d = Double.NaN;
+    final double e = elevationModel.getValueFast(gridX, gridY);
+    if (Double.isFinite(e)) {
+      double f = Double.NaN;
+      double g = Double.NaN;
+      double h = Double.NaN;
+      double i = Double.NaN;
+
+      final boolean firstX = gridX == 0;
+      final boolean firstY = gridY == 0;
+      final boolean lastX = gridX == width - 1;
+      final boolean lastY = gridY == height - 1;
+      final int gridX0 = gridX - 1;
+      final int gridX2 = gridX + 1;
+      if (!lastY) {
+        final int gridY2 = gridY + 1;
+        if (!firstX) {
+          a = elevationModel.getValueFast(gridX0, gridY2);
+        }
+        b = elevationModel.getValueFast(gridX, gridY2);
+        if (!lastX) {
+          c = elevationModel.getValueFast(gridX2, gridY2);
+        }
+      }
+      if (!firstX) {
+        d = elevationModel.getValueFast(gridX0, gridY);
+      }
+      if (!lastX) {
+        f = elevationModel.getValueFast(gridX2, gridY);
+      }
+      if (!firstY) {
+        final int gridY0 = gridY - 1;
+        if (!firstX) {
+          g = elevationModel.getValueFast(gridX0, gridY0);
+        }
+        h = elevationModel.getValueFast(gridX, gridY0);
+        if (!lastX) {
+          i = elevationModel.getValueFast(gridX2, gridY0);
+        }
+      }
+      return getNeighbourhoodValue(a, b, c, d, e, f, g, h, i);
+    } else {
+      return Grid.NULL_COLOUR;
+    }
+  }
+
+  @Override
+  public void rasterizeRows(final DataBuffer imageBuffer, final int minGridY,
+    final int maxGridY) {
+    final int width = this.width;
+    final int height = this.height;
+    // Rows are padded with NaN at each end so the first and last columns are extrapolated
+    double[] rowAbove = new double[width + 2];
+    double[] row = new double[width + 2];
+    double[] rowBelow = new double[width + 2];
+    readRow(rowAbove, maxGridY);
+    readRow(row, maxGridY - 1);
+    for (int gridY = maxGridY - 1; gridY >= minGridY; gridY--) {
+      readRow(rowBelow, gridY - 1);
+      int index = (height - 1 - gridY) * width;
+      for (int x = 1; x <= width; x++) {
+        final double e = row[x];
+        final int value;
+        if (Double.isFinite(e)) {
+          value = getNeighbourhoodValue(rowAbove[x - 1], rowAbove[x], rowAbove[x + 1], row[x - 1],
+            e, row[x + 1], rowBelow[x - 1], rowBelow[x], rowBelow[x + 1]);
+        } else {
+          value = Grid.NULL_COLOUR;
+        }
+        imageBuffer.setElem(index, value);
+        index++;
+      }
+      final double[] nextRowBelow = rowAbove;
+      rowAbove = row;
+      row = rowBelow;
+      rowBelow = nextRowBelow;
+    }
+  }
+
+  private void readRow(final double[] values, final int gridY) {
+    if (gridY < 0 || gridY >= this.height) {
+      Arrays.fill(values, Double.NaN);
+    } else {
+      values[0] = Double.NaN;
+      this.elevationModel.getRowValuesFast(gridY, values, 1);
+      values[values.length - 1] = Double.NaN;
+    }
+  }
+
+  @Override
+  public void updateValues() {
+    super.updateValues();
+    if (this.elevationModel != null) {
+      final double gridCellWidth = this.elevationModel.getGridCellWidth();
+      this.oneDivCellSizeTimes8 = 1.0 / (8 * gridCellWidth);
+    }
+  }
+}
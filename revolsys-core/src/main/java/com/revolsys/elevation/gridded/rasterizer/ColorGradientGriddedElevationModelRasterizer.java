@@ -1,5 +1,6 @@
 package com.revolsys.elevation.gridded.rasterizer;
 
+import java.awt.image.DataBuffer;
 import java.util.Map;
 
 import com.revolsys.elevation.gridded.GriddedElevationModel;
@@ -51,6 +52,25 @@ public class ColorGradientGriddedElevationModelRasterizer
 
   }
 
+  @Override
+  public void rasterizeRows(final DataBuffer imageBuffer, final int minGridY,
+    final int maxGridY) {
+    final GriddedElevationModel elevationModel = this.elevationModel;
+    final LinearGradient gradient = this.gradient;
+    final int width = this.width;
+    final int height = this.height;
+    final double[] row = new double[width];
+    for (int gridY = maxGridY - 1; gridY >= minGridY; gridY--) {
+      elevationModel.getRowValuesFast(gridY, row, 0);
+      int index = (height - 1 - gridY) * width;
+      for (int gridX = 0; gridX < width; gridX++) {
+        final int value = gradient.getColorIntForValue(row[gridX]);
+        imageBuffer.setElem(index, value);
+        index++;
+      }
+    }
+  }
+
   public void setGradient(final LinearGradient gradient) {
     this.gradient = gradient;
     updateValues();
@@ -3,6 +3,7 @@ package com.revolsys.elevation.gridded.rasterizer;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
+import java.util.concurrent.ForkJoinPool;
 
 import com.revolsys.beans.PropertyChangeSupportProxy;
 import com.revolsys.elevation.gridded.GriddedElevationModel;
@@ -10,6 +11,7 @@ import com.revolsys.geometry.model.BoundingBoxProxy;
 import com.revolsys.io.map.MapSerializer;
 import com.revolsys.properties.ObjectWithProperties;
 import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.util.Cancellable;
 import com.revolsys.util.IconNameProxy;
 
 public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Cloneable, IconNameProxy,
@@ -47,10 +49,44 @@ public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Clone
   }
 
   default void rasterize(final DataBuffer imageBuffer) {
+    rasterize(imageBuffer, Cancellable.FALSE);
+  }
+
+  /**
+   * Rasterize the elevation model to the image buffer. The rows are split into bands that are
+   * rasterized in parallel on the {@link ForkJoinPool#commonPool()}. Rasterization stops early if
+   * the cancellable is cancelled, leaving the remaining rows unchanged.
+   *
+   * @param imageBuffer The image buffer to write to.
+   * @param cancellable The cancellable to check between bands.
+   */
+  default void rasterize(final DataBuffer imageBuffer, final Cancellable cancellable) {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (width > 0 && height > 0) {
+      final ForkJoinPool pool = ForkJoinPool.commonPool();
+      // Enough bands to balance the load without too many band edge rows being read twice
+      final int minRowCount = Math.max(16, height / (pool.getParallelism() * 4));
+      pool.invoke(new GriddedElevationModelRasterizerTask(this, imageBuffer, cancellable, 0,
+        height, minRowCount));
+    }
+  }
+
+  /**
+   * Rasterize the rows minGridY (inclusive) to maxGridY (exclusive) to the image buffer. The image
+   * row 0 is the top row (gridY = height - 1) of the elevation model. This method may be called
+   * concurrently for different rows so implementations must not modify shared state.
+   *
+   * @param imageBuffer The image buffer to write to.
+   * @param minGridY The first grid row.
+   * @param maxGridY The grid row after the last row.
+   */
+  default void rasterizeRows(final DataBuffer imageBuffer, final int minGridY,
+    final int maxGridY) {
     final int width = getWidth();
     final int height = getHeight();
-    int index = 0;
-    for (int gridY = height - 1; gridY >= 0; gridY--) {
+    for (int gridY = maxGridY - 1; gridY >= minGridY; gridY--) {
+      int index = (height - 1 - gridY) * width;
       for (int gridX = 0; gridX < width; gridX++) {
         final int value = getValue(gridX, gridY);
 
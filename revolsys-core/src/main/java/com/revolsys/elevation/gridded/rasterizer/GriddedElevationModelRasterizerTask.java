@@ -0,0 +1,56 @@
+package com.revolsys.elevation.gridded.rasterizer;
+
+import java.awt.image.DataBuffer;
+import java.util.concurrent.RecursiveAction;
+
+import com.revolsys.util.Cancellable;
+
+/**
+ * Rasterize a band of rows, splitting the band in half until it is small enough to rasterize on a
+ * single thread.
+ */
+class GriddedElevationModelRasterizerTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final Cancellable cancellable;
+
+  private final DataBuffer imageBuffer;
+
+  private final int maxGridY;
+
+  private final int minGridY;
+
+  private final int minRowCount;
+
+  private final GriddedElevationModelRasterizer rasterizer;
+
+  GriddedElevationModelRasterizerTask(final GriddedElevationModelRasterizer rasterizer,
+    final DataBuffer imageBuffer, final Cancellable cancellable, final int minGridY,
+    final int maxGridY, final int minRowCount) {
+    this.rasterizer = rasterizer;
+    this.imageBuffer = imageBuffer;
+    this.cancellable = cancellable;
+    this.minGridY = minGridY;
+    this.maxGridY = maxGridY;
+    this.minRowCount = minRowCount;
+  }
+
+  @Override
+  protected void compute() {
+    if (!this.cancellable.isCancelled()) {
+      final int minGridY = this.minGridY;
+      final int maxGridY = this.maxGridY;
+      final int rowCount = maxGridY - minGridY;
+      if (rowCount <= this.minRowCount) {
+        this.rasterizer.rasterizeRows(this.imageBuffer, minGridY, maxGridY);
+      } else {
+        final int midGridY = minGridY + rowCount / 2;
+        invokeAll(
+          new GriddedElevationModelRasterizerTask(this.rasterizer, this.imageBuffer,
+            this.cancellable, minGridY, midGridY, this.minRowCount),
+          new GriddedElevationModelRasterizerTask(this.rasterizer, this.imageBuffer,
+            this.cancellable, midGridY, maxGridY, this.minRowCount));
+      }
+    }
+  }
+}
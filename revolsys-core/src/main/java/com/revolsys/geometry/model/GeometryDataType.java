@@ -39,6 +39,10 @@ public class GeometryDataType<G extends Geometry, GE extends GeometryEditor<?>>
 
   @Override
   protected Object toObjectDo(final Object value) {
+    if (value instanceof LazyGeometry) {
+      final LazyGeometry lazyGeometry = (LazyGeometry)value;
+      return this.toObjectFunction.apply(lazyGeometry.getGeometry());
+    }
     return this.toObjectFunction.apply(value);
   }
 
@@ -0,0 +1,97 @@
+package com.revolsys.geometry.model;
+
+/**
+ * A geometry field value that is only converted to a {@link Geometry} from the source (e.g. the
+ * WKB bytes) the first time {@link #getGeometry()} is called. The bounding box can be got without
+ * creating the geometry, so readers can return records that are only filtered by bounding box or
+ * only use the attribute values without the cost of creating the geometries.
+ *
+ * <p>{@link com.revolsys.record.ArrayRecord} keeps the lazy geometry as the field value and returns
+ * the geometry when the value is got. Other records convert it to a geometry when the value is
+ * set. The geometry is only created once even if it is got from multiple threads.</p>
+ */
+public abstract class LazyGeometry implements BoundingBoxProxy {
+
+  private BoundingBox boundingBox;
+
+  private volatile Geometry geometry;
+
+  private final GeometryFactory geometryFactory;
+
+  public LazyGeometry(final GeometryFactory geometryFactory) {
+    this(geometryFactory, null);
+  }
+
+  /**
+   * @param geometryFactory The geometry factory for the geometry.
+   * @param boundingBox The bounding box if it was stored with the geometry, or null to calculate
+   * it from the source.
+   */
+  public LazyGeometry(final GeometryFactory geometryFactory, final BoundingBox boundingBox) {
+    this.geometryFactory = geometryFactory;
+    this.boundingBox = boundingBox;
+  }
+
+  @Override
+  public synchronized BoundingBox getBoundingBox() {
+    BoundingBox boundingBox = this.boundingBox;
+    if (boundingBox == null) {
+      if (this.geometry == null) {
+        boundingBox = newBoundingBox();
+      } else {
+        boundingBox = this.geometry.getBoundingBox();
+      }
+      this.boundingBox = boundingBox;
+    }
+    return boundingBox;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <G extends Geometry> G getGeometry() {
+    Geometry geometry = this.geometry;
+    if (geometry == null) {
+      synchronized (this) {
+        geometry = this.geometry;
+        if (geometry == null) {
+          geometry = newGeometry();
+          this.geometry = geometry;
+        }
+      }
+    }
+    return (G)geometry;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  /**
+   * Check if the geometry has been created.
+   *
+   * @return True if the geometry has been created.
+   */
+  public boolean isGeometryCreated() {
+    return this.geometry != null;
+  }
+
+  /**
+   * Calculate the bounding box from the source without creating the geometry.
+   *
+   * @return The bounding box.
+   */
+  protected abstract BoundingBox newBoundingBox();
+
+  /**
+   * Create the geometry from the source. Subclasses can release the source once this is called
+   * as {@link #newBoundingBox()} won't be called after the geometry is created.
+   *
+   * @return The geometry.
+   */
+  protected abstract Geometry newGeometry();
+
+  @Override
+  public String toString() {
+    return getGeometry().toString();
+  }
+}
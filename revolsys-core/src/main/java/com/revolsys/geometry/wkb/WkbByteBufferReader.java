@@ -2,244 +2,332 @@ package com.revolsys.geometry.wkb;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.function.BiFunction;
 
-import com.revolsys.collection.map.IntHashMap;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.LineString;
-import com.revolsys.geometry.model.Lineal;
 import com.revolsys.geometry.model.LinearRing;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
-import com.revolsys.geometry.model.Polygonal;
-import com.revolsys.geometry.model.Punctual;
-
+import com.revolsys.geometry.model.impl.LineStringDoubleGeometryFactory;
+import com.revolsys.geometry.model.impl.LinearRingDoubleGeometryFactory;
+
+/**
+ * Read WKB geometries from a {@link ByteBuffer}. The buffer can be a heap, direct or memory
+ * mapped buffer. The OGC/ISO (e.g. 1002 for LineString Z) and the PostGIS EWKB (Z, M and SRID
+ * flags) geometry type codes are supported.
+ *
+ * <p>The coordinates are read in bulk using a {@link java.nio.DoubleBuffer} view of the buffer.
+ * If the geometry factory is floating and has the same axis count as the WKB the array is used
+ * as the coordinates of the line without any further copy.</p>
+ *
+ * <p>{@link #readBoundingBox(GeometryFactory, ByteBuffer)} can be used to get the bounding box
+ * without creating the geometry.</p>
+ */
 public class WkbByteBufferReader {
-  private static final IntHashMap<BiFunction<GeometryFactory, ByteBuffer, Geometry>> READERS = new IntHashMap<>();
-
-  static {
-    READERS.put(1, WkbByteBufferReader::readPoint);
-    READERS.put(1001, WkbByteBufferReader::readPointZ);
-    READERS.put(2001, WkbByteBufferReader::readPointM);
-    READERS.put(3001, WkbByteBufferReader::readPointZM);
-
-    READERS.put(2, WkbByteBufferReader::readLineString);
-    READERS.put(1002, WkbByteBufferReader::readLineStringZ);
-    READERS.put(2002, WkbByteBufferReader::readLineStringM);
-    READERS.put(3002, WkbByteBufferReader::readLineStringZM);
-
-    READERS.put(3, WkbByteBufferReader::readPolygon);
-    READERS.put(1003, WkbByteBufferReader::readPolygonZ);
-    READERS.put(2003, WkbByteBufferReader::readPolygonM);
-    READERS.put(3003, WkbByteBufferReader::readPolygonZM);
-
-    READERS.put(4, WkbByteBufferReader::readMultiPoint);
-    READERS.put(1004, WkbByteBufferReader::readMultiPoint);
-    READERS.put(2004, WkbByteBufferReader::readMultiPoint);
-    READERS.put(3004, WkbByteBufferReader::readMultiPoint);
-
-    READERS.put(5, WkbByteBufferReader::readMultiLineString);
-    READERS.put(1005, WkbByteBufferReader::readMultiLineString);
-    READERS.put(2005, WkbByteBufferReader::readMultiLineString);
-    READERS.put(3005, WkbByteBufferReader::readMultiLineString);
-
-    READERS.put(6, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(1006, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(2006, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(3006, WkbByteBufferReader::readMultiPolygon);
-
-    READERS.put(7, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(1007, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(2007, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(3007, WkbByteBufferReader::readGeometryCollection);
-  }
+  private static final int FLAG_M = 0x40000000;
 
-  private static double[] readCoordinates(final ByteBuffer data, final int axisCount) {
-    final int vertexCount = data.getInt();
-    final int coordinateCount = axisCount * vertexCount;
-    final double[] coordinates = new double[coordinateCount];
+  private static final int FLAG_SRID = 0x20000000;
+
+  private static final int FLAG_Z = 0x80000000;
 
-    for (int i = 0; i < coordinateCount; i++) {
-      final double coordinate = data.getDouble();
-      coordinates[i] = coordinate;
+  private static int getAxisCount(final boolean hasZ, final boolean hasM) {
+    if (hasM) {
+      return 4;
+    } else if (hasZ) {
+      return 3;
+    } else {
+      return 2;
     }
-    return coordinates;
   }
 
-  private static double[] readCoordinatesM(final ByteBuffer data) {
-    final int vertexCount = data.getInt();
-    final int coordinateCount = 4 * vertexCount;
-    final double[] coordinates = new double[coordinateCount];
-
-    for (int coordinateIndex = 0; coordinateIndex < coordinateCount;) {
-      final double x = data.getDouble();
-      coordinates[coordinateIndex++] = x;
-
-      final double y = data.getDouble();
-      coordinates[coordinateIndex++] = y;
-
-      final double z = Double.NaN;
-      coordinates[coordinateIndex++] = z;
-
-      final double m = data.getDouble();
-      coordinates[coordinateIndex++] = m;
-    }
-    return coordinates;
+  /**
+   * Check if the coordinates can be used without conversion. This is the case if the coordinates
+   * don't need to be made precise and the axis count is the same.
+   */
+  private static boolean isDirect(final GeometryFactory geometryFactory, final int axisCount) {
+    return geometryFactory.isFloating() && geometryFactory.getAxisCount() == axisCount;
   }
 
-  @SuppressWarnings("unchecked")
-  public static <G extends Geometry> G readGeometry(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    ByteOrder byteOrder;
-    if (data.get() == 0) {
-      byteOrder = ByteOrder.BIG_ENDIAN;
+  private static LinearRing newLinearRing(final GeometryFactory geometryFactory,
+    final int axisCount, final double[] coordinates) {
+    final int vertexCount = coordinates.length / axisCount;
+    if (vertexCount == 0) {
+      return geometryFactory.linearRing();
+    } else if (isDirect(geometryFactory, axisCount)) {
+      return new LinearRingDoubleGeometryFactory(geometryFactory, axisCount, vertexCount,
+        coordinates);
     } else {
-      byteOrder = ByteOrder.LITTLE_ENDIAN;
+      return geometryFactory.linearRing(axisCount, vertexCount, coordinates);
     }
-    data.order(byteOrder);
+  }
 
-    final int geometryType = data.getInt();
-    final BiFunction<GeometryFactory, ByteBuffer, Geometry> reader = READERS.get(geometryType);
-    if (reader == null) {
-      throw new IllegalArgumentException("Unsupported WKB geometryType=" + geometryType);
+  private static LineString newLineString(final GeometryFactory geometryFactory,
+    final int axisCount, final double[] coordinates) {
+    final int vertexCount = coordinates.length / axisCount;
+    if (vertexCount == 0) {
+      return geometryFactory.lineString();
+    } else if (isDirect(geometryFactory, axisCount)) {
+      return new LineStringDoubleGeometryFactory(geometryFactory, axisCount, vertexCount,
+        coordinates);
     } else {
-      return (G)reader.apply(geometryFactory, data);
+      return geometryFactory.lineString(axisCount, vertexCount, coordinates);
     }
   }
 
-  private static Geometry readGeometryCollection(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int geometryCount = data.getInt();
-    final Geometry[] geometries = new Geometry[geometryCount];
-    for (int i = 0; i < geometryCount; i++) {
-      geometries[i] = readGeometry(geometryFactory, data);
+  /**
+   * Read the bounding box of the WKB geometry without creating the geometry. If the WKB has an
+   * SRID that is different to the geometry factory the bounding box is converted to the geometry
+   * factory. The buffer is positioned after the end of the geometry.
+   *
+   * @param geometryFactory The geometry factory for the bounding box.
+   * @param buffer The buffer positioned at the start of the WKB geometry.
+   * @return The bounding box.
+   */
+  public static BoundingBox readBoundingBox(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer) {
+    final int position = buffer.position();
+    final double[] bounds = {
+      Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY
+    };
+    readBounds(buffer, bounds);
+    final int end = buffer.position();
+    if (bounds[0] > bounds[2]) {
+      return geometryFactory.bboxEmpty();
+    } else {
+      // Only the top level geometry can have an SRID
+      buffer.position(position);
+      readByteOrder(buffer);
+      final int typeWord = buffer.getInt();
+      if ((typeWord & FLAG_SRID) != 0) {
+        final int coordinateSystemId = buffer.getInt();
+        if (coordinateSystemId >= 0
+          && coordinateSystemId != geometryFactory.getHorizontalCoordinateSystemId()) {
+          buffer.position(end);
+          return geometryFactory.convertSrid(coordinateSystemId)
+            .newBoundingBox(bounds[0], bounds[1], bounds[2], bounds[3])
+            .bboxToCs(geometryFactory);
+        }
+      }
+      buffer.position(end);
+      return geometryFactory.newBoundingBox(bounds[0], bounds[1], bounds[2], bounds[3]);
     }
-    return geometryFactory.geometry(geometries);
   }
 
-  private static LineString readLineString(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 2;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
-  }
-
-  private static LineString readLineStringM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 4;
-    final double[] coordinates = readCoordinatesM(data);
-    return geometryFactory.lineString(axisCount, coordinates);
-  }
-
-  private static LineString readLineStringZ(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 3;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
-  }
-
-  private static LineString readLineStringZM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 4;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
-  }
-
-  private static Lineal readMultiLineString(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int lineCount = data.getInt();
-    final LineString[] lines = new LineString[lineCount];
-    for (int i = 0; i < lineCount; i++) {
-      lines[i] = readGeometry(geometryFactory, data);
+  private static void readBounds(final ByteBuffer buffer, final double[] bounds) {
+    readByteOrder(buffer);
+    final int typeWord = buffer.getInt();
+    final int geometryType = typeWord & 0x0FFFFFFF;
+    final int baseType = geometryType % 1000;
+    final boolean hasZ = (typeWord & FLAG_Z) != 0 || geometryType / 1000 % 2 == 1;
+    final boolean hasM = (typeWord & FLAG_M) != 0 || geometryType / 1000 >= 2;
+    if ((typeWord & FLAG_SRID) != 0) {
+      buffer.getInt();
     }
-    return geometryFactory.lineal(lines);
-  }
-
-  private static Punctual readMultiPoint(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int pointCount = data.getInt();
-    final Point[] points = new Point[pointCount];
-    for (int i = 0; i < pointCount; i++) {
-      points[i] = readGeometry(geometryFactory, data);
+    int axisCount = 2;
+    if (hasZ) {
+      axisCount++;
+    }
+    if (hasM) {
+      axisCount++;
+    }
+    switch (baseType) {
+      case 1:
+        readBoundsVertices(buffer, axisCount, 1, bounds);
+      break;
+      case 2:
+        readBoundsVertices(buffer, axisCount, buffer.getInt(), bounds);
+      break;
+      case 3: {
+        final int ringCount = buffer.getInt();
+        for (int i = 0; i < ringCount; i++) {
+          readBoundsVertices(buffer, axisCount, buffer.getInt(), bounds);
+        }
+      }
+      break;
+      case 4:
+      case 5:
+      case 6:
+      case 7: {
+        final int geometryCount = buffer.getInt();
+        for (int i = 0; i < geometryCount; i++) {
+          readBounds(buffer, bounds);
+        }
+      }
+      break;
+      default:
+        throw new IllegalArgumentException("Unsupported WKB geometryType=" + geometryType);
     }
-    return geometryFactory.punctual(points);
   }
 
-  private static Polygonal readMultiPolygon(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int polygonCount = data.getInt();
-    final Polygon[] polygons = new Polygon[polygonCount];
-    for (int i = 0; i < polygonCount; i++) {
-      polygons[i] = readGeometry(geometryFactory, data);
+  private static void readBoundsVertices(final ByteBuffer buffer, final int axisCount,
+    final int vertexCount, final double[] bounds) {
+    final int position = buffer.position();
+    final int vertexSize = axisCount * 8;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final int offset = position + vertexIndex * vertexSize;
+      final double x = buffer.getDouble(offset);
+      final double y = buffer.getDouble(offset + 8);
+      // NaN for empty points fails both comparisons
+      if (x < bounds[0]) {
+        bounds[0] = x;
+      }
+      if (y < bounds[1]) {
+        bounds[1] = y;
+      }
+      if (x > bounds[2]) {
+        bounds[2] = x;
+      }
+      if (y > bounds[3]) {
+        bounds[3] = y;
+      }
     }
-    return geometryFactory.polygonal(polygons);
+    buffer.position(position + vertexCount * vertexSize);
   }
 
-  private static Point readPoint(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    return geometryFactory.point(x, y);
+  private static void readByteOrder(final ByteBuffer buffer) {
+    final byte byteOrder = buffer.get();
+    if (byteOrder == WKBConstants.wkbXDR) {
+      buffer.order(ByteOrder.BIG_ENDIAN);
+    } else if (byteOrder == WKBConstants.wkbNDR) {
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    } else {
+      throw new IllegalArgumentException("Unknown WKB byte order " + byteOrder);
+    }
   }
 
-  private static Point readPointM(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = Double.NaN;
-    final double m = data.getDouble();
-    return geometryFactory.point(x, y, z, m);
+  private static double[] readCoordinates(final ByteBuffer buffer, final int axisCount,
+    final boolean hasZ, final boolean hasM) {
+    final int vertexCount = buffer.getInt();
+    final int coordinateCount = vertexCount * axisCount;
+    final double[] coordinates = new double[coordinateCount];
+    if (hasM && !hasZ) {
+      // Only x, y, m is stored so add the NaN z
+      int coordinateIndex = 0;
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        coordinates[coordinateIndex++] = buffer.getDouble();
+        coordinates[coordinateIndex++] = buffer.getDouble();
+        coordinates[coordinateIndex++] = Double.NaN;
+        coordinates[coordinateIndex++] = buffer.getDouble();
+      }
+    } else {
+      final int position = buffer.position();
+      buffer.asDoubleBuffer().get(coordinates, 0, coordinateCount);
+      buffer.position(position + coordinateCount * 8);
+    }
+    return coordinates;
   }
 
-  private static Point readPointZ(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = data.getDouble();
-    return geometryFactory.point(x, y, z);
+  /**
+   * Read the WKB geometry. If the WKB has an SRID that is different to the geometry factory the
+   * geometry is converted to the geometry factory. The buffer is positioned after the end of the
+   * geometry.
+   *
+   * @param geometryFactory The geometry factory for the geometry.
+   * @param buffer The buffer positioned at the start of the WKB geometry.
+   * @return The geometry.
+   */
+  @SuppressWarnings("unchecked")
+  public static <G extends Geometry> G readGeometry(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer) {
+    final Geometry geometry = readGeometryDo(geometryFactory, buffer);
+    if (geometry.getGeometryFactory().isSameCoordinateSystem(geometryFactory)) {
+      return (G)geometry;
+    } else {
+      return (G)geometry.convertGeometry(geometryFactory);
+    }
   }
 
-  private static Point readPointZM(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = data.getDouble();
-    final double m = data.getDouble();
-    return geometryFactory.point(x, y, z, m);
+  private static void readGeometryArray(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer, final Geometry[] geometries) {
+    for (int i = 0; i < geometries.length; i++) {
+      geometries[i] = readGeometryDo(geometryFactory, buffer);
+    }
   }
 
-  private static Polygon readPolygon(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 2);
+  private static Geometry readGeometryDo(GeometryFactory geometryFactory,
+    final ByteBuffer buffer) {
+    readByteOrder(buffer);
+    final int typeWord = buffer.getInt();
+    final int geometryType = typeWord & 0x0FFFFFFF;
+    final int baseType = geometryType % 1000;
+    final boolean hasZ = (typeWord & FLAG_Z) != 0 || geometryType / 1000 % 2 == 1;
+    final boolean hasM = (typeWord & FLAG_M) != 0 || geometryType / 1000 >= 2;
+    if ((typeWord & FLAG_SRID) != 0) {
+      final int coordinateSystemId = buffer.getInt();
+      if (coordinateSystemId >= 0
+        && coordinateSystemId != geometryFactory.getHorizontalCoordinateSystemId()) {
+        geometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+      }
+    }
+    final int axisCount = getAxisCount(hasZ, hasM);
+    switch (baseType) {
+      case 1:
+        return readPoint(geometryFactory, buffer, hasZ, hasM);
+      case 2: {
+        final double[] coordinates = readCoordinates(buffer, axisCount, hasZ, hasM);
+        return newLineString(geometryFactory, axisCount, coordinates);
+      }
+      case 3:
+        return readPolygon(geometryFactory, buffer, axisCount, hasZ, hasM);
+      case 4: {
+        final Point[] points = new Point[buffer.getInt()];
+        readGeometryArray(geometryFactory, buffer, points);
+        return geometryFactory.punctual(points);
+      }
+      case 5: {
+        final LineString[] lines = new LineString[buffer.getInt()];
+        readGeometryArray(geometryFactory, buffer, lines);
+        return geometryFactory.lineal(lines);
+      }
+      case 6: {
+        final Polygon[] polygons = new Polygon[buffer.getInt()];
+        readGeometryArray(geometryFactory, buffer, polygons);
+        return geometryFactory.polygonal(polygons);
+      }
+      case 7: {
+        final Geometry[] geometries = new Geometry[buffer.getInt()];
+        readGeometryArray(geometryFactory, buffer, geometries);
+        return geometryFactory.geometry(geometries);
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported WKB geometryType=" + geometryType);
+    }
   }
 
-  private static Polygon readPolygon(final GeometryFactory geometryFactory, final ByteBuffer data,
-    final int axisCount) {
-    final int ringCount = data.getInt();
-    final LinearRing[] rings = new LinearRing[ringCount];
-    for (int i = 0; i < ringCount; i++) {
-      final double[] coordinates = readCoordinates(data, axisCount);
-      final LinearRing ring = geometryFactory.linearRing(axisCount, coordinates);
-      rings[i] = ring;
+  private static Point readPoint(final GeometryFactory geometryFactory, final ByteBuffer buffer,
+    final boolean hasZ, final boolean hasM) {
+    final double x = buffer.getDouble();
+    final double y = buffer.getDouble();
+    double z = Double.NaN;
+    if (hasZ) {
+      z = buffer.getDouble();
+    }
+    double m = Double.NaN;
+    if (hasM) {
+      m = buffer.getDouble();
+    }
+    if (Double.isNaN(x) && Double.isNaN(y)) {
+      return geometryFactory.point();
+    } else if (hasM) {
+      return geometryFactory.point(x, y, z, m);
+    } else if (hasZ) {
+      return geometryFactory.point(x, y, z);
+    } else {
+      return geometryFactory.point(x, y);
     }
-    return geometryFactory.polygon(rings);
   }
 
-  private static Polygon readPolygonM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int ringCount = data.getInt();
+  private static Polygon readPolygon(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer, final int axisCount, final boolean hasZ, final boolean hasM) {
+    final int ringCount = buffer.getInt();
     final LinearRing[] rings = new LinearRing[ringCount];
     for (int i = 0; i < ringCount; i++) {
-      final double[] coordinates = readCoordinatesM(data);
-      final LinearRing ring = geometryFactory.linearRing(4, coordinates);
-      rings[i] = ring;
+      final double[] coordinates = readCoordinates(buffer, axisCount, hasZ, hasM);
+      rings[i] = newLinearRing(geometryFactory, axisCount, coordinates);
     }
     return geometryFactory.polygon(rings);
   }
-
-  private static Polygon readPolygonZ(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 3);
-  }
-
-  private static Polygon readPolygonZM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 4);
-  }
 }
@@ -0,0 +1,53 @@
+package com.revolsys.geometry.wkb;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LazyGeometry;
+
+/**
+ * A {@link LazyGeometry} for WKB or EWKB bytes that are decoded using
+ * {@link WkbByteBufferReader}.
+ */
+public class WkbLazyGeometry extends LazyGeometry {
+
+  private byte[] bytes;
+
+  private final int offset;
+
+  public WkbLazyGeometry(final GeometryFactory geometryFactory, final byte[] bytes) {
+    this(geometryFactory, bytes, 0, null);
+  }
+
+  /**
+   * @param geometryFactory The geometry factory for the geometry.
+   * @param bytes The bytes containing the WKB.
+   * @param offset The offset of the start of the WKB in the bytes.
+   * @param boundingBox The bounding box if it was stored with the WKB, or null to calculate it
+   * from the WKB.
+   */
+  public WkbLazyGeometry(final GeometryFactory geometryFactory, final byte[] bytes,
+    final int offset, final BoundingBox boundingBox) {
+    super(geometryFactory, boundingBox);
+    this.bytes = bytes;
+    this.offset = offset;
+  }
+
+  @Override
+  protected BoundingBox newBoundingBox() {
+    return WkbByteBufferReader.readBoundingBox(getGeometryFactory(), newBuffer());
+  }
+
+  private ByteBuffer newBuffer() {
+    return ByteBuffer.wrap(this.bytes, this.offset, this.bytes.length - this.offset);
+  }
+
+  @Override
+  protected Geometry newGeometry() {
+    final Geometry geometry = WkbByteBufferReader.readGeometry(getGeometryFactory(), newBuffer());
+    this.bytes = null;
+    return geometry;
+  }
+}
@@ -1,17 +1,55 @@
 package com.revolsys.gis.parallel;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.logging.Logs;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.parallel.NamedThreadFactory;
+import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.parallel.process.AbstractProcess;
 
+/**
+ * Split the bounding box into a grid of {@link #getNumX()} by {@link #getNumY()} cells and
+ * {@link #execute(BoundingBox)} each cell that intersects the boundary.
+ *
+ * <p>Cells are numbered row by row from the bottom left cell starting at 0. If
+ * {@link #getThreadCount()} is greater than 1 the cells are executed in parallel using a pool of
+ * that many threads (or a work stealing pool if {@link #isWorkStealing()}), so
+ * {@link #execute(BoundingBox)} must be thread safe. If a cell fails no more cells are started,
+ * the error is thrown once the cells already running have finished.</p>
+ *
+ * <p>To restart a run set {@link #setStartCellIndex(int)} to the
+ * {@link #getCompletedCellIndex()} + 1 from the previous run. The completed cell index is the
+ * last cell where that cell and all the cells before it have completed.</p>
+ */
 public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
   private Geometry boundary;
 
   private BoundingBox boundingBox;
 
+  private int[] cellIndexes = new int[0];
+
+  private int completedCellCount;
+
+  private int completedCellIndex = -1;
+
+  private final BitSet completedCells = new BitSet();
+
+  private int completedPosition;
+
   private boolean logScriptInfo;
 
   private int numX = 10;
@@ -20,8 +58,99 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
 
   private Geometry preparedBoundary;
 
+  private int startCellIndex = 0;
+
+  private int threadCount = 1;
+
+  private boolean workStealing;
+
+  /**
+   * Called after a cell was executed, by the thread that executed the cell.
+   *
+   * @param cellIndex The cell index.
+   * @param cellBoundingBox The cell's bounding box.
+   * @param milliseconds The time taken to execute the cell.
+   */
+  protected void cellCompleted(final int cellIndex, final BoundingBox cellBoundingBox,
+    final long milliseconds) {
+  }
+
   public abstract void execute(BoundingBox cellBoundingBox);
 
+  private void executeCell(final int position) {
+    final int cellIndex = this.cellIndexes[position];
+    final BoundingBox cellBoundingBox = getCellBoundingBox(cellIndex);
+    if (this.logScriptInfo) {
+      Logs.info(this,
+        "Processing cell " + cellIndex + " bounding box " + cellBoundingBox.toPolygon(1));
+    }
+    final long startTime = System.currentTimeMillis();
+    execute(cellBoundingBox);
+    final long milliseconds = System.currentTimeMillis() - startTime;
+    final int completedCellCount = setCompleted(position);
+    if (this.logScriptInfo) {
+      Logs.info(this, "Completed cell " + cellIndex + " (" + completedCellCount + " of "
+        + this.cellIndexes.length + ") in " + milliseconds + " ms");
+    }
+    cellCompleted(cellIndex, cellBoundingBox, milliseconds);
+  }
+
+  private void executeParallel() {
+    final int cellCount = this.cellIndexes.length;
+    final ExecutorService executor;
+    if (this.workStealing) {
+      executor = Executors.newWorkStealingPool(this.threadCount);
+    } else {
+      final NamedThreadFactory threadFactory = new NamedThreadFactory(Thread.NORM_PRIORITY,
+        "bbox-task");
+      executor = Executors.newFixedThreadPool(this.threadCount, threadFactory);
+    }
+    // Don't start any more cells after a failure, the completed cell index is the restart point
+    final AtomicBoolean failed = new AtomicBoolean();
+    final CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    Throwable error = null;
+    try {
+      for (int position = 0; position < cellCount; position++) {
+        final int cellPosition = position;
+        completionService.submit(() -> {
+          if (!failed.get()) {
+            try {
+              executeCell(cellPosition);
+            } catch (final RuntimeException | Error e) {
+              failed.set(true);
+              throw e;
+            }
+          }
+          return null;
+        });
+      }
+      for (int i = 0; i < cellCount; i++) {
+        try {
+          completionService.take().get();
+        } catch (final ExecutionException e) {
+          if (error == null) {
+            error = e.getCause();
+          }
+        }
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      failed.set(true);
+      executor.shutdownNow();
+      throw new ThreadInterruptedException(e);
+    } finally {
+      executor.shutdown();
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException)error;
+    } else if (error instanceof Error) {
+      throw (Error)error;
+    } else if (error != null) {
+      throw Exceptions.wrap(error);
+    }
+  }
+
   public Geometry getBoundary() {
     return this.boundary;
   }
@@ -30,6 +159,46 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
     return this.boundingBox;
   }
 
+  /**
+   * Get the bounding box of the cell.
+   *
+   * @param cellIndex The cell index.
+   * @return The bounding box.
+   */
+  public BoundingBox getCellBoundingBox(final int cellIndex) {
+    final BoundingBox boundingBox = this.boundingBox;
+    final GeometryFactory geometryFactory = boundingBox.getGeometryFactory();
+    final int i = cellIndex % this.numX;
+    final int j = cellIndex / this.numX;
+    final double xInc = boundingBox.getWidth() / this.numX;
+    final double yInc = boundingBox.getHeight() / this.numY;
+    final double x = boundingBox.getMinX() + i * xInc;
+    final double y = boundingBox.getMinY() + j * yInc;
+    return geometryFactory.newBoundingBox(x, y, x + xInc, y + yInc);
+  }
+
+  /**
+   * Get the number of cells to execute in the current run.
+   *
+   * @return The number of cells.
+   */
+  public int getCellCount() {
+    return this.cellIndexes.length;
+  }
+
+  public synchronized int getCompletedCellCount() {
+    return this.completedCellCount;
+  }
+
+  /**
+   * Get the index of the last cell where that cell and all the cells before it have completed.
+   *
+   * @return The cell index or {@link #getStartCellIndex()} - 1 if no cells have completed.
+   */
+  public synchronized int getCompletedCellIndex() {
+    return this.completedCellIndex;
+  }
+
   public int getNumX() {
     return this.numX;
   }
@@ -38,10 +207,22 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
     return this.numY;
   }
 
+  public int getStartCellIndex() {
+    return this.startCellIndex;
+  }
+
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
   public boolean isLogScriptInfo() {
     return this.logScriptInfo;
   }
 
+  public boolean isWorkStealing() {
+    return this.workStealing;
+  }
+
   protected void postRun() {
   }
 
@@ -58,25 +239,27 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
     preRun();
     try {
       if (this.boundingBox != null) {
-        final GeometryFactory geometryFactory = this.boundingBox.getGeometryFactory();
-        final double xInc = this.boundingBox.getWidth() / this.numX;
-        final double yInc = this.boundingBox.getHeight() / this.numY;
-        double y = this.boundingBox.getMinY();
-        for (int j = 0; j < this.numX; j++) {
-          double x = this.boundingBox.getMinX();
-          for (int i = 0; i < this.numX; i++) {
-            final BoundingBox cellBoundingBox = geometryFactory.newBoundingBox(x, y, x + xInc,
-              y + yInc);
-            if (this.preparedBoundary == null
-              || this.preparedBoundary.bboxIntersects(cellBoundingBox.toPolygon(50))) {
-              if (this.logScriptInfo) {
-                Logs.info(this, "Processing bounding box " + cellBoundingBox.toPolygon(1));
-              }
-              execute(cellBoundingBox);
-            }
-            x += xInc;
+        final int cellCount = this.numX * this.numY;
+        final List<Integer> cellIndexes = new ArrayList<>();
+        for (int cellIndex = this.startCellIndex; cellIndex < cellCount; cellIndex++) {
+          if (this.preparedBoundary == null || this.preparedBoundary
+            .bboxIntersects(getCellBoundingBox(cellIndex).toPolygon(50))) {
+            cellIndexes.add(cellIndex);
+          }
+        }
+        synchronized (this) {
+          this.cellIndexes = cellIndexes.stream().mapToInt(Integer::intValue).toArray();
+          this.completedCells.clear();
+          this.completedCellCount = 0;
+          this.completedCellIndex = this.startCellIndex - 1;
+          this.completedPosition = 0;
+        }
+        if (this.threadCount > 1 && this.cellIndexes.length > 1) {
+          executeParallel();
+        } else {
+          for (int position = 0; position < this.cellIndexes.length; position++) {
+            executeCell(position);
           }
-          y += yInc;
         }
       }
     } finally {
@@ -92,6 +275,18 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
     this.boundingBox = boundingBox;
   }
 
+  private synchronized int setCompleted(final int position) {
+    this.completedCells.set(position);
+    this.completedCellCount++;
+    int completedPosition = this.completedPosition;
+    while (this.completedCells.get(completedPosition)) {
+      this.completedCellIndex = this.cellIndexes[completedPosition];
+      completedPosition++;
+    }
+    this.completedPosition = completedPosition;
+    return this.completedCellCount;
+  }
+
   public void setLogScriptInfo(final boolean logScriptInfo) {
     this.logScriptInfo = logScriptInfo;
   }
@@ -104,4 +299,27 @@ public abstract class BoundingBoxTaskSplitter extends AbstractProcess {
     this.numY = numY;
   }
 
+  /**
+   * Set the index of the first cell to execute, used to restart a previous run.
+   *
+   * @param startCellIndex The cell index.
+   */
+  public void setStartCellIndex(final int startCellIndex) {
+    if (startCellIndex < 0) {
+      throw new IllegalArgumentException("startCellIndex must be >= 0 not " + startCellIndex);
+    }
+    this.startCellIndex = startCellIndex;
+  }
+
+  public void setThreadCount(final int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("threadCount must be > 0 not " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  public void setWorkStealing(final boolean workStealing) {
+    this.workStealing = workStealing;
+  }
+
 }
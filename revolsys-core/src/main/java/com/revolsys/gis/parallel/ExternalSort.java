@@ -0,0 +1,94 @@
+package com.revolsys.gis.parallel;
+
+import java.io.File;
+import java.util.Comparator;
+
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.process.BaseInOutProcess;
+import com.revolsys.record.Record;
+import com.revolsys.record.comparator.RecordFieldComparator;
+import com.revolsys.record.io.ExternalRecordSorter;
+import com.revolsys.record.io.RecordReader;
+
+/**
+ * A replacement for {@link Sort} that uses an {@link ExternalRecordSorter} so that only
+ * {@link #getRunSize()} records per sort run are kept in memory. If a comparator is not set the
+ * records are written in the order they were read.
+ */
+public class ExternalSort extends BaseInOutProcess<Record, Record> {
+
+  private Comparator<Record> comparator;
+
+  private String fieldName;
+
+  private int runSize = ExternalRecordSorter.DEFAULT_RUN_SIZE;
+
+  private ExternalRecordSorter sorter;
+
+  private File tempDirectory;
+
+  public Comparator<Record> getComparator() {
+    return this.comparator;
+  }
+
+  public String getFieldName() {
+    return this.fieldName;
+  }
+
+  public int getRunSize() {
+    return this.runSize;
+  }
+
+  public File getTempDirectory() {
+    return this.tempDirectory;
+  }
+
+  @Override
+  protected void postRun(final Channel<Record> in, final Channel<Record> out) {
+    try (
+      RecordReader reader = this.sorter.newSortedReader()) {
+      for (final Record record : reader) {
+        out.write(record);
+      }
+    } finally {
+      this.sorter.close();
+      this.sorter = null;
+    }
+  }
+
+  @Override
+  protected void preRun(final Channel<Record> in, final Channel<Record> out) {
+    Comparator<Record> comparator = this.comparator;
+    if (comparator == null) {
+      comparator = (record1, record2) -> 0;
+    }
+    this.sorter = new ExternalRecordSorter(comparator);
+    this.sorter.setRunSize(this.runSize);
+    this.sorter.setTempDirectory(this.tempDirectory);
+  }
+
+  @Override
+  protected void process(final Channel<Record> in, final Channel<Record> out, final Record object) {
+    this.sorter.addRecord(object);
+  }
+
+  public void setComparator(final Comparator<Record> comparator) {
+    this.comparator = comparator;
+  }
+
+  public void setFieldName(final String fieldName) {
+    this.fieldName = fieldName;
+    this.comparator = new RecordFieldComparator(fieldName);
+  }
+
+  public void setRunSize(final int runSize) {
+    if (runSize < 1) {
+      throw new IllegalArgumentException("runSize must be > 0 not " + runSize);
+    }
+    this.runSize = runSize;
+  }
+
+  public void setTempDirectory(final File tempDirectory) {
+    this.tempDirectory = tempDirectory;
+  }
+}
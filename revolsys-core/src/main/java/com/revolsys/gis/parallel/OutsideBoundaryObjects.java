@@ -8,6 +8,11 @@ import org.jeometry.common.logging.Logs;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.record.Record;
 
+/**
+ * The objects outside the boundary of the cells processed so far. The methods are synchronized
+ * as the objects are added by an {@link OutsideBoundaryInOutProcess} while the cells are
+ * executed on another thread.
+ */
 public class OutsideBoundaryObjects {
   private Geometry boundary;
 
@@ -15,11 +20,11 @@ public class OutsideBoundaryObjects {
 
   private Geometry preparedBoundary;
 
-  public boolean addObject(final Record object) {
+  public synchronized boolean addObject(final Record object) {
     return this.objects.add(object);
   }
 
-  public boolean boundaryContains(final Geometry geometry) {
+  public synchronized boolean boundaryContains(final Geometry geometry) {
     return geometry == null || this.boundary == null || this.preparedBoundary.contains(geometry);
   }
 
@@ -28,11 +33,11 @@ public class OutsideBoundaryObjects {
     return boundaryContains(geometry);
   }
 
-  public void clear() {
+  public synchronized void clear() {
     this.objects = new LinkedHashSet<>();
   }
 
-  public void expandBoundary(final Geometry geometry) {
+  public synchronized void expandBoundary(final Geometry geometry) {
     if (this.boundary == null) {
       setBoundary(geometry);
     } else {
@@ -40,31 +45,31 @@ public class OutsideBoundaryObjects {
     }
   }
 
-  public Set<Record> getAndClearObjects() {
+  public synchronized Set<Record> getAndClearObjects() {
     final Set<Record> objects = this.objects;
     Logs.info(this, "Outside boundary objects size=" + this.objects.size());
     clear();
     return objects;
   }
 
-  public Geometry getBoundary() {
+  public synchronized Geometry getBoundary() {
     return this.boundary;
   }
 
-  public Set<Record> getObjects() {
+  public synchronized Set<Record> getObjects() {
     return this.objects;
   }
 
-  public boolean removeObject(final Record object) {
+  public synchronized boolean removeObject(final Record object) {
     return this.objects.remove(object);
   }
 
-  public void setBoundary(final Geometry boundary) {
+  public synchronized void setBoundary(final Geometry boundary) {
     this.boundary = boundary;
     this.preparedBoundary = boundary.prepare();
   }
 
-  public void setObjects(final Set<Record> objects) {
+  public synchronized void setObjects(final Set<Record> objects) {
     this.objects = objects;
   }
 }
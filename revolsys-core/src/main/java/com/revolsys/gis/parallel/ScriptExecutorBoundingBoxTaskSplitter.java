@@ -10,6 +10,10 @@ import com.revolsys.parallel.channel.ChannelOutput;
 import com.revolsys.parallel.tools.ScriptExecutorRunnable;
 import com.revolsys.record.Record;
 
+/**
+ * Execute a script for each cell. The cells are executed one at a time as the objects outside the
+ * boundary of the cells executed so far are passed to the next cell's script.
+ */
 public class ScriptExecutorBoundingBoxTaskSplitter extends BoundingBoxTaskSplitter {
 
   private Map<String, Object> attributes = new LinkedHashMap<>();
@@ -27,12 +31,12 @@ public class ScriptExecutorBoundingBoxTaskSplitter extends BoundingBoxTaskSplitt
   @Override
   public void execute(final BoundingBox boundingBox) {
     this.outsideBoundaryObjects.expandBoundary(boundingBox.toGeometry());
+    final Set<Record> objects = this.outsideBoundaryObjects.getAndClearObjects();
 
     final ScriptExecutorRunnable executor = new ScriptExecutorRunnable(this.scriptName,
       this.attributes);
     executor.setLogScriptInfo(isLogScriptInfo());
     executor.addBean("boundingBox", boundingBox);
-    final Set<Record> objects = this.outsideBoundaryObjects.getAndClearObjects();
     executor.addBean("outsideBoundaryObjects", objects);
     executor.addBeans(this.beans);
     executor.addBeans(this.inChannels);
@@ -111,4 +115,19 @@ public class ScriptExecutorBoundingBoxTaskSplitter extends BoundingBoxTaskSplitt
     this.scriptName = scriptName;
   }
 
+  /**
+   * The cells can't be executed in parallel.
+   *
+   * @param threadCount The number of threads, must be 1.
+   */
+  @Override
+  public void setThreadCount(final int threadCount) {
+    if (threadCount != 1) {
+      throw new IllegalArgumentException(
+        "Script cells use the objects outside the previous cells, threadCount must be 1 not "
+          + threadCount);
+    }
+    super.setThreadCount(threadCount);
+  }
+
 }
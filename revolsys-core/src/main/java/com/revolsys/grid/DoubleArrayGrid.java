@@ -102,6 +102,12 @@ public class DoubleArrayGrid extends AbstractGrid {
     return this.cells;
   }
 
+  @Override
+  public void getRowValuesFast(final int gridY, final double[] values, final int offset) {
+    final int gridWidth = this.gridWidth;
+    System.arraycopy(this.cells, gridY * gridWidth, values, offset, gridWidth);
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
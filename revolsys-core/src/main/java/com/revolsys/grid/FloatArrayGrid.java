@@ -100,6 +100,16 @@ public class FloatArrayGrid extends AbstractGrid {
     return this.cells;
   }
 
+  @Override
+  public void getRowValuesFast(final int gridY, final double[] values, final int offset) {
+    final float[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final int startIndex = gridY * gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      values[offset + gridX] = cells[startIndex + gridX];
+    }
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
@@ -366,6 +366,20 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
 
   Resource getResource();
 
+  /**
+   * Copy the values of the row to the array without checking the bounds of the grid.
+   *
+   * @param gridY The grid row.
+   * @param values The array to copy the values to.
+   * @param offset The index in the array for gridX = 0.
+   */
+  default void getRowValuesFast(final int gridY, final double[] values, final int offset) {
+    final int width = getGridWidth();
+    for (int gridX = 0; gridX < width; gridX++) {
+      values[offset + gridX] = getValueFast(gridX, gridY);
+    }
+  }
+
   default double getScaleX() {
     final GeometryFactory geometryFactory = getGeometryFactory();
     final double scaleX = geometryFactory.getScaleX();
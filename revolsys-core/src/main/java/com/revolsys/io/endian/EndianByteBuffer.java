@@ -0,0 +1,130 @@
+package com.revolsys.io.endian;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.revolsys.io.EndOfFileException;
+
+/**
+ * An {@link EndianInput} that reads from a {@link ByteBuffer} (e.g. a view of a memory mapped
+ * file). The little endian values are read directly from the buffer without changing the byte
+ * order of the buffer so a separate instance can be used for each thread with a
+ * {@link ByteBuffer#duplicate()} of the same buffer.
+ */
+public class EndianByteBuffer implements EndianInput {
+  private final ByteBuffer buffer;
+
+  public EndianByteBuffer(final ByteBuffer buffer) {
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  public void close() {
+  }
+
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  public int getPosition() {
+    return this.buffer.position();
+  }
+
+  public int length() {
+    return this.buffer.limit();
+  }
+
+  @Override
+  public int read() {
+    if (this.buffer.hasRemaining()) {
+      return this.buffer.get() & 0xFF;
+    } else {
+      return -1;
+    }
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) {
+    final int remaining = this.buffer.remaining();
+    if (remaining == 0) {
+      return -1;
+    } else {
+      final int count = Math.min(remaining, length);
+      this.buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+
+  @Override
+  public double readDouble() {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  @Override
+  public int readInt() {
+    return Integer.reverseBytes(readLEInt());
+  }
+
+  @Override
+  public double readLEDouble() {
+    try {
+      return this.buffer.getDouble();
+    } catch (final BufferUnderflowException e) {
+      throw new EndOfFileException();
+    }
+  }
+
+  @Override
+  public int readLEInt() {
+    try {
+      return this.buffer.getInt();
+    } catch (final BufferUnderflowException e) {
+      throw new EndOfFileException();
+    }
+  }
+
+  @Override
+  public long readLELong() {
+    try {
+      return this.buffer.getLong();
+    } catch (final BufferUnderflowException e) {
+      throw new EndOfFileException();
+    }
+  }
+
+  @Override
+  public short readLEShort() {
+    try {
+      return this.buffer.getShort();
+    } catch (final BufferUnderflowException e) {
+      throw new EndOfFileException();
+    }
+  }
+
+  @Override
+  public long readLong() {
+    return Long.reverseBytes(readLELong());
+  }
+
+  @Override
+  public short readShort() {
+    return Short.reverseBytes(readLEShort());
+  }
+
+  public void seek(final int position) {
+    this.buffer.position(position);
+  }
+
+  @Override
+  public int skipBytes(final int count) {
+    final int skipCount = Math.min(count, this.buffer.remaining());
+    this.buffer.position(this.buffer.position() + skipCount);
+    return skipCount;
+  }
+
+  @Override
+  public String toString() {
+    return this.buffer.toString();
+  }
+}
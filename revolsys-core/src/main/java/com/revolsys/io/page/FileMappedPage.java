@@ -1,16 +1,15 @@
 package com.revolsys.io.page;
 
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 
 public class FileMappedPage implements Page {
-  private final MappedByteBuffer buffer;
+  private final ByteBuffer buffer;
 
   private final int index;
 
   private final PageManager pageManager;
 
-  public FileMappedPage(final PageManager pageManager, final int index,
-    final MappedByteBuffer buffer) {
+  public FileMappedPage(final PageManager pageManager, final int index, final ByteBuffer buffer) {
     this.pageManager = pageManager;
     this.index = index;
     this.buffer = buffer;
@@ -0,0 +1,383 @@
+package com.revolsys.io.page;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+
+/**
+ * A {@link PageManager} that memory maps the file in large segments (64MB by default) instead of
+ * mapping each page separately. Each page returned is an independent view of the mapped segment
+ * so multiple threads can access the same page at the same time.
+ *
+ * Access to a page is latched until it is released. {@link #getPageRead(int)} acquires a shared
+ * latch, allowing any number of concurrent readers. {@link #getPage(int)} and
+ * {@link #newPage()} acquire an exclusive latch, waiting for the readers to release the page.
+ * The latches are striped, a fixed number of latches are shared by the pages using the page index
+ * so the memory used doesn't grow with the number of pages. The latches protect the page content
+ * not the structure built from the pages; writers must have exclusive access to the structure
+ * (e.g. {@link com.revolsys.collection.bplus.BPlusTreeMap}). A thread that holds a read latch on a
+ * page can't request a write latch on a page that shares the same latch, an
+ * {@link IllegalStateException} is thrown instead of deadlocking.
+ *
+ * The first page of the file is a header that stores the number of pages, written when the page
+ * manager is closed. The file is extended a segment at a time so the file length doesn't
+ * indicate the number of pages.
+ */
+public class MappedSegmentPageManager implements PageManager, BaseCloseable {
+  private static class MappedSegmentPage extends FileMappedPage {
+    private final Lock latch;
+
+    private boolean released;
+
+    private MappedSegmentPage(final MappedSegmentPageManager pageManager, final int index,
+      final ByteBuffer buffer, final Lock latch) {
+      super(pageManager, index, buffer);
+      this.latch = latch;
+    }
+  }
+
+  public static final int DEFAULT_PAGE_SIZE = 2048;
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final int HEADER_PAGE_COUNT = 1;
+
+  /** The number of latches shared by the pages, must be a power of 2. */
+  private static final int LATCH_COUNT = 256;
+
+  private static final int LATCH_MASK = LATCH_COUNT - 1;
+
+  private static final int MAGIC = 0x52535047;
+
+  private FileChannel fileChannel;
+
+  private final ConcurrentSkipListSet<Integer> freePageIndexes = new ConcurrentSkipListSet<>();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final ReentrantReadWriteLock[] latches = new ReentrantReadWriteLock[LATCH_COUNT];
+
+  private final LongAdder latchWaitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private volatile int pageCount;
+
+  private final int pageSize;
+
+  private final int pagesPerSegment;
+
+  private RandomAccessFile randomAccessFile;
+
+  private final LongAdder readCount = new LongAdder();
+
+  private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  private final int segmentSize;
+
+  private final LongAdder writeCount = new LongAdder();
+
+  public MappedSegmentPageManager() {
+    this(FileUtil.newTempFile("pages", ".pf"));
+  }
+
+  public MappedSegmentPageManager(final File file) {
+    this(file, DEFAULT_PAGE_SIZE, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Create a page manager for the file. If the file already exists the existing pages can be
+   * read.
+   *
+   * @param file The file.
+   * @param pageSize The size of each page in bytes.
+   * @param segmentSize The size of each mapped segment in bytes, rounded down to a multiple of
+   * the page size.
+   */
+  public MappedSegmentPageManager(final File file, final int pageSize, final int segmentSize) {
+    if (pageSize < 16) {
+      throw new IllegalArgumentException("pageSize must be >= 16 not " + pageSize);
+    }
+    this.pageSize = pageSize;
+    this.pagesPerSegment = Math.max(1, segmentSize / pageSize);
+    this.segmentSize = this.pagesPerSegment * pageSize;
+    for (int i = 0; i < LATCH_COUNT; i++) {
+      this.latches[i] = new ReentrantReadWriteLock();
+    }
+    try {
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.fileChannel = this.randomAccessFile.getChannel();
+      readHeader(file);
+    } catch (final FileNotFoundException e) {
+      throw new IllegalArgumentException("Unable to open file " + file.getAbsolutePath(), e);
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to open file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    final RandomAccessFile randomAccessFile = this.randomAccessFile;
+    if (randomAccessFile != null) {
+      try {
+        writeHeader();
+        for (final MappedByteBuffer segment : this.segments) {
+          if (segment != null) {
+            segment.force();
+          }
+        }
+      } catch (final IOException e) {
+        throw Exceptions.wrap(e);
+      } finally {
+        this.randomAccessFile = null;
+        this.fileChannel = null;
+        this.segments = new MappedByteBuffer[0];
+        try {
+          randomAccessFile.close();
+        } catch (final IOException e) {
+          throw Exceptions.wrap(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of page requests where the segment containing the page was already mapped.
+   *
+   * @return The number of hits.
+   */
+  public long getHitCount() {
+    return this.hitCount.sum();
+  }
+
+  private ReentrantReadWriteLock getLatch(final int index) {
+    return this.latches[index & LATCH_MASK];
+  }
+
+  /**
+   * Get the number of page requests that had to wait for another thread to release the page.
+   *
+   * @return The number of waits.
+   */
+  public long getLatchWaitCount() {
+    return this.latchWaitCount.sum();
+  }
+
+  /**
+   * Get the number of page requests where the segment containing the page had to be mapped.
+   *
+   * @return The number of misses.
+   */
+  public long getMissCount() {
+    return this.missCount.sum();
+  }
+
+  @Override
+  public synchronized int getNumPages() {
+    return this.pageCount - this.freePageIndexes.size();
+  }
+
+  @Override
+  public Page getPage(final int index) {
+    final Lock latch = getWriteLatch(index);
+    this.writeCount.increment();
+    return latchPage(index, latch, false);
+  }
+
+  @Override
+  public Page getPageRead(final int index) {
+    final Lock latch = getLatch(index).readLock();
+    this.readCount.increment();
+    return latchPage(index, latch, true);
+  }
+
+  @Override
+  public int getPageSize() {
+    return this.pageSize;
+  }
+
+  public long getReadCount() {
+    return this.readCount.sum();
+  }
+
+  private MappedByteBuffer getSegment(final int segmentIndex) {
+    final MappedByteBuffer[] segments = this.segments;
+    if (segmentIndex < segments.length) {
+      final MappedByteBuffer segment = segments[segmentIndex];
+      if (segment != null) {
+        this.hitCount.increment();
+        return segment;
+      }
+    }
+    return mapSegment(segmentIndex);
+  }
+
+  public int getSegmentSize() {
+    return this.segmentSize;
+  }
+
+  public long getWriteCount() {
+    return this.writeCount.sum();
+  }
+
+  private Lock getWriteLatch(final int index) {
+    final ReentrantReadWriteLock latch = getLatch(index);
+    if (latch.getReadHoldCount() > 0) {
+      // A read latch can't be upgraded, waiting for the write latch would never return
+      throw new IllegalStateException("Cannot get write latch for page " + index
+        + " while holding a read latch on a page with the same latch");
+    }
+    return latch.writeLock();
+  }
+
+  private void latch(final Lock latch) {
+    if (!latch.tryLock()) {
+      this.latchWaitCount.increment();
+      latch.lock();
+    }
+  }
+
+  private Page latchPage(final int index, final Lock latch, final boolean readOnly) {
+    if (index < 0 || index >= this.pageCount || this.freePageIndexes.contains(index)) {
+      throw new IllegalArgumentException("Page does not exist " + index);
+    }
+    latch(latch);
+    try {
+      final int filePageIndex = index + HEADER_PAGE_COUNT;
+      final int segmentIndex = filePageIndex / this.pagesPerSegment;
+      final int pageOffset = filePageIndex % this.pagesPerSegment * this.pageSize;
+      final MappedByteBuffer segment = getSegment(segmentIndex);
+      ByteBuffer buffer = segment.slice(pageOffset, this.pageSize);
+      if (readOnly) {
+        buffer = buffer.asReadOnlyBuffer();
+      }
+      return new MappedSegmentPage(this, index, buffer, latch);
+    } catch (final RuntimeException | Error e) {
+      latch.unlock();
+      throw e;
+    }
+  }
+
+  private synchronized MappedByteBuffer mapSegment(final int segmentIndex) {
+    MappedByteBuffer[] segments = this.segments;
+    if (segmentIndex < segments.length && segments[segmentIndex] != null) {
+      this.hitCount.increment();
+      return segments[segmentIndex];
+    } else if (this.fileChannel == null) {
+      throw new IllegalStateException("Page manager is closed");
+    } else {
+      this.missCount.increment();
+      try {
+        final long offset = (long)segmentIndex * this.segmentSize;
+        final long end = offset + this.segmentSize;
+        if (this.randomAccessFile.length() < end) {
+          this.randomAccessFile.setLength(end);
+        }
+        final MappedByteBuffer segment = this.fileChannel.map(MapMode.READ_WRITE, offset,
+          this.segmentSize);
+        if (segmentIndex >= segments.length) {
+          final MappedByteBuffer[] newSegments = new MappedByteBuffer[segmentIndex + 1];
+          System.arraycopy(segments, 0, newSegments, 0, segments.length);
+          segments = newSegments;
+        } else {
+          segments = segments.clone();
+        }
+        segments[segmentIndex] = segment;
+        this.segments = segments;
+        return segment;
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to map segment " + segmentIndex, e);
+      }
+    }
+  }
+
+  @Override
+  public Page newPage() {
+    int index;
+    final Integer freePageIndex = this.freePageIndexes.pollFirst();
+    if (freePageIndex == null) {
+      synchronized (this) {
+        index = this.pageCount++;
+      }
+    } else {
+      index = freePageIndex;
+    }
+    final Lock latch = getWriteLatch(index);
+    this.writeCount.increment();
+    return latchPage(index, latch, false);
+  }
+
+  @Override
+  public Page newTempPage() {
+    return new ByteArrayPage(this, -1, this.pageSize);
+  }
+
+  private void readHeader(final File file) throws IOException {
+    if (this.fileChannel.size() == 0) {
+      this.pageCount = 0;
+    } else {
+      final ByteBuffer header = ByteBuffer.allocate(8);
+      this.fileChannel.read(header, 0);
+      header.flip();
+      if (header.remaining() < 8 || header.getInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a page file " + file.getAbsolutePath());
+      }
+      this.pageCount = header.getInt();
+    }
+  }
+
+  @Override
+  public void releasePage(final Page page) {
+    if (page instanceof MappedSegmentPage && page.getPageManager() == this) {
+      final MappedSegmentPage mappedPage = (MappedSegmentPage)page;
+      if (!mappedPage.released) {
+        mappedPage.released = true;
+        mappedPage.latch.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void removePage(final Page page) {
+    page.clear();
+    this.freePageIndexes.add(page.getIndex());
+    releasePage(page);
+  }
+
+  @Override
+  public String toString() {
+    return "pages=" + getNumPages() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+      + ", latchWaits=" + getLatchWaitCount();
+  }
+
+  @Override
+  public void write(final Page page) {
+  }
+
+  private void writeHeader() throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(8);
+    header.putInt(MAGIC);
+    header.putInt(this.pageCount);
+    header.flip();
+    final MappedByteBuffer[] segments = this.segments;
+    if (segments.length > 0 && segments[0] != null) {
+      segments[0].put(0, header, 0, header.remaining());
+    } else {
+      this.fileChannel.write(header, 0);
+    }
+  }
+}
@@ -6,6 +6,17 @@ public interface PageManager {
 
   Page getPage(int index);
 
+  /**
+   * Get a page that will only be read. Page managers that support concurrent access allow
+   * multiple readers of the same page, by default this is the same as {@link #getPage(int)}.
+   *
+   * @param index The page index.
+   * @return The page.
+   */
+  default Page getPageRead(final int index) {
+    return getPage(index);
+  }
+
   int getPageSize();
 
   Page newPage();
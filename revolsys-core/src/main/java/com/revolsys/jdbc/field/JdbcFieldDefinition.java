@@ -99,6 +99,18 @@ public class JdbcFieldDefinition extends FieldDefinition {
     return this.dbName;
   }
 
+  /**
+   * Get the value from the result set for a record read by a query. Fields can return a value that
+   * is converted when it is used (e.g. a {@link com.revolsys.geometry.model.LazyGeometry}).
+   * {@link #getValueFromResultSet(RecordDefinition, ResultSet, ColumnIndexes, boolean)} must
+   * return the converted value.
+   */
+  public Object getRecordValueFromResultSet(final RecordDefinition recordDefinition,
+    final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings)
+    throws SQLException {
+    return getValueFromResultSet(recordDefinition, resultSet, indexes, internStrings);
+  }
+
   public int getSqlType() {
     return this.sqlType;
   }
@@ -35,6 +35,7 @@ import com.revolsys.collection.ResultPager;
 import com.revolsys.collection.map.Maps;
 import com.revolsys.io.PathUtil;
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.field.JdbcFieldAdder;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.jdbc.field.JdbcFieldFactory;
@@ -94,6 +95,14 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   private List<String> excludeTablePatterns = new ArrayList<>();
 
+  private int fetchSize = JdbcFetchSize.DEFAULT_FETCH_SIZE;
+
+  private boolean fetchSizeAdaptive = false;
+
+  private long fetchSizeMaxBytes = JdbcFetchSize.DEFAULT_MAX_FETCH_BYTES;
+
+  private int fetchSizeMax = JdbcFetchSize.DEFAULT_MAX_FETCH_SIZE;
+
   private final Map<String, JdbcFieldAdder> fieldDefinitionAdders = new HashMap<>();
 
   private boolean flushBetweenTypes;
@@ -336,6 +345,18 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return this.excludeTablePaths;
   }
 
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
+  public int getFetchSizeMax() {
+    return this.fetchSizeMax;
+  }
+
+  public long getFetchSizeMaxBytes() {
+    return this.fetchSizeMaxBytes;
+  }
+
   public JdbcFieldDefinition getField(final String schemaName, final String tableName,
     final String columnName) {
     final String typePath = PathUtil.toPath(schemaName, tableName);
@@ -549,6 +570,14 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     }
   }
 
+  protected void initRecordWriter(final JdbcRecordWriter writer) {
+    writer.setSqlPrefix(this.sqlPrefix);
+    writer.setSqlSuffix(this.sqlSuffix);
+    writer.setLabel(getLabel());
+    writer.setFlushBetweenTypes(this.flushBetweenTypes);
+    writer.setQuoteColumnNames(false);
+  }
+
   @Override
   public void insertRecord(final Record record) {
     write(record, RecordState.NEW);
@@ -605,6 +634,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return false;
   }
 
+  public boolean isFetchSizeAdaptive() {
+    return this.fetchSizeAdaptive;
+  }
+
   public boolean isFlushBetweenTypes() {
     return this.flushBetweenTypes;
   }
@@ -718,6 +751,16 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     }
   }
 
+  @Override
+  public JdbcFetchSize newFetchSize(final Query query) {
+    int fetchSize = query.getFetchSize();
+    if (fetchSize <= 0) {
+      fetchSize = this.fetchSize;
+    }
+    return new JdbcFetchSize(fetchSize, this.fetchSizeAdaptive, this.fetchSizeMax,
+      this.fetchSizeMaxBytes);
+  }
+
   @Override
   public RecordIterator newIterator(final Query query, final Map<String, Object> properties) {
     return new JdbcQueryIterator(this, query, properties);
@@ -739,6 +782,20 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     }
   }
 
+  /**
+   * Get a new connection from the data source that is not bound to the current transaction.
+   *
+   * @return The connection.
+   */
+  public JdbcConnection newJdbcConnection() {
+    try {
+      final Connection connection = this.dataSource.getConnection();
+      return new JdbcConnection(connection, this.dataSource, false);
+    } catch (final SQLException e) {
+      throw JdbcUtils.getException(this.dataSource, "Get Connection", null, e);
+    }
+  }
+
   @Override
   public Identifier newPrimaryIdentifier(final PathName typePath) {
     final JdbcRecordDefinition recordDefinition = getRecordDefinition(typePath);
@@ -800,14 +857,32 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
   protected JdbcRecordWriter newRecordWriter(final RecordDefinitionProxy recordDefinition,
     final int batchSize) {
     final JdbcRecordWriter writer = new JdbcRecordWriter(this, recordDefinition, batchSize);
-    writer.setSqlPrefix(this.sqlPrefix);
-    writer.setSqlSuffix(this.sqlSuffix);
-    writer.setLabel(getLabel());
-    writer.setFlushBetweenTypes(this.flushBetweenTypes);
-    writer.setQuoteColumnNames(false);
+    initRecordWriter(writer);
     return writer;
   }
 
+  protected JdbcRecordWriter newRecordWriter(final RecordDefinitionProxy recordDefinition,
+    final int batchSize, final JdbcConnection connection) {
+    final JdbcRecordWriter writer = new JdbcRecordWriter(this, recordDefinition, getStatistics(),
+      batchSize, connection);
+    initRecordWriter(writer);
+    return writer;
+  }
+
+  /**
+   * Create a writer that writes the records in parallel across multiple connections. The
+   * connections are not part of the current transaction. <b>The writes are not atomic</b>, see
+   * {@link JdbcPartitionedRecordWriter}.
+   *
+   * @param recordDefinition The record definition.
+   * @param connectionCount The number of connections to use.
+   * @return The writer.
+   */
+  public JdbcPartitionedRecordWriter newRecordWriterPartitionedNonAtomic(
+    final RecordDefinitionProxy recordDefinition, final int connectionCount) {
+    return new JdbcPartitionedRecordWriter(this, recordDefinition, connectionCount);
+  }
+
   @Override
   protected RecordStoreSchema newRootSchema() {
     return new JdbcRecordStoreSchema(this);
@@ -980,6 +1055,29 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.excludeTablePatterns = new ArrayList<>(Arrays.asList(excludeTablePatterns));
   }
 
+  public void setFetchSize(final int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Enable the adaptive fetch size. The fetch size will start at {@link #getFetchSize()} and grow
+   * while the round trips to the server are slow, up to {@link #getFetchSizeMax()} rows or
+   * {@link #getFetchSizeMaxBytes()} of estimated row data per fetch.
+   *
+   * @param fetchSizeAdaptive True if the fetch size should be adaptive.
+   */
+  public void setFetchSizeAdaptive(final boolean fetchSizeAdaptive) {
+    this.fetchSizeAdaptive = fetchSizeAdaptive;
+  }
+
+  public void setFetchSizeMax(final int fetchSizeMax) {
+    this.fetchSizeMax = fetchSizeMax;
+  }
+
+  public void setFetchSizeMaxBytes(final long fetchSizeMaxBytes) {
+    this.fetchSizeMaxBytes = fetchSizeMaxBytes;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
@@ -0,0 +1,162 @@
+package com.revolsys.jdbc.io;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.record.Record;
+
+/**
+ * Tracks the fetch size used for a {@link ResultSet}. In adaptive mode the fetch size is doubled
+ * each time a full fetch has been consumed and the fetch round trip was slow enough to matter,
+ * bounded by the maximum fetch size and the number of rows (based on the observed row width)
+ * that fit in the maximum fetch buffer.
+ */
+public class JdbcFetchSize {
+
+  public static final int DEFAULT_FETCH_SIZE = 10;
+
+  public static final int DEFAULT_MAX_FETCH_SIZE = 10000;
+
+  public static final long DEFAULT_MAX_FETCH_BYTES = 16 * 1024 * 1024;
+
+  /** Round trips faster than this are not worth growing the fetch size for. */
+  private static final long MIN_ROUND_TRIP_NANOS = 500_000;
+
+  public static long estimateSize(final Object value) {
+    if (value == null) {
+      return 4;
+    } else if (value instanceof String) {
+      return 16 + ((String)value).length() * 2;
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[])value).length;
+    } else if (value instanceof Geometry) {
+      final Geometry geometry = (Geometry)value;
+      return 48 + geometry.getVertexCount() * geometry.getAxisCount() * 8;
+    } else {
+      return 16;
+    }
+  }
+
+  public static long estimateSize(final Record record) {
+    long size = 16;
+    final int fieldCount = record.getFieldCount();
+    for (int i = 0; i < fieldCount; i++) {
+      final Object value = record.getValue(i);
+      size += estimateSize(value);
+    }
+    return size;
+  }
+
+  private final boolean adaptive;
+
+  private int fetchSize;
+
+  private final int maxFetchSize;
+
+  private final long maxFetchBytes;
+
+  private int rowCount;
+
+  private long rowBytes;
+
+  private int sampleCount;
+
+  private long roundTripNanos;
+
+  public JdbcFetchSize(final int fetchSize) {
+    this(fetchSize, false, DEFAULT_MAX_FETCH_SIZE, DEFAULT_MAX_FETCH_BYTES);
+  }
+
+  public JdbcFetchSize(final int fetchSize, final boolean adaptive, final int maxFetchSize,
+    final long maxFetchBytes) {
+    if (fetchSize > 0) {
+      this.fetchSize = fetchSize;
+    } else {
+      this.fetchSize = DEFAULT_FETCH_SIZE;
+    }
+    this.adaptive = adaptive;
+    this.maxFetchSize = Math.max(this.fetchSize, maxFetchSize);
+    if (maxFetchBytes > 0) {
+      this.maxFetchBytes = maxFetchBytes;
+    } else {
+      this.maxFetchBytes = DEFAULT_MAX_FETCH_BYTES;
+    }
+  }
+
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
+  /**
+   * Get the average estimated row width in bytes of the sampled rows.
+   *
+   * @return The row width or 0 if no rows have been sampled.
+   */
+  public long getRowWidth() {
+    if (this.sampleCount == 0) {
+      return 0;
+    } else {
+      return this.rowBytes / this.sampleCount;
+    }
+  }
+
+  public boolean isAdaptive() {
+    return this.adaptive;
+  }
+
+  /**
+   * Move to the next row in the result set. When the previous fetch has been fully consumed the
+   * call to {@link ResultSet#next()} will do a round trip to the server, which is timed.
+   *
+   * @param resultSet The result set.
+   * @return True if there was a next row.
+   * @throws SQLException If the row could not be read.
+   */
+  public boolean next(final ResultSet resultSet) throws SQLException {
+    if (this.adaptive && this.rowCount == 0) {
+      final long startTime = System.nanoTime();
+      final boolean hasNext = resultSet.next();
+      this.roundTripNanos = System.nanoTime() - startTime;
+      return hasNext;
+    } else {
+      return resultSet.next();
+    }
+  }
+
+  /**
+   * Record that a row was read. The first row of each fetch is sampled for the row width. Once a
+   * full fetch has been consumed the fetch size is adjusted for the next fetch.
+   *
+   * @param resultSet The result set.
+   * @param record The record read from the current row.
+   * @throws SQLException If the fetch size could not be changed.
+   */
+  public void rowRead(final ResultSet resultSet, final Record record) throws SQLException {
+    if (this.adaptive) {
+      if (this.rowCount == 0 && record != null) {
+        this.rowBytes += estimateSize(record);
+        this.sampleCount++;
+      }
+      this.rowCount++;
+      if (this.rowCount >= this.fetchSize) {
+        this.rowCount = 0;
+        if (this.roundTripNanos >= MIN_ROUND_TRIP_NANOS && this.fetchSize < this.maxFetchSize) {
+          final long rowWidth = Math.max(1, getRowWidth());
+          final long maxRows = Math.max(this.fetchSize, this.maxFetchBytes / rowWidth);
+          final int newFetchSize = (int)Math.min(Math.min(this.fetchSize * 2L, maxRows),
+            this.maxFetchSize);
+          if (newFetchSize != this.fetchSize) {
+            this.fetchSize = newFetchSize;
+            resultSet.setFetchSize(newFetchSize);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Integer.toString(this.fetchSize);
+  }
+}
@@ -0,0 +1,305 @@
+package com.revolsys.jdbc.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jeometry.common.data.identifier.Identifier;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.parallel.NamedThreadFactory;
+import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+import com.revolsys.record.schema.RecordStore;
+
+/**
+ * Write records across multiple connections, each with its own {@link JdbcRecordWriter}. Records
+ * are partitioned by the hash of their identifier so that all the changes to a record are written
+ * in order on the same connection. Records without an identifier are written to the partitions in
+ * turn.
+ *
+ * <p>Each partition has a thread that binds and executes the statements on the partition's
+ * connection, so a connection is only used by one thread. The records are handed to the partition's
+ * thread a batch at a time; the next batch is collected on the calling thread while the previous
+ * batch is being written. Records must not be modified after they are written. An error writing a
+ * partition is thrown by the next call to write, flush or close.</p>
+ *
+ * <p><b>The writes are not atomic.</b> The connections are not part of the current transaction.
+ * When the writer is closed all the partitions are rolled back if writing any partition failed,
+ * otherwise the partitions are committed one after the other. If a commit fails the partitions
+ * that were already committed stay committed.</p>
+ */
+public class JdbcPartitionedRecordWriter extends AbstractRecordWriter {
+
+  private static class Partition {
+    private final ExecutorService executor;
+
+    private Future<?> pendingBatch;
+
+    private List<Record> records;
+
+    private final RecordWriter writer;
+
+    private Partition(final RecordWriter writer, final int index, final int batchSize) {
+      this.writer = writer;
+      this.records = new ArrayList<>(batchSize);
+      this.executor = Executors.newSingleThreadExecutor(
+        new NamedThreadFactory(Thread.NORM_PRIORITY, "jdbc-partition-" + index));
+    }
+  }
+
+  private static void waitFor(final Future<?> future) {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      } else {
+        throw Exceptions.wrap(cause);
+      }
+    }
+  }
+
+  private final int batchSize;
+
+  private Throwable exception;
+
+  private int nextPartitionIndex = 0;
+
+  private Partition[] partitions;
+
+  private RecordStore recordStore;
+
+  public JdbcPartitionedRecordWriter(final AbstractJdbcRecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition, final int connectionCount) {
+    super(recordDefinition);
+    this.recordStore = recordStore;
+    this.batchSize = Math.max(1, recordStore.getBatchSize());
+    final List<RecordWriter> writers = new ArrayList<>();
+    try {
+      for (int i = 0; i < Math.max(1, connectionCount); i++) {
+        final JdbcRecordWriter writer = recordStore.newRecordWriter(recordDefinition,
+          recordStore.getBatchSize(), recordStore.newJdbcConnection());
+        writers.add(writer);
+      }
+    } catch (final RuntimeException | Error e) {
+      for (final RecordWriter writer : writers) {
+        writer.close();
+      }
+      throw e;
+    }
+    setPartitions(writers);
+  }
+
+  /**
+   * Create a writer for the partition writers. The writers are closed when this writer is closed.
+   *
+   * @param recordStore The record store.
+   * @param recordDefinition The record definition.
+   * @param batchSize The number of records to hand to a partition's thread at a time.
+   * @param writers The writer for each partition.
+   */
+  protected JdbcPartitionedRecordWriter(final RecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition, final int batchSize,
+    final List<? extends RecordWriter> writers) {
+    super(recordDefinition);
+    this.recordStore = recordStore;
+    this.batchSize = Math.max(1, batchSize);
+    setPartitions(writers);
+  }
+
+  private void checkException() {
+    final Throwable exception = this.exception;
+    if (exception instanceof RuntimeException) {
+      throw (RuntimeException)exception;
+    } else if (exception instanceof Error) {
+      throw (Error)exception;
+    } else if (exception != null) {
+      throw Exceptions.wrap(exception);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    final Partition[] partitions = this.partitions;
+    if (partitions != null) {
+      try {
+        try {
+          flush();
+        } catch (final RuntimeException | Error e) {
+          // Recorded in exception
+        }
+        for (final Partition partition : partitions) {
+          if (this.exception == null) {
+            execute(partition, () -> commit(partition.writer));
+          } else {
+            execute(partition, () -> rollback(partition.writer));
+          }
+        }
+      } finally {
+        this.partitions = null;
+        this.recordStore = null;
+        for (final Partition partition : partitions) {
+          execute(partition, partition.writer::close);
+          partition.executor.shutdown();
+        }
+      }
+      checkException();
+    }
+  }
+
+  /**
+   * Commit the records written to a partition. Called on the partition's thread.
+   *
+   * @param writer The partition's writer.
+   */
+  protected void commit(final RecordWriter writer) {
+    ((JdbcRecordWriter)writer).commit();
+  }
+
+  /**
+   * Execute the action on the partition's thread and wait for it to complete. Errors are recorded
+   * and not thrown so that the other partitions can be completed.
+   */
+  private void execute(final Partition partition, final Runnable action) {
+    try {
+      waitFor(partition.executor.submit(action));
+    } catch (final RuntimeException | Error e) {
+      setException(e);
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    final Partition[] partitions = this.partitions;
+    if (partitions != null) {
+      for (final Partition partition : partitions) {
+        sendBatch(partition);
+      }
+      for (final Partition partition : partitions) {
+        waitForPendingBatch(partition);
+        if (this.exception == null) {
+          execute(partition, partition.writer::flush);
+        }
+      }
+      checkException();
+    }
+  }
+
+  public int getConnectionCount() {
+    return this.partitions.length;
+  }
+
+  /**
+   * Get the index of the partition a record is written to.
+   *
+   * @param record The record.
+   * @return The partition index.
+   */
+  private int getPartitionIndex(final Record record) {
+    final int partitionCount = this.partitions.length;
+    final Identifier identifier = record.getIdentifier();
+    if (identifier == null) {
+      final int index = this.nextPartitionIndex++;
+      if (this.nextPartitionIndex >= partitionCount) {
+        this.nextPartitionIndex = 0;
+      }
+      return index;
+    } else {
+      return Math.floorMod(identifier.hashCode(), partitionCount);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <R extends RecordStore> R getRecordStore() {
+    return (R)this.recordStore;
+  }
+
+  /**
+   * Discard the records written to a partition. Called on the partition's thread.
+   *
+   * @param writer The partition's writer.
+   */
+  protected void rollback(final RecordWriter writer) {
+    ((JdbcRecordWriter)writer).rollback();
+  }
+
+  /**
+   * Hand the records collected for the partition to the partition's thread, after waiting for the
+   * previous batch to be written.
+   */
+  private void sendBatch(final Partition partition) {
+    waitForPendingBatch(partition);
+    checkException();
+    final List<Record> records = partition.records;
+    if (!records.isEmpty()) {
+      partition.records = new ArrayList<>(this.batchSize);
+      final RecordWriter writer = partition.writer;
+      partition.pendingBatch = partition.executor.submit(() -> {
+        for (final Record record : records) {
+          writer.write(record);
+        }
+      });
+    }
+  }
+
+  private void setException(final Throwable exception) {
+    if (this.exception == null) {
+      this.exception = exception;
+    }
+  }
+
+  private void setPartitions(final List<? extends RecordWriter> writers) {
+    if (writers.isEmpty()) {
+      throw new IllegalArgumentException("At least one partition writer is required");
+    }
+    this.partitions = new Partition[writers.size()];
+    for (int i = 0; i < this.partitions.length; i++) {
+      this.partitions[i] = new Partition(writers.get(i), i, this.batchSize);
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (this.recordStore == null) {
+      return super.toString();
+    } else {
+      return this.recordStore.toString() + " partitioned writer";
+    }
+  }
+
+  private void waitForPendingBatch(final Partition partition) {
+    final Future<?> pendingBatch = partition.pendingBatch;
+    if (pendingBatch != null) {
+      partition.pendingBatch = null;
+      try {
+        waitFor(pendingBatch);
+      } catch (final RuntimeException | Error e) {
+        setException(e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void write(final Record record) {
+    checkException();
+    final int index = getPartitionIndex(record);
+    final Partition partition = this.partitions[index];
+    partition.records.add(record);
+    if (partition.records.size() >= this.batchSize) {
+      sendBatch(partition);
+    }
+  }
+}
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.io.PathName;
@@ -18,9 +19,12 @@ import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.io.FileUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.RecordState;
+import com.revolsys.record.batch.RecordBatch;
+import com.revolsys.record.batch.RecordBatchRecord;
 import com.revolsys.record.io.RecordIterator;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.query.ColumnIndexes;
@@ -44,8 +48,14 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
       int fieldIndex = 0;
       for (final QueryValue expression : expressions) {
         try {
-          final Object value = expression.getValueFromResultSet(recordDefinition, resultSet,
-            indexes, internStrings);
+          final Object value;
+          if (expression instanceof JdbcFieldDefinition) {
+            value = ((JdbcFieldDefinition)expression).getRecordValueFromResultSet(recordDefinition,
+              resultSet, indexes, internStrings);
+          } else {
+            value = expression.getValueFromResultSet(recordDefinition, resultSet, indexes,
+              internStrings);
+          }
           record.setValue(fieldIndex, value);
           fieldIndex++;
         } catch (final SQLException e) {
@@ -67,7 +77,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
 
   private final int currentQueryIndex = -1;
 
-  private final int fetchSize = 10;
+  private JdbcFetchSize fetchSize;
 
   private List<QueryValue> selectExpressions = new ArrayList<>();
 
@@ -121,6 +131,42 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
     this.resultSet = null;
     this.statement = null;
     this.labelCountMap = null;
+    this.fetchSize = null;
+  }
+
+  /**
+   * Read the rows directly into the batch. While reading the record factory is replaced with one
+   * that adds a row to the batch so the values from the result set are set directly in the
+   * columns of the batch.
+   */
+  @Override
+  public synchronized void forEachBatch(final int batchSize,
+    final Consumer<? super RecordBatch> action) {
+    final RecordBatch batch = new RecordBatch(getRecordDefinition(), batchSize);
+    final RecordFactory<Record> recordFactory = this.recordFactory;
+    this.recordFactory = recordDefinition -> batch.newRecord();
+    try {
+      while (true) {
+        if (batch.isFull()) {
+          action.accept(batch);
+          batch.clear();
+        }
+        if (!hasNext()) {
+          break;
+        }
+        final Record record = next();
+        if (!(record instanceof RecordBatchRecord)
+          || ((RecordBatchRecord)record).getBatch() != batch) {
+          // Record read before the batch was created
+          batch.addRecord(record);
+        }
+      }
+      if (!batch.isEmpty()) {
+        action.accept(batch);
+      }
+    } finally {
+      this.recordFactory = recordFactory;
+    }
   }
 
   protected String getErrorMessage() {
@@ -134,9 +180,11 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
   @Override
   protected Record getNext() throws NoSuchElementException {
     try {
-      if (this.resultSet != null && !this.query.isCancelled() && this.resultSet.next()) {
+      if (this.resultSet != null && !this.query.isCancelled()
+        && this.fetchSize.next(this.resultSet)) {
         final Record record = getNextRecord(this.recordStore, this.recordDefinition,
           this.selectExpressions, this.recordFactory, this.resultSet, this.internStrings);
+        this.fetchSize.rowRead(this.resultSet, record);
         if (this.labelCountMap != null) {
           this.labelCountMap.addCount(record);
         }
@@ -175,6 +223,19 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
     }
   }
 
+  /**
+   * Get the current number of rows fetched from the database in each round trip.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    if (this.fetchSize == null) {
+      return 0;
+    } else {
+      return this.fetchSize.getFetchSize();
+    }
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     if (this.recordDefinition == null) {
@@ -221,7 +282,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
     final String sql = getSql(query);
     try {
       this.statement = this.connection.prepareStatement(sql);
-      this.statement.setFetchSize(this.fetchSize);
+      this.statement.setFetchSize(this.fetchSize.getFetchSize());
 
       this.resultSet = this.recordStore.getResultSet(this.statement, query);
       final ResultSetMetaData resultSetMetaData = this.resultSet.getMetaData();
@@ -255,7 +316,8 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
     if (this.query == null) {
       close();
     } else {
-      this.connection = this.recordStore.getJdbcConnection(this.autoCommit);
+      this.fetchSize = this.recordStore.newFetchSize(this.query);
+      this.connection = newJdbcConnection();
 
       this.resultSet = getResultSet();
     }
@@ -269,6 +331,10 @@ public class JdbcQueryIterator extends AbstractIterator<Record>
     return this.internStrings;
   }
 
+  protected JdbcConnection newJdbcConnection() {
+    return this.recordStore.getJdbcConnection(this.autoCommit);
+  }
+
   public void setAutoCommit(final boolean autoCommit) {
     this.autoCommit = autoCommit;
   }
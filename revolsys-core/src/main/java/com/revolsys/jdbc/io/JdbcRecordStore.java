@@ -87,6 +87,10 @@ public interface JdbcRecordStore extends RecordStore {
     }
   }
 
+  default JdbcFetchSize newFetchSize(final Query query) {
+    return new JdbcFetchSize(query.getFetchSize());
+  }
+
   default int selectInt(final String sql, final Object... parameters) {
     try (
       Transaction transaction = newTransaction(Propagation.REQUIRED);
@@ -22,6 +22,7 @@ import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordState;
+import com.revolsys.record.batch.RecordBatch;
 import com.revolsys.record.property.GlobalIdProperty;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinitionProxy;
@@ -34,6 +35,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   protected JdbcConnection connection;
 
+  private final boolean connectionOwned;
+
   private boolean flushBetweenTypes = false;
 
   private String label;
@@ -74,6 +77,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     this.recordStore = recordStore;
     this.statistics = statistics;
     this.connection = recordStore.getJdbcConnection();
+    this.connectionOwned = false;
     final DataSource dataSource = this.connection.getDataSource();
     if (dataSource != null) {
       try {
@@ -88,6 +92,36 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     }
   }
 
+  /**
+   * Create a writer that uses its own connection outside of the current transaction. The caller
+   * must {@link #commit()} or {@link #rollback()} the records, the connection is closed without
+   * committing when the writer is closed.
+   *
+   * @param recordStore The record store.
+   * @param recordDefinition The record definition.
+   * @param statistics The statistics to record the counts to.
+   * @param batchSize The batch size.
+   * @param connection The connection owned by the writer.
+   */
+  public JdbcRecordWriter(final AbstractJdbcRecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition, final CategoryLabelCountMap statistics,
+    final int batchSize, final JdbcConnection connection) {
+    super(recordDefinition);
+    this.recordStore = recordStore;
+    this.statistics = statistics;
+    this.connection = connection;
+    this.connectionOwned = true;
+    try {
+      this.connection.setAutoCommit(false);
+    } catch (final SQLException e) {
+      throw new RuntimeException("Unable to create connection", e);
+    }
+    this.batchSize = batchSize;
+    if (statistics != null) {
+      statistics.connect();
+    }
+  }
+
   public JdbcRecordWriter(final AbstractJdbcRecordStore recordStore,
     final RecordDefinitionProxy recordDefinition, final int batchSize) {
     this(recordStore, recordDefinition, recordStore.getStatistics(), batchSize);
@@ -160,7 +194,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
         if (this.connection != null) {
           final DataSource dataSource = this.connection.getDataSource();
           try {
-            if (dataSource != null && !Transaction.isHasCurrentTransaction()) {
+            if (dataSource != null && !this.connectionOwned
+              && !Transaction.isHasCurrentTransaction()) {
               this.connection.commit();
             }
           } catch (final SQLException e) {
@@ -186,7 +221,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     if (data == null) {
       final String sql = getDeleteSql(recordDefinition);
       try {
-        final PreparedStatement statement = this.connection.prepareStatement(sql);
+        final PreparedStatement statement = prepareStatement(recordDefinition, sql, false);
         data = new JdbcRecordWriterTypeData(this, recordDefinition, sql, statement, false);
         this.typeDeleteData.put(recordDefinition, data);
       } catch (final SQLException e) {
@@ -489,13 +524,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     if (data == null) {
       final String sql = getInsertSql(recordDefinition, generatePrimaryKey);
       try {
-        PreparedStatement statement;
-        if (returnGeneratedKeys) {
-          statement = this.recordStore.insertStatementPrepareRowId(this.connection,
-            recordDefinition, sql);
-        } else {
-          statement = this.connection.prepareStatement(sql);
-        }
+        final PreparedStatement statement = prepareStatement(recordDefinition, sql,
+          returnGeneratedKeys);
         data = new JdbcRecordWriterTypeData(this, recordDefinition, sql, statement,
           returnGeneratedKeys);
         typeDataMap.put(recordDefinition, data);
@@ -518,6 +548,39 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     return this.throwExceptions;
   }
 
+  protected PreparedStatement prepareStatement(final JdbcRecordDefinition recordDefinition,
+    final String sql, final boolean returnGeneratedKeys) throws SQLException {
+    if (returnGeneratedKeys) {
+      return this.recordStore.insertStatementPrepareRowId(this.connection, recordDefinition, sql);
+    } else {
+      return this.connection.prepareStatement(sql);
+    }
+  }
+
+  /**
+   * Discard the records in the current batches and roll back the connection.
+   */
+  public synchronized void rollback() {
+    rollback(this.typeInsertData);
+    rollback(this.typeInsertSequenceData);
+    rollback(this.typeInsertRowIdData);
+    rollback(this.typeUpdateData);
+    rollback(this.typeDeleteData);
+    try {
+      this.connection.rollback();
+    } catch (final SQLException e) {
+      throw this.connection.getException("Rollback", null, e);
+    }
+  }
+
+  private void rollback(final Map<JdbcRecordDefinition, JdbcRecordWriterTypeData> typeDataMap) {
+    if (typeDataMap != null) {
+      for (final JdbcRecordWriterTypeData data : typeDataMap.values()) {
+        data.clearBatch();
+      }
+    }
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
@@ -568,7 +631,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     if (data == null) {
       final String sql = getUpdateSql(recordDefinition);
       try {
-        final PreparedStatement statement = this.connection.prepareStatement(sql);
+        final PreparedStatement statement = prepareStatement(recordDefinition, sql, false);
         data = new JdbcRecordWriterTypeData(this, recordDefinition, sql, statement, false);
         this.typeUpdateData.put(recordDefinition, data);
       } catch (final SQLException e) {
@@ -631,4 +694,14 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
       throw Exceptions.wrap("Unable to write\n" + record, e);
     }
   }
+
+  /**
+   * Write the rows in the batch and flush the JDBC batches so the row records aren't kept after
+   * the batch is reused.
+   */
+  @Override
+  public synchronized void writeBatch(final RecordBatch batch) {
+    super.writeBatch(batch);
+    flush();
+  }
 }
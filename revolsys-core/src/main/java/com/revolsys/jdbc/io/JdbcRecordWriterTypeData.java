@@ -63,6 +63,21 @@ public class JdbcRecordWriterTypeData {
     this.records.clear();
   }
 
+  /**
+   * Discard the records added to the current batch without executing it.
+   */
+  public synchronized void clearBatch() {
+    try {
+      if (this.batchCount > 0 && !this.statement.isClosed()) {
+        this.statement.clearBatch();
+      }
+    } catch (final SQLException e) {
+      throw this.writer.connection.getException("Clear Batch", this.sql, e);
+    } finally {
+      clear();
+    }
+  }
+
   public synchronized void close() {
     if (!this.closed) {
       this.closed = true;
@@ -1,10 +1,20 @@
 package com.revolsys.parallel.channel;
 
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
+/**
+ * A channel that passes objects from writers to readers through a {@link ChannelValueStore}.
+ * Access to the store is guarded by a {@link ReentrantLock} rather than a monitor so readers and
+ * writers running on virtual threads don't pin their carrier thread while they are blocked.
+ *
+ * @param <T> The type of object passed through the channel.
+ */
 public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** The Alternative class which will control the selection */
   protected MultiInputSelector alt;
@@ -15,8 +25,8 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** The ChannelValueStore used to store the data for the Channel */
   protected ChannelValueStore<T> data;
 
-  /** The monitor reads must synchronize on */
-  protected Object monitor = new Object();
+  /** The lock guarding the channel's state and data. */
+  protected final ReentrantLock lock = new ReentrantLock();
 
   /** The name of the channel. */
   private String name;
@@ -27,14 +37,23 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** Number of writers connected to the channel. */
   private int numWriters = 0;
 
-  /** The monitor reads must synchronize on */
-  protected Object readMonitor = new Object();
+  /** The total time in nanoseconds readers were blocked waiting for data. */
+  private long readBlockedTime;
+
+  /** The lock that ensures only one reader reads at a time. */
+  private final ReentrantLock readLock = new ReentrantLock();
+
+  /** Signalled when data is read or written or the channel is closed. */
+  private final Condition stateChanged = this.lock.newCondition();
+
+  /** The total time in nanoseconds writers were blocked waiting for a read. */
+  private long writeBlockedTime;
 
   /** Flag indicating if the channel is closed for writing. */
   private boolean writeClosed;
 
-  /** The monitor writes must synchronize on */
-  protected Object writeMonitor = new Object();
+  /** The lock that ensures only one writer writes at a time. */
+  private final ReentrantLock writeLock = new ReentrantLock();
 
   /**
    * Constructs a new Channel<T> with a ZeroBuffer ChannelValueStore.
@@ -62,6 +81,23 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     this.data = data;
   }
 
+  /**
+   * Wait for the channel's state to change, must be called while holding the lock.
+   *
+   * @param timeout The maximum time to wait in milliseconds, 0 to wait until signalled.
+   */
+  private void await(final long timeout) {
+    try {
+      if (timeout == 0) {
+        this.stateChanged.await();
+      } else {
+        this.stateChanged.await(timeout, TimeUnit.MILLISECONDS);
+      }
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+  }
+
   public void close() {
     this.closed = true;
   }
@@ -74,13 +110,16 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
 
   @Override
   public boolean enable(final MultiInputSelector alt) {
-    synchronized (this.monitor) {
+    this.lock.lock();
+    try {
       if (this.data.getState() == ChannelValueStore.EMPTY) {
         this.alt = alt;
         return false;
       } else {
         return true;
       }
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -88,6 +127,48 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     return this.name;
   }
 
+  /**
+   * Get the total time readers were blocked waiting for data to be written.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getReadBlockedTime() {
+    this.lock.lock();
+    try {
+      return this.readBlockedTime;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of objects waiting to be read (the queue depth).
+   *
+   * @return The number of objects.
+   */
+  public int getSize() {
+    this.lock.lock();
+    try {
+      return this.data.size();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Get the total time writers were blocked waiting for the data to be read.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getWriteBlockedTime() {
+    this.lock.lock();
+    try {
+      return this.writeBlockedTime;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
   @Override
   public boolean isClosed() {
     if (!this.closed) {
@@ -129,24 +210,27 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public T read(final long timeout) {
-    synchronized (this.readMonitor) {
-      synchronized (this.monitor) {
+    this.readLock.lock();
+    try {
+      this.lock.lock();
+      try {
         if (isClosed()) {
           throw new ClosedException();
         }
         if (this.data.getState() == ChannelValueStore.EMPTY) {
           try {
+            final long startTime = System.nanoTime();
             try {
-              this.monitor.wait(timeout);
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
+              await(timeout);
+            } finally {
+              this.readBlockedTime += System.nanoTime() - startTime;
             }
             if (isClosed()) {
               throw new ClosedException();
             }
           } catch (final ThreadInterruptedException e) {
             close();
-            this.monitor.notifyAll();
+            this.stateChanged.signalAll();
             throw new ClosedException();
           }
         }
@@ -154,36 +238,75 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           return null;
         } else {
           final T value = this.data.get();
-          this.monitor.notifyAll();
+          this.stateChanged.signalAll();
           return value;
         }
+      } finally {
+        this.lock.unlock();
+      }
+    } finally {
+      this.readLock.unlock();
+    }
+  }
+
+  /**
+   * Read a batch of objects from the Channel. Blocks until at least one object is available and
+   * then reads the objects that are available up to the length of the array.
+   *
+   * @param values The array to read the objects into.
+   * @return The number of objects read.
+   */
+  public int readBatch(final T[] values) {
+    if (values.length == 0) {
+      return 0;
+    } else {
+      this.readLock.lock();
+      try {
+        values[0] = read();
+        int count = 1;
+        this.lock.lock();
+        try {
+          while (count < values.length && this.data.getState() != ChannelValueStore.EMPTY) {
+            values[count++] = this.data.get();
+          }
+          this.stateChanged.signalAll();
+        } finally {
+          this.lock.unlock();
+        }
+        return count;
+      } finally {
+        this.readLock.unlock();
       }
     }
   }
 
   @Override
   public void readConnect() {
-    synchronized (this.monitor) {
+    this.lock.lock();
+    try {
       if (isClosed()) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numReaders++;
       }
-
+    } finally {
+      this.lock.unlock();
     }
   }
 
   @Override
   public void readDisconnect() {
-    synchronized (this.monitor) {
+    this.lock.lock();
+    try {
       if (!this.closed) {
         this.numReaders--;
         if (this.numReaders <= 0) {
           close();
-          this.monitor.notifyAll();
+          this.stateChanged.signalAll();
         }
       }
-
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -205,8 +328,10 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public void write(final T value) {
-    synchronized (this.writeMonitor) {
-      synchronized (this.monitor) {
+    this.writeLock.lock();
+    try {
+      this.lock.lock();
+      try {
         if (this.closed) {
           throw new ClosedException();
         }
@@ -215,43 +340,70 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (tempAlt != null) {
           tempAlt.schedule();
         } else {
-          this.monitor.notifyAll();
+          this.stateChanged.signalAll();
         }
         if (this.data.getState() == ChannelValueStore.FULL) {
           try {
+            final long startTime = System.nanoTime();
             try {
-              this.monitor.wait();
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
+              await(0);
+            } finally {
+              this.writeBlockedTime += System.nanoTime() - startTime;
             }
             if (this.closed) {
               throw new ClosedException();
             }
           } catch (final ThreadInterruptedException e) {
             close();
-            this.monitor.notifyAll();
+            this.stateChanged.signalAll();
             throw new ClosedException(e);
           }
         }
+      } finally {
+        this.lock.unlock();
+      }
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Write a batch of objects to the Channel. No other writers can write to the channel until all
+   * the objects have been written.
+   *
+   * @param values The objects to write.
+   * @param offset The index of the first object in the array to write.
+   * @param count The number of objects to write.
+   */
+  public void writeBatch(final T[] values, final int offset, final int count) {
+    this.writeLock.lock();
+    try {
+      for (int i = 0; i < count; i++) {
+        write(values[offset + i]);
       }
+    } finally {
+      this.writeLock.unlock();
     }
   }
 
   @Override
   public void writeConnect() {
-    synchronized (this.monitor) {
+    this.lock.lock();
+    try {
       if (this.writeClosed) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numWriters++;
       }
-
+    } finally {
+      this.lock.unlock();
     }
   }
 
   @Override
   public void writeDisconnect() {
-    synchronized (this.monitor) {
+    this.lock.lock();
+    try {
       if (!this.writeClosed) {
         this.numWriters--;
         if (this.numWriters <= 0) {
@@ -260,11 +412,12 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           if (tempAlt != null) {
             tempAlt.closeChannel();
           } else {
-            this.monitor.notifyAll();
+            this.stateChanged.signalAll();
           }
         }
       }
-
+    } finally {
+      this.lock.unlock();
     }
   }
 }
@@ -0,0 +1,451 @@
+package com.revolsys.parallel.channel;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded {@link Channel} that passes objects through a lock free ring buffer instead of
+ * locking the channel for each read and write.
+ *
+ * <p>Writers claim a sequence number, wait for the slot to be free and then publish the value in
+ * the slot. The reader waits for the slot at the read sequence to be published. Blocked threads
+ * spin for a short time, then yield and then park so hand-offs between busy processes don't need
+ * a context switch. The reader is unparked by the writers when a value is published and a
+ * waiting writer is unparked by the reader when a slot is freed.</p>
+ *
+ * <p>If created for a single writer the sequence is claimed without a compare and swap, only one
+ * thread may write to the channel at a time. Reads are serialized using a lock so multiple
+ * readers are supported. Null values can't be written to the channel.</p>
+ *
+ * <p>Reads and writes don't block while holding a lock so the channel can be used by processes
+ * running on virtual threads without pinning the carrier thread.</p>
+ *
+ * @param <T> The type of object passed through the channel.
+ */
+public class RingBufferChannel<T> extends Channel<T> {
+  private static final long MAX_READ_PARK_NANOS = 10_000_000;
+
+  private static final long MAX_WRITE_PARK_NANOS = 1_000_000;
+
+  /** Spinning only helps if the other thread is running on another processor. */
+  private static final int SPIN_COUNT = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+
+  private static final int YIELD_COUNT = 10;
+
+  private static int roundToPowerOf2(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be > 0 not " + capacity);
+    } else if (capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be <= 2^30 not " + capacity);
+    } else if (capacity == 1) {
+      return 1;
+    } else {
+      return Integer.highestOneBit(capacity - 1) << 1;
+    }
+  }
+
+  private final int capacity;
+
+  private volatile boolean closed;
+
+  private final int mask;
+
+  private final boolean multipleWriters;
+
+  private int numReaders = 0;
+
+  private int numWriters = 0;
+
+  private final LongAdder readBlockedTime = new LongAdder();
+
+  private final ReentrantLock readLock = new ReentrantLock();
+
+  /** The sequence of the next value to read, only updated while holding the read lock. */
+  private volatile long readSequence;
+
+  private volatile Thread readWaitThread;
+
+  private volatile MultiInputSelector selector;
+
+  private final AtomicReferenceArray<T> values;
+
+  private final LongAdder writeBlockedTime = new LongAdder();
+
+  private volatile boolean writeClosed;
+
+  /** The sequence of the next value to be claimed by a writer. */
+  private final AtomicLong writeSequence = new AtomicLong();
+
+  /** The writers that are parked waiting for a slot to be freed. */
+  private final Set<Thread> writeWaitThreads = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Construct a new channel that supports multiple writers.
+   *
+   * @param name The name of the channel.
+   * @param capacity The minimum number of objects that can be buffered, rounded up to a power of
+   * 2.
+   */
+  public RingBufferChannel(final String name, final int capacity) {
+    this(name, capacity, true);
+  }
+
+  /**
+   * Construct a new channel.
+   *
+   * @param name The name of the channel.
+   * @param capacity The minimum number of objects that can be buffered, rounded up to a power of
+   * 2.
+   * @param multipleWriters False if only one thread will write to the channel at a time.
+   */
+  public RingBufferChannel(final String name, final int capacity,
+    final boolean multipleWriters) {
+    super(name);
+    this.capacity = roundToPowerOf2(capacity);
+    this.mask = this.capacity - 1;
+    this.multipleWriters = multipleWriters;
+    this.values = new AtomicReferenceArray<>(this.capacity);
+  }
+
+  private long claim(final int count) {
+    if (this.multipleWriters) {
+      return this.writeSequence.getAndAdd(count);
+    } else {
+      final long sequence = this.writeSequence.get();
+      this.writeSequence.set(sequence + count);
+      return sequence;
+    }
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    final Thread readWaitThread = this.readWaitThread;
+    if (readWaitThread != null) {
+      LockSupport.unpark(readWaitThread);
+    }
+    for (final Thread writeWaitThread : this.writeWaitThreads) {
+      LockSupport.unpark(writeWaitThread);
+    }
+  }
+
+  @Override
+  public boolean disable() {
+    this.selector = null;
+    return isAvailable();
+  }
+
+  @Override
+  public boolean enable(final MultiInputSelector alt) {
+    this.selector = alt;
+    return isAvailable();
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  @Override
+  public long getReadBlockedTime() {
+    return this.readBlockedTime.sum();
+  }
+
+  @Override
+  public int getSize() {
+    final long size = this.writeSequence.get() - this.readSequence;
+    if (size < 0) {
+      return 0;
+    } else if (size > this.capacity) {
+      return this.capacity;
+    } else {
+      return (int)size;
+    }
+  }
+
+  @Override
+  public long getWriteBlockedTime() {
+    return this.writeBlockedTime.sum();
+  }
+
+  private boolean isAvailable() {
+    return this.values.get((int)this.readSequence & this.mask) != null;
+  }
+
+  @Override
+  public boolean isClosed() {
+    if (!this.closed) {
+      if (this.writeClosed && this.writeSequence.get() == this.readSequence) {
+        close();
+      }
+    }
+    return this.closed;
+  }
+
+  public boolean isMultipleWriters() {
+    return this.multipleWriters;
+  }
+
+  private void publish(final long sequence, final T value) {
+    if (sequence - this.readSequence >= this.capacity) {
+      final long startTime = System.nanoTime();
+      try {
+        int waitCount = 0;
+        while (sequence - this.readSequence >= this.capacity) {
+          if (this.closed) {
+            throw new ClosedException();
+          }
+          // The reader may be waiting for earlier values in the same batch
+          signalReader();
+          if (waitCount < SPIN_COUNT) {
+            Thread.onSpinWait();
+          } else if (waitCount < SPIN_COUNT + YIELD_COUNT) {
+            Thread.yield();
+          } else {
+            final Thread thread = Thread.currentThread();
+            this.writeWaitThreads.add(thread);
+            // Check again after adding the thread so a read can't be missed
+            if (sequence - this.readSequence >= this.capacity && !this.closed) {
+              LockSupport.parkNanos(this, MAX_WRITE_PARK_NANOS);
+            }
+            this.writeWaitThreads.remove(thread);
+            if (Thread.interrupted()) {
+              close();
+              throw new ClosedException();
+            }
+          }
+          waitCount++;
+        }
+      } finally {
+        this.writeBlockedTime.add(System.nanoTime() - startTime);
+      }
+    }
+    this.values.set((int)sequence & this.mask, value);
+  }
+
+  @Override
+  public T read(final long timeout) {
+    this.readLock.lock();
+    try {
+      if (waitForValue(timeout)) {
+        return take();
+      } else {
+        return null;
+      }
+    } finally {
+      this.readLock.unlock();
+    }
+  }
+
+  @Override
+  public int readBatch(final T[] values) {
+    if (values.length == 0) {
+      return 0;
+    } else {
+      this.readLock.lock();
+      try {
+        waitForValue(0);
+        int count = 0;
+        while (count < values.length && isAvailable()) {
+          values[count++] = take();
+        }
+        return count;
+      } finally {
+        this.readLock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void readConnect() {
+    this.lock.lock();
+    try {
+      if (isClosed()) {
+        throw new IllegalStateException("Cannot connect to a closed channel");
+      } else {
+        this.numReaders++;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public void readDisconnect() {
+    this.lock.lock();
+    try {
+      if (!this.closed) {
+        this.numReaders--;
+        if (this.numReaders <= 0) {
+          close();
+        }
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private void signalReader() {
+    final MultiInputSelector selector = this.selector;
+    if (selector != null) {
+      selector.schedule();
+    }
+    final Thread readWaitThread = this.readWaitThread;
+    if (readWaitThread != null) {
+      LockSupport.unpark(readWaitThread);
+    }
+  }
+
+  private T take() {
+    final long sequence = this.readSequence;
+    final int index = (int)sequence & this.mask;
+    final T value = this.values.get(index);
+    // Free the slot before the writers can see the new read sequence
+    this.values.set(index, null);
+    this.readSequence = sequence + 1;
+    if (!this.writeWaitThreads.isEmpty()) {
+      for (final Thread writeWaitThread : this.writeWaitThreads) {
+        LockSupport.unpark(writeWaitThread);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    final String name = getName();
+    if (name == null) {
+      return "RingBufferChannel(" + getSize() + "/" + this.capacity + ")";
+    } else {
+      return name;
+    }
+  }
+
+  /**
+   * Wait for the value at the read sequence to be published.
+   *
+   * @param timeout The maximum time to wait in milliseconds, 0 to wait until a value is written.
+   * @return True if a value is available, false if the timeout expired.
+   */
+  private boolean waitForValue(final long timeout) {
+    if (isAvailable()) {
+      return true;
+    } else {
+      final long startTime = System.nanoTime();
+      final long timeoutNanos = timeout * 1_000_000;
+      try {
+        int waitCount = 0;
+        while (!isAvailable()) {
+          if (isClosed()) {
+            throw new ClosedException();
+          }
+          long parkNanos = MAX_READ_PARK_NANOS;
+          if (timeout > 0) {
+            final long remainingNanos = timeoutNanos - (System.nanoTime() - startTime);
+            if (remainingNanos <= 0) {
+              return false;
+            }
+            parkNanos = Math.min(parkNanos, remainingNanos);
+          }
+          if (waitCount < SPIN_COUNT) {
+            Thread.onSpinWait();
+          } else if (waitCount < SPIN_COUNT + YIELD_COUNT) {
+            Thread.yield();
+          } else {
+            this.readWaitThread = Thread.currentThread();
+            // Check again after setting the thread so a write can't be missed
+            if (!isAvailable() && !isClosed()) {
+              LockSupport.parkNanos(this, parkNanos);
+            }
+            this.readWaitThread = null;
+            if (Thread.interrupted()) {
+              close();
+              throw new ClosedException();
+            }
+          }
+          waitCount++;
+        }
+        return true;
+      } finally {
+        this.readBlockedTime.add(System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  @Override
+  public void write(final T value) {
+    if (this.closed) {
+      throw new ClosedException();
+    }
+    // Check before the sequence is claimed, an unpublished slot would block the reader forever
+    if (value == null) {
+      throw new IllegalArgumentException("Cannot write null to " + this);
+    }
+    final long sequence = claim(1);
+    publish(sequence, value);
+    signalReader();
+  }
+
+  @Override
+  public void writeBatch(final T[] values, final int offset, final int count) {
+    if (this.closed) {
+      throw new ClosedException();
+    }
+    // Check before the sequences are claimed, an unpublished slot would block the reader forever
+    Objects.checkFromIndexSize(offset, count, values.length);
+    for (int i = 0; i < count; i++) {
+      if (values[offset + i] == null) {
+        throw new IllegalArgumentException("Cannot write null to " + this);
+      }
+    }
+    if (count > 0) {
+      final long sequence = claim(count);
+      for (int i = 0; i < count; i++) {
+        publish(sequence + i, values[offset + i]);
+      }
+      signalReader();
+    }
+  }
+
+  @Override
+  public void writeConnect() {
+    this.lock.lock();
+    try {
+      if (this.writeClosed) {
+        throw new IllegalStateException("Cannot connect to a closed channel");
+      } else {
+        this.numWriters++;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public void writeDisconnect() {
+    this.lock.lock();
+    try {
+      if (!this.writeClosed) {
+        this.numWriters--;
+        if (this.numWriters <= 0) {
+          this.writeClosed = true;
+          final MultiInputSelector selector = this.selector;
+          if (selector != null) {
+            selector.closeChannel();
+          }
+          final Thread readWaitThread = this.readWaitThread;
+          if (readWaitThread != null) {
+            LockSupport.unpark(readWaitThread);
+          }
+        }
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+}
@@ -159,6 +159,7 @@ public class Buffer<T> extends ChannelValueStore<T> {
    *
    * @return The number of items in the buffer.
    */
+  @Override
   public int size() {
     return this.buffer.size();
   }
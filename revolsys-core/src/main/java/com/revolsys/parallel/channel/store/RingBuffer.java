@@ -0,0 +1,99 @@
+package com.revolsys.parallel.channel.store;
+
+import com.revolsys.parallel.channel.ChannelValueStore;
+
+/**
+ * <h2>Description</h2>
+ * <p>
+ * The RingBuffer class is an implementation of ChannelValueStore which stores up
+ * to a fixed number of Objects in a circular array. It has the same behaviour as
+ * a {@link Buffer} with a maximum size but doesn't allocate a list node or take
+ * a lock for each Object, the Channel's monitor already protects the store.
+ * </p>
+ * <p>
+ * The getState method will return EMPTY if the Channel does not contain any
+ * Objects, FULL if it cannot accept more data and NONEMPTYFULL otherwise.
+ * </p>
+ */
+public class RingBuffer<T> extends ChannelValueStore<T> {
+  private int head;
+
+  private int size;
+
+  private final Object[] values;
+
+  /**
+   * Construct a new RingBuffer with the specified maximum size.
+   *
+   * @param maxSize The maximum number of Objects the RingBuffer can store
+   */
+  public RingBuffer(final int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be > 0 not " + maxSize);
+    }
+    this.values = new Object[maxSize];
+  }
+
+  @Override
+  protected Object clone() {
+    return new RingBuffer<T>(this.values.length);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T get() {
+    final int head = this.head;
+    final T value = (T)this.values[head];
+    this.values[head] = null;
+    if (head + 1 == this.values.length) {
+      this.head = 0;
+    } else {
+      this.head = head + 1;
+    }
+    this.size--;
+    return value;
+  }
+
+  public int getMaxSize() {
+    return this.values.length;
+  }
+
+  @Override
+  protected int getState() {
+    if (this.size == 0) {
+      return EMPTY;
+    } else if (this.size == this.values.length) {
+      return FULL;
+    } else {
+      return NONEMPTYFULL;
+    }
+  }
+
+  @Override
+  protected void put(final T value) {
+    int index = this.head + this.size;
+    if (index >= this.values.length) {
+      index -= this.values.length;
+    }
+    this.values[index] = value;
+    this.size++;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder string = new StringBuilder("[");
+    for (int i = 0; i < this.size; i++) {
+      if (i > 0) {
+        string.append(", ");
+      }
+      string.append(this.values[(this.head + i) % this.values.length]);
+    }
+    string.append(']');
+    return string.toString();
+  }
+}
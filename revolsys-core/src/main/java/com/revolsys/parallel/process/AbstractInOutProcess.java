@@ -5,7 +5,9 @@ import org.jeometry.common.logging.Logs;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ChannelValueStore;
 import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
@@ -39,8 +41,7 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
   public Channel<I> getIn() {
     if (this.in == null) {
       final String channelName = getBeanName() + ".in";
-      final ChannelValueStore<I> buffer = newInValueStore();
-      final Channel<I> channel = new Channel<>(channelName, buffer);
+      final Channel<I> channel = newInChannel(channelName);
       setIn(channel);
     }
     return this.in;
@@ -57,8 +58,7 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
   public Channel<O> getOut() {
     if (this.out == null) {
       final String channelName = getBeanName() + ".out";
-      final ChannelValueStore<O> buffer = newOutValueStore();
-      final Channel<O> channel = new Channel<>(channelName, buffer);
+      final Channel<O> channel = newOutChannel(channelName);
       setOut(channel);
     }
     return this.out;
@@ -79,13 +79,47 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
   protected void initializeDo() {
   }
 
+  /**
+   * Create the in channel if one wasn't set. A positive buffer size uses a
+   * {@link RingBufferChannel}, its capacity is rounded up to a power of 2 and null values can't be
+   * written to it.
+   *
+   * @param channelName The name of the channel.
+   * @return The channel.
+   */
+  protected Channel<I> newInChannel(final String channelName) {
+    if (this.inBufferSize > 0) {
+      return new RingBufferChannel<>(channelName, this.inBufferSize);
+    } else {
+      final ChannelValueStore<I> buffer = newInValueStore();
+      return new Channel<>(channelName, buffer);
+    }
+  }
+
   protected ChannelValueStore<I> newInValueStore() {
     if (this.inBufferSize == 0) {
       return new ZeroBuffer<>();
     } else if (this.inBufferSize < 0) {
       return new Buffer<>();
     } else {
-      return new Buffer<>(this.inBufferSize);
+      return new RingBuffer<>(this.inBufferSize);
+    }
+  }
+
+  /**
+   * Create the out channel if one wasn't set. A positive buffer size uses a
+   * {@link RingBufferChannel}, its capacity is rounded up to a power of 2 and null values can't be
+   * written to it.
+   *
+   * @param channelName The name of the channel.
+   * @return The channel.
+   */
+  protected Channel<O> newOutChannel(final String channelName) {
+    if (this.outBufferSize > 0) {
+      return new RingBufferChannel<>(channelName, this.outBufferSize);
+    } else {
+      final ChannelValueStore<O> buffer = newOutValueStore();
+      return new Channel<>(channelName, buffer);
     }
   }
 
@@ -95,7 +129,7 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
     } else if (this.outBufferSize < 0) {
       return new Buffer<>();
     } else {
-      return new Buffer<>(this.outBufferSize);
+      return new RingBuffer<>(this.outBufferSize);
     }
   }
 
@@ -4,6 +4,7 @@ import org.jeometry.common.logging.Logs;
 
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
 import com.revolsys.parallel.channel.store.Buffer;
 
 public abstract class AbstractInProcess<T> extends AbstractProcess implements InProcess<T> {
@@ -39,6 +40,8 @@ public abstract class AbstractInProcess<T> extends AbstractProcess implements In
       final String channelName = getBeanName() + ".in";
       if (this.inBufferSize == 0) {
         setIn(new Channel<T>(channelName));
+      } else if (this.inBufferSize > 0) {
+        setIn(new RingBufferChannel<>(channelName, this.inBufferSize));
       } else {
         setIn(new Channel<>(channelName, new Buffer<T>(this.inBufferSize)));
       }
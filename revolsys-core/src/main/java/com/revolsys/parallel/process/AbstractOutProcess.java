@@ -4,6 +4,7 @@ import org.jeometry.common.logging.Logs;
 
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
 import com.revolsys.parallel.channel.store.Buffer;
 
 public abstract class AbstractOutProcess<T> extends AbstractProcess implements OutProcess<T> {
@@ -36,6 +37,9 @@ public abstract class AbstractOutProcess<T> extends AbstractProcess implements O
       if (this.outBufferSize == 0) {
         final Channel<T> channel = new Channel<>(channelName);
         setOut(channel);
+      } else if (this.outBufferSize > 0) {
+        final Channel<T> channel = new RingBufferChannel<>(channelName, this.outBufferSize);
+        setOut(channel);
       } else {
         final Buffer<T> buffer = new Buffer<>(this.outBufferSize);
         final Channel<T> channel = new Channel<>(channelName, buffer);
@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 
 import jakarta.annotation.PostConstruct;
@@ -20,10 +21,24 @@ import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.spring.TargetBeanProcess;
 
+/**
+ * A network of processes that are each run on their own thread and communicate using channels.
+ *
+ * <p>If {@link #setVirtualThreads(boolean)} is enabled and the Java runtime supports virtual
+ * threads (Java 21+) each process is run on a virtual thread, otherwise a platform thread in the
+ * network's {@link ThreadGroup} is used. Virtual threads don't belong to the thread group so the
+ * {@link ThreadSharedProperties} for the group are set on each virtual thread when it starts.
+ * Processes run on virtual threads should use channels that block without holding a monitor,
+ * such as {@link com.revolsys.parallel.channel.RingBufferChannel}, so a blocked process doesn't
+ * pin the carrier thread.</p>
+ */
 public class ProcessNetwork {
 
   private static ThreadLocal<ProcessNetwork> PROCESS_NETWORK = new ThreadLocal<>();
 
+  /** The factory for virtual threads or null if not supported by the Java runtime. */
+  private static final ThreadFactory VIRTUAL_THREAD_FACTORY = newVirtualThreadFactory();
+
   public static <V> void forAll(final Consumer<V> action, final Iterable<V> values) {
     final ProcessNetwork processNetwork = new ProcessNetwork();
     for (final V value : values) {
@@ -69,6 +84,31 @@ public class ProcessNetwork {
     return PROCESS_NETWORK.get();
   }
 
+  /**
+   * Check if the Java runtime supports virtual threads.
+   *
+   * @return True if virtual threads are supported.
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * The virtual thread builder is accessed using reflection so this class can run on Java
+   * versions before 21.
+   *
+   * @return The thread factory or null if virtual threads are not supported.
+   */
+  private static ThreadFactory newVirtualThreadFactory() {
+    try {
+      final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
   public static void processTasks(final int processCount, final Channel<Runnable> tasks) {
     final ProcessNetwork processNetwork = new ProcessNetwork();
     for (int i = 0; i < processCount; i++) {
@@ -125,6 +165,8 @@ public class ProcessNetwork {
 
   private ThreadGroup threadGroup;
 
+  private boolean virtualThreads;
+
   public ProcessNetwork() {
   }
 
@@ -253,6 +295,24 @@ public class ProcessNetwork {
     return this.autoStart;
   }
 
+  public boolean isVirtualThreads() {
+    return this.virtualThreads;
+  }
+
+  private Thread newVirtualThread(final Runnable runnable) {
+    ThreadGroup threadGroup = this.threadGroup;
+    if (threadGroup == null) {
+      threadGroup = Thread.currentThread().getThreadGroup();
+    }
+    // The properties a platform thread in the thread group would have used
+    final Map<Object, Object> properties = ThreadSharedProperties
+      .getThreadGroupProperties(threadGroup);
+    return VIRTUAL_THREAD_FACTORY.newThread(() -> {
+      ThreadSharedProperties.initialiseThread(properties);
+      runnable.run();
+    });
+  }
+
   void removeProcess(final Process process) {
     synchronized (this.sync) {
       if (this.processes != null) {
@@ -292,6 +352,16 @@ public class ProcessNetwork {
     }
   }
 
+  /**
+   * Run the processes on virtual threads if supported by the Java runtime. If not supported
+   * platform threads will be used.
+   *
+   * @param virtualThreads True to use virtual threads.
+   */
+  public void setVirtualThreads(final boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
   public void start() {
     if (this.parent == null) {
       synchronized (this.sync) {
@@ -333,7 +403,12 @@ public class ProcessNetwork {
               }
             }
           };
-          if (name == null) {
+          if (this.virtualThreads && VIRTUAL_THREAD_FACTORY != null) {
+            thread = newVirtualThread(runnable);
+            if (name != null) {
+              thread.setName(name);
+            }
+          } else if (name == null) {
             thread = new Thread(this.threadGroup, runnable);
           } else {
             thread = new Thread(this.threadGroup, runnable, name);
@@ -1,6 +1,7 @@
 package com.revolsys.raster;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -33,6 +34,26 @@ public class BufferedImages {
     return readBufferedImage(resource);
   }
 
+  /**
+   * Read the encoded image bytes (e.g. PNG or JPEG) from the URL without decoding the image.
+   *
+   * @param url The image URL.
+   * @return The bytes.
+   */
+  public static byte[] readBytes(final String url) {
+    final Resource resource = Resource.getResource(url);
+    try (
+      InputStream in = resource.getInputStream()) {
+      return in.readAllBytes();
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to open: " + resource, e);
+    }
+  }
+
+  public static BufferedImage readImageIo(final byte[] bytes) {
+    return readImageIo(new ByteArrayInputStream(bytes));
+  }
+
   public static BufferedImage readImageIo(final InputStream in) {
     try {
       return ImageIO.read(in);
@@ -20,11 +20,49 @@ public abstract class GeoreferencedImageMapTile extends AbstractMapTile<Georefer
     return false;
   }
 
+  /**
+   * Get the key used to store the tile in the {@link MapTileDiskCache}. The key must uniquely
+   * identify the tile image (e.g. service/zoomLevel/tileX/tileY). Tiles that return a key must
+   * implement {@link #loadImageBytes()}.
+   *
+   * @return The key or null if the tile shouldn't be cached on disk.
+   */
+  public String getCacheKey() {
+    return null;
+  }
+
   protected abstract BufferedImage loadBuffferedImage();
 
   @Override
   protected GeoreferencedImage loadDataDo() {
-    final BufferedImage bufferedImage = loadBuffferedImage();
+    final MapTileDiskCache diskCache = MapTileDiskCache.getDefault();
+    BufferedImage bufferedImage = null;
+    final String cacheKey;
+    if (diskCache == null) {
+      cacheKey = null;
+    } else {
+      cacheKey = getCacheKey();
+    }
+    if (cacheKey == null) {
+      bufferedImage = loadBuffferedImage();
+    } else {
+      final byte[] cachedBytes = diskCache.read(cacheKey);
+      if (cachedBytes != null) {
+        bufferedImage = readImage(cachedBytes);
+        if (bufferedImage == null) {
+          diskCache.remove(cacheKey);
+        }
+      }
+      if (bufferedImage == null) {
+        final byte[] bytes = loadImageBytes();
+        if (bytes != null) {
+          bufferedImage = readImage(bytes);
+          if (bufferedImage != null) {
+            diskCache.write(cacheKey, bytes);
+          }
+        }
+      }
+    }
     if (bufferedImage == null) {
       return null;
     } else {
@@ -36,4 +74,22 @@ public abstract class GeoreferencedImageMapTile extends AbstractMapTile<Georefer
     }
   }
 
+  /**
+   * Load the encoded image bytes (e.g. PNG or JPEG) as returned by the server so they can be
+   * stored in the {@link MapTileDiskCache} without decoding and encoding the image again.
+   *
+   * @return The bytes or null if the image couldn't be loaded.
+   */
+  protected byte[] loadImageBytes() {
+    return null;
+  }
+
+  private BufferedImage readImage(final byte[] bytes) {
+    try {
+      return BufferedImages.readImageIo(bytes);
+    } catch (final RuntimeException e) {
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,318 @@
+package com.revolsys.raster;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.io.FileUtil;
+import com.revolsys.util.OS;
+
+/**
+ * A persistent cache of map tile images. The tiles are stored as the bytes returned by the
+ * server (e.g. PNG or JPEG) so they aren't re-encoded, the file extension records the format.
+ * Tiles are identified by a key of path segments separated by '/' (e.g.
+ * layer/zoomLevel/tileX/tileY).
+ *
+ * The cache is disabled unless {@link #setDefault(MapTileDiskCache)} is called. Tiles older than
+ * the maximum age are ignored so they are downloaded again. The cache is swept when the size of
+ * the tiles written exceeds the maximum size or the sweep interval has passed. The sweep deletes
+ * the expired tiles and then the oldest tiles until the cache is below 90% of the maximum size.
+ */
+public class MapTileDiskCache {
+
+  private static class TileFile {
+    private final long lastModified;
+
+    private final Path path;
+
+    private final long size;
+
+    private TileFile(final Path path, final BasicFileAttributes attributes) {
+      this.path = path;
+      this.lastModified = attributes.lastModifiedTime().toMillis();
+      this.size = attributes.size();
+    }
+  }
+
+  private static final String[] FILE_EXTENSIONS = {
+    "png", "jpg", "gif", "tile"
+  };
+
+  private static MapTileDiskCache defaultCache;
+
+  public static MapTileDiskCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Get the directory in the application data directory that can be used for the default cache.
+   *
+   * @return The directory.
+   */
+  public static File getDefaultDirectory() {
+    return new File(OS.getApplicationDataDirectory(), "revolsys/tileCache");
+  }
+
+  /**
+   * Get the file extension for the format of the image bytes.
+   *
+   * @param bytes The image bytes.
+   * @return The file extension.
+   */
+  private static String getFileExtension(final byte[] bytes) {
+    if (bytes.length >= 4) {
+      final int b0 = bytes[0] & 0xFF;
+      final int b1 = bytes[1] & 0xFF;
+      final int b2 = bytes[2] & 0xFF;
+      final int b3 = bytes[3] & 0xFF;
+      if (b0 == 0x89 && b1 == 'P' && b2 == 'N' && b3 == 'G') {
+        return "png";
+      } else if (b0 == 0xFF && b1 == 0xD8 && b2 == 0xFF) {
+        return "jpg";
+      } else if (b0 == 'G' && b1 == 'I' && b2 == 'F' && b3 == '8') {
+        return "gif";
+      }
+    }
+    return "tile";
+  }
+
+  /**
+   * Set the cache used by {@link GeoreferencedImageMapTile}, null to disable caching tiles on
+   * disk.
+   *
+   * @param cache The cache.
+   */
+  public static void setDefault(final MapTileDiskCache cache) {
+    defaultCache = cache;
+  }
+
+  private final File directory;
+
+  private volatile long lastSweepTime;
+
+  private long maxAgeMillis = TimeUnit.DAYS.toMillis(30);
+
+  private long maxSize = 512L * 1024 * 1024;
+
+  /** The size of the tiles in the cache, -1 until the first sweep. */
+  private final AtomicLong size = new AtomicLong(-1);
+
+  private long sweepIntervalMillis = TimeUnit.HOURS.toMillis(1);
+
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  public MapTileDiskCache(final File directory) {
+    this.directory = directory;
+  }
+
+  private void addSize(final long delta) {
+    this.size.updateAndGet(size -> size < 0 ? size : size + delta);
+  }
+
+  private void deleteFile(final File file) {
+    final long length = file.length();
+    if (file.delete()) {
+      addSize(-length);
+    }
+  }
+
+  public File getDirectory() {
+    return this.directory;
+  }
+
+  public File getFile(final String key, final String fileExtension) {
+    File file = this.directory;
+    final String[] names = key.split("/");
+    for (int i = 0; i < names.length - 1; i++) {
+      file = FileUtil.getSafeFileName(file, names[i]);
+    }
+    return FileUtil.getSafeFileName(file, names[names.length - 1] + "." + fileExtension);
+  }
+
+  public long getMaxAgeMillis() {
+    return this.maxAgeMillis;
+  }
+
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Get the estimated size of the tiles in the cache. The size is calculated by each sweep and
+   * updated as tiles are written and deleted.
+   *
+   * @return The size in bytes or -1 if the cache hasn't been swept.
+   */
+  public long getSize() {
+    return this.size.get();
+  }
+
+  public long getSweepIntervalMillis() {
+    return this.sweepIntervalMillis;
+  }
+
+  /**
+   * Read the tile image bytes.
+   *
+   * @param key The tile key.
+   * @return The bytes or null if the tile isn't cached, has expired or couldn't be read.
+   */
+  public byte[] read(final String key) {
+    for (final String fileExtension : FILE_EXTENSIONS) {
+      final File file = getFile(key, fileExtension);
+      final long lastModified = file.lastModified();
+      if (lastModified != 0) {
+        if (System.currentTimeMillis() - lastModified > this.maxAgeMillis) {
+          deleteFile(file);
+        } else {
+          try {
+            return Files.readAllBytes(file.toPath());
+          } catch (final IOException e) {
+            deleteFile(file);
+          }
+        }
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Remove the tile, for example if the cached bytes couldn't be read as an image.
+   *
+   * @param key The tile key.
+   */
+  public void remove(final String key) {
+    for (final String fileExtension : FILE_EXTENSIONS) {
+      final File file = getFile(key, fileExtension);
+      if (file.exists()) {
+        deleteFile(file);
+      }
+    }
+  }
+
+  public void setMaxAgeMillis(final long maxAgeMillis) {
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Set the maximum size of the tiles in the cache.
+   *
+   * @param maxSize The size in bytes.
+   */
+  public void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public void setSweepIntervalMillis(final long sweepIntervalMillis) {
+    this.sweepIntervalMillis = sweepIntervalMillis;
+  }
+
+  /**
+   * Delete the expired tiles and then the oldest tiles until the size of the cache is below 90%
+   * of the maximum size. Returns immediately if another thread is sweeping the cache.
+   */
+  public void sweep() {
+    if (this.sweeping.compareAndSet(false, true)) {
+      try {
+        this.lastSweepTime = System.currentTimeMillis();
+        final List<TileFile> files = new ArrayList<>();
+        final Path directory = this.directory.toPath();
+        if (Files.isDirectory(directory)) {
+          Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file,
+              final BasicFileAttributes attributes) {
+              // Skip the temporary files of tiles being written
+              if (attributes.isRegularFile() && !file.toString().endsWith(".tmp")) {
+                files.add(new TileFile(file, attributes));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+              return FileVisitResult.CONTINUE;
+            }
+          });
+        }
+        files.sort(Comparator.comparingLong(file -> file.lastModified));
+
+        final long expiredTime = this.lastSweepTime - this.maxAgeMillis;
+        long size = 0;
+        for (final TileFile file : files) {
+          size += file.size;
+        }
+        final long targetSize = this.maxSize / 10 * 9;
+        for (final TileFile file : files) {
+          if (file.lastModified < expiredTime || size > targetSize) {
+            try {
+              if (Files.deleteIfExists(file.path)) {
+                size -= file.size;
+              }
+            } catch (final IOException e) {
+              Logs.debug(this, "Unable to delete tile from cache: " + file.path, e);
+            }
+          } else {
+            break;
+          }
+        }
+        this.size.set(size);
+      } catch (final IOException e) {
+        Logs.debug(this, "Unable to sweep tile cache: " + this.directory, e);
+      } finally {
+        this.sweeping.set(false);
+      }
+    }
+  }
+
+  private void sweepIfRequired() {
+    final long size = this.size.get();
+    if (size < 0 || size > this.maxSize
+      || System.currentTimeMillis() - this.lastSweepTime > this.sweepIntervalMillis) {
+      sweep();
+    }
+  }
+
+  /**
+   * Write the tile image bytes. The bytes are written to a temporary file that is then moved to
+   * the tile file so that other threads never read a partially written tile.
+   *
+   * @param key The tile key.
+   * @param bytes The image bytes as returned by the server.
+   */
+  public void write(final String key, final byte[] bytes) {
+    final String fileExtension = getFileExtension(bytes);
+    final File file = getFile(key, fileExtension);
+    final File parent = file.getParentFile();
+    parent.mkdirs();
+    try {
+      final Path tempFile = Files.createTempFile(parent.toPath(), "tile", ".tmp");
+      try {
+        Files.write(tempFile, bytes);
+        remove(key);
+        Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+        addSize(bytes.length);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (final IOException e) {
+      Logs.debug(this, "Unable to write tile to cache: " + file, e);
+    }
+    sweepIfRequired();
+  }
+}
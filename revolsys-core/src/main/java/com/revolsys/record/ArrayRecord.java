@@ -6,6 +6,9 @@ import java.util.Map;
 
 import org.jeometry.common.data.identifier.SingleIdentifier;
 
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataType;
+import com.revolsys.geometry.model.LazyGeometry;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Property;
@@ -91,7 +94,31 @@ public class ArrayRecord extends BaseRecord {
   }
 
   /**
-   * Get the value of the field with the specified index.
+   * Get the bounding box of the geometry. If the geometry is a {@link LazyGeometry} that
+   * hasn't been created the bounding box is got without creating the geometry.
+   *
+   * @return The bounding box.
+   */
+  @Override
+  public BoundingBox getBoundingBox() {
+    final RecordDefinition recordDefinition = getRecordDefinition();
+    if (recordDefinition != null) {
+      final int index = recordDefinition.getGeometryFieldIndex();
+      if (index >= 0) {
+        final Object value = getValueInternal(index);
+        if (value instanceof LazyGeometry) {
+          final LazyGeometry lazyGeometry = (LazyGeometry)value;
+          return lazyGeometry.getBoundingBox();
+        }
+      }
+    }
+    return super.getBoundingBox();
+  }
+
+  /**
+   * Get the value of the field with the specified index. The geometry is returned for a
+   * {@link LazyGeometry} value, the lazy geometry is kept as the field value so that records
+   * shared between threads aren't modified by reading a value.
    *
    * @param index The index of the field.
    * @return The field value.
@@ -103,7 +130,12 @@ public class ArrayRecord extends BaseRecord {
       return null;
     } else {
       try {
-        return (T)getValueInternal(index);
+        final Object value = getValueInternal(index);
+        if (value instanceof LazyGeometry) {
+          final LazyGeometry lazyGeometry = (LazyGeometry)value;
+          return lazyGeometry.getGeometry();
+        }
+        return (T)value;
       } catch (final ArrayIndexOutOfBoundsException e) {
         return null;
       }
@@ -121,6 +153,15 @@ public class ArrayRecord extends BaseRecord {
    */
   @Override
   public List<Object> getValues() {
+    for (final Object value : this.values) {
+      if (value instanceof LazyGeometry) {
+        final Object[] values = this.values.clone();
+        for (int i = 0; i < values.length; i++) {
+          values[i] = getValue(i);
+        }
+        return Arrays.asList(values);
+      }
+    }
     return Arrays.asList(this.values);
   }
 
@@ -140,7 +181,8 @@ public class ArrayRecord extends BaseRecord {
   }
 
   /**
-   * Set the value of the field with the specified name.
+   * Set the value of the field with the specified name. A {@link LazyGeometry} value for a
+   * geometry field is stored without conversion so the geometry is only created if it's used.
    *
    * @param index The index of the field.
    * @param value The new value.
@@ -148,6 +190,17 @@ public class ArrayRecord extends BaseRecord {
   @Override
   protected boolean setValue(final FieldDefinition fieldDefinition, Object value) {
     boolean updated = false;
+    if (value instanceof LazyGeometry
+      && fieldDefinition.getDataType() instanceof GeometryDataType) {
+      final int index = fieldDefinition.getIndex();
+      final Object oldValue = getValueInternal(index);
+      if (!isInitializing() && oldValue != value) {
+        updated = true;
+        updateState();
+      }
+      setValueInternal(index, value);
+      return updated;
+    }
     if (value instanceof String) {
       final String string = (String)value;
       if (!Property.hasValue(string)) {
@@ -160,10 +213,12 @@ public class ArrayRecord extends BaseRecord {
     }
     final Object newValue = fieldDefinition.toFieldValue(getState(), value);
     final int index = fieldDefinition.getIndex();
-    final Object oldValue = getValueInternal(index);
-    if (!isInitializing() && !fieldDefinition.equals(oldValue, newValue)) {
-      updated = true;
-      updateState();
+    if (!isInitializing()) {
+      final Object oldValue = getValue(index);
+      if (!fieldDefinition.equals(oldValue, newValue)) {
+        updated = true;
+        updateState();
+      }
     }
     setValueInternal(index, newValue);
     return updated;
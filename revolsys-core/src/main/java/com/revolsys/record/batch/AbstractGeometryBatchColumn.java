@@ -0,0 +1,57 @@
+package com.revolsys.record.batch;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LazyGeometry;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * Base class for the {@link BatchColumn}s that store the coordinates of geometries in a packed
+ * {@code double[]} using the axis count of the field's geometry factory.
+ */
+public abstract class AbstractGeometryBatchColumn extends BatchColumn {
+
+  protected final int axisCount;
+
+  protected final GeometryFactory geometryFactory;
+
+  public AbstractGeometryBatchColumn(final FieldDefinition fieldDefinition,
+    final GeometryFactory geometryFactory) {
+    super(fieldDefinition);
+    this.geometryFactory = geometryFactory;
+    this.axisCount = geometryFactory.getAxisCount();
+  }
+
+  public int getAxisCount() {
+    return this.axisCount;
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  /**
+   * Convert the value to a geometry of the expected type in the column's geometry factory.
+   *
+   * @param value The value.
+   * @param geometryClass The expected geometry class.
+   * @return The geometry.
+   */
+  protected <G extends Geometry> G toGeometry(final Object value, final Class<G> geometryClass) {
+    Object geometry;
+    if (value instanceof LazyGeometry) {
+      final LazyGeometry lazyGeometry = (LazyGeometry)value;
+      geometry = lazyGeometry.getGeometry();
+    } else if (value instanceof Geometry) {
+      geometry = value;
+    } else {
+      geometry = toFieldValue(value);
+    }
+    if (geometryClass.isInstance(geometry)) {
+      final G typedGeometry = geometryClass.cast(geometry);
+      return typedGeometry.convertGeometry(this.geometryFactory);
+    } else {
+      throw newInvalidValueException(value);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.revolsys.record.batch;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * The values of one field for all the rows in a {@link RecordBatch}. Implementations store the
+ * values in primitive arrays so the values aren't boxed until they are got as an object.
+ */
+public abstract class BatchColumn {
+
+  /**
+   * Construct a new column for the field using the most compact storage for the field's data
+   * type.
+   *
+   * @param fieldDefinition The field definition.
+   * @param capacity The maximum number of rows.
+   * @return The column.
+   */
+  public static BatchColumn newColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    final DataType dataType = fieldDefinition.getDataType();
+    if (dataType == DataTypes.INT) {
+      return new IntBatchColumn(fieldDefinition, capacity);
+    } else if (dataType == DataTypes.LONG) {
+      return new LongBatchColumn(fieldDefinition, capacity);
+    } else if (dataType == DataTypes.DOUBLE) {
+      return new DoubleBatchColumn(fieldDefinition, capacity);
+    } else if (dataType == DataTypes.BOOLEAN) {
+      return new BooleanBatchColumn(fieldDefinition, capacity);
+    } else if (dataType == DataTypes.STRING) {
+      return new StringBatchColumn(fieldDefinition, capacity);
+    } else {
+      final GeometryFactory geometryFactory = fieldDefinition.getGeometryFactory();
+      if (geometryFactory != null) {
+        if (dataType == GeometryDataTypes.POINT) {
+          return new PointBatchColumn(fieldDefinition, geometryFactory, capacity);
+        } else if (dataType == GeometryDataTypes.LINE_STRING) {
+          return new LineStringBatchColumn(fieldDefinition, geometryFactory, capacity);
+        }
+      }
+      return new ObjectBatchColumn(fieldDefinition, capacity);
+    }
+  }
+
+  private final FieldDefinition fieldDefinition;
+
+  public BatchColumn(final FieldDefinition fieldDefinition) {
+    this.fieldDefinition = fieldDefinition;
+  }
+
+  /**
+   * Set all the values to null.
+   */
+  public abstract void clear();
+
+  public FieldDefinition getFieldDefinition() {
+    return this.fieldDefinition;
+  }
+
+  public abstract <V> V getValue(int row);
+
+  public boolean isNull(final int row) {
+    return getValue(row) == null;
+  }
+
+  protected IllegalArgumentException newInvalidValueException(final Object value) {
+    return new IllegalArgumentException(
+      "Invalid value for " + this.fieldDefinition.getName() + ": " + value);
+  }
+
+  public abstract void setValue(int row, Object value);
+
+  protected <V> V toFieldValue(final Object value) {
+    return this.fieldDefinition.toFieldValue(value);
+  }
+
+  @Override
+  public String toString() {
+    return this.fieldDefinition.getName();
+  }
+}
@@ -0,0 +1,71 @@
+package com.revolsys.record.batch;
+
+import java.util.BitSet;
+
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for {@code Boolean} values stored in a {@link BitSet}.
+ */
+public class BooleanBatchColumn extends BatchColumn {
+
+  private final int capacity;
+
+  private final BitSet nulls = new BitSet();
+
+  private final BitSet values = new BitSet();
+
+  public BooleanBatchColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    super(fieldDefinition);
+    this.capacity = capacity;
+    this.nulls.set(0, capacity);
+  }
+
+  @Override
+  public void clear() {
+    this.nulls.set(0, this.capacity);
+    this.values.clear();
+  }
+
+  public boolean getBoolean(final int row) {
+    return this.values.get(row);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    if (this.nulls.get(row)) {
+      return null;
+    } else {
+      return (V)Boolean.valueOf(this.values.get(row));
+    }
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.nulls.get(row);
+  }
+
+  public void setBoolean(final int row, final boolean value) {
+    this.values.set(row, value);
+    this.nulls.clear(row);
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null) {
+      this.nulls.set(row);
+    } else if (value instanceof Boolean) {
+      setBoolean(row, (Boolean)value);
+    } else if (value instanceof String && ((String)value).trim().isEmpty()) {
+      this.nulls.set(row);
+    } else {
+      final Object fieldValue = toFieldValue(value);
+      if (fieldValue instanceof Boolean) {
+        setBoolean(row, (Boolean)fieldValue);
+      } else {
+        throw newInvalidValueException(value);
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.revolsys.record.batch;
+
+import java.util.BitSet;
+
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for {@code Double} values stored in a {@code double[]}.
+ */
+public class DoubleBatchColumn extends BatchColumn {
+
+  private final BitSet nulls = new BitSet();
+
+  private final double[] values;
+
+  public DoubleBatchColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    super(fieldDefinition);
+    this.values = new double[capacity];
+    this.nulls.set(0, capacity);
+  }
+
+  @Override
+  public void clear() {
+    this.nulls.set(0, this.values.length);
+  }
+
+  public double getDouble(final int row) {
+    return this.values[row];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    if (this.nulls.get(row)) {
+      return null;
+    } else {
+      return (V)Double.valueOf(this.values[row]);
+    }
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.nulls.get(row);
+  }
+
+  private void setConverted(final int row, final Object value) {
+    final Object fieldValue = toFieldValue(value);
+    if (fieldValue instanceof Number) {
+      final Number number = (Number)fieldValue;
+      setDouble(row, number.doubleValue());
+    } else {
+      throw newInvalidValueException(value);
+    }
+  }
+
+  public void setDouble(final int row, final double value) {
+    this.values[row] = value;
+    this.nulls.clear(row);
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null) {
+      this.nulls.set(row);
+    } else if (value instanceof Number) {
+      final Number number = (Number)value;
+      setDouble(row, number.doubleValue());
+    } else if (value instanceof String) {
+      final String string = ((String)value).trim();
+      if (string.isEmpty()) {
+        this.nulls.set(row);
+      } else {
+        try {
+          setDouble(row, Double.parseDouble(string));
+        } catch (final NumberFormatException e) {
+          setConverted(row, value);
+        }
+      }
+    } else {
+      setConverted(row, value);
+    }
+  }
+}
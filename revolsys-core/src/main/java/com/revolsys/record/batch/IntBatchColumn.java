@@ -0,0 +1,83 @@
+package com.revolsys.record.batch;
+
+import java.util.BitSet;
+
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for {@code Integer} values stored in a {@code int[]}.
+ */
+public class IntBatchColumn extends BatchColumn {
+
+  private final BitSet nulls = new BitSet();
+
+  private final int[] values;
+
+  public IntBatchColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    super(fieldDefinition);
+    this.values = new int[capacity];
+    this.nulls.set(0, capacity);
+  }
+
+  @Override
+  public void clear() {
+    this.nulls.set(0, this.values.length);
+  }
+
+  public int getInt(final int row) {
+    return this.values[row];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    if (this.nulls.get(row)) {
+      return null;
+    } else {
+      return (V)Integer.valueOf(this.values[row]);
+    }
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.nulls.get(row);
+  }
+
+  private void setConverted(final int row, final Object value) {
+    final Object fieldValue = toFieldValue(value);
+    if (fieldValue instanceof Number) {
+      final Number number = (Number)fieldValue;
+      setInt(row, number.intValue());
+    } else {
+      throw newInvalidValueException(value);
+    }
+  }
+
+  public void setInt(final int row, final int value) {
+    this.values[row] = value;
+    this.nulls.clear(row);
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null) {
+      this.nulls.set(row);
+    } else if (value instanceof Number) {
+      final Number number = (Number)value;
+      setInt(row, number.intValue());
+    } else if (value instanceof String) {
+      final String string = ((String)value).trim();
+      if (string.isEmpty()) {
+        this.nulls.set(row);
+      } else {
+        try {
+          setInt(row, Integer.parseInt(string));
+        } catch (final NumberFormatException e) {
+          setConverted(row, value);
+        }
+      }
+    } else {
+      setConverted(row, value);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.revolsys.record.batch;
+
+import java.util.Arrays;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for {@link LineString} values. The coordinates of all the rows are
+ * appended to one packed {@code double[]} with the offset and vertex count of each row. If a row
+ * is set more than once the previous coordinates are left unused until the column is cleared.
+ */
+public class LineStringBatchColumn extends AbstractGeometryBatchColumn {
+
+  private int coordinateCount;
+
+  private double[] coordinates;
+
+  private final int[] offsets;
+
+  private final int[] vertexCounts;
+
+  public LineStringBatchColumn(final FieldDefinition fieldDefinition,
+    final GeometryFactory geometryFactory, final int capacity) {
+    super(fieldDefinition, geometryFactory);
+    this.offsets = new int[capacity];
+    this.vertexCounts = new int[capacity];
+    Arrays.fill(this.vertexCounts, -1);
+    this.coordinates = new double[capacity * 2 * this.axisCount];
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(this.vertexCounts, -1);
+    this.coordinateCount = 0;
+  }
+
+  public double getCoordinate(final int row, final int vertexIndex, final int axisIndex) {
+    if (axisIndex < this.axisCount) {
+      return this.coordinates[this.offsets[row] + vertexIndex * this.axisCount + axisIndex];
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    final int vertexCount = this.vertexCounts[row];
+    if (vertexCount == -1) {
+      return null;
+    } else if (vertexCount == 0) {
+      return (V)this.geometryFactory.lineString();
+    } else {
+      final int offset = this.offsets[row];
+      final double[] coordinates = Arrays.copyOfRange(this.coordinates, offset,
+        offset + vertexCount * this.axisCount);
+      return (V)this.geometryFactory.lineString(this.axisCount, vertexCount, coordinates);
+    }
+  }
+
+  public int getVertexCount(final int row) {
+    return Math.max(0, this.vertexCounts[row]);
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.vertexCounts[row] == -1;
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null || value instanceof String && ((String)value).isEmpty()) {
+      this.vertexCounts[row] = -1;
+    } else {
+      final LineString line = toGeometry(value, LineString.class);
+      final int vertexCount = line.getVertexCount();
+      final int axisCount = this.axisCount;
+      final int offset = this.coordinateCount;
+      final int newCoordinateCount = offset + vertexCount * axisCount;
+      if (newCoordinateCount > this.coordinates.length) {
+        final int newLength = Math.max(newCoordinateCount, this.coordinates.length * 2);
+        this.coordinates = Arrays.copyOf(this.coordinates, newLength);
+      }
+      final double[] coordinates = this.coordinates;
+      int coordinateIndex = offset;
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          coordinates[coordinateIndex++] = line.getCoordinate(vertexIndex, axisIndex);
+        }
+      }
+      this.coordinateCount = newCoordinateCount;
+      this.offsets[row] = offset;
+      this.vertexCounts[row] = vertexCount;
+    }
+  }
+}
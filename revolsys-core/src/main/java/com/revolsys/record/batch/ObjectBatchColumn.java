@@ -0,0 +1,47 @@
+package com.revolsys.record.batch;
+
+import java.util.Arrays;
+
+import com.revolsys.geometry.model.LazyGeometry;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for values that don't have a more compact storage.
+ */
+public class ObjectBatchColumn extends BatchColumn {
+
+  private final Object[] values;
+
+  public ObjectBatchColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    super(fieldDefinition);
+    this.values = new Object[capacity];
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(this.values, null);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    Object value = this.values[row];
+    if (value instanceof LazyGeometry) {
+      final LazyGeometry lazyGeometry = (LazyGeometry)value;
+      value = lazyGeometry.getGeometry();
+      this.values[row] = value;
+    }
+    return (V)value;
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value instanceof LazyGeometry) {
+      this.values[row] = value;
+    } else if (value instanceof String && ((String)value).isEmpty()) {
+      this.values[row] = null;
+    } else {
+      this.values[row] = toFieldValue(value);
+    }
+  }
+}
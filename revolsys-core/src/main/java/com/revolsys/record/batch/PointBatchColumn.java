@@ -0,0 +1,103 @@
+package com.revolsys.record.batch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link BatchColumn} for {@link Point} values. The coordinates of all the rows are stored in
+ * one packed {@code double[]} with {@link #getAxisCount()} values for each row. Empty points
+ * have NaN coordinates.
+ */
+public class PointBatchColumn extends AbstractGeometryBatchColumn {
+
+  private final double[] coordinates;
+
+  private final BitSet nulls = new BitSet();
+
+  public PointBatchColumn(final FieldDefinition fieldDefinition,
+    final GeometryFactory geometryFactory, final int capacity) {
+    super(fieldDefinition, geometryFactory);
+    this.coordinates = new double[capacity * this.axisCount];
+    this.nulls.set(0, capacity);
+  }
+
+  @Override
+  public void clear() {
+    this.nulls.set(0, this.coordinates.length / this.axisCount);
+  }
+
+  public double getCoordinate(final int row, final int axisIndex) {
+    if (axisIndex < this.axisCount) {
+      return this.coordinates[row * this.axisCount + axisIndex];
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    if (this.nulls.get(row)) {
+      return null;
+    } else {
+      final int offset = row * this.axisCount;
+      if (Double.isNaN(this.coordinates[offset])) {
+        return (V)this.geometryFactory.point();
+      } else {
+        final double[] coordinates = Arrays.copyOfRange(this.coordinates, offset,
+          offset + this.axisCount);
+        return (V)this.geometryFactory.point(coordinates);
+      }
+    }
+  }
+
+  public double getX(final int row) {
+    return this.coordinates[row * this.axisCount];
+  }
+
+  public double getY(final int row) {
+    return this.coordinates[row * this.axisCount + 1];
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.nulls.get(row);
+  }
+
+  /**
+   * Set the coordinates of the point without creating a {@link Point}. The coordinates must be in
+   * the column's geometry factory.
+   *
+   * @param row The row.
+   * @param coordinates The coordinates, missing axes are set to NaN.
+   */
+  public void setCoordinates(final int row, final double... coordinates) {
+    final int offset = row * this.axisCount;
+    for (int axisIndex = 0; axisIndex < this.axisCount; axisIndex++) {
+      double coordinate = Double.NaN;
+      if (axisIndex < coordinates.length) {
+        coordinate = this.geometryFactory.makePrecise(axisIndex, coordinates[axisIndex]);
+      }
+      this.coordinates[offset + axisIndex] = coordinate;
+    }
+    this.nulls.clear(row);
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null || value instanceof String && ((String)value).isEmpty()) {
+      this.nulls.set(row);
+    } else {
+      final Point point = toGeometry(value, Point.class);
+      final int offset = row * this.axisCount;
+      for (int axisIndex = 0; axisIndex < this.axisCount; axisIndex++) {
+        this.coordinates[offset + axisIndex] = point.getCoordinate(axisIndex);
+      }
+      this.nulls.clear(row);
+    }
+  }
+}
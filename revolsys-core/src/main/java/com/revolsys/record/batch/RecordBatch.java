@@ -0,0 +1,216 @@
+package com.revolsys.record.batch;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+
+/**
+ * A fixed capacity batch of rows for a {@link RecordDefinition} stored by column instead of as
+ * a {@link Record} per row. The values are stored in primitive arrays (int, long, double and
+ * boolean fields), dictionary encoded strings and packed coordinates for point and line string
+ * fields (see {@link BatchColumn#newColumn(FieldDefinition, int)}).
+ *
+ * <p>Rows are added using {@link #addRow()} or {@link #addRecord(Record)} until the batch
+ * {@link #isFull()}. The batch can then be processed and {@link #clear()}ed to be reused for the
+ * next batch. {@link #getRow(int)} returns a {@link Record} view of the row for code that
+ * expects records.</p>
+ *
+ * <pre class="prettyprint"><code class="language-java">
+ * reader.forEachBatch(10000, batch -&gt; writer.writeBatch(batch));
+ * </code></pre>
+ */
+public class RecordBatch implements RecordDefinitionProxy, Iterable<Record> {
+
+  private final int capacity;
+
+  private final BatchColumn[] columns;
+
+  private final RecordDefinition recordDefinition;
+
+  private int size;
+
+  public RecordBatch(final RecordDefinitionProxy recordDefinition, final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be > 0 not: " + capacity);
+    }
+    this.recordDefinition = recordDefinition.getRecordDefinition();
+    this.capacity = capacity;
+    final List<FieldDefinition> fields = this.recordDefinition.getFields();
+    this.columns = new BatchColumn[fields.size()];
+    for (int i = 0; i < this.columns.length; i++) {
+      final FieldDefinition field = fields.get(i);
+      this.columns[i] = BatchColumn.newColumn(field, capacity);
+    }
+  }
+
+  /**
+   * Add a row with the values from the record. If the record has a different record definition
+   * the values are copied by field name.
+   *
+   * @param record The record.
+   * @return The index of the new row.
+   */
+  public int addRecord(final Record record) {
+    final int row = addRow();
+    if (record.getRecordDefinition() == this.recordDefinition) {
+      for (int i = 0; i < this.columns.length; i++) {
+        final Object value = record.getValue(i);
+        this.columns[i].setValue(row, value);
+      }
+    } else {
+      for (final BatchColumn column : this.columns) {
+        final String name = column.getFieldDefinition().getName();
+        final Object value = record.getValue(name);
+        column.setValue(row, value);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Add a row with null values.
+   *
+   * @return The index of the new row.
+   * @throws IllegalStateException If the batch is full.
+   */
+  public int addRow() {
+    if (this.size == this.capacity) {
+      throw new IllegalStateException("Record batch is full: " + this.capacity);
+    }
+    return this.size++;
+  }
+
+  private void checkRow(final int row) {
+    if (row < 0 || row >= this.size) {
+      throw new IndexOutOfBoundsException("Row " + row + " not in range 0.." + (this.size - 1));
+    }
+  }
+
+  /**
+   * Remove all the rows so the batch can be reused.
+   */
+  public void clear() {
+    for (final BatchColumn column : this.columns) {
+      column.clear();
+    }
+    this.size = 0;
+  }
+
+  /**
+   * Call the action with a view of each row. The same record instance is used for each row so it
+   * must not be kept after the action returns, use {@link #getRow(int)} for that.
+   */
+  @Override
+  public void forEach(final Consumer<? super Record> action) {
+    final RecordBatchRecord record = new RecordBatchRecord(this, 0);
+    for (int row = 0; row < this.size; row++) {
+      record.setRow(row);
+      action.accept(record);
+    }
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <C extends BatchColumn> C getColumn(final CharSequence fieldName) {
+    final int index = this.recordDefinition.getFieldIndex(fieldName);
+    if (index == -1) {
+      return null;
+    } else {
+      return (C)this.columns[index];
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public <C extends BatchColumn> C getColumn(final int fieldIndex) {
+    return (C)this.columns[fieldIndex];
+  }
+
+  @Override
+  public int getFieldCount() {
+    return this.columns.length;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  /**
+   * Get a record view of the row. Changes to the record are written to the batch.
+   *
+   * @param row The row index.
+   * @return The record.
+   */
+  public Record getRow(final int row) {
+    checkRow(row);
+    return new RecordBatchRecord(this, row);
+  }
+
+  public <V> V getValue(final int row, final int fieldIndex) {
+    checkRow(row);
+    return this.columns[fieldIndex].getValue(row);
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public boolean isFull() {
+    return this.size == this.capacity;
+  }
+
+  @Override
+  public Iterator<Record> iterator() {
+    return new Iterator<Record>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.row < RecordBatch.this.size;
+      }
+
+      @Override
+      public Record next() {
+        if (hasNext()) {
+          return getRow(this.row++);
+        } else {
+          throw new NoSuchElementException();
+        }
+      }
+    };
+  }
+
+  /**
+   * Add a row and return a record view of it. This can be used as a
+   * {@link com.revolsys.record.RecordFactory} so the values are set directly in the columns.
+   *
+   * @return The record for the new row.
+   */
+  public RecordBatchRecord newRecord() {
+    final int row = addRow();
+    return new RecordBatchRecord(this, row);
+  }
+
+  public void setValue(final int row, final int fieldIndex, final Object value) {
+    checkRow(row);
+    this.columns[fieldIndex].setValue(row, value);
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return this.recordDefinition.getPathName() + " (" + this.size + "/" + this.capacity + ")";
+  }
+}
@@ -0,0 +1,73 @@
+package com.revolsys.record.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.record.BaseRecord;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A {@link com.revolsys.record.Record} view of a row in a {@link RecordBatch}. The values are
+ * read from and written to the columns of the batch.
+ */
+public class RecordBatchRecord extends BaseRecord {
+
+  private final RecordBatch batch;
+
+  private int row;
+
+  RecordBatchRecord(final RecordBatch batch, final int row) {
+    super(batch.getRecordDefinition());
+    this.batch = batch;
+    this.row = row;
+    setState(RecordState.NEW);
+  }
+
+  @Override
+  public RecordBatchRecord clone() {
+    return (RecordBatchRecord)super.clone();
+  }
+
+  public RecordBatch getBatch() {
+    return this.batch;
+  }
+
+  public int getRow() {
+    return this.row;
+  }
+
+  @Override
+  public <T extends Object> T getValue(final int index) {
+    if (index < 0 || index >= this.batch.getFieldCount()) {
+      return null;
+    } else {
+      return this.batch.getValue(this.row, index);
+    }
+  }
+
+  @Override
+  public List<Object> getValues() {
+    final int fieldCount = this.batch.getFieldCount();
+    final List<Object> values = new ArrayList<>(fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      final Object value = this.batch.getValue(this.row, i);
+      values.add(value);
+    }
+    return values;
+  }
+
+  void setRow(final int row) {
+    this.row = row;
+  }
+
+  @Override
+  protected boolean setValue(final FieldDefinition fieldDefinition, final Object value) {
+    final int index = fieldDefinition.getIndex();
+    this.batch.setValue(this.row, index, value);
+    if (!isInitializing()) {
+      updateState();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,94 @@
+package com.revolsys.record.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * A dictionary encoded {@link BatchColumn} for {@code String} values. Each distinct value is
+ * stored once and the rows store the index of the value in the dictionary. The dictionary is
+ * cleared with the column so it only holds the values in the current batch.
+ */
+public class StringBatchColumn extends BatchColumn {
+
+  private final int[] codes;
+
+  private final Map<String, Integer> codeByValue = new HashMap<>();
+
+  private final List<String> values = new ArrayList<>();
+
+  public StringBatchColumn(final FieldDefinition fieldDefinition, final int capacity) {
+    super(fieldDefinition);
+    this.codes = new int[capacity];
+    Arrays.fill(this.codes, -1);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(this.codes, -1);
+    this.codeByValue.clear();
+    this.values.clear();
+  }
+
+  /**
+   * Get the index of the value in the dictionary.
+   *
+   * @param row The row.
+   * @return The dictionary index or -1 if the value is null.
+   */
+  public int getCode(final int row) {
+    return this.codes[row];
+  }
+
+  public int getDictionarySize() {
+    return this.values.size();
+  }
+
+  public String getString(final int row) {
+    final int code = this.codes[row];
+    if (code == -1) {
+      return null;
+    } else {
+      return this.values.get(code);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(final int row) {
+    return (V)getString(row);
+  }
+
+  @Override
+  public boolean isNull(final int row) {
+    return this.codes[row] == -1;
+  }
+
+  public void setString(final int row, final String value) {
+    if (value == null) {
+      this.codes[row] = -1;
+    } else {
+      Integer code = this.codeByValue.get(value);
+      if (code == null) {
+        code = this.values.size();
+        this.values.add(value);
+        this.codeByValue.put(value, code);
+      }
+      this.codes[row] = code;
+    }
+  }
+
+  @Override
+  public void setValue(final int row, final Object value) {
+    if (value == null || value instanceof String) {
+      setString(row, (String)value);
+    } else {
+      final Object fieldValue = toFieldValue(value);
+      setString(row, fieldValue.toString());
+    }
+  }
+}
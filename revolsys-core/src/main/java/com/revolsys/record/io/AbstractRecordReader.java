@@ -15,6 +15,9 @@ import com.revolsys.geometry.model.GeometryDataTypes;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.batch.BatchColumn;
+import com.revolsys.record.batch.PointBatchColumn;
+import com.revolsys.record.batch.RecordBatch;
 import com.revolsys.record.io.format.csv.GeometryFieldDefinition;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
@@ -243,6 +246,51 @@ public abstract class AbstractRecordReader extends AbstractIterator<Record>
     return record;
   }
 
+  /**
+   * Add a row to the batch with the values. This is the {@link RecordBatch} equivalent of
+   * {@link #parseRecord(List, List)} that sets the values directly in the batch's columns.
+   *
+   * @param batch The batch to add the row to.
+   * @param fieldNames The field names for the values.
+   * @param values The values.
+   */
+  protected void parseRecord(final RecordBatch batch, final List<String> fieldNames,
+    final List<String> values) {
+    final int row = batch.addRow();
+    final int valueCount = values.size();
+    final int fieldCount = fieldNames.size();
+    final int count = Math.min(valueCount, fieldCount);
+    for (int i = 0; i < count; i++) {
+      final String valueString = values.get(i);
+      if (valueString != null) {
+        final String fieldName = fieldNames.get(i);
+        final int fieldIndex = batch.getFieldIndex(fieldName);
+        if (fieldIndex != -1) {
+          batch.setValue(row, fieldIndex, valueString);
+        }
+      }
+    }
+    if (this.hasPointFields) {
+      final int xIndex = batch.getFieldIndex(this.pointXFieldName);
+      final int yIndex = batch.getFieldIndex(this.pointYFieldName);
+      final int geometryIndex = batch.getRecordDefinition().getGeometryFieldIndex();
+      if (xIndex != -1 && yIndex != -1 && geometryIndex != -1) {
+        final Double x = DataTypes.DOUBLE.toObject(batch.getValue(row, xIndex));
+        final Double y = DataTypes.DOUBLE.toObject(batch.getValue(row, yIndex));
+        if (x != null && y != null) {
+          final BatchColumn column = batch.getColumn(geometryIndex);
+          if (column instanceof PointBatchColumn) {
+            ((PointBatchColumn)column).setCoordinates(row, x, y);
+          } else {
+            final GeometryFactory geometryFactory = getGeometryFactory();
+            final Geometry geometry = geometryFactory.point(x, y);
+            batch.setValue(row, geometryIndex, geometry);
+          }
+        }
+      }
+    }
+  }
+
   public void setGeometryColumnName(final String geometryColumnName) {
     this.geometryColumnName = geometryColumnName;
   }
@@ -0,0 +1,657 @@
+package com.revolsys.record.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.geometry.wkb.WkbChannelWriter;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * Sort a stream of records that may be larger than the available memory.
+ *
+ * <p>Records are added to a buffer of {@link #getRunSize()} records. When the buffer is full it
+ * is sorted and written to a temporary run file on the {@link ForkJoinPool#commonPool()} while
+ * the next buffer is filled. At most {@link #getMaxPendingRunCount()} runs are sorted at the same
+ * time to limit the memory used. {@link #newSortedReader()} then merges the run files using a
+ * heap of run indexes.</p>
+ *
+ * <p>If all the records fit in a single run no files are written and the original record
+ * objects are returned. Otherwise the merged records are new {@link ArrayRecord}s with the same
+ * record definition. Records with equal sort values are returned in the order they were
+ * added.</p>
+ *
+ * <p>The run files use a compact binary encoding of the field values, geometries are written
+ * as WKB. Values of data types without a binary encoding are written using the data type's
+ * string conversion.</p>
+ */
+public class ExternalRecordSorter implements BaseCloseable {
+
+  private class MergeIterator extends AbstractIterator<Record> implements RecordIterator {
+
+    private final Record[] currentRecords;
+
+    /** Binary heap of the indexes of the runs ordered by the current record of each run. */
+    private final int[] heap;
+
+    private int heapSize;
+
+    private final RunReader[] readers;
+
+    private MergeIterator(final List<RunFile> runs) {
+      final int runCount = runs.size();
+      this.readers = new RunReader[runCount];
+      this.currentRecords = new Record[runCount];
+      this.heap = new int[runCount];
+      try {
+        for (int i = 0; i < runCount; i++) {
+          final RunReader reader = new RunReader(runs.get(i));
+          this.readers[i] = reader;
+          if (reader.hasNext()) {
+            this.currentRecords[i] = reader.next();
+            this.heap[this.heapSize++] = i;
+          }
+        }
+      } catch (final RuntimeException e) {
+        closeDo();
+        throw e;
+      }
+      for (int i = this.heapSize / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+    }
+
+    @Override
+    protected void closeDo() {
+      for (final RunReader reader : this.readers) {
+        if (reader != null) {
+          reader.close();
+        }
+      }
+      ExternalRecordSorter.this.close();
+    }
+
+    private int compare(final int runIndex1, final int runIndex2) {
+      final int compare = ExternalRecordSorter.this.comparator
+        .compare(this.currentRecords[runIndex1], this.currentRecords[runIndex2]);
+      if (compare == 0) {
+        // Keep the order the records were added for equal records
+        return Integer.compare(runIndex1, runIndex2);
+      } else {
+        return compare;
+      }
+    }
+
+    @Override
+    protected Record getNext() throws NoSuchElementException {
+      if (this.heapSize == 0) {
+        throw new NoSuchElementException();
+      } else {
+        final int runIndex = this.heap[0];
+        final Record record = this.currentRecords[runIndex];
+        final RunReader reader = this.readers[runIndex];
+        if (reader.hasNext()) {
+          this.currentRecords[runIndex] = reader.next();
+        } else {
+          this.currentRecords[runIndex] = null;
+          reader.close();
+          this.heap[0] = this.heap[--this.heapSize];
+        }
+        siftDown(0);
+        return record;
+      }
+    }
+
+    @Override
+    public RecordDefinition getRecordDefinition() {
+      return ExternalRecordSorter.this.recordDefinition;
+    }
+
+    private void siftDown(int index) {
+      final int[] heap = this.heap;
+      final int heapSize = this.heapSize;
+      while (true) {
+        final int left = index * 2 + 1;
+        if (left >= heapSize) {
+          return;
+        } else {
+          int smallest = left;
+          final int right = left + 1;
+          if (right < heapSize && compare(heap[right], heap[left]) < 0) {
+            smallest = right;
+          }
+          if (compare(heap[smallest], heap[index]) < 0) {
+            final int runIndex = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = runIndex;
+            index = smallest;
+          } else {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  private static class RunFile {
+    private final File file;
+
+    private final int recordCount;
+
+    private RunFile(final File file, final int recordCount) {
+      this.file = file;
+      this.recordCount = recordCount;
+    }
+  }
+
+  private class RunReader implements Iterator<Record>, BaseCloseable {
+    private ChannelReader in;
+
+    private int readCount = 0;
+
+    private final RunFile run;
+
+    private RunReader(final RunFile run) {
+      this.run = run;
+      try {
+        final FileChannel channel = FileChannel.open(run.file.toPath(), StandardOpenOption.READ);
+        this.in = new ChannelReader(channel, BUFFER_SIZE);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to open sort run: " + run.file, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (this.in != null) {
+        this.in.close();
+        this.in = null;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.readCount < this.run.recordCount;
+    }
+
+    @Override
+    public Record next() {
+      if (hasNext()) {
+        this.readCount++;
+        return readRecord(this.in);
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  public static final int DEFAULT_RUN_SIZE = 100000;
+
+  private static final byte TYPE_BIG_DECIMAL = 12;
+
+  private static final byte TYPE_BYTE = 7;
+
+  private static final byte TYPE_DOUBLE = 4;
+
+  private static final byte TYPE_FALSE = 9;
+
+  private static final byte TYPE_FLOAT = 5;
+
+  private static final byte TYPE_GEOMETRY = 10;
+
+  private static final byte TYPE_INT = 2;
+
+  private static final byte TYPE_LONG = 3;
+
+  private static final byte TYPE_NULL = 0;
+
+  private static final byte TYPE_OTHER = 11;
+
+  private static final byte TYPE_SHORT = 6;
+
+  private static final byte TYPE_STRING = 1;
+
+  private static final byte TYPE_TRUE = 8;
+
+  /**
+   * Read all the records from the reader and return a reader for the records sorted using the
+   * comparator. The source reader is closed after it is read. The temporary files are deleted
+   * when the returned reader is closed.
+   *
+   * @param reader The reader to sort.
+   * @param comparator The comparator to sort the records.
+   * @return The reader for the sorted records.
+   */
+  public static RecordReader sort(final RecordReader reader,
+    final Comparator<? super Record> comparator) {
+    final ExternalRecordSorter sorter = new ExternalRecordSorter(comparator);
+    try {
+      try (
+        RecordReader sourceReader = reader) {
+        sorter.setRecordDefinition(sourceReader.getRecordDefinition());
+        for (final Record record : sourceReader) {
+          sorter.addRecord(record);
+        }
+      }
+      return sorter.newSortedReader();
+    } catch (final RuntimeException | Error e) {
+      sorter.close();
+      throw e;
+    }
+  }
+
+  private List<Record> buffer = new ArrayList<>();
+
+  private volatile boolean closed = false;
+
+  private final Comparator<? super Record> comparator;
+
+  private final List<GeometryFactory> geometryFactories = new ArrayList<>();
+
+  private final Map<GeometryFactory, Integer> geometryFactoryIndexes = new IdentityHashMap<>();
+
+  private int maxPendingRunCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  private final Deque<ForkJoinTask<RunFile>> pendingRuns = new ArrayDeque<>();
+
+  private RecordDefinition recordDefinition;
+
+  private final List<RecordDefinition> recordDefinitions = new ArrayList<>();
+
+  private final Map<RecordDefinition, Integer> recordDefinitionIndexes = new IdentityHashMap<>();
+
+  private final List<RunFile> runs = new ArrayList<>();
+
+  private int runSize = DEFAULT_RUN_SIZE;
+
+  private File tempDirectory;
+
+  /**
+   * @param comparator The comparator to sort the records.
+   */
+  public ExternalRecordSorter(final Comparator<? super Record> comparator) {
+    if (comparator == null) {
+      throw new IllegalArgumentException("A comparator is required");
+    }
+    this.comparator = comparator;
+  }
+
+  /**
+   * Add the value to the index table if it isn't already in it. The index tables are only
+   * changed by the thread adding records, the runs are written using a copy of the indexes.
+   */
+  private <V> void addIndex(final List<V> values, final Map<V, Integer> indexes, final V value) {
+    if (!indexes.containsKey(value)) {
+      indexes.put(value, values.size());
+      values.add(value);
+    }
+  }
+
+  /**
+   * Add a record to sort. If the buffer is full it will be sorted and written to a run file.
+   *
+   * @param record The record.
+   */
+  public void addRecord(final Record record) {
+    if (this.closed) {
+      throw new IllegalStateException("Sorter is closed");
+    }
+    final RecordDefinition recordDefinition = record.getRecordDefinition();
+    addIndex(this.recordDefinitions, this.recordDefinitionIndexes, recordDefinition);
+    final int fieldCount = recordDefinition.getFieldCount();
+    for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+      final Object value = record.getValue(fieldIndex);
+      if (value instanceof Geometry) {
+        final GeometryFactory geometryFactory = ((Geometry)value).getGeometryFactory();
+        addIndex(this.geometryFactories, this.geometryFactoryIndexes, geometryFactory);
+      }
+    }
+    this.buffer.add(record);
+    if (this.buffer.size() >= this.runSize) {
+      spillBuffer();
+    }
+  }
+
+  /**
+   * Add a run that has been written. If the sorter was closed while the run was being written
+   * the run file is deleted.
+   */
+  private void addRun(final RunFile run) {
+    final boolean closed;
+    synchronized (this) {
+      closed = this.closed;
+      if (!closed) {
+        this.runs.add(run);
+      }
+    }
+    if (closed) {
+      FileUtil.delete(run.file);
+    }
+  }
+
+  /**
+   * Delete the run files. Any runs still being written are waited for before they are deleted.
+   */
+  @Override
+  public void close() {
+    final List<ForkJoinTask<RunFile>> pendingRuns;
+    final List<RunFile> runs;
+    synchronized (this) {
+      if (this.closed) {
+        return;
+      } else {
+        this.closed = true;
+        this.buffer = new ArrayList<>();
+        pendingRuns = new ArrayList<>(this.pendingRuns);
+        this.pendingRuns.clear();
+        runs = new ArrayList<>(this.runs);
+        this.runs.clear();
+      }
+    }
+    // Wait outside the lock so the runs being written and other threads are never blocked
+    for (final ForkJoinTask<RunFile> pendingRun : pendingRuns) {
+      try {
+        runs.add(pendingRun.join());
+      } catch (final RuntimeException e) {
+      }
+    }
+    for (final RunFile run : runs) {
+      FileUtil.delete(run.file);
+    }
+  }
+
+  public int getMaxPendingRunCount() {
+    return this.maxPendingRunCount;
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  /**
+   * Get the number of run files written so far.
+   *
+   * @return The number of run files.
+   */
+  public synchronized int getRunCount() {
+    return this.runs.size() + this.pendingRuns.size();
+  }
+
+  public int getRunSize() {
+    return this.runSize;
+  }
+
+  public File getTempDirectory() {
+    return this.tempDirectory;
+  }
+
+  /**
+   * Get a reader for the sorted records. No more records can be added after this method is
+   * called. Closing the reader deletes the run files.
+   *
+   * @return The reader for the sorted records.
+   */
+  public RecordReader newSortedReader() {
+    if (this.closed) {
+      throw new IllegalStateException("Sorter is closed");
+    }
+    final List<Record> buffer = this.buffer;
+    if (getRunCount() == 0) {
+      buffer.sort(this.comparator);
+      this.closed = true;
+      this.buffer = new ArrayList<>();
+      return new ListRecordReader(this.recordDefinition, buffer);
+    } else {
+      if (!buffer.isEmpty()) {
+        spillBuffer();
+      }
+      final List<ForkJoinTask<RunFile>> pendingRuns;
+      synchronized (this) {
+        pendingRuns = new ArrayList<>(this.pendingRuns);
+        this.pendingRuns.clear();
+      }
+      RuntimeException exception = null;
+      for (final ForkJoinTask<RunFile> pendingRun : pendingRuns) {
+        try {
+          addRun(pendingRun.join());
+        } catch (final RuntimeException e) {
+          if (exception == null) {
+            exception = e;
+          }
+        }
+      }
+      if (exception != null) {
+        throw exception;
+      }
+      final List<RunFile> runs;
+      synchronized (this) {
+        if (this.closed) {
+          throw new IllegalStateException("Sorter is closed");
+        }
+        runs = new ArrayList<>(this.runs);
+      }
+      return new MergeIterator(runs);
+    }
+  }
+
+  private Object readGeometry(final ChannelReader in) {
+    final GeometryFactory geometryFactory = this.geometryFactories.get(in.getInt());
+    final int byteCount = in.getInt();
+    final byte[] bytes = in.getBytes(byteCount);
+    return WkbByteBufferReader.readGeometry(geometryFactory, ByteBuffer.wrap(bytes));
+  }
+
+  private Record readRecord(final ChannelReader in) {
+    final RecordDefinition recordDefinition = this.recordDefinitions.get(in.getInt());
+    final Record record = new ArrayRecord(recordDefinition);
+    final int fieldCount = recordDefinition.getFieldCount();
+    for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+      final Object value = readValue(in, recordDefinition.getField(fieldIndex));
+      record.setValue(fieldIndex, value);
+    }
+    return record;
+  }
+
+  private Object readValue(final ChannelReader in, final FieldDefinition field) {
+    final byte type = in.getByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_STRING:
+        return in.getStringUtf8ByteCount();
+      case TYPE_INT:
+        return in.getInt();
+      case TYPE_LONG:
+        return in.getLong();
+      case TYPE_DOUBLE:
+        return in.getDouble();
+      case TYPE_FLOAT:
+        return in.getFloat();
+      case TYPE_SHORT:
+        return in.getShort();
+      case TYPE_BYTE:
+        return in.getByte();
+      case TYPE_TRUE:
+        return Boolean.TRUE;
+      case TYPE_FALSE:
+        return Boolean.FALSE;
+      case TYPE_GEOMETRY:
+        return readGeometry(in);
+      case TYPE_BIG_DECIMAL:
+        return new BigDecimal(in.getStringUtf8ByteCount());
+      case TYPE_OTHER:
+        final String string = in.getStringUtf8ByteCount();
+        final DataType dataType = field.getDataType();
+        return dataType.toObject(string);
+      default:
+        throw new IllegalStateException("Invalid value type " + type + " for " + field);
+    }
+  }
+
+  public void setMaxPendingRunCount(final int maxPendingRunCount) {
+    if (maxPendingRunCount < 1) {
+      throw new IllegalArgumentException(
+        "maxPendingRunCount must be > 0 not " + maxPendingRunCount);
+    }
+    this.maxPendingRunCount = maxPendingRunCount;
+  }
+
+  public void setRecordDefinition(final RecordDefinition recordDefinition) {
+    this.recordDefinition = recordDefinition;
+  }
+
+  public void setRunSize(final int runSize) {
+    if (runSize < 1) {
+      throw new IllegalArgumentException("runSize must be > 0 not " + runSize);
+    }
+    this.runSize = runSize;
+  }
+
+  public void setTempDirectory(final File tempDirectory) {
+    this.tempDirectory = tempDirectory;
+  }
+
+  private void spillBuffer() {
+    final List<Record> records = this.buffer;
+    this.buffer = new ArrayList<>();
+    ForkJoinTask<RunFile> oldestRun = null;
+    synchronized (this) {
+      if (this.pendingRuns.size() >= this.maxPendingRunCount) {
+        oldestRun = this.pendingRuns.removeFirst();
+      }
+    }
+    if (oldestRun != null) {
+      // Wait for a run to be written so the number of buffers in memory is limited
+      addRun(oldestRun.join());
+    }
+    final Map<RecordDefinition, Integer> recordDefinitionIndexes = new IdentityHashMap<>(
+      this.recordDefinitionIndexes);
+    final Map<GeometryFactory, Integer> geometryFactoryIndexes = new IdentityHashMap<>(
+      this.geometryFactoryIndexes);
+    final ForkJoinTask<RunFile> task = ForkJoinPool.commonPool()
+      .submit(() -> writeRun(records, recordDefinitionIndexes, geometryFactoryIndexes));
+    synchronized (this) {
+      this.pendingRuns.addLast(task);
+    }
+  }
+
+  private void writeGeometry(final ChannelWriter out, final Geometry geometry,
+    final Map<GeometryFactory, Integer> geometryFactoryIndexes,
+    final ByteArrayOutputStream bytes, final WkbChannelWriter wkbWriter) {
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    out.putInt(geometryFactoryIndexes.get(geometryFactory));
+    bytes.reset();
+    wkbWriter.writeGeometry(geometry);
+    wkbWriter.flush();
+    out.putInt(bytes.size());
+    out.putBytes(bytes.toByteArray());
+  }
+
+  private RunFile writeRun(final List<Record> records,
+    final Map<RecordDefinition, Integer> recordDefinitionIndexes,
+    final Map<GeometryFactory, Integer> geometryFactoryIndexes) {
+    records.sort(this.comparator);
+    final File file;
+    try {
+      file = File.createTempFile("sort", ".run", this.tempDirectory);
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to create sort run in: " + this.tempDirectory, e);
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+      ChannelWriter out = new ChannelWriter(channel, BUFFER_SIZE);
+      WkbChannelWriter wkbWriter = new WkbChannelWriter(bytes)) {
+      for (final Record record : records) {
+        final RecordDefinition recordDefinition = record.getRecordDefinition();
+        out.putInt(recordDefinitionIndexes.get(recordDefinition));
+        final int fieldCount = recordDefinition.getFieldCount();
+        for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+          final Object value = record.getValue(fieldIndex);
+          writeValue(out, value, geometryFactoryIndexes, bytes, wkbWriter);
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      FileUtil.delete(file);
+      throw Exceptions.wrap("Unable to write sort run: " + file, e);
+    }
+    return new RunFile(file, records.size());
+  }
+
+  private void writeValue(final ChannelWriter out, final Object value,
+    final Map<GeometryFactory, Integer> geometryFactoryIndexes,
+    final ByteArrayOutputStream bytes, final WkbChannelWriter wkbWriter) {
+    if (value == null) {
+      out.putByte(TYPE_NULL);
+    } else if (value instanceof String) {
+      out.putByte(TYPE_STRING);
+      out.putStringUtf8ByteCount((String)value);
+    } else if (value instanceof Integer) {
+      out.putByte(TYPE_INT);
+      out.putInt((Integer)value);
+    } else if (value instanceof Long) {
+      out.putByte(TYPE_LONG);
+      out.putLong((Long)value);
+    } else if (value instanceof Double) {
+      out.putByte(TYPE_DOUBLE);
+      out.putDouble((Double)value);
+    } else if (value instanceof Float) {
+      out.putByte(TYPE_FLOAT);
+      out.putFloat((Float)value);
+    } else if (value instanceof Short) {
+      out.putByte(TYPE_SHORT);
+      out.putShort((Short)value);
+    } else if (value instanceof Byte) {
+      out.putByte(TYPE_BYTE);
+      out.putByte((Byte)value);
+    } else if (value instanceof Boolean) {
+      if ((Boolean)value) {
+        out.putByte(TYPE_TRUE);
+      } else {
+        out.putByte(TYPE_FALSE);
+      }
+    } else if (value instanceof Geometry) {
+      out.putByte(TYPE_GEOMETRY);
+      writeGeometry(out, (Geometry)value, geometryFactoryIndexes, bytes, wkbWriter);
+    } else if (value instanceof BigDecimal) {
+      out.putByte(TYPE_BIG_DECIMAL);
+      out.putStringUtf8ByteCount(((BigDecimal)value).toString());
+    } else {
+      out.putByte(TYPE_OTHER);
+      out.putStringUtf8ByteCount(DataTypes.toString(value));
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.revolsys.io.Reader;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.batch.RecordBatch;
 import com.revolsys.record.io.format.json.JsonObject;
 import com.revolsys.record.io.format.zip.ZipRecordReader;
 import com.revolsys.record.schema.RecordDefinition;
@@ -231,6 +232,28 @@ public interface RecordReader extends Reader<Record>, RecordDefinitionProxy {
     return new ZipRecordReader(resource, baseName, fileExtension, ArrayRecord.FACTORY);
   }
 
+  /**
+   * Read the records into {@link RecordBatch}es of up to batchSize rows and call the action with
+   * each batch. The same batch is cleared and reused for each call so the batch and its rows must
+   * not be kept after the action returns. This must not be mixed with iterating over the records.
+   *
+   * @param batchSize The maximum number of rows in each batch.
+   * @param action The action to call with each batch.
+   */
+  default void forEachBatch(final int batchSize, final Consumer<? super RecordBatch> action) {
+    final RecordBatch batch = new RecordBatch(this, batchSize);
+    for (final Record record : this) {
+      batch.addRecord(record);
+      if (batch.isFull()) {
+        action.accept(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      action.accept(batch);
+    }
+  }
+
   default ClockDirection getPolygonRingDirection() {
     return ClockDirection.NONE;
   }
@@ -18,6 +18,7 @@ import com.revolsys.io.IoFactory;
 import com.revolsys.io.Writer;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
+import com.revolsys.record.batch.RecordBatch;
 import com.revolsys.record.io.format.json.JsonObject;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionProxy;
@@ -280,6 +281,19 @@ public interface RecordWriter extends Writer<Record>, RecordDefinitionProxy {
     return i;
   }
 
+  /**
+   * Write all the rows in the batch. A {@link Record} view of each row is passed to
+   * {@link #write(Object)}. Writers that keep the records after write returns must have finished
+   * with them before this method returns as the batch will be reused.
+   *
+   * @param batch The batch of records.
+   */
+  default void writeBatch(final RecordBatch batch) {
+    for (final Record record : batch) {
+      write(record);
+    }
+  }
+
   default void writeNewRecord(final Record record) {
     final Record writeRecord = newRecord(record);
     write(writeRecord);
@@ -0,0 +1,348 @@
+package com.revolsys.record.io.format.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parse CSV rows directly from the UTF-8 bytes in a {@link ByteBuffer} (e.g. a memory mapped
+ * region of a file). {@link #nextRow()} only records the start and end offset of each field in
+ * arrays that are reused for each row. Strings are only created when {@link #getString(int)} is
+ * called and numbers are parsed directly from the bytes using {@link #getLong(int)} and
+ * {@link #getDouble(int)}.
+ *
+ * <p>Fields can be quoted using <code>"</code> with <code>""</code> for a quote within a quoted
+ * field. Quoted fields can contain the field separator and new lines. Empty lines are
+ * skipped.</p>
+ */
+public class CsvByteParser {
+  private static final double[] POWERS_OF_10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final byte QUOTED = 1;
+
+  private static final byte QUOTED_ESCAPED = 2;
+
+  private final ByteBuffer buffer;
+
+  private byte[] bytes = new byte[256];
+
+  private int fieldCount;
+
+  private int[] fieldEnds = new int[32];
+
+  private byte[] fieldFlags = new byte[32];
+
+  private final byte fieldSeparator;
+
+  private int[] fieldStarts = new int[32];
+
+  private final int limit;
+
+  private int position;
+
+  public CsvByteParser(final ByteBuffer buffer, final char fieldSeparator) {
+    this.buffer = buffer;
+    this.fieldSeparator = (byte)fieldSeparator;
+    this.limit = buffer.limit();
+    int position = buffer.position();
+    if (this.limit - position >= 3 && buffer.get(position) == (byte)0xEF
+      && buffer.get(position + 1) == (byte)0xBB && buffer.get(position + 2) == (byte)0xBF) {
+      // Skip the UTF-8 byte order mark
+      position += 3;
+    }
+    this.position = position;
+  }
+
+  private void addField(final int start, final int end, final byte flags) {
+    final int index = this.fieldCount;
+    if (index == this.fieldStarts.length) {
+      final int length = index * 2;
+      this.fieldStarts = Arrays.copyOf(this.fieldStarts, length);
+      this.fieldEnds = Arrays.copyOf(this.fieldEnds, length);
+      this.fieldFlags = Arrays.copyOf(this.fieldFlags, length);
+    }
+    this.fieldStarts[index] = start;
+    this.fieldEnds[index] = end;
+    this.fieldFlags[index] = flags;
+    this.fieldCount++;
+  }
+
+  /**
+   * Parse the field as a double. Values with up to 15 digits and no exponent are converted
+   * without creating a string, other values use {@link Double#parseDouble(String)}.
+   *
+   * @param fieldIndex The field index.
+   * @return The value.
+   * @throws NumberFormatException If the field is not a valid number.
+   */
+  public double getDouble(final int fieldIndex) {
+    final ByteBuffer buffer = this.buffer;
+    int position = this.fieldStarts[fieldIndex];
+    final int end = this.fieldEnds[fieldIndex];
+    if (this.fieldFlags[fieldIndex] != QUOTED_ESCAPED && position < end) {
+      boolean negative = false;
+      final byte first = buffer.get(position);
+      if (first == '-') {
+        negative = true;
+        position++;
+      } else if (first == '+') {
+        position++;
+      }
+      long mantissa = 0;
+      int digitCount = 0;
+      int fractionDigitCount = -1;
+      for (; position < end; position++) {
+        final byte b = buffer.get(position);
+        if (b >= '0' && b <= '9') {
+          mantissa = mantissa * 10 + (b - '0');
+          digitCount++;
+          if (fractionDigitCount >= 0) {
+            fractionDigitCount++;
+          }
+        } else if (b == '.' && fractionDigitCount == -1) {
+          fractionDigitCount = 0;
+        } else {
+          break;
+        }
+      }
+      if (position == end && digitCount > 0 && digitCount <= 15) {
+        // Both values are exact so the division is correctly rounded
+        double value = mantissa;
+        if (fractionDigitCount > 0) {
+          value /= POWERS_OF_10[fractionDigitCount];
+        }
+        if (negative) {
+          return -value;
+        } else {
+          return value;
+        }
+      }
+    }
+    final String string = getString(fieldIndex);
+    if (string == null) {
+      throw new NumberFormatException("Empty value");
+    } else {
+      return Double.parseDouble(string.trim());
+    }
+  }
+
+  public int getFieldCount() {
+    return this.fieldCount;
+  }
+
+  /**
+   * Parse the field as an int.
+   *
+   * @param fieldIndex The field index.
+   * @return The value.
+   * @throws NumberFormatException If the field is not a valid int.
+   */
+  public int getInt(final int fieldIndex) {
+    final long value = getLong(fieldIndex);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Value out of range for int: " + value);
+    }
+    return (int)value;
+  }
+
+  /**
+   * Parse the field as a long. Values with up to 18 digits are converted without creating a
+   * string.
+   *
+   * @param fieldIndex The field index.
+   * @return The value.
+   * @throws NumberFormatException If the field is not a valid long.
+   */
+  public long getLong(final int fieldIndex) {
+    final ByteBuffer buffer = this.buffer;
+    int position = this.fieldStarts[fieldIndex];
+    final int end = this.fieldEnds[fieldIndex];
+    if (this.fieldFlags[fieldIndex] != QUOTED_ESCAPED && position < end) {
+      boolean negative = false;
+      final byte first = buffer.get(position);
+      if (first == '-') {
+        negative = true;
+        position++;
+      } else if (first == '+') {
+        position++;
+      }
+      final int digitCount = end - position;
+      if (digitCount > 0 && digitCount <= 18) {
+        long value = 0;
+        for (; position < end; position++) {
+          final byte b = buffer.get(position);
+          if (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+          } else {
+            break;
+          }
+        }
+        if (position == end) {
+          if (negative) {
+            return -value;
+          } else {
+            return value;
+          }
+        }
+      }
+    }
+    final String string = getString(fieldIndex);
+    if (string == null) {
+      throw new NumberFormatException("Empty value");
+    } else {
+      return Long.parseLong(string.trim());
+    }
+  }
+
+  /**
+   * Get the position after the last row that was read.
+   *
+   * @return The position.
+   */
+  public int getPosition() {
+    return this.position;
+  }
+
+  /**
+   * Get the value of the field as a string. ASCII values are copied directly to the string,
+   * other values are decoded as UTF-8.
+   *
+   * @param fieldIndex The field index.
+   * @return The value or null if the field was empty and not quoted.
+   */
+  public String getString(final int fieldIndex) {
+    if (isNull(fieldIndex)) {
+      return null;
+    } else {
+      final int start = this.fieldStarts[fieldIndex];
+      int length = this.fieldEnds[fieldIndex] - start;
+      byte[] bytes = this.bytes;
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+        this.bytes = bytes;
+      }
+      this.buffer.get(start, bytes, 0, length);
+      if (this.fieldFlags[fieldIndex] == QUOTED_ESCAPED) {
+        length = unescapeQuotes(bytes, length);
+      }
+      boolean ascii = true;
+      for (int i = 0; i < length; i++) {
+        if (bytes[i] < 0) {
+          ascii = false;
+          break;
+        }
+      }
+      if (ascii) {
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+      } else {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  /**
+   * Check if the field is null. Empty fields are null unless they were quoted.
+   *
+   * @param fieldIndex The field index.
+   * @return True if the field is null.
+   */
+  public boolean isNull(final int fieldIndex) {
+    return fieldIndex >= this.fieldCount || this.fieldFlags[fieldIndex] == 0
+      && this.fieldStarts[fieldIndex] == this.fieldEnds[fieldIndex];
+  }
+
+  /**
+   * Read the next row.
+   *
+   * @return True if a row was read, false if there are no more rows.
+   */
+  public boolean nextRow() {
+    final ByteBuffer buffer = this.buffer;
+    final int limit = this.limit;
+    final byte fieldSeparator = this.fieldSeparator;
+    int position = this.position;
+    this.fieldCount = 0;
+    while (position < limit) {
+      final byte b = buffer.get(position);
+      if (b == '\n' || b == '\r') {
+        position++;
+      } else {
+        break;
+      }
+    }
+    if (position >= limit) {
+      this.position = position;
+      return false;
+    }
+    while (true) {
+      if (position < limit && buffer.get(position) == '"') {
+        position++;
+        final int start = position;
+        int end = limit;
+        byte flags = QUOTED;
+        while (position < limit) {
+          if (buffer.get(position) == '"') {
+            if (position + 1 < limit && buffer.get(position + 1) == '"') {
+              flags = QUOTED_ESCAPED;
+              position += 2;
+            } else {
+              end = position;
+              position++;
+              break;
+            }
+          } else {
+            position++;
+          }
+        }
+        while (position < limit) {
+          final byte b = buffer.get(position);
+          if (b == fieldSeparator || b == '\n' || b == '\r') {
+            break;
+          } else {
+            position++;
+          }
+        }
+        addField(start, end, flags);
+      } else {
+        final int start = position;
+        while (position < limit) {
+          final byte b = buffer.get(position);
+          if (b == fieldSeparator || b == '\n' || b == '\r') {
+            break;
+          } else {
+            position++;
+          }
+        }
+        addField(start, position, (byte)0);
+      }
+      if (position >= limit) {
+        break;
+      } else {
+        final byte b = buffer.get(position++);
+        if (b != fieldSeparator) {
+          if (b == '\r' && position < limit && buffer.get(position) == '\n') {
+            position++;
+          }
+          break;
+        }
+      }
+    }
+    this.position = position;
+    return true;
+  }
+
+  private int unescapeQuotes(final byte[] bytes, final int length) {
+    int j = 0;
+    for (int i = 0; i < length; i++) {
+      final byte b = bytes[i];
+      bytes[j++] = b;
+      if (b == '"' && i + 1 < length && bytes[i + 1] == '"') {
+        i++;
+      }
+    }
+    return j;
+  }
+}
@@ -0,0 +1,338 @@
+package com.revolsys.record.io.format.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.batch.BatchColumn;
+import com.revolsys.record.batch.DoubleBatchColumn;
+import com.revolsys.record.batch.IntBatchColumn;
+import com.revolsys.record.batch.LongBatchColumn;
+import com.revolsys.record.batch.RecordBatch;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A reader for large UTF-8 CSV (or TSV) files that memory maps the file and parses the bytes
+ * with a {@link CsvByteParser} straight into {@link RecordBatch}es. Int, long and double fields
+ * are parsed from the bytes without creating a string.
+ *
+ * The file is split into ranges of approximately {@link #getSplitByteCount()} bytes at the end
+ * of a row so the ranges can be parsed in parallel using a {@link ForkJoinPool}
+ * ({@link #forEachBatchParallel(int, Consumer)}). The split scans the bytes counting the
+ * <code>"</code> characters so new lines in quoted values are not used as a split point.
+ *
+ * If a record definition isn't specified the record definition is created from the header in the
+ * same way as {@link CsvRecordReader}.
+ */
+public class CsvMappedReader implements BaseCloseable, RecordDefinitionProxy {
+  private class ReadTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Consumer<? super RecordBatch> action;
+
+    private final int batchSize;
+
+    private final int endIndex;
+
+    private final long[] offsets;
+
+    private final int startIndex;
+
+    private ReadTask(final long[] offsets, final int startIndex, final int endIndex,
+      final int batchSize, final Consumer<? super RecordBatch> action) {
+      this.offsets = offsets;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.batchSize = batchSize;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      final int startIndex = this.startIndex;
+      final int endIndex = this.endIndex;
+      if (endIndex - startIndex == 1) {
+        final RecordBatch batch = new RecordBatch(CsvMappedReader.this, this.batchSize);
+        readRange(this.offsets[startIndex], this.offsets[endIndex], batch, this.action);
+        if (!batch.isEmpty()) {
+          this.action.accept(batch);
+        }
+      } else {
+        final int splitIndex = (startIndex + endIndex) >>> 1;
+        invokeAll(new ReadTask(this.offsets, startIndex, splitIndex, this.batchSize, this.action),
+          new ReadTask(this.offsets, splitIndex, endIndex, this.batchSize, this.action));
+      }
+    }
+  }
+
+  public static final int DEFAULT_SPLIT_BYTE_COUNT = 16 * 1024 * 1024;
+
+  private static final int HEADER_MAP_SIZE = 64 * 1024;
+
+  private FileChannel channel;
+
+  private long dataOffset;
+
+  private int[] fieldIndexes;
+
+  private final char fieldSeparator;
+
+  private long fileSize;
+
+  private RecordDefinition recordDefinition;
+
+  private final Resource resource;
+
+  private int splitByteCount = DEFAULT_SPLIT_BYTE_COUNT;
+
+  public CsvMappedReader(final Resource resource) {
+    this(resource, Csv.FIELD_SEPARATOR, null);
+  }
+
+  /**
+   * @param resource The CSV file.
+   * @param fieldSeparator The field separator.
+   * @param recordDefinition The record definition or null to create it from the header. The
+   * fields are matched to the header by name.
+   */
+  public CsvMappedReader(final Resource resource, final char fieldSeparator,
+    final RecordDefinition recordDefinition) {
+    this.resource = resource;
+    this.fieldSeparator = fieldSeparator;
+    final File file = resource.getFile();
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      this.fileSize = this.channel.size();
+      readHeader(recordDefinition);
+    } catch (final IOException e) {
+      close();
+      throw Exceptions.wrap("Unable to open: " + file, e);
+    }
+  }
+
+  private void addRow(final CsvByteParser parser, final RecordBatch batch) {
+    final int row = batch.addRow();
+    final int[] fieldIndexes = this.fieldIndexes;
+    final int count = Math.min(parser.getFieldCount(), fieldIndexes.length);
+    for (int i = 0; i < count; i++) {
+      final int fieldIndex = fieldIndexes[i];
+      if (fieldIndex != -1 && !parser.isNull(i)) {
+        final BatchColumn column = batch.getColumn(fieldIndex);
+        try {
+          if (column instanceof IntBatchColumn) {
+            ((IntBatchColumn)column).setInt(row, parser.getInt(i));
+          } else if (column instanceof LongBatchColumn) {
+            ((LongBatchColumn)column).setLong(row, parser.getLong(i));
+          } else if (column instanceof DoubleBatchColumn) {
+            ((DoubleBatchColumn)column).setDouble(row, parser.getDouble(i));
+          } else {
+            column.setValue(row, parser.getString(i));
+          }
+        } catch (final NumberFormatException e) {
+          // Let the column convert or report the invalid value
+          column.setValue(row, parser.getString(i));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    FileUtil.closeSilent(this.channel);
+    this.channel = null;
+  }
+
+  /**
+   * Read all the rows in order into batches of up to batchSize rows. The same batch is cleared
+   * and reused for each call of the action.
+   *
+   * @param batchSize The maximum number of rows in each batch.
+   * @param action The action to call with each batch.
+   */
+  public void forEachBatch(final int batchSize, final Consumer<? super RecordBatch> action) {
+    final long[] offsets = getSplitOffsets();
+    final RecordBatch batch = new RecordBatch(this, batchSize);
+    for (int i = 0; i < offsets.length - 1; i++) {
+      readRange(offsets[i], offsets[i + 1], batch, action);
+    }
+    if (!batch.isEmpty()) {
+      action.accept(batch);
+    }
+  }
+
+  /**
+   * Read the rows in parallel using the {@link ForkJoinPool#commonPool()}. Each range of the file
+   * is read into its own batch of up to batchSize rows. The action will be called from multiple
+   * threads and in no particular order so it must be thread safe. The batch must not be kept
+   * after the action returns as it is reused for the rest of the range.
+   *
+   * @param batchSize The maximum number of rows in each batch.
+   * @param action The action to call with each batch.
+   */
+  public void forEachBatchParallel(final int batchSize,
+    final Consumer<? super RecordBatch> action) {
+    final long[] offsets = getSplitOffsets();
+    if (offsets.length > 1) {
+      final ReadTask task = new ReadTask(offsets, 0, offsets.length - 1, batchSize, action);
+      ForkJoinPool.commonPool().invoke(task);
+    }
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  public Resource getResource() {
+    return this.resource;
+  }
+
+  public int getSplitByteCount() {
+    return this.splitByteCount;
+  }
+
+  /**
+   * Get the offsets of the ranges to split the file into. The first offset is the start of the
+   * first row after the header and the last is the end of the file. Each range ends after a new
+   * line that isn't in a quoted value.
+   *
+   * @return The offsets.
+   */
+  public long[] getSplitOffsets() {
+    final FileChannel channel = this.channel;
+    if (channel == null) {
+      throw new IllegalStateException("CSV file is closed: " + this.resource);
+    }
+    final List<Long> offsets = new ArrayList<>();
+    offsets.add(this.dataOffset);
+    final long fileSize = this.fileSize;
+    final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+    final byte[] bytes = buffer.array();
+    long position = this.dataOffset;
+    long splitOffset = position + this.splitByteCount;
+    boolean inQuotes = false;
+    try {
+      while (splitOffset < fileSize) {
+        buffer.clear();
+        final int readCount = channel.read(buffer, position);
+        if (readCount <= 0) {
+          break;
+        }
+        for (int i = 0; i < readCount; i++) {
+          final byte b = bytes[i];
+          if (b == '"') {
+            inQuotes = !inQuotes;
+          } else if (b == '\n' && !inQuotes && position + i >= splitOffset) {
+            final long offset = position + i + 1;
+            if (offset < fileSize) {
+              offsets.add(offset);
+            }
+            splitOffset = offset + this.splitByteCount;
+          }
+        }
+        position += readCount;
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + this.resource, e);
+    }
+    if (fileSize > this.dataOffset) {
+      offsets.add(fileSize);
+    }
+    final long[] offsetArray = new long[offsets.size()];
+    for (int i = 0; i < offsetArray.length; i++) {
+      offsetArray[i] = offsets.get(i);
+    }
+    return offsetArray;
+  }
+
+  private MappedByteBuffer map(final long offset, final long size) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        "Range too large to memory map " + size + " bytes: " + this.resource);
+    }
+    return this.channel.map(MapMode.READ_ONLY, offset, size);
+  }
+
+  private void readHeader(final RecordDefinition recordDefinition) throws IOException {
+    long mapSize = Math.min(this.fileSize, HEADER_MAP_SIZE);
+    while (true) {
+      final MappedByteBuffer buffer = map(0, mapSize);
+      final CsvByteParser parser = new CsvByteParser(buffer, this.fieldSeparator);
+      final boolean hasRow = parser.nextRow();
+      if (mapSize == this.fileSize || hasRow && parser.getPosition() < mapSize) {
+        final List<String> fieldNames = new ArrayList<>();
+        if (hasRow) {
+          for (int i = 0; i < parser.getFieldCount(); i++) {
+            fieldNames.add(parser.getString(i));
+          }
+        }
+        this.dataOffset = parser.getPosition();
+        if (recordDefinition == null) {
+          try (
+            CsvRecordReader reader = new CsvRecordReader(this.resource, this.fieldSeparator)) {
+            this.recordDefinition = reader.getRecordDefinition();
+          }
+        } else {
+          this.recordDefinition = recordDefinition;
+        }
+        this.fieldIndexes = new int[fieldNames.size()];
+        for (int i = 0; i < this.fieldIndexes.length; i++) {
+          final String fieldName = fieldNames.get(i);
+          if (fieldName == null) {
+            this.fieldIndexes[i] = -1;
+          } else {
+            this.fieldIndexes[i] = this.recordDefinition.getFieldIndex(fieldName);
+          }
+        }
+        return;
+      } else {
+        // The header wasn't complete in the mapped region
+        mapSize = Math.min(this.fileSize, mapSize * 2);
+      }
+    }
+  }
+
+  private void readRange(final long startOffset, final long endOffset, final RecordBatch batch,
+    final Consumer<? super RecordBatch> action) {
+    try {
+      final MappedByteBuffer buffer = map(startOffset, endOffset - startOffset);
+      final CsvByteParser parser = new CsvByteParser(buffer, this.fieldSeparator);
+      while (parser.nextRow()) {
+        addRow(parser, batch);
+        if (batch.isFull()) {
+          action.accept(batch);
+          batch.clear();
+        }
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + this.resource, e);
+    }
+  }
+
+  public void setSplitByteCount(final int splitByteCount) {
+    if (splitByteCount < 1) {
+      throw new IllegalArgumentException("splitByteCount must be > 0 not " + splitByteCount);
+    }
+    this.splitByteCount = splitByteCount;
+  }
+
+  @Override
+  public String toString() {
+    return this.resource.toString();
+  }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.jeometry.common.logging.Logs;
 
@@ -12,6 +13,7 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.batch.RecordBatch;
 import com.revolsys.record.io.AbstractRecordReader;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.spring.resource.Resource;
@@ -27,6 +29,9 @@ public class CsvRecordReader extends AbstractRecordReader {
 
   private List<String> fieldNames;
 
+  /** The values for the current row, reused for each row. */
+  private final List<String> values = new ArrayList<>();
+
   public CsvRecordReader(final Resource resource) {
     this(resource, ArrayRecord.FACTORY, Csv.FIELD_SEPARATOR);
   }
@@ -71,6 +76,36 @@ public class CsvRecordReader extends AbstractRecordReader {
     this.resource = null;
   }
 
+  /**
+   * Parse the rows directly into the batch without creating a {@link Record} for each row.
+   */
+  @Override
+  public void forEachBatch(final int batchSize, final Consumer<? super RecordBatch> action) {
+    final RecordBatch batch = new RecordBatch(getRecordDefinition(), batchSize);
+    try {
+      while (true) {
+        final List<String> row;
+        try {
+          row = readNextRow();
+        } catch (final NoSuchElementException e) {
+          break;
+        }
+        if (row.size() > 0) {
+          parseRecord(batch, this.fieldNames, row);
+          if (batch.isFull()) {
+            action.accept(batch);
+            batch.clear();
+          }
+        }
+      }
+    } catch (final IOException e) {
+      throw new RuntimeException(e.getMessage(), e);
+    }
+    if (!batch.isEmpty()) {
+      action.accept(batch);
+    }
+  }
+
   @Override
   protected Record getNext() {
     try {
@@ -108,7 +143,8 @@ public class CsvRecordReader extends AbstractRecordReader {
   }
 
   /**
-   * Reads the next line from the buffer and converts to a string array.
+   * Reads the next line from the buffer and converts to a string array. The same list is
+   * returned for each row so the values must be used before the next row is read.
    *
    * @return a string array with each comma-separated element as a separate
    *         entry.
@@ -122,7 +158,8 @@ public class CsvRecordReader extends AbstractRecordReader {
     } else {
       final StringBuilder sb = this.sb;
       sb.setLength(0);
-      final List<String> values = new ArrayList<>();
+      final List<String> values = this.values;
+      values.clear();
       boolean inQuotes = false;
       boolean hadQuotes = false;
       while (true) {
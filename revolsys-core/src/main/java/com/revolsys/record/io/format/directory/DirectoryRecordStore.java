@@ -13,6 +13,7 @@ import java.util.TreeMap;
 
 import org.jeometry.common.io.PathName;
 
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.PathUtil;
 import com.revolsys.io.filter.ExtensionFilenameFilter;
@@ -21,7 +22,14 @@ import com.revolsys.record.Record;
 import com.revolsys.record.io.RecordIterator;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.flatgeobuf.FlatGeobufRecordReader;
+import com.revolsys.record.io.format.parquet.GeoParquetRecordReader;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.query.And;
+import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
 import com.revolsys.record.schema.AbstractRecordStore;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
@@ -127,6 +135,28 @@ public class DirectoryRecordStore extends AbstractRecordStore {
     return this.fileExtensions;
   }
 
+  /**
+   * Get the bounding box from the {@link EnvelopeIntersects} conditions that all records returned
+   * by the query must match. Conditions within an OR are ignored as records outside the bounding
+   * box could still match.
+   *
+   * @param query The query.
+   * @return The bounding box or null if the query doesn't restrict the bounding box.
+   */
+  private BoundingBox getQueryBoundingBox(final Query query) {
+    final Condition whereCondition = query.getWhereCondition();
+    if (whereCondition instanceof EnvelopeIntersects) {
+      return QueryValue.getBoundingBox(whereCondition);
+    } else if (whereCondition instanceof And) {
+      for (final QueryValue condition : whereCondition.getQueryValues()) {
+        if (condition instanceof EnvelopeIntersects) {
+          return QueryValue.getBoundingBox(condition);
+        }
+      }
+    }
+    return null;
+  }
+
   @Override
   public int getRecordCount(final Query query) {
     throw new UnsupportedOperationException();
@@ -235,6 +265,19 @@ public class DirectoryRecordStore extends AbstractRecordStore {
     final PathName path = query.getTablePath();
     final RecordReader reader = getRecords(path);
     reader.setProperties(properties);
+    if (reader instanceof ShapefileRecordReader) {
+      final BoundingBox boundingBox = getQueryBoundingBox(query);
+      if (boundingBox != null) {
+        ((ShapefileRecordReader)reader).setBoundingBox(boundingBox);
+      }
+    } else if (reader instanceof FlatGeobufRecordReader) {
+      final BoundingBox boundingBox = getQueryBoundingBox(query);
+      if (boundingBox != null) {
+        ((FlatGeobufRecordReader)reader).setBoundingBox(boundingBox);
+      }
+    } else if (reader instanceof GeoParquetRecordReader) {
+      ((GeoParquetRecordReader)reader).setQuery(query);
+    }
     return new RecordReaderQueryIterator(reader, query);
   }
 
@@ -2,8 +2,10 @@ package com.revolsys.record.io.format.directory;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.collection.map.MapEx;
 import com.revolsys.record.Record;
 import com.revolsys.record.io.RecordIterator;
 import com.revolsys.record.io.RecordReader;
@@ -13,6 +15,8 @@ import com.revolsys.record.schema.RecordDefinition;
 
 public class RecordReaderQueryIterator extends AbstractIterator<Record> implements RecordIterator {
 
+  private Predicate<MapEx> filter;
+
   private Iterator<Record> iterator;
 
   private final RecordReader reader;
@@ -33,7 +37,7 @@ public class RecordReaderQueryIterator extends AbstractIterator<Record> implemen
   protected Record getNext() throws NoSuchElementException {
     while (true) {
       final Record record = this.iterator.next();
-      if (this.whereCondition.test(record)) {
+      if (this.filter.test(record)) {
         return record;
       }
     }
@@ -48,5 +52,11 @@ public class RecordReaderQueryIterator extends AbstractIterator<Record> implemen
   public synchronized void init() {
     this.reader.open();
     this.iterator = this.reader.iterator();
+    final RecordDefinition recordDefinition = this.reader.getRecordDefinition();
+    if (this.whereCondition == null) {
+      this.filter = Condition.ALL;
+    } else {
+      this.filter = this.whereCondition.newPredicate(recordDefinition);
+    }
   }
 }
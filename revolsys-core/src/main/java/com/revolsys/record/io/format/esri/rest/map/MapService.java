@@ -170,6 +170,31 @@ public class MapService extends ArcGisRestAbstractLayerService {
     }
   }
 
+  /**
+   * Get the encoded bytes of the tile image as returned by the server.
+   *
+   * @param zoomLevel The zoom level.
+   * @param tileX The tile x index.
+   * @param tileY The tile y index.
+   * @return The bytes or null if the tile doesn't exist.
+   */
+  public byte[] getTileImageBytes(final int zoomLevel, final int tileX, final int tileY) {
+    final String url = getTileUrl(zoomLevel, tileX, tileY);
+    boolean retry = true;
+    while (true) {
+      try {
+        return BufferedImages.readBytes(url);
+      } catch (final WrappedException e) {
+        if (Exceptions.isException(e, FileNotFoundException.class)) {
+          return null;
+        } else if (!retry) {
+          throw Exceptions.wrap(e);
+        }
+      }
+      retry = false;
+    }
+  }
+
   public TileInfo getTileInfo() {
     refreshIfNeeded();
     return this.tileInfo;
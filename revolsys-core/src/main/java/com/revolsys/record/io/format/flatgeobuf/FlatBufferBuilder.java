@@ -0,0 +1,291 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Build a FlatBuffers table and the strings, vectors and tables it references.
+ *
+ * <p>The FlatBuffers library builds a buffer back to front. This builder serializes the tables
+ * front to back, each table followed by the objects it references, so the size of the objects
+ * doesn't need to be known in advance. The offsets from a table to its fields still point forward
+ * and all values are aligned to their size so the buffer can be read by any FlatBuffers
+ * implementation.</p>
+ */
+class FlatBufferBuilder {
+
+  private static class Field {
+    private final int index;
+
+    private final int size;
+
+    private final long value;
+
+    private final Object reference;
+
+    private int offset;
+
+    private Field(final int index, final int size, final long value, final Object reference) {
+      this.index = index;
+      this.size = size;
+      this.value = value;
+      this.reference = reference;
+    }
+  }
+
+  private static class Output {
+    private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Add zero bytes so that (position + offset) % alignment == remainder.
+     */
+    private void align(final int offset, final int alignment, final int remainder) {
+      while ((this.buffer.position() + offset) % alignment != remainder) {
+        putByte(0);
+      }
+    }
+
+    private void ensureCapacity(final int byteCount) {
+      if (this.buffer.remaining() < byteCount) {
+        final int capacity = Math.max(this.buffer.capacity() * 2,
+          this.buffer.position() + byteCount);
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip();
+        buffer.put(this.buffer);
+        this.buffer = buffer;
+      }
+    }
+
+    private int position() {
+      return this.buffer.position();
+    }
+
+    private void putByte(final int value) {
+      ensureCapacity(1);
+      this.buffer.put((byte)value);
+    }
+
+    private void putBytes(final byte[] bytes, final int offset, final int length) {
+      ensureCapacity(length);
+      this.buffer.put(bytes, offset, length);
+    }
+
+    private void putInt(final int value) {
+      ensureCapacity(4);
+      this.buffer.putInt(value);
+    }
+
+    private void putScalar(final int size, final long value) {
+      ensureCapacity(size);
+      switch (size) {
+        case 1:
+          this.buffer.put((byte)value);
+        break;
+        case 2:
+          this.buffer.putShort((short)value);
+        break;
+        case 4:
+          this.buffer.putInt((int)value);
+        break;
+        default:
+          this.buffer.putLong(value);
+        break;
+      }
+    }
+
+    private void putUOffset(final int position, final int targetPosition) {
+      this.buffer.putInt(position, targetPosition - position);
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(this.buffer.array(), this.buffer.position());
+    }
+  }
+
+  private final List<Field> fields = new ArrayList<>();
+
+  public FlatBufferBuilder addBoolean(final int index, final boolean value) {
+    return addScalar(index, 1, value ? 1 : 0);
+  }
+
+  public FlatBufferBuilder addByte(final int index, final int value) {
+    return addScalar(index, 1, value);
+  }
+
+  public FlatBufferBuilder addBytes(final int index, final byte[] bytes, final int length) {
+    return addReference(index, Arrays.copyOf(bytes, length));
+  }
+
+  public FlatBufferBuilder addDoubles(final int index, final double[] values, final int count) {
+    return addReference(index, Arrays.copyOf(values, count));
+  }
+
+  public FlatBufferBuilder addInt(final int index, final int value) {
+    return addScalar(index, 4, value);
+  }
+
+  public FlatBufferBuilder addInts(final int index, final int[] values, final int count) {
+    return addReference(index, Arrays.copyOf(values, count));
+  }
+
+  public FlatBufferBuilder addLong(final int index, final long value) {
+    return addScalar(index, 8, value);
+  }
+
+  private FlatBufferBuilder addReference(final int index, final Object reference) {
+    this.fields.add(new Field(index, 4, 0, reference));
+    return this;
+  }
+
+  private FlatBufferBuilder addScalar(final int index, final int size, final long value) {
+    this.fields.add(new Field(index, size, value, null));
+    return this;
+  }
+
+  public FlatBufferBuilder addShort(final int index, final int value) {
+    return addScalar(index, 2, value);
+  }
+
+  public FlatBufferBuilder addString(final int index, final String value) {
+    if (value == null) {
+      return this;
+    } else {
+      return addReference(index, value);
+    }
+  }
+
+  public FlatBufferBuilder addTable(final int index, final FlatBufferBuilder table) {
+    return addReference(index, table);
+  }
+
+  public FlatBufferBuilder addTables(final int index, final List<FlatBufferBuilder> tables) {
+    return addReference(index, new ArrayList<>(tables));
+  }
+
+  /**
+   * Serialize the table as the root of a buffer prefixed with the size of the buffer.
+   *
+   * @return The bytes.
+   */
+  public byte[] toSizePrefixedBytes() {
+    final Output out = new Output();
+    out.putInt(0);
+    out.putInt(0);
+    final int tablePosition = write(out);
+    out.putUOffset(4, tablePosition);
+    final byte[] bytes = out.toByteArray();
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(0, bytes.length - 4);
+    return bytes;
+  }
+
+  private int write(final Output out) {
+    final List<Field> fields = this.fields;
+    int maxIndex = -1;
+    for (final Field field : fields) {
+      maxIndex = Math.max(maxIndex, field.index);
+    }
+    final int vtableSize = 4 + 2 * (maxIndex + 1);
+
+    // Sort the fields by descending size so they are aligned without padding
+    final List<Field> inlineFields = new ArrayList<>(fields);
+    inlineFields.sort(Comparator.comparingInt((final Field field) -> field.size).reversed());
+    int tableSize = 4;
+    boolean hasLong = false;
+    for (final Field field : inlineFields) {
+      field.offset = tableSize;
+      tableSize += field.size;
+      if (field.size == 8) {
+        hasLong = true;
+      }
+    }
+
+    // Table starts after the vtable, 4 byte aligned with the 8 byte fields 8 byte aligned
+    if (hasLong) {
+      out.align(vtableSize, 8, 4);
+    } else {
+      out.align(vtableSize, 4, 0);
+    }
+    final int vtablePosition = out.position();
+    out.putScalar(2, vtableSize);
+    out.putScalar(2, tableSize);
+    final int[] fieldOffsets = new int[maxIndex + 1];
+    for (final Field field : fields) {
+      fieldOffsets[field.index] = field.offset;
+    }
+    for (final int fieldOffset : fieldOffsets) {
+      out.putScalar(2, fieldOffset);
+    }
+
+    final int tablePosition = out.position();
+    out.putInt(tablePosition - vtablePosition);
+    for (final Field field : inlineFields) {
+      out.putScalar(field.size, field.value);
+    }
+    for (final Field field : fields) {
+      final Object reference = field.reference;
+      if (reference != null) {
+        final int referencePosition = writeReference(out, reference);
+        out.putUOffset(tablePosition + field.offset, referencePosition);
+      }
+    }
+    return tablePosition;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int writeReference(final Output out, final Object reference) {
+    if (reference instanceof FlatBufferBuilder) {
+      return ((FlatBufferBuilder)reference).write(out);
+    } else if (reference instanceof String) {
+      final byte[] bytes = ((String)reference).getBytes(StandardCharsets.UTF_8);
+      out.align(0, 4, 0);
+      final int position = out.position();
+      out.putInt(bytes.length);
+      out.putBytes(bytes, 0, bytes.length);
+      out.putByte(0);
+      return position;
+    } else if (reference instanceof byte[]) {
+      final byte[] bytes = (byte[])reference;
+      out.align(0, 4, 0);
+      final int position = out.position();
+      out.putInt(bytes.length);
+      out.putBytes(bytes, 0, bytes.length);
+      return position;
+    } else if (reference instanceof int[]) {
+      final int[] values = (int[])reference;
+      out.align(0, 4, 0);
+      final int position = out.position();
+      out.putInt(values.length);
+      for (final int value : values) {
+        out.putInt(value);
+      }
+      return position;
+    } else if (reference instanceof double[]) {
+      final double[] values = (double[])reference;
+      out.align(0, 8, 4);
+      final int position = out.position();
+      out.putInt(values.length);
+      for (final double value : values) {
+        out.putScalar(8, Double.doubleToRawLongBits(value));
+      }
+      return position;
+    } else {
+      final List<FlatBufferBuilder> tables = (List<FlatBufferBuilder>)reference;
+      out.align(0, 4, 0);
+      final int position = out.position();
+      out.putInt(tables.size());
+      for (int i = 0; i < tables.size(); i++) {
+        out.putInt(0);
+      }
+      for (int i = 0; i < tables.size(); i++) {
+        final int tablePosition = tables.get(i).write(out);
+        out.putUOffset(position + 4 + i * 4, tablePosition);
+      }
+      return position;
+    }
+  }
+}
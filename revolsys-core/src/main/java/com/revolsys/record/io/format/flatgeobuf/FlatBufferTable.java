@@ -0,0 +1,198 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read the fields of a FlatBuffers table. The fields are identified by their index in the schema
+ * and missing fields return the default value.
+ */
+class FlatBufferTable {
+
+  /**
+   * Get the root table of a buffer.
+   *
+   * @param bytes The buffer.
+   * @return The root table.
+   */
+  public static FlatBufferTable getRoot(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    return new FlatBufferTable(buffer, buffer.getInt(0));
+  }
+
+  /**
+   * Get the root table of a buffer that starts with the size of the buffer.
+   *
+   * @param bytes The buffer.
+   * @return The root table.
+   */
+  public static FlatBufferTable getSizePrefixedRoot(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    final int rootPosition = 4 + buffer.getInt(4);
+    return new FlatBufferTable(buffer, rootPosition);
+  }
+
+  private final ByteBuffer buffer;
+
+  private final int position;
+
+  private final int vtablePosition;
+
+  private final int vtableSize;
+
+  private FlatBufferTable(final ByteBuffer buffer, final int position) {
+    this.buffer = buffer;
+    this.position = position;
+    this.vtablePosition = position - buffer.getInt(position);
+    this.vtableSize = Short.toUnsignedInt(buffer.getShort(this.vtablePosition));
+  }
+
+  public boolean getBoolean(final int index, final boolean defaultValue) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return defaultValue;
+    } else {
+      return this.buffer.get(this.position + offset) != 0;
+    }
+  }
+
+  public byte[] getBytes(final int index) {
+    final int vectorPosition = getReferencePosition(index);
+    if (vectorPosition < 0) {
+      return null;
+    } else {
+      final int length = this.buffer.getInt(vectorPosition);
+      final byte[] bytes = new byte[length];
+      final ByteBuffer buffer = this.buffer.duplicate();
+      buffer.position(vectorPosition + 4);
+      buffer.get(bytes);
+      return bytes;
+    }
+  }
+
+  public double[] getDoubles(final int index) {
+    final int vectorPosition = getReferencePosition(index);
+    if (vectorPosition < 0) {
+      return null;
+    } else {
+      final int length = this.buffer.getInt(vectorPosition);
+      final double[] values = new double[length];
+      for (int i = 0; i < length; i++) {
+        values[i] = this.buffer.getDouble(vectorPosition + 4 + i * 8);
+      }
+      return values;
+    }
+  }
+
+  private int getFieldOffset(final int index) {
+    final int vtableOffset = 4 + index * 2;
+    if (vtableOffset < this.vtableSize) {
+      return Short.toUnsignedInt(this.buffer.getShort(this.vtablePosition + vtableOffset));
+    } else {
+      return 0;
+    }
+  }
+
+  public int getInt(final int index, final int defaultValue) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return defaultValue;
+    } else {
+      return this.buffer.getInt(this.position + offset);
+    }
+  }
+
+  public int[] getInts(final int index) {
+    final int vectorPosition = getReferencePosition(index);
+    if (vectorPosition < 0) {
+      return null;
+    } else {
+      final int length = this.buffer.getInt(vectorPosition);
+      final int[] values = new int[length];
+      for (int i = 0; i < length; i++) {
+        values[i] = this.buffer.getInt(vectorPosition + 4 + i * 4);
+      }
+      return values;
+    }
+  }
+
+  public long getLong(final int index, final long defaultValue) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return defaultValue;
+    } else {
+      return this.buffer.getLong(this.position + offset);
+    }
+  }
+
+  /**
+   * Get the position of the string, vector or table referenced by the field.
+   *
+   * @param index The field index.
+   * @return The position or -1 if the field isn't set.
+   */
+  private int getReferencePosition(final int index) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return -1;
+    } else {
+      final int fieldPosition = this.position + offset;
+      return fieldPosition + this.buffer.getInt(fieldPosition);
+    }
+  }
+
+  public String getString(final int index) {
+    final int stringPosition = getReferencePosition(index);
+    if (stringPosition < 0) {
+      return null;
+    } else {
+      final int length = this.buffer.getInt(stringPosition);
+      return new String(this.buffer.array(), this.buffer.arrayOffset() + stringPosition + 4,
+        length, StandardCharsets.UTF_8);
+    }
+  }
+
+  public FlatBufferTable getTable(final int index) {
+    final int tablePosition = getReferencePosition(index);
+    if (tablePosition < 0) {
+      return null;
+    } else {
+      return new FlatBufferTable(this.buffer, tablePosition);
+    }
+  }
+
+  public FlatBufferTable getTable(final int index, final int elementIndex) {
+    final int vectorPosition = getReferencePosition(index);
+    final int elementPosition = vectorPosition + 4 + elementIndex * 4;
+    return new FlatBufferTable(this.buffer,
+      elementPosition + this.buffer.getInt(elementPosition));
+  }
+
+  public int getUnsignedByte(final int index, final int defaultValue) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return defaultValue;
+    } else {
+      return Byte.toUnsignedInt(this.buffer.get(this.position + offset));
+    }
+  }
+
+  public int getUnsignedShort(final int index, final int defaultValue) {
+    final int offset = getFieldOffset(index);
+    if (offset == 0) {
+      return defaultValue;
+    } else {
+      return Short.toUnsignedInt(this.buffer.getShort(this.position + offset));
+    }
+  }
+
+  public int getVectorLength(final int index) {
+    final int vectorPosition = getReferencePosition(index);
+    if (vectorPosition < 0) {
+      return 0;
+    } else {
+      return this.buffer.getInt(vectorPosition);
+    }
+  }
+}
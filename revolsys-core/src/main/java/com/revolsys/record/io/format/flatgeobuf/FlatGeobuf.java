@@ -0,0 +1,44 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.io.AbstractIoFactory;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderFactory;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.RecordWriterFactory;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+import com.revolsys.spring.resource.Resource;
+
+public class FlatGeobuf extends AbstractIoFactory
+  implements RecordReaderFactory, RecordWriterFactory {
+  public FlatGeobuf() {
+    super(FlatGeobufConstants.DESCRIPTION);
+    addMediaTypeAndFileExtension(FlatGeobufConstants.MEDIA_TYPE,
+      FlatGeobufConstants.FILE_EXTENSION);
+  }
+
+  @Override
+  public boolean isBinary() {
+    return true;
+  }
+
+  @Override
+  public RecordReader newRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory, final MapEx properties) {
+    final FlatGeobufRecordReader reader = new FlatGeobufRecordReader(resource, recordFactory);
+    reader.setProperties(properties);
+    return reader;
+  }
+
+  @Override
+  public RecordWriter newRecordWriter(final String baseName,
+    final RecordDefinitionProxy recordDefinition, final OutputStream outputStream,
+    final Charset charset) {
+    return new FlatGeobufRecordWriter(baseName, recordDefinition, outputStream);
+  }
+}
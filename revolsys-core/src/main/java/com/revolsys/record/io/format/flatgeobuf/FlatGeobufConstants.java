@@ -0,0 +1,126 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+/**
+ * The magic bytes, enumeration values and the FlatBuffers field indexes of the header, column,
+ * crs, feature and geometry tables of the FlatGeobuf format.
+ */
+public class FlatGeobufConstants {
+  public static final int COLUMN_DESCRIPTION = 3;
+
+  public static final int COLUMN_NAME = 0;
+
+  public static final int COLUMN_NULLABLE = 7;
+
+  public static final int COLUMN_PRECISION = 5;
+
+  public static final int COLUMN_PRIMARY_KEY = 9;
+
+  public static final int COLUMN_SCALE = 6;
+
+  public static final int COLUMN_TITLE = 2;
+
+  public static final int COLUMN_TYPE = 1;
+
+  public static final int COLUMN_TYPE_BINARY = 14;
+
+  public static final int COLUMN_TYPE_BOOL = 2;
+
+  public static final int COLUMN_TYPE_BYTE = 0;
+
+  public static final int COLUMN_TYPE_DATE_TIME = 13;
+
+  public static final int COLUMN_TYPE_DOUBLE = 10;
+
+  public static final int COLUMN_TYPE_FLOAT = 9;
+
+  public static final int COLUMN_TYPE_INT = 5;
+
+  public static final int COLUMN_TYPE_JSON = 12;
+
+  public static final int COLUMN_TYPE_LONG = 7;
+
+  public static final int COLUMN_TYPE_SHORT = 3;
+
+  public static final int COLUMN_TYPE_STRING = 11;
+
+  public static final int COLUMN_TYPE_UBYTE = 1;
+
+  public static final int COLUMN_TYPE_UINT = 6;
+
+  public static final int COLUMN_TYPE_ULONG = 8;
+
+  public static final int COLUMN_TYPE_USHORT = 4;
+
+  public static final int COLUMN_UNIQUE = 8;
+
+  public static final int COLUMN_WIDTH = 4;
+
+  public static final int CRS_CODE = 1;
+
+  public static final int CRS_ORG = 0;
+
+  public static final int CRS_WKT = 4;
+
+  public static final String DESCRIPTION = "FlatGeobuf";
+
+  public static final int FEATURE_GEOMETRY = 0;
+
+  public static final int FEATURE_PROPERTIES = 1;
+
+  public static final String FILE_EXTENSION = "fgb";
+
+  public static final int GEOMETRY_ENDS = 0;
+
+  public static final int GEOMETRY_M = 3;
+
+  public static final int GEOMETRY_PARTS = 7;
+
+  public static final int GEOMETRY_TYPE = 6;
+
+  public static final int GEOMETRY_TYPE_GEOMETRY_COLLECTION = 7;
+
+  public static final int GEOMETRY_TYPE_LINE_STRING = 2;
+
+  public static final int GEOMETRY_TYPE_MULTI_LINE_STRING = 5;
+
+  public static final int GEOMETRY_TYPE_MULTI_POINT = 4;
+
+  public static final int GEOMETRY_TYPE_MULTI_POLYGON = 6;
+
+  public static final int GEOMETRY_TYPE_POINT = 1;
+
+  public static final int GEOMETRY_TYPE_POLYGON = 3;
+
+  public static final int GEOMETRY_TYPE_UNKNOWN = 0;
+
+  public static final int GEOMETRY_XY = 1;
+
+  public static final int GEOMETRY_Z = 2;
+
+  public static final int HEADER_COLUMNS = 7;
+
+  public static final int HEADER_CRS = 10;
+
+  public static final int HEADER_ENVELOPE = 1;
+
+  public static final int HEADER_FEATURES_COUNT = 8;
+
+  public static final int HEADER_GEOMETRY_TYPE = 2;
+
+  public static final int HEADER_HAS_M = 4;
+
+  public static final int HEADER_HAS_Z = 3;
+
+  public static final int HEADER_INDEX_NODE_SIZE = 9;
+
+  public static final int HEADER_NAME = 0;
+
+  /** The magic bytes "fgb", major version 3, "fgb", patch version 0. */
+  public static final byte[] MAGIC = {
+    0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00
+  };
+
+  public static final String MEDIA_TYPE = "application/flatgeobuf";
+
+  public static final int VERSION = 3;
+}
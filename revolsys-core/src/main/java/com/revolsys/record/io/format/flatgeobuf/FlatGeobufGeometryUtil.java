@@ -0,0 +1,281 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataType;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+
+/**
+ * Convert between {@link Geometry} and the FlatGeobuf Geometry table. The coordinates of the
+ * parts of a multi point, line string, multi line string or polygon are stored in a single xy
+ * (z and m) array with the ends array containing the end vertex index of each part. Multi
+ * polygons and geometry collections store each geometry as a part.
+ */
+public class FlatGeobufGeometryUtil {
+
+  private static void addCoordinates(final FlatBufferBuilder table,
+    final List<? extends Geometry> parts, final boolean hasZ, final boolean hasM) {
+    int vertexCount = 0;
+    for (final Geometry part : parts) {
+      vertexCount += part.getVertexCount();
+    }
+    if (vertexCount > 0) {
+      final double[] xy = new double[vertexCount * 2];
+      final double[] z = new double[vertexCount];
+      final double[] m = new double[vertexCount];
+      final int[] ends = new int[parts.size()];
+      int vertexIndex = 0;
+      int partIndex = 0;
+      for (final Geometry part : parts) {
+        if (part instanceof Point) {
+          final Point point = (Point)part;
+          if (!point.isEmpty()) {
+            xy[vertexIndex * 2] = point.getX();
+            xy[vertexIndex * 2 + 1] = point.getY();
+            z[vertexIndex] = point.getZ();
+            m[vertexIndex] = point.getM();
+            vertexIndex++;
+          }
+        } else {
+          final LineString line = (LineString)part;
+          final int partVertexCount = line.getVertexCount();
+          for (int i = 0; i < partVertexCount; i++) {
+            xy[vertexIndex * 2] = line.getX(i);
+            xy[vertexIndex * 2 + 1] = line.getY(i);
+            z[vertexIndex] = line.getZ(i);
+            m[vertexIndex] = line.getM(i);
+            vertexIndex++;
+          }
+        }
+        ends[partIndex++] = vertexIndex;
+      }
+      if (parts.size() > 1 && !(parts.get(0) instanceof Point)) {
+        table.addInts(FlatGeobufConstants.GEOMETRY_ENDS, ends, ends.length);
+      }
+      table.addDoubles(FlatGeobufConstants.GEOMETRY_XY, xy, xy.length);
+      if (hasZ) {
+        table.addDoubles(FlatGeobufConstants.GEOMETRY_Z, z, z.length);
+      }
+      if (hasM) {
+        table.addDoubles(FlatGeobufConstants.GEOMETRY_M, m, m.length);
+      }
+    }
+  }
+
+  public static DataType getDataType(final int geometryType) {
+    switch (geometryType) {
+      case FlatGeobufConstants.GEOMETRY_TYPE_POINT:
+        return GeometryDataTypes.POINT;
+      case FlatGeobufConstants.GEOMETRY_TYPE_LINE_STRING:
+        return GeometryDataTypes.LINE_STRING;
+      case FlatGeobufConstants.GEOMETRY_TYPE_POLYGON:
+        return GeometryDataTypes.POLYGON;
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POINT:
+        return GeometryDataTypes.MULTI_POINT;
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_LINE_STRING:
+        return GeometryDataTypes.MULTI_LINE_STRING;
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POLYGON:
+        return GeometryDataTypes.MULTI_POLYGON;
+      case FlatGeobufConstants.GEOMETRY_TYPE_GEOMETRY_COLLECTION:
+        return GeometryDataTypes.GEOMETRY_COLLECTION;
+      default:
+        return GeometryDataTypes.GEOMETRY;
+    }
+  }
+
+  public static int getGeometryType(final DataType dataType) {
+    if (GeometryDataTypes.POINT.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_POINT;
+    } else if (GeometryDataTypes.LINE_STRING.equals(dataType)
+      || GeometryDataTypes.LINEAR_RING.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_LINE_STRING;
+    } else if (GeometryDataTypes.POLYGON.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_POLYGON;
+    } else if (GeometryDataTypes.MULTI_POINT.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POINT;
+    } else if (GeometryDataTypes.MULTI_LINE_STRING.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_LINE_STRING;
+    } else if (GeometryDataTypes.MULTI_POLYGON.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POLYGON;
+    } else if (GeometryDataTypes.GEOMETRY_COLLECTION.equals(dataType)) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_GEOMETRY_COLLECTION;
+    } else {
+      return FlatGeobufConstants.GEOMETRY_TYPE_UNKNOWN;
+    }
+  }
+
+  public static int getGeometryType(final Geometry geometry) {
+    if (geometry instanceof Point) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_POINT;
+    } else if (geometry instanceof LineString) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_LINE_STRING;
+    } else if (geometry instanceof Polygon) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_POLYGON;
+    } else if (geometry instanceof Punctual) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POINT;
+    } else if (geometry instanceof Lineal) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_LINE_STRING;
+    } else if (geometry instanceof Polygonal) {
+      return FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POLYGON;
+    } else {
+      return FlatGeobufConstants.GEOMETRY_TYPE_GEOMETRY_COLLECTION;
+    }
+  }
+
+  private static double[][] getPartCoordinates(final FlatBufferTable table, final int axisCount) {
+    final double[] xy = table.getDoubles(FlatGeobufConstants.GEOMETRY_XY);
+    if (xy == null) {
+      return new double[0][];
+    }
+    final double[] z = table.getDoubles(FlatGeobufConstants.GEOMETRY_Z);
+    final double[] m = table.getDoubles(FlatGeobufConstants.GEOMETRY_M);
+    final int vertexCount = xy.length / 2;
+    int[] ends = table.getInts(FlatGeobufConstants.GEOMETRY_ENDS);
+    if (ends == null || ends.length == 0) {
+      ends = new int[] {
+        vertexCount
+      };
+    }
+    final double[][] parts = new double[ends.length][];
+    int startIndex = 0;
+    for (int partIndex = 0; partIndex < ends.length; partIndex++) {
+      final int endIndex = ends[partIndex];
+      final int partVertexCount = endIndex - startIndex;
+      if (partVertexCount < 0 || endIndex > vertexCount) {
+        throw new IllegalArgumentException("Invalid geometry ends");
+      }
+      final double[] coordinates = new double[partVertexCount * axisCount];
+      for (int i = 0; i < partVertexCount; i++) {
+        final int vertexIndex = startIndex + i;
+        final int offset = i * axisCount;
+        coordinates[offset] = xy[vertexIndex * 2];
+        coordinates[offset + 1] = xy[vertexIndex * 2 + 1];
+        if (axisCount > 2) {
+          coordinates[offset + 2] = getValue(z, vertexIndex);
+          if (axisCount > 3) {
+            coordinates[offset + 3] = getValue(m, vertexIndex);
+          }
+        }
+      }
+      parts[partIndex] = coordinates;
+      startIndex = endIndex;
+    }
+    return parts;
+  }
+
+  private static double getValue(final double[] values, final int index) {
+    if (values == null || index >= values.length) {
+      return Double.NaN;
+    } else {
+      return values[index];
+    }
+  }
+
+  /**
+   * Create the geometry from the geometry table of a feature.
+   *
+   * @param geometryFactory The geometry factory with the axis count of the file.
+   * @param table The geometry table.
+   * @param geometryType The geometry type from the header, used if the table doesn't have a type.
+   * @return The geometry.
+   */
+  public static Geometry newGeometry(final GeometryFactory geometryFactory,
+    final FlatBufferTable table, final int geometryType) {
+    final int axisCount = geometryFactory.getAxisCount();
+    final int type = table.getUnsignedByte(FlatGeobufConstants.GEOMETRY_TYPE, geometryType);
+    switch (type) {
+      case FlatGeobufConstants.GEOMETRY_TYPE_POINT: {
+        final double[][] parts = getPartCoordinates(table, axisCount);
+        if (parts.length == 0) {
+          return geometryFactory.point();
+        } else {
+          return geometryFactory.point(parts[0]);
+        }
+      }
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POINT: {
+        final double[][] parts = getPartCoordinates(table, axisCount);
+        if (parts.length == 0) {
+          return geometryFactory.point();
+        } else {
+          return geometryFactory.punctual(axisCount, parts[0]);
+        }
+      }
+      case FlatGeobufConstants.GEOMETRY_TYPE_LINE_STRING: {
+        final double[][] parts = getPartCoordinates(table, axisCount);
+        if (parts.length == 0) {
+          return geometryFactory.lineString();
+        } else {
+          return geometryFactory.lineString(axisCount, parts[0]);
+        }
+      }
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_LINE_STRING:
+        return geometryFactory.lineal(axisCount, getPartCoordinates(table, axisCount));
+      case FlatGeobufConstants.GEOMETRY_TYPE_POLYGON:
+        return geometryFactory.polygon(axisCount, getPartCoordinates(table, axisCount));
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POLYGON: {
+        final int partCount = table.getVectorLength(FlatGeobufConstants.GEOMETRY_PARTS);
+        final List<Polygon> polygons = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+          final FlatBufferTable part = table.getTable(FlatGeobufConstants.GEOMETRY_PARTS, i);
+          polygons.add(geometryFactory.polygon(axisCount, getPartCoordinates(part, axisCount)));
+        }
+        return geometryFactory.polygonal(polygons);
+      }
+      case FlatGeobufConstants.GEOMETRY_TYPE_GEOMETRY_COLLECTION: {
+        final int partCount = table.getVectorLength(FlatGeobufConstants.GEOMETRY_PARTS);
+        final List<Geometry> geometries = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+          final FlatBufferTable part = table.getTable(FlatGeobufConstants.GEOMETRY_PARTS, i);
+          geometries.add(
+            newGeometry(geometryFactory, part, FlatGeobufConstants.GEOMETRY_TYPE_UNKNOWN));
+        }
+        return geometryFactory.geometryCollection(geometries);
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported FlatGeobuf geometry type " + type);
+    }
+  }
+
+  /**
+   * Create the geometry table for the geometry.
+   *
+   * @param geometry The geometry.
+   * @param hasZ If the z coordinates are written.
+   * @param hasM If the m coordinates are written.
+   * @return The geometry table.
+   */
+  public static FlatBufferBuilder newGeometryTable(final Geometry geometry, final boolean hasZ,
+    final boolean hasM) {
+    final FlatBufferBuilder table = new FlatBufferBuilder();
+    final int geometryType = getGeometryType(geometry);
+    switch (geometryType) {
+      case FlatGeobufConstants.GEOMETRY_TYPE_POLYGON:
+        addCoordinates(table, ((Polygon)geometry).getRings(), hasZ, hasM);
+      break;
+      case FlatGeobufConstants.GEOMETRY_TYPE_MULTI_POLYGON:
+      case FlatGeobufConstants.GEOMETRY_TYPE_GEOMETRY_COLLECTION: {
+        final List<FlatBufferBuilder> parts = new ArrayList<>();
+        for (final Geometry part : geometry.geometries()) {
+          parts.add(newGeometryTable(part, hasZ, hasM));
+        }
+        table.addTables(FlatGeobufConstants.GEOMETRY_PARTS, parts);
+      }
+      break;
+      default:
+        addCoordinates(table, geometry.getGeometries(), hasZ, hasM);
+      break;
+    }
+    table.addByte(FlatGeobufConstants.GEOMETRY_TYPE, geometryType);
+    return table;
+  }
+}
@@ -0,0 +1,336 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.channels.DataReader;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.Resource;
+import com.revolsys.util.Property;
+
+/**
+ * Read the records from a FlatGeobuf file. If a bounding box is set and the file has a spatial
+ * index, only the index nodes and the features that intersect the bounding box are read. For
+ * seekable resources such as files or HTTP resources that support range requests the reader
+ * seeks past the parts of the file that are not required.
+ */
+public class FlatGeobufRecordReader extends AbstractIterator<Record> implements RecordReader {
+
+  private static DataType getDataType(final int columnType) {
+    switch (columnType) {
+      case FlatGeobufConstants.COLUMN_TYPE_BOOL:
+        return DataTypes.BOOLEAN;
+      case FlatGeobufConstants.COLUMN_TYPE_BYTE:
+        return DataTypes.BYTE;
+      case FlatGeobufConstants.COLUMN_TYPE_UBYTE:
+      case FlatGeobufConstants.COLUMN_TYPE_SHORT:
+        return DataTypes.SHORT;
+      case FlatGeobufConstants.COLUMN_TYPE_USHORT:
+      case FlatGeobufConstants.COLUMN_TYPE_INT:
+        return DataTypes.INT;
+      case FlatGeobufConstants.COLUMN_TYPE_UINT:
+      case FlatGeobufConstants.COLUMN_TYPE_LONG:
+        return DataTypes.LONG;
+      case FlatGeobufConstants.COLUMN_TYPE_ULONG:
+        return DataTypes.BIG_INTEGER;
+      case FlatGeobufConstants.COLUMN_TYPE_FLOAT:
+        return DataTypes.FLOAT;
+      case FlatGeobufConstants.COLUMN_TYPE_DOUBLE:
+        return DataTypes.DOUBLE;
+      case FlatGeobufConstants.COLUMN_TYPE_DATE_TIME:
+        return DataTypes.INSTANT;
+      case FlatGeobufConstants.COLUMN_TYPE_BINARY:
+        return DataTypes.BLOB;
+      default:
+        return DataTypes.STRING;
+    }
+  }
+
+  private static String getString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    final String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+      length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return string;
+  }
+
+  private BoundingBox boundingBox;
+
+  private int[] columnTypes;
+
+  private long featureCount;
+
+  private int featureIndex = 0;
+
+  private long[] featureOffsets;
+
+  private long featuresOffset;
+
+  private GeometryFactory geometryFactory = GeometryFactory.DEFAULT_2D;
+
+  private int geometryFieldIndex;
+
+  private int geometryType;
+
+  private DataReader in;
+
+  private RecordDefinition recordDefinition;
+
+  private RecordFactory<? extends Record> recordFactory;
+
+  private Resource resource;
+
+  public FlatGeobufRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory) {
+    this.resource = resource;
+    this.recordFactory = recordFactory;
+  }
+
+  @Override
+  protected void closeDo() {
+    if (this.in != null) {
+      this.in.close();
+    }
+    this.in = null;
+    this.featureOffsets = null;
+    this.recordFactory = null;
+    this.resource = null;
+  }
+
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    final DataReader in = this.in;
+    if (this.featureOffsets != null) {
+      if (this.featureIndex < this.featureOffsets.length) {
+        final long offset = this.featuresOffset + this.featureOffsets[this.featureIndex++];
+        PackedHilbertRTree.skipTo(in, offset);
+        return readRecord();
+      }
+    } else {
+      while (this.featureCount == 0 ? !in.isEof() : this.featureIndex < this.featureCount) {
+        this.featureIndex++;
+        final Record record = readRecord();
+        if (this.boundingBox == null) {
+          return record;
+        } else {
+          final Geometry geometry = record.getGeometry();
+          if (geometry != null && this.boundingBox.bboxIntersects(geometry)) {
+            return record;
+          }
+        }
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    open();
+    return this.recordDefinition;
+  }
+
+  @Override
+  protected void initDo() {
+    final DataReader in = this.resource.newChannelReader(8192, ByteOrder.LITTLE_ENDIAN);
+    this.in = in;
+    final byte[] magic = in.getBytes(8);
+    for (int i = 0; i < 3; i++) {
+      if (magic[i] != FlatGeobufConstants.MAGIC[i] || magic[i + 4] != FlatGeobufConstants.MAGIC[i]) {
+        throw new IllegalArgumentException(this.resource + " is not a FlatGeobuf file");
+      }
+    }
+    if (magic[3] != FlatGeobufConstants.VERSION) {
+      throw new IllegalArgumentException(
+        "FlatGeobuf version " + magic[3] + " not supported " + this.resource);
+    }
+    final int headerSize = in.getInt();
+    final FlatBufferTable header = FlatBufferTable.getRoot(in.getBytes(headerSize));
+    readHeader(header);
+
+    final int indexNodeSize = header.getUnsignedShort(FlatGeobufConstants.HEADER_INDEX_NODE_SIZE,
+      PackedHilbertRTree.DEFAULT_NODE_SIZE);
+    final long indexOffset = 12 + headerSize;
+    if (indexNodeSize > 0 && this.featureCount > 0) {
+      this.featuresOffset = indexOffset
+        + PackedHilbertRTree.getSize(this.featureCount, indexNodeSize);
+      if (this.boundingBox != null) {
+        final BoundingBox boundingBox = this.boundingBox.bboxToCs(this.geometryFactory);
+        this.featureOffsets = PackedHilbertRTree.search(in, indexOffset, this.featureCount,
+          indexNodeSize, boundingBox);
+      }
+    } else {
+      this.featuresOffset = indexOffset;
+    }
+    if (this.featureOffsets == null) {
+      PackedHilbertRTree.skipTo(in, this.featuresOffset);
+    }
+  }
+
+  private void readHeader(final FlatBufferTable header) {
+    final boolean hasZ = header.getBoolean(FlatGeobufConstants.HEADER_HAS_Z, false);
+    final boolean hasM = header.getBoolean(FlatGeobufConstants.HEADER_HAS_M, false);
+    int axisCount = 2;
+    if (hasM) {
+      axisCount = 4;
+    } else if (hasZ) {
+      axisCount = 3;
+    }
+    final FlatBufferTable crs = header.getTable(FlatGeobufConstants.HEADER_CRS);
+    this.geometryFactory = null;
+    if (crs != null) {
+      final int code = crs.getInt(FlatGeobufConstants.CRS_CODE, 0);
+      final String wkt = crs.getString(FlatGeobufConstants.CRS_WKT);
+      if (code > 0) {
+        this.geometryFactory = GeometryFactory.floating(code, axisCount);
+      } else if (Property.hasValue(wkt)) {
+        this.geometryFactory = GeometryFactory.floating(wkt, axisCount);
+      }
+    }
+    if (this.geometryFactory == null) {
+      this.geometryFactory = GeometryFactory.DEFAULT_2D.convertAxisCount(axisCount);
+    }
+
+    String name = header.getString(FlatGeobufConstants.HEADER_NAME);
+    if (!Property.hasValue(name)) {
+      name = this.resource.getBaseName();
+    }
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/" + name));
+    final int columnCount = header.getVectorLength(FlatGeobufConstants.HEADER_COLUMNS);
+    this.columnTypes = new int[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      final FlatBufferTable column = header.getTable(FlatGeobufConstants.HEADER_COLUMNS, i);
+      final String columnName = column.getString(FlatGeobufConstants.COLUMN_NAME);
+      final int columnType = column.getUnsignedByte(FlatGeobufConstants.COLUMN_TYPE,
+        FlatGeobufConstants.COLUMN_TYPE_STRING);
+      this.columnTypes[i] = columnType;
+      int length = column.getInt(FlatGeobufConstants.COLUMN_WIDTH, -1);
+      if (length <= 0) {
+        length = column.getInt(FlatGeobufConstants.COLUMN_PRECISION, 0);
+      }
+      final int scale = Math.max(0, column.getInt(FlatGeobufConstants.COLUMN_SCALE, 0));
+      final boolean required = !column.getBoolean(FlatGeobufConstants.COLUMN_NULLABLE, true);
+      recordDefinition.addField(columnName, getDataType(columnType), Math.max(0, length), scale,
+        required);
+    }
+    this.geometryType = header.getUnsignedByte(FlatGeobufConstants.HEADER_GEOMETRY_TYPE,
+      FlatGeobufConstants.GEOMETRY_TYPE_UNKNOWN);
+    final DataType geometryDataType = FlatGeobufGeometryUtil.getDataType(this.geometryType);
+    this.geometryFieldIndex = columnCount;
+    recordDefinition.addField("geometry", geometryDataType, false);
+    recordDefinition.setGeometryFactory(this.geometryFactory);
+    this.recordDefinition = recordDefinition;
+    this.featureCount = header.getLong(FlatGeobufConstants.HEADER_FEATURES_COUNT, 0);
+  }
+
+  private void readProperties(final Record record, final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      final int columnIndex = Short.toUnsignedInt(buffer.getShort());
+      if (columnIndex >= this.columnTypes.length) {
+        throw new IllegalArgumentException(
+          "FlatGeobuf column index " + columnIndex + " not defined " + this.resource);
+      }
+      final Object value;
+      switch (this.columnTypes[columnIndex]) {
+        case FlatGeobufConstants.COLUMN_TYPE_BOOL:
+          value = buffer.get() != 0;
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_BYTE:
+          value = buffer.get();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_UBYTE:
+          value = (short)Byte.toUnsignedInt(buffer.get());
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_SHORT:
+          value = buffer.getShort();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_USHORT:
+          value = Short.toUnsignedInt(buffer.getShort());
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_INT:
+          value = buffer.getInt();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_UINT:
+          value = Integer.toUnsignedLong(buffer.getInt());
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_LONG:
+          value = buffer.getLong();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_ULONG:
+          value = new BigInteger(Long.toUnsignedString(buffer.getLong()));
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_FLOAT:
+          value = buffer.getFloat();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_DOUBLE:
+          value = buffer.getDouble();
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_DATE_TIME:
+          value = DataTypes.INSTANT.toObject(getString(buffer));
+        break;
+        case FlatGeobufConstants.COLUMN_TYPE_BINARY:
+          final byte[] binary = new byte[buffer.getInt()];
+          buffer.get(binary);
+          value = binary;
+        break;
+        default:
+          value = getString(buffer);
+        break;
+      }
+      record.setValue(columnIndex, value);
+    }
+  }
+
+  private Record readRecord() {
+    final DataReader in = this.in;
+    final int size = in.getInt();
+    final FlatBufferTable feature = FlatBufferTable.getRoot(in.getBytes(size));
+    final Record record = this.recordFactory.newRecord(this.recordDefinition);
+    final byte[] properties = feature.getBytes(FlatGeobufConstants.FEATURE_PROPERTIES);
+    if (properties != null) {
+      readProperties(record, properties);
+    }
+    final FlatBufferTable geometryTable = feature.getTable(FlatGeobufConstants.FEATURE_GEOMETRY);
+    if (geometryTable != null) {
+      final Geometry geometry = FlatGeobufGeometryUtil.newGeometry(this.geometryFactory,
+        geometryTable, this.geometryType);
+      record.setValue(this.geometryFieldIndex, geometry);
+    }
+    return record;
+  }
+
+  /**
+   * Only read the records whose bounding box intersects the bounding box. Must be set before the
+   * reader is opened.
+   *
+   * @param boundingBox The bounding box.
+   */
+  public void setBoundingBox(final BoundingBox boundingBox) {
+    this.boundingBox = boundingBox;
+  }
+}
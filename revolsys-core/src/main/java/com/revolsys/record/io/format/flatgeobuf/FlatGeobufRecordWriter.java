@@ -0,0 +1,429 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+
+/**
+ * Write records to a FlatGeobuf file with a packed Hilbert R-tree spatial index.
+ *
+ * <p>The index and the features sorted in Hilbert order are written after the header, so the
+ * features are spooled to a temporary file and the file is written when the writer is closed.</p>
+ */
+public class FlatGeobufRecordWriter extends AbstractRecordWriter {
+
+  private static int getColumnType(final DataType dataType) {
+    if (DataTypes.BOOLEAN.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_BOOL;
+    } else if (DataTypes.BYTE.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_BYTE;
+    } else if (DataTypes.SHORT.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_SHORT;
+    } else if (DataTypes.INT.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_INT;
+    } else if (DataTypes.LONG.equals(dataType) || DataTypes.BIG_INTEGER.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_LONG;
+    } else if (DataTypes.FLOAT.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_FLOAT;
+    } else if (DataTypes.DOUBLE.equals(dataType) || DataTypes.DECIMAL.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_DOUBLE;
+    } else if (DataTypes.DATE_TIME.equals(dataType) || DataTypes.SQL_DATE.equals(dataType)
+      || DataTypes.TIMESTAMP.equals(dataType) || DataTypes.UTIL_DATE.equals(dataType)
+      || DataTypes.INSTANT.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_DATE_TIME;
+    } else if (DataTypes.BLOB.equals(dataType) || DataTypes.BASE64_BINARY.equals(dataType)) {
+      return FlatGeobufConstants.COLUMN_TYPE_BINARY;
+    } else {
+      return FlatGeobufConstants.COLUMN_TYPE_STRING;
+    }
+  }
+
+  private static byte[] getBytes(final Object value) {
+    if (value instanceof byte[]) {
+      return (byte[])value;
+    } else if (value instanceof Blob) {
+      final Blob blob = (Blob)value;
+      try {
+        return blob.getBytes(1, (int)blob.length());
+      } catch (final SQLException e) {
+        throw Exceptions.wrap(e);
+      }
+    } else {
+      return DataTypes.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private double[] bounds = new double[1024];
+
+  private final int[] columnTypes;
+
+  private int featureCount = 0;
+
+  private int[] featureSizes = new int[256];
+
+  private final int[] fieldIndexes;
+
+  private final GeometryFactory geometryFactory;
+
+  private final int geometryFieldIndex;
+
+  private int geometryType = -1;
+
+  private final boolean hasM;
+
+  private final boolean hasZ;
+
+  private final String name;
+
+  private DataOutputStream out;
+
+  private ByteBuffer properties = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+  private DataOutputStream spoolOut;
+
+  private File spoolFile;
+
+  private long spoolOffset = 0;
+
+  private long[] spoolOffsets = new long[256];
+
+  public FlatGeobufRecordWriter(final String name, final RecordDefinitionProxy recordDefinition,
+    final OutputStream out) {
+    super(recordDefinition);
+    this.name = name;
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.geometryFieldIndex = this.recordDefinition.getGeometryFieldIndex();
+    this.geometryFactory = this.recordDefinition.getGeometryFactory();
+    final int axisCount;
+    if (this.geometryFactory == null) {
+      axisCount = 2;
+    } else {
+      axisCount = this.geometryFactory.getAxisCount();
+    }
+    this.hasZ = axisCount > 2;
+    this.hasM = axisCount > 3;
+
+    final List<FieldDefinition> fields = this.recordDefinition.getFields();
+    final int[] fieldIndexes = new int[fields.size()];
+    final int[] columnTypes = new int[fields.size()];
+    int columnCount = 0;
+    for (final FieldDefinition field : fields) {
+      final int fieldIndex = field.getIndex();
+      if (fieldIndex != this.geometryFieldIndex) {
+        fieldIndexes[columnCount] = fieldIndex;
+        columnTypes[columnCount] = getColumnType(field.getDataType());
+        columnCount++;
+      }
+    }
+    this.fieldIndexes = Arrays.copyOf(fieldIndexes, columnCount);
+    this.columnTypes = Arrays.copyOf(columnTypes, columnCount);
+    this.spoolFile = FileUtil.newTempFile("flatgeobuf", ".spool");
+    try {
+      this.spoolOut = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(this.spoolFile)));
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+  }
+
+  private void addBounds(final Geometry geometry) {
+    final int index = this.featureCount * 4;
+    if (index == this.bounds.length) {
+      this.bounds = Arrays.copyOf(this.bounds, index * 2);
+    }
+    if (geometry == null || geometry.isEmpty()) {
+      this.bounds[index] = Double.POSITIVE_INFINITY;
+      this.bounds[index + 1] = Double.POSITIVE_INFINITY;
+      this.bounds[index + 2] = Double.NEGATIVE_INFINITY;
+      this.bounds[index + 3] = Double.NEGATIVE_INFINITY;
+    } else {
+      final BoundingBox boundingBox = geometry.getBoundingBox();
+      this.bounds[index] = boundingBox.getMinX();
+      this.bounds[index + 1] = boundingBox.getMinY();
+      this.bounds[index + 2] = boundingBox.getMaxX();
+      this.bounds[index + 3] = boundingBox.getMaxY();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (this.out != null) {
+        try {
+          this.spoolOut.close();
+          writeFile();
+        } finally {
+          try {
+            this.out.close();
+          } finally {
+            this.out = null;
+            this.spoolOut = null;
+            FileUtil.delete(this.spoolFile);
+          }
+        }
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+  }
+
+  private void ensureCapacity(final int byteCount) {
+    final ByteBuffer properties = this.properties;
+    if (properties.remaining() < byteCount) {
+      final int capacity = Math.max(properties.capacity() * 2, properties.position() + byteCount);
+      final ByteBuffer newProperties = ByteBuffer.allocate(capacity)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      properties.flip();
+      newProperties.put(properties);
+      this.properties = newProperties;
+    }
+  }
+
+  private FlatBufferBuilder newHeader(final double[] sortedBounds, final int indexNodeSize) {
+    final FlatBufferBuilder header = new FlatBufferBuilder();
+    header.addString(FlatGeobufConstants.HEADER_NAME, this.name);
+
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < this.featureCount; i++) {
+      minX = Math.min(minX, sortedBounds[i * 4]);
+      minY = Math.min(minY, sortedBounds[i * 4 + 1]);
+      maxX = Math.max(maxX, sortedBounds[i * 4 + 2]);
+      maxY = Math.max(maxY, sortedBounds[i * 4 + 3]);
+    }
+    if (minX <= maxX) {
+      final double[] envelope = {
+        minX, minY, maxX, maxY
+      };
+      header.addDoubles(FlatGeobufConstants.HEADER_ENVELOPE, envelope, 4);
+    }
+
+    int geometryType = this.geometryType;
+    if (geometryType == -1) {
+      if (this.geometryFieldIndex == -1) {
+        geometryType = FlatGeobufConstants.GEOMETRY_TYPE_UNKNOWN;
+      } else {
+        final DataType dataType = this.recordDefinition.getField(this.geometryFieldIndex)
+          .getDataType();
+        geometryType = FlatGeobufGeometryUtil.getGeometryType(dataType);
+      }
+    }
+    header.addByte(FlatGeobufConstants.HEADER_GEOMETRY_TYPE, geometryType);
+    if (this.hasZ) {
+      header.addBoolean(FlatGeobufConstants.HEADER_HAS_Z, true);
+    }
+    if (this.hasM) {
+      header.addBoolean(FlatGeobufConstants.HEADER_HAS_M, true);
+    }
+
+    final List<FlatBufferBuilder> columns = new ArrayList<>();
+    for (int columnIndex = 0; columnIndex < this.columnTypes.length; columnIndex++) {
+      final FieldDefinition field = this.recordDefinition.getField(this.fieldIndexes[columnIndex]);
+      final FlatBufferBuilder column = new FlatBufferBuilder();
+      column.addString(FlatGeobufConstants.COLUMN_NAME, field.getName());
+      column.addByte(FlatGeobufConstants.COLUMN_TYPE, this.columnTypes[columnIndex]);
+      final String title = field.getTitle();
+      if (title != null && !title.equals(field.getName())) {
+        column.addString(FlatGeobufConstants.COLUMN_TITLE, title);
+      }
+      column.addString(FlatGeobufConstants.COLUMN_DESCRIPTION, field.getDescription());
+      final int length = field.getLength();
+      if (length > 0) {
+        if (this.columnTypes[columnIndex] == FlatGeobufConstants.COLUMN_TYPE_DOUBLE) {
+          column.addInt(FlatGeobufConstants.COLUMN_PRECISION, length);
+        } else {
+          column.addInt(FlatGeobufConstants.COLUMN_WIDTH, length);
+        }
+      }
+      final int scale = field.getScale();
+      if (scale > 0) {
+        column.addInt(FlatGeobufConstants.COLUMN_SCALE, scale);
+      }
+      if (field.isRequired()) {
+        column.addBoolean(FlatGeobufConstants.COLUMN_NULLABLE, false);
+      }
+      columns.add(column);
+    }
+    header.addTables(FlatGeobufConstants.HEADER_COLUMNS, columns);
+    header.addLong(FlatGeobufConstants.HEADER_FEATURES_COUNT, this.featureCount);
+    header.addShort(FlatGeobufConstants.HEADER_INDEX_NODE_SIZE, indexNodeSize);
+
+    final GeometryFactory geometryFactory = this.geometryFactory;
+    if (geometryFactory != null && geometryFactory.getCoordinateSystemId() > 0) {
+      final FlatBufferBuilder crs = new FlatBufferBuilder();
+      crs.addString(FlatGeobufConstants.CRS_ORG, "EPSG");
+      crs.addInt(FlatGeobufConstants.CRS_CODE, geometryFactory.getCoordinateSystemId());
+      crs.addString(FlatGeobufConstants.CRS_WKT, geometryFactory.toWktCs());
+      header.addTable(FlatGeobufConstants.HEADER_CRS, crs);
+    }
+    return header;
+  }
+
+  private void putString(final String string) {
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    ensureCapacity(4 + bytes.length);
+    this.properties.putInt(bytes.length);
+    this.properties.put(bytes);
+  }
+
+  @Override
+  public void write(final Record record) {
+    Geometry geometry = null;
+    if (this.geometryFieldIndex != -1) {
+      geometry = record.getValue(this.geometryFieldIndex);
+      if (geometry != null && this.geometryFactory != null) {
+        geometry = geometry.convertGeometry(this.geometryFactory);
+      }
+    }
+    final FlatBufferBuilder feature = new FlatBufferBuilder();
+    if (geometry != null) {
+      final int geometryType = FlatGeobufGeometryUtil.getGeometryType(geometry);
+      if (this.geometryType == -1) {
+        this.geometryType = geometryType;
+      } else if (this.geometryType != geometryType) {
+        this.geometryType = FlatGeobufConstants.GEOMETRY_TYPE_UNKNOWN;
+      }
+      feature.addTable(FlatGeobufConstants.FEATURE_GEOMETRY,
+        FlatGeobufGeometryUtil.newGeometryTable(geometry, this.hasZ, this.hasM));
+    }
+    writeProperties(record);
+    feature.addBytes(FlatGeobufConstants.FEATURE_PROPERTIES, this.properties.array(),
+      this.properties.position());
+    final byte[] bytes = feature.toSizePrefixedBytes();
+
+    final int featureIndex = this.featureCount;
+    if (featureIndex == this.spoolOffsets.length) {
+      this.spoolOffsets = Arrays.copyOf(this.spoolOffsets, featureIndex * 2);
+      this.featureSizes = Arrays.copyOf(this.featureSizes, featureIndex * 2);
+    }
+    addBounds(geometry);
+    this.spoolOffsets[featureIndex] = this.spoolOffset;
+    this.featureSizes[featureIndex] = bytes.length;
+    try {
+      this.spoolOut.write(bytes);
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+    this.spoolOffset += bytes.length;
+    this.featureCount++;
+  }
+
+  private void writeFile() throws IOException {
+    final int featureCount = this.featureCount;
+    final int[] order = PackedHilbertRTree.hilbertSort(this.bounds, featureCount);
+    final double[] sortedBounds = new double[featureCount * 4];
+    final long[] featureOffsets = new long[featureCount];
+    long featureOffset = 0;
+    for (int i = 0; i < featureCount; i++) {
+      final int featureIndex = order[i];
+      System.arraycopy(this.bounds, featureIndex * 4, sortedBounds, i * 4, 4);
+      featureOffsets[i] = featureOffset;
+      featureOffset += this.featureSizes[featureIndex];
+    }
+
+    final int indexNodeSize;
+    if (featureCount == 0) {
+      indexNodeSize = 0;
+    } else {
+      indexNodeSize = PackedHilbertRTree.DEFAULT_NODE_SIZE;
+    }
+    final DataOutputStream out = this.out;
+    out.write(FlatGeobufConstants.MAGIC);
+    out.write(newHeader(sortedBounds, indexNodeSize).toSizePrefixedBytes());
+    if (featureCount > 0) {
+      PackedHilbertRTree.write(out, sortedBounds, featureOffsets, featureCount, indexNodeSize);
+    }
+
+    try (
+      RandomAccessFile spoolIn = new RandomAccessFile(this.spoolFile, "r")) {
+      byte[] bytes = new byte[1024];
+      for (int i = 0; i < featureCount; i++) {
+        final int featureIndex = order[i];
+        final int size = this.featureSizes[featureIndex];
+        if (size > bytes.length) {
+          bytes = new byte[size];
+        }
+        spoolIn.seek(this.spoolOffsets[featureIndex]);
+        spoolIn.readFully(bytes, 0, size);
+        out.write(bytes, 0, size);
+      }
+    }
+  }
+
+  private void writeProperties(final Record record) {
+    this.properties.clear();
+    for (int columnIndex = 0; columnIndex < this.columnTypes.length; columnIndex++) {
+      final Object value = record.getValue(this.fieldIndexes[columnIndex]);
+      if (value != null) {
+        ensureCapacity(10);
+        this.properties.putShort((short)columnIndex);
+        final int columnType = this.columnTypes[columnIndex];
+        switch (columnType) {
+          case FlatGeobufConstants.COLUMN_TYPE_BOOL:
+            final boolean booleanValue = DataTypes.BOOLEAN.toObject(value);
+            this.properties.put((byte)(booleanValue ? 1 : 0));
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_BYTE:
+            this.properties.put(((Number)DataTypes.BYTE.toObject(value)).byteValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_SHORT:
+            this.properties.putShort(((Number)DataTypes.SHORT.toObject(value)).shortValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_INT:
+            this.properties.putInt(((Number)DataTypes.INT.toObject(value)).intValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_LONG:
+            this.properties.putLong(((Number)DataTypes.LONG.toObject(value)).longValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_FLOAT:
+            this.properties.putFloat(((Number)DataTypes.FLOAT.toObject(value)).floatValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_DOUBLE:
+            this.properties.putDouble(((Number)DataTypes.DOUBLE.toObject(value)).doubleValue());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_DATE_TIME:
+            final Instant instant = DataTypes.INSTANT.toObject(value);
+            putString(instant.toString());
+          break;
+          case FlatGeobufConstants.COLUMN_TYPE_BINARY:
+            final byte[] bytes = getBytes(value);
+            ensureCapacity(4 + bytes.length);
+            this.properties.putInt(bytes.length);
+            this.properties.put(bytes);
+          break;
+          default:
+            putString(DataTypes.toString(value));
+          break;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package com.revolsys.record.io.format.flatgeobuf;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.channels.DataReader;
+
+/**
+ * The packed Hilbert R-tree of a FlatGeobuf file. The items are sorted by the Hilbert value of
+ * the centre of their bounding box and the tree is stored as a flat array of nodes, root first
+ * and the leaf nodes (one per item) last. Each node is the bounding box and an offset: the byte
+ * offset of the feature for leaf nodes or the index of the first child node for the other nodes.
+ *
+ * <p>The tree is searched a level at a time in increasing node order so a search only moves
+ * forward through the file, reading the nodes that may intersect and skipping or seeking past
+ * the rest.</p>
+ */
+public class PackedHilbertRTree {
+  public static final int DEFAULT_NODE_SIZE = 16;
+
+  private static final int HILBERT_MAX = (1 << 16) - 1;
+
+  public static final int NODE_ITEM_SIZE = 40;
+
+  /**
+   * Calculate the start and end node index of each level of the tree, leaves first.
+   *
+   * @param itemCount The number of items.
+   * @param nodeSize The maximum number of children of a node.
+   * @return The start and end of each level.
+   */
+  public static long[][] getLevelBounds(final long itemCount, final int nodeSize) {
+    if (nodeSize < 2) {
+      throw new IllegalArgumentException("Node size must be at least 2");
+    } else if (itemCount < 1) {
+      throw new IllegalArgumentException("Item count must be at least 1");
+    }
+    long count = itemCount;
+    long nodeCount = count;
+    long[] levelNodeCounts = {
+      count
+    };
+    do {
+      count = (count + nodeSize - 1) / nodeSize;
+      nodeCount += count;
+      levelNodeCounts = Arrays.copyOf(levelNodeCounts, levelNodeCounts.length + 1);
+      levelNodeCounts[levelNodeCounts.length - 1] = count;
+    } while (count != 1);
+    final long[][] levelBounds = new long[levelNodeCounts.length][];
+    long end = nodeCount;
+    for (int level = 0; level < levelNodeCounts.length; level++) {
+      final long start = end - levelNodeCounts[level];
+      levelBounds[level] = new long[] {
+        start, end
+      };
+      end = start;
+    }
+    return levelBounds;
+  }
+
+  public static long getSize(final long itemCount, final int nodeSize) {
+    final long[][] levelBounds = getLevelBounds(itemCount, nodeSize);
+    return levelBounds[0][1] * NODE_ITEM_SIZE;
+  }
+
+  /**
+   * Calculate the Hilbert curve index of the point in a 2^16 x 2^16 grid.
+   *
+   * @param x The x grid coordinate.
+   * @param y The y grid coordinate.
+   * @return The unsigned 32 bit index.
+   */
+  public static long hilbert(final int x, final int y) {
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int aa = a | b >> 1;
+    int bb = a >> 1 ^ a;
+    int cc = c >> 1 ^ b & d >> 1 ^ c;
+    int dd = a & c >> 1 ^ d >> 1 ^ d;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = a & a >> 2 ^ b & b >> 2;
+    bb = a & b >> 2 ^ b & (a ^ b) >> 2;
+    cc ^= a & c >> 2 ^ b & d >> 2;
+    dd ^= b & c >> 2 ^ (a ^ b) & d >> 2;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = a & a >> 4 ^ b & b >> 4;
+    bb = a & b >> 4 ^ b & (a ^ b) >> 4;
+    cc ^= a & c >> 4 ^ b & d >> 4;
+    dd ^= b & c >> 4 ^ (a ^ b) & d >> 4;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    cc ^= a & c >> 8 ^ b & d >> 8;
+    dd ^= b & c >> 8 ^ (a ^ b) & d >> 8;
+
+    a = cc ^ cc >> 1;
+    b = dd ^ dd >> 1;
+
+    int i0 = x ^ y;
+    int i1 = b | 0xFFFF ^ (i0 | a);
+
+    i0 = (i0 | i0 << 8) & 0x00FF00FF;
+    i0 = (i0 | i0 << 4) & 0x0F0F0F0F;
+    i0 = (i0 | i0 << 2) & 0x33333333;
+    i0 = (i0 | i0 << 1) & 0x55555555;
+
+    i1 = (i1 | i1 << 8) & 0x00FF00FF;
+    i1 = (i1 | i1 << 4) & 0x0F0F0F0F;
+    i1 = (i1 | i1 << 2) & 0x33333333;
+    i1 = (i1 | i1 << 1) & 0x55555555;
+
+    return Integer.toUnsignedLong(i1 << 1 | i0);
+  }
+
+  /**
+   * Get the order of the items sorted by the Hilbert value of the centre of their bounding
+   * boxes within the extent of all the items.
+   *
+   * @param bounds The minX, minY, maxX, maxY of each item.
+   * @param itemCount The number of items.
+   * @return The item indexes in Hilbert order.
+   */
+  public static int[] hilbertSort(final double[] bounds, final int itemCount) {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < itemCount; i++) {
+      minX = Math.min(minX, bounds[i * 4]);
+      minY = Math.min(minY, bounds[i * 4 + 1]);
+      maxX = Math.max(maxX, bounds[i * 4 + 2]);
+      maxY = Math.max(maxY, bounds[i * 4 + 3]);
+    }
+    final double width = maxX - minX;
+    final double height = maxY - minY;
+    final long[] keys = new long[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      int x = 0;
+      int y = 0;
+      if (width > 0) {
+        x = (int)Math
+          .floor(HILBERT_MAX * ((bounds[i * 4] + bounds[i * 4 + 2]) / 2 - minX) / width);
+      }
+      if (height > 0) {
+        y = (int)Math
+          .floor(HILBERT_MAX * ((bounds[i * 4 + 1] + bounds[i * 4 + 3]) / 2 - minY) / height);
+      }
+      // The 32 bit Hilbert value and 31 bit item index packed so the keys sort by both
+      keys[i] = hilbert(x, y) << 31 | i;
+    }
+    Arrays.sort(keys);
+    final int[] order = new int[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      order[i] = (int)(keys[i] & Integer.MAX_VALUE);
+    }
+    return order;
+  }
+
+  private static boolean intersects(final double[] node, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    return !(node[0] > maxX || node[2] < minX || node[1] > maxY || node[3] < minY);
+  }
+
+  private static void readNode(final DataReader in, final double[] node) {
+    node[0] = in.getDouble();
+    node[1] = in.getDouble();
+    node[2] = in.getDouble();
+    node[3] = in.getDouble();
+  }
+
+  /**
+   * Search the tree for the leaf nodes that intersect the bounding box. The reader must be
+   * positioned at or before the start of the index, use little endian byte order and is left
+   * positioned after the last node read.
+   *
+   * @param in The reader.
+   * @param indexOffset The position of the index in the file.
+   * @param itemCount The number of items (features) in the tree.
+   * @param nodeSize The node size from the header.
+   * @param boundingBox The bounding box.
+   * @return The offsets of the intersecting features, relative to the start of the features, in
+   * increasing order.
+   */
+  public static long[] search(final DataReader in, final long indexOffset, final long itemCount,
+    final int nodeSize, final BoundingBox boundingBox) {
+    final double minX = boundingBox.getMinX();
+    final double minY = boundingBox.getMinY();
+    final double maxX = boundingBox.getMaxX();
+    final double maxY = boundingBox.getMaxY();
+    final long[][] levelBounds = getLevelBounds(itemCount, nodeSize);
+    final double[] node = new double[4];
+    long[] nodeIndexes = {
+      0
+    };
+    int nodeIndexCount = 1;
+    for (int level = levelBounds.length - 1; level >= 0; level--) {
+      final long levelEnd = levelBounds[level][1];
+      long[] childIndexes = new long[16];
+      int childIndexCount = 0;
+      for (int i = 0; i < nodeIndexCount; i++) {
+        final long startIndex = nodeIndexes[i];
+        final long endIndex = Math.min(startIndex + nodeSize, levelEnd);
+        skipTo(in, indexOffset + startIndex * NODE_ITEM_SIZE);
+        for (long nodeIndex = startIndex; nodeIndex < endIndex; nodeIndex++) {
+          readNode(in, node);
+          final long offset = in.getLong();
+          if (intersects(node, minX, minY, maxX, maxY)) {
+            if (childIndexCount == childIndexes.length) {
+              childIndexes = Arrays.copyOf(childIndexes, childIndexCount * 2);
+            }
+            childIndexes[childIndexCount++] = offset;
+          }
+        }
+      }
+      nodeIndexes = childIndexes;
+      nodeIndexCount = childIndexCount;
+    }
+    return Arrays.copyOf(nodeIndexes, nodeIndexCount);
+  }
+
+  /**
+   * Move the reader forward to the position, skipping small gaps and seeking past large gaps if
+   * the reader is seekable (e.g. a new range request for a HTTP resource).
+   *
+   * @param in The reader.
+   * @param position The position.
+   */
+  public static void skipTo(final DataReader in, final long position) {
+    long skipCount = position - in.position();
+    if (skipCount < 0) {
+      in.seek(position);
+    } else if (skipCount > 65536 && in.isSeekable()) {
+      in.seek(position);
+    } else {
+      while (skipCount > 0) {
+        final int count = (int)Math.min(skipCount, Integer.MAX_VALUE);
+        in.skipBytes(count);
+        skipCount -= count;
+      }
+    }
+  }
+
+  /**
+   * Write the tree for the items. The bounds of the items must be in the sorted order.
+   *
+   * @param out The output.
+   * @param bounds The minX, minY, maxX, maxY of each item.
+   * @param offsets The offset of each item.
+   * @param itemCount The number of items.
+   * @param nodeSize The maximum number of children of a node.
+   * @throws IOException If the tree could not be written.
+   */
+  public static void write(final DataOutput out, final double[] bounds, final long[] offsets,
+    final int itemCount, final int nodeSize) throws IOException {
+    final long[][] levelBounds = getLevelBounds(itemCount, nodeSize);
+    final int nodeCount = (int)levelBounds[0][1];
+    final double[] nodeBounds = new double[nodeCount * 4];
+    final long[] nodeOffsets = new long[nodeCount];
+    final int leafStart = (int)levelBounds[0][0];
+    System.arraycopy(bounds, 0, nodeBounds, leafStart * 4, itemCount * 4);
+    System.arraycopy(offsets, 0, nodeOffsets, leafStart, itemCount);
+    for (int level = 0; level < levelBounds.length - 1; level++) {
+      final int childStart = (int)levelBounds[level][0];
+      final int childEnd = (int)levelBounds[level][1];
+      int parentIndex = (int)levelBounds[level + 1][0];
+      for (int childIndex = childStart; childIndex < childEnd; childIndex += nodeSize) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        final int endIndex = Math.min(childIndex + nodeSize, childEnd);
+        for (int i = childIndex; i < endIndex; i++) {
+          minX = Math.min(minX, nodeBounds[i * 4]);
+          minY = Math.min(minY, nodeBounds[i * 4 + 1]);
+          maxX = Math.max(maxX, nodeBounds[i * 4 + 2]);
+          maxY = Math.max(maxY, nodeBounds[i * 4 + 3]);
+        }
+        nodeBounds[parentIndex * 4] = minX;
+        nodeBounds[parentIndex * 4 + 1] = minY;
+        nodeBounds[parentIndex * 4 + 2] = maxX;
+        nodeBounds[parentIndex * 4 + 3] = maxY;
+        nodeOffsets[parentIndex] = childIndex;
+        parentIndex++;
+      }
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      for (int j = 0; j < 4; j++) {
+        out.writeLong(Long.reverseBytes(Double.doubleToLongBits(nodeBounds[i * 4 + j])));
+      }
+      out.writeLong(Long.reverseBytes(nodeOffsets[i]));
+    }
+  }
+}
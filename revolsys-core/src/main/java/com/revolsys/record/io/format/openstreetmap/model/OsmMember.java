@@ -7,6 +7,15 @@ public class OsmMember {
 
   private String type;
 
+  public OsmMember() {
+  }
+
+  public OsmMember(final String type, final long ref, final String role) {
+    this.type = type;
+    this.ref = ref;
+    this.role = role;
+  }
+
   public long getRef() {
     return this.ref;
   }
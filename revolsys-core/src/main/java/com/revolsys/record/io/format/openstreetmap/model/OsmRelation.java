@@ -1,5 +1,10 @@
 package com.revolsys.record.io.format.openstreetmap.model;
 
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
 import javax.xml.namespace.QName;
 
 import org.jeometry.common.data.identifier.Identifier;
@@ -8,9 +13,18 @@ import com.revolsys.record.io.format.xml.stax.StaxReader;
 
 public class OsmRelation extends OsmElement {
 
+  private List<OsmMember> members = Collections.emptyList();
+
   public OsmRelation() {
   }
 
+  public OsmRelation(final long id, final boolean visible, final int version,
+    final long changeset, final Date timestamp, final String user, final int uid,
+    final Map<String, String> tags, final List<OsmMember> members) {
+    super(id, visible, version, changeset, timestamp, user, uid, tags);
+    this.members = members;
+  }
+
   public OsmRelation(final OsmElement element) {
     super(element);
   }
@@ -33,4 +47,8 @@ public class OsmRelation extends OsmElement {
     return new OsmRelationIdentifier(id);
   }
 
+  public List<OsmMember> getMembers() {
+    return this.members;
+  }
+
 }
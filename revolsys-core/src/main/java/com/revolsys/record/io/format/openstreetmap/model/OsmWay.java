@@ -58,7 +58,7 @@ public class OsmWay extends OsmElement {
   }
 
   public boolean isArea() {
-    if ("yes".equals(getString("area"))) {
+    if ("yes".equals(getTag("area"))) {
       return true;
     } else if (Arrays
       .asList("bare_rock", "fell", "glacier, landuse=grass", "grassland", "heath", "mud", "scree",
@@ -80,20 +80,28 @@ public class OsmWay extends OsmElement {
   }
 
   protected void setGeometry(final List<Point> points) {
-    Geometry geometry;
     if (points.isEmpty()) {
-      geometry = OsmConstants.WGS84_2D.point();
+      setGeometryValue(OsmConstants.WGS84_2D.point());
     } else if (points.size() == 1) {
-      geometry = points.get(0);
+      setGeometryValue(points.get(0));
     } else {
       final LineString line = OsmConstants.WGS84_2D.lineString(points);
-      if (isArea() && line.isClosed()) {
-        geometry = OsmConstants.WGS84_2D.polygon(line);
-      } else {
-        geometry = line;
-      }
+      setGeometry(line);
+    }
+  }
+
+  /**
+   * Set the geometry from the line of the way's nodes. If the way is an area and the line is
+   * closed the geometry is a polygon.
+   *
+   * @param line The line.
+   */
+  public void setGeometry(final LineString line) {
+    if (isArea() && line.isClosed()) {
+      setGeometryValue(OsmConstants.WGS84_2D.polygon(line));
+    } else {
+      setGeometryValue(line);
     }
-    setGeometryValue(geometry);
   }
 
 }
@@ -0,0 +1,196 @@
+package com.revolsys.record.io.format.openstreetmap.pbf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+
+/**
+ * An index from node id to the location of the node stored outside of the Java heap in memory
+ * mapped segments of a temporary file. Each entry is the node id and the longitude and latitude
+ * as integers in units of 1e-7 degrees (16 bytes per node).
+ *
+ * <p>The nodes must be added in increasing id order, as they are in a sorted OpenStreetMap PBF
+ * file. The id of every {@link #SAMPLE_INTERVAL}th entry is kept on the heap so a lookup is a
+ * binary search of the samples followed by a binary search within a single block of entries.</p>
+ */
+public class OsmNodeLocationIndex implements BaseCloseable {
+
+  private static final int ENTRY_SIZE = 16;
+
+  public static final double FIXED_SCALE = 1e-7;
+
+  private static final int SAMPLE_INTERVAL = 4096;
+
+  private static final int SEGMENT_ENTRY_BITS = 22;
+
+  private static final int SEGMENT_ENTRY_COUNT = 1 << SEGMENT_ENTRY_BITS;
+
+  private static final long SEGMENT_SIZE = (long)SEGMENT_ENTRY_COUNT * ENTRY_SIZE;
+
+  public static int toFixed(final double degrees) {
+    return (int)Math.round(degrees / FIXED_SCALE);
+  }
+
+  private FileChannel channel;
+
+  private long count;
+
+  private final File file;
+
+  private long lastId = Long.MIN_VALUE;
+
+  private long[] sampleIds = new long[1024];
+
+  private List<MappedByteBuffer> segments = new ArrayList<>();
+
+  public OsmNodeLocationIndex() {
+    this(FileUtil.newTempFile("osmNodes", ".idx"));
+  }
+
+  public OsmNodeLocationIndex(final File file) {
+    this.file = file;
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to create node index: " + file, e);
+    }
+  }
+
+  /**
+   * Add the location of a node.
+   *
+   * @param id The node id, which must be greater than the id of the previous node.
+   * @param x The longitude in units of 1e-7 degrees.
+   * @param y The latitude in units of 1e-7 degrees.
+   */
+  public void add(final long id, final int x, final int y) {
+    if (id <= this.lastId) {
+      throw new IllegalArgumentException(
+        "Node ids must be sorted: " + id + " after " + this.lastId);
+    }
+    final long index = this.count;
+    final int segmentIndex = (int)(index >>> SEGMENT_ENTRY_BITS);
+    if (segmentIndex == this.segments.size()) {
+      try {
+        final long position = segmentIndex * SEGMENT_SIZE;
+        this.segments.add(this.channel.map(MapMode.READ_WRITE, position, SEGMENT_SIZE));
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to extend node index: " + this.file, e);
+      }
+    }
+    if (index % SAMPLE_INTERVAL == 0) {
+      final int sampleIndex = (int)(index / SAMPLE_INTERVAL);
+      if (sampleIndex == this.sampleIds.length) {
+        this.sampleIds = Arrays.copyOf(this.sampleIds, sampleIndex * 2);
+      }
+      this.sampleIds[sampleIndex] = id;
+    }
+    final MappedByteBuffer segment = this.segments.get(segmentIndex);
+    final int offset = (int)(index & SEGMENT_ENTRY_COUNT - 1) * ENTRY_SIZE;
+    segment.putLong(offset, id);
+    segment.putInt(offset + 8, x);
+    segment.putInt(offset + 12, y);
+    this.lastId = id;
+    this.count++;
+  }
+
+  @Override
+  public void close() {
+    final FileChannel channel = this.channel;
+    this.channel = null;
+    this.segments = null;
+    this.sampleIds = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (final IOException e) {
+      }
+      if (!this.file.delete()) {
+        // The file can't be deleted on some platforms until the mapped segments are collected
+        this.file.deleteOnExit();
+      }
+    }
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  private long getId(final long index) {
+    final MappedByteBuffer segment = this.segments.get((int)(index >>> SEGMENT_ENTRY_BITS));
+    return segment.getLong((int)(index & SEGMENT_ENTRY_COUNT - 1) * ENTRY_SIZE);
+  }
+
+  private int getInt(final long index, final int fieldOffset) {
+    final MappedByteBuffer segment = this.segments.get((int)(index >>> SEGMENT_ENTRY_BITS));
+    return segment.getInt((int)(index & SEGMENT_ENTRY_COUNT - 1) * ENTRY_SIZE + fieldOffset);
+  }
+
+  /**
+   * Get the longitude of the node at the index.
+   *
+   * @param index The index returned from {@link #indexOf(long)}.
+   * @return The longitude.
+   */
+  public double getX(final long index) {
+    return getInt(index, 8) * FIXED_SCALE;
+  }
+
+  /**
+   * Get the latitude of the node at the index.
+   *
+   * @param index The index returned from {@link #indexOf(long)}.
+   * @return The latitude.
+   */
+  public double getY(final long index) {
+    return getInt(index, 12) * FIXED_SCALE;
+  }
+
+  /**
+   * Get the index of the entry for the node.
+   *
+   * @param id The node id.
+   * @return The index or -1 if the node isn't in the index.
+   */
+  public long indexOf(final long id) {
+    final long count = this.count;
+    if (count == 0 || id > this.lastId) {
+      return -1;
+    }
+    final int sampleCount = (int)((count - 1) / SAMPLE_INTERVAL) + 1;
+    int sampleIndex = Arrays.binarySearch(this.sampleIds, 0, sampleCount, id);
+    if (sampleIndex >= 0) {
+      return (long)sampleIndex * SAMPLE_INTERVAL;
+    }
+    sampleIndex = -sampleIndex - 2;
+    if (sampleIndex < 0) {
+      return -1;
+    }
+    long low = (long)sampleIndex * SAMPLE_INTERVAL + 1;
+    long high = Math.min(low + SAMPLE_INTERVAL - 2, count - 1);
+    while (low <= high) {
+      final long middle = low + high >>> 1;
+      final long middleId = getId(middle);
+      if (middleId < id) {
+        low = middle + 1;
+      } else if (middleId > id) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+}
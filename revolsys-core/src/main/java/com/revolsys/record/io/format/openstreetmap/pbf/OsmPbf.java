@@ -0,0 +1,29 @@
+package com.revolsys.record.io.format.openstreetmap.pbf;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.io.AbstractIoFactory;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderFactory;
+import com.revolsys.spring.resource.Resource;
+
+public class OsmPbf extends AbstractIoFactory implements RecordReaderFactory {
+  public OsmPbf() {
+    super("OpenStreetMap PBF");
+    addMediaTypeAndFileExtension("application/x-protobuf", "pbf");
+  }
+
+  @Override
+  public boolean isBinary() {
+    return true;
+  }
+
+  @Override
+  public RecordReader newRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory, final MapEx properties) {
+    final OsmPbfRecordReader reader = new OsmPbfRecordReader(resource);
+    reader.setProperties(properties);
+    return reader;
+  }
+}
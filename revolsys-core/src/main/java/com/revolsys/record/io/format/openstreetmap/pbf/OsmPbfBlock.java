@@ -0,0 +1,508 @@
+package com.revolsys.record.io.format.openstreetmap.pbf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.revolsys.record.io.format.openstreetmap.model.OsmElement;
+import com.revolsys.record.io.format.openstreetmap.model.OsmMember;
+import com.revolsys.record.io.format.openstreetmap.model.OsmNode;
+import com.revolsys.record.io.format.openstreetmap.model.OsmRelation;
+import com.revolsys.record.io.format.openstreetmap.model.OsmWay;
+
+/**
+ * A decoded OpenStreetMap PBF PrimitiveBlock. The id and location of every node are kept in
+ * primitive arrays so they can be added to the {@link OsmNodeLocationIndex}; only tagged nodes,
+ * ways and relations are converted to {@link OsmElement}s. The geometry of the ways is created
+ * later from the node index using the {@link #getWayNodeIds(int)}.
+ */
+class OsmPbfBlock {
+  private static final String[] MEMBER_TYPES = {
+    "node", "way", "relation"
+  };
+
+  private int dateGranularity = 1000;
+
+  private final List<OsmElement> elements = new ArrayList<>();
+
+  private int granularity = 100;
+
+  private long latOffset;
+
+  private long lonOffset;
+
+  private int nodeCount;
+
+  private long[] nodeIds = new long[0];
+
+  private int[] nodeXs = new int[0];
+
+  private int[] nodeYs = new int[0];
+
+  private final boolean readNodes;
+
+  private final boolean readRelations;
+
+  private final boolean readWays;
+
+  private String[] strings = new String[0];
+
+  private final List<long[]> wayNodeIds = new ArrayList<>();
+
+  OsmPbfBlock(final byte[] bytes, final boolean readNodes, final boolean readWays,
+    final boolean readRelations) {
+    this.readNodes = readNodes;
+    this.readWays = readWays;
+    this.readRelations = readRelations;
+    final List<ProtocolBufferReader> groups = new ArrayList<>();
+    final ProtocolBufferReader in = new ProtocolBufferReader(bytes);
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          readStringTable(in.readMessage());
+        break;
+        case 2:
+          groups.add(in.readMessage());
+        break;
+        case 17:
+          this.granularity = in.readInt32();
+        break;
+        case 18:
+          this.dateGranularity = in.readInt32();
+        break;
+        case 19:
+          this.latOffset = in.readVarint();
+        break;
+        case 20:
+          this.lonOffset = in.readVarint();
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+    // The groups are read after the granularity and offsets which may follow them
+    for (final ProtocolBufferReader group : groups) {
+      readPrimitiveGroup(group);
+    }
+  }
+
+  private void addNode(final long id, final long lat, final long lon) {
+    final int index = this.nodeCount;
+    if (index == this.nodeIds.length) {
+      final int capacity = Math.max(8000, index * 2);
+      this.nodeIds = Arrays.copyOf(this.nodeIds, capacity);
+      this.nodeXs = Arrays.copyOf(this.nodeXs, capacity);
+      this.nodeYs = Arrays.copyOf(this.nodeYs, capacity);
+    }
+    this.nodeIds[index] = id;
+    this.nodeXs[index] = toFixed(this.lonOffset + this.granularity * lon);
+    this.nodeYs[index] = toFixed(this.latOffset + this.granularity * lat);
+    this.nodeCount++;
+  }
+
+  private void addTaggedNode(final long id, final long lat, final long lon, final boolean visible,
+    final int version, final long changeset, final Date timestamp, final String user,
+    final int uid, final Map<String, String> tags) {
+    final double x = toDegrees(this.lonOffset + this.granularity * lon);
+    final double y = toDegrees(this.latOffset + this.granularity * lat);
+    this.elements
+      .add(new OsmNode(id, visible, version, changeset, timestamp, user, uid, tags, x, y));
+    this.wayNodeIds.add(null);
+  }
+
+  public List<OsmElement> getElements() {
+    return this.elements;
+  }
+
+  public int getNodeCount() {
+    return this.nodeCount;
+  }
+
+  public long getNodeId(final int index) {
+    return this.nodeIds[index];
+  }
+
+  public int getNodeX(final int index) {
+    return this.nodeXs[index];
+  }
+
+  public int getNodeY(final int index) {
+    return this.nodeYs[index];
+  }
+
+  private String getString(final int index) {
+    if (index >= 0 && index < this.strings.length) {
+      return this.strings[index];
+    } else {
+      throw new IllegalArgumentException("String index " + index + " not in string table");
+    }
+  }
+
+  /**
+   * Get the ids of the nodes of the way at the index in {@link #getElements()}.
+   *
+   * @param index The element index.
+   * @return The node ids or null if the element isn't a way.
+   */
+  public long[] getWayNodeIds(final int index) {
+    return this.wayNodeIds.get(index);
+  }
+
+  private Map<String, String> newTags(final int[] keys, final int[] values) {
+    if (keys.length != values.length) {
+      throw new IllegalArgumentException("Tag key and value counts differ");
+    } else if (keys.length == 0) {
+      return Collections.emptyMap();
+    } else {
+      final Map<String, String> tags = new HashMap<>();
+      for (int i = 0; i < keys.length; i++) {
+        tags.put(getString(keys[i]), getString(values[i]));
+      }
+      return tags;
+    }
+  }
+
+  private void readDenseInfo(final ProtocolBufferReader in, final int[] versions,
+    final long[] timestamps, final long[] changesets, final int[] uids, final int[] userSids,
+    final boolean[] visibles) {
+    final int count = versions.length;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1: {
+          final int[] values = in.readPackedInt32();
+          System.arraycopy(values, 0, versions, 0, Math.min(count, values.length));
+        }
+        break;
+        case 2: {
+          final long[] values = in.readPackedDeltaSInt64();
+          System.arraycopy(values, 0, timestamps, 0, Math.min(count, values.length));
+        }
+        break;
+        case 3: {
+          final long[] values = in.readPackedDeltaSInt64();
+          System.arraycopy(values, 0, changesets, 0, Math.min(count, values.length));
+        }
+        break;
+        case 4: {
+          final long[] values = in.readPackedDeltaSInt64();
+          for (int i = 0; i < Math.min(count, values.length); i++) {
+            uids[i] = (int)values[i];
+          }
+        }
+        break;
+        case 5: {
+          final long[] values = in.readPackedDeltaSInt64();
+          for (int i = 0; i < Math.min(count, values.length); i++) {
+            userSids[i] = (int)values[i];
+          }
+        }
+        break;
+        case 6: {
+          final int[] values = in.readPackedInt32();
+          for (int i = 0; i < Math.min(count, values.length); i++) {
+            visibles[i] = values[i] != 0;
+          }
+        }
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+  }
+
+  private void readDenseNodes(final ProtocolBufferReader in) {
+    long[] ids = new long[0];
+    long[] lats = ids;
+    long[] lons = ids;
+    int[] keysVals = new int[0];
+    ProtocolBufferReader denseInfo = null;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          ids = in.readPackedDeltaSInt64();
+        break;
+        case 5:
+          denseInfo = in.readMessage();
+        break;
+        case 8:
+          lats = in.readPackedDeltaSInt64();
+        break;
+        case 9:
+          lons = in.readPackedDeltaSInt64();
+        break;
+        case 10:
+          keysVals = in.readPackedInt32();
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+    final int count = ids.length;
+    if (lats.length != count || lons.length != count) {
+      throw new IllegalArgumentException("DenseNodes id, lat and lon counts differ");
+    }
+    for (int i = 0; i < count; i++) {
+      addNode(ids[i], lats[i], lons[i]);
+    }
+    if (this.readNodes && keysVals.length > 0) {
+      final int[] versions = new int[count];
+      final long[] timestamps = new long[count];
+      final long[] changesets = new long[count];
+      final int[] uids = new int[count];
+      final int[] userSids = new int[count];
+      final boolean[] visibles = new boolean[count];
+      Arrays.fill(versions, -1);
+      Arrays.fill(changesets, -1);
+      Arrays.fill(uids, -1);
+      Arrays.fill(visibles, true);
+      if (denseInfo != null) {
+        readDenseInfo(denseInfo, versions, timestamps, changesets, uids, userSids, visibles);
+      }
+      int keyIndex = 0;
+      for (int i = 0; i < count && keyIndex < keysVals.length; i++) {
+        Map<String, String> tags = Collections.emptyMap();
+        while (keyIndex < keysVals.length && keysVals[keyIndex] != 0) {
+          if (tags.isEmpty()) {
+            tags = new HashMap<>();
+          }
+          final String key = getString(keysVals[keyIndex++]);
+          final String value = getString(keysVals[keyIndex++]);
+          tags.put(key, value);
+        }
+        keyIndex++;
+        if (!tags.isEmpty()) {
+          final Date timestamp = new Date(timestamps[i] * this.dateGranularity);
+          final String user = getString(userSids[i]);
+          addTaggedNode(ids[i], lats[i], lons[i], visibles[i], versions[i], changesets[i],
+            timestamp, user, uids[i], tags);
+        }
+      }
+    }
+  }
+
+  private OsmElement readInfo(final ProtocolBufferReader in, final OsmElement element) {
+    if (in != null) {
+      for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+        switch (ProtocolBufferReader.getFieldNumber(tag)) {
+          case 1:
+            element.setVersion(in.readInt32());
+          break;
+          case 2:
+            element.setTimestamp(in.readVarint() * this.dateGranularity);
+          break;
+          case 3:
+            element.setChangeset(in.readVarint());
+          break;
+          case 4:
+            element.setUid(in.readInt32());
+          break;
+          case 5:
+            element.setUser(getString(in.readInt32()));
+          break;
+          case 6:
+            element.setVisible(in.readBool());
+          break;
+          default:
+            in.skipField(tag);
+          break;
+        }
+      }
+    }
+    return element;
+  }
+
+  private void readNode(final ProtocolBufferReader in) {
+    long id = 0;
+    long lat = 0;
+    long lon = 0;
+    int[] keys = new int[0];
+    int[] values = keys;
+    ProtocolBufferReader info = null;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          id = in.readSInt64();
+        break;
+        case 2:
+          keys = in.readPackedInt32();
+        break;
+        case 3:
+          values = in.readPackedInt32();
+        break;
+        case 4:
+          info = in.readMessage();
+        break;
+        case 8:
+          lat = in.readSInt64();
+        break;
+        case 9:
+          lon = in.readSInt64();
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+    addNode(id, lat, lon);
+    if (this.readNodes && keys.length > 0) {
+      final Map<String, String> tags = newTags(keys, values);
+      final int index = this.elements.size();
+      addTaggedNode(id, lat, lon, true, -1, -1, new Date(0), "", -1, tags);
+      readInfo(info, this.elements.get(index));
+    }
+  }
+
+  private void readPrimitiveGroup(final ProtocolBufferReader in) {
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          if (this.readNodes || this.readWays) {
+            readNode(in.readMessage());
+          } else {
+            in.skipField(tag);
+          }
+        break;
+        case 2:
+          if (this.readNodes || this.readWays) {
+            readDenseNodes(in.readMessage());
+          } else {
+            in.skipField(tag);
+          }
+        break;
+        case 3:
+          if (this.readWays) {
+            readWay(in.readMessage());
+          } else {
+            in.skipField(tag);
+          }
+        break;
+        case 4:
+          if (this.readRelations) {
+            readRelation(in.readMessage());
+          } else {
+            in.skipField(tag);
+          }
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+  }
+
+  private void readRelation(final ProtocolBufferReader in) {
+    long id = 0;
+    int[] keys = new int[0];
+    int[] values = keys;
+    int[] roles = keys;
+    long[] memberIds = new long[0];
+    int[] types = keys;
+    ProtocolBufferReader info = null;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          id = in.readVarint();
+        break;
+        case 2:
+          keys = in.readPackedInt32();
+        break;
+        case 3:
+          values = in.readPackedInt32();
+        break;
+        case 4:
+          info = in.readMessage();
+        break;
+        case 8:
+          roles = in.readPackedInt32();
+        break;
+        case 9:
+          memberIds = in.readPackedDeltaSInt64();
+        break;
+        case 10:
+          types = in.readPackedInt32();
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+    final int memberCount = memberIds.length;
+    if (roles.length != memberCount || types.length != memberCount) {
+      throw new IllegalArgumentException("Relation " + id + " member counts differ");
+    }
+    final List<OsmMember> members = new ArrayList<>(memberCount);
+    for (int i = 0; i < memberCount; i++) {
+      final int type = types[i];
+      if (type < 0 || type >= MEMBER_TYPES.length) {
+        throw new IllegalArgumentException("Relation " + id + " has invalid member type " + type);
+      }
+      members.add(new OsmMember(MEMBER_TYPES[type], memberIds[i], getString(roles[i])));
+    }
+    final Map<String, String> tags = newTags(keys, values);
+    final OsmRelation relation = new OsmRelation(id, true, -1, -1, new Date(0), "", -1, tags,
+      members);
+    this.elements.add(readInfo(info, relation));
+    this.wayNodeIds.add(null);
+  }
+
+  private void readStringTable(final ProtocolBufferReader in) {
+    final List<String> strings = new ArrayList<>();
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (ProtocolBufferReader.getFieldNumber(tag) == 1) {
+        strings.add(in.readString());
+      } else {
+        in.skipField(tag);
+      }
+    }
+    this.strings = strings.toArray(new String[strings.size()]);
+  }
+
+  private void readWay(final ProtocolBufferReader in) {
+    long id = 0;
+    int[] keys = new int[0];
+    int[] values = keys;
+    long[] refs = new long[0];
+    ProtocolBufferReader info = null;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (ProtocolBufferReader.getFieldNumber(tag)) {
+        case 1:
+          id = in.readVarint();
+        break;
+        case 2:
+          keys = in.readPackedInt32();
+        break;
+        case 3:
+          values = in.readPackedInt32();
+        break;
+        case 4:
+          info = in.readMessage();
+        break;
+        case 8:
+          refs = in.readPackedDeltaSInt64();
+        break;
+        default:
+          in.skipField(tag);
+        break;
+      }
+    }
+    final Map<String, String> tags = newTags(keys, values);
+    final OsmWay way = new OsmWay(id, true, -1, -1, new Date(0), "", -1, tags, null);
+    this.elements.add(readInfo(info, way));
+    this.wayNodeIds.add(refs);
+  }
+
+  private double toDegrees(final long nanoDegrees) {
+    return nanoDegrees * 1e-9;
+  }
+
+  private int toFixed(final long nanoDegrees) {
+    return (int)Math.round(nanoDegrees / 100.0);
+  }
+}
@@ -0,0 +1,399 @@
+package com.revolsys.record.io.format.openstreetmap.pbf;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.format.openstreetmap.model.OsmConstants;
+import com.revolsys.record.io.format.openstreetmap.model.OsmElement;
+import com.revolsys.record.io.format.openstreetmap.model.OsmWay;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Read the nodes, ways and relations from an OpenStreetMap PBF file as {@link OsmElement}
+ * records.
+ *
+ * <p>The blobs are read sequentially and decompressed and decoded by tasks on a
+ * {@link ForkJoinPool} with a bounded number of blocks pending so the memory used doesn't depend
+ * on the size of the file. The records are returned in the order of the file.</p>
+ *
+ * <p>Only tagged nodes are returned as records. The location of every node is added to an
+ * {@link OsmNodeLocationIndex} stored outside of the Java heap and used to create the
+ * {@link LineString} or polygon geometry of the ways. This requires the nodes to be sorted by id
+ * and before the ways, as they are in files with the Sort.Type_then_ID feature. Relations are
+ * returned with their tags and members but without a geometry.</p>
+ */
+public class OsmPbfRecordReader extends AbstractIterator<Record> implements RecordReader {
+
+  private static class Blob {
+    private final byte[] data;
+
+    private final String type;
+
+    private Blob(final String type, final byte[] data) {
+      this.type = type;
+      this.data = data;
+    }
+  }
+
+  private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+
+  private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+  private static final List<String> SUPPORTED_FEATURES = Arrays.asList("OsmSchema-V0.6",
+    "DenseNodes");
+
+  private OsmPbfBlock block;
+
+  private double[] coordinates = new double[1024];
+
+  private int elementIndex;
+
+  private DataInputStream in;
+
+  private int maxPendingBlockCount;
+
+  private OsmNodeLocationIndex nodeIndex;
+
+  private ForkJoinPool pool;
+
+  private boolean readNodes = true;
+
+  private boolean readRelations = true;
+
+  private boolean readWays = true;
+
+  private final Resource resource;
+
+  private final Deque<ForkJoinTask<OsmPbfBlock>> tasks = new ArrayDeque<>();
+
+  public OsmPbfRecordReader(final Resource resource) {
+    this.resource = resource;
+    setPool(ForkJoinPool.commonPool());
+  }
+
+  private void addNodes(final OsmPbfBlock block) {
+    final OsmNodeLocationIndex nodeIndex = this.nodeIndex;
+    if (nodeIndex != null) {
+      final int nodeCount = block.getNodeCount();
+      for (int i = 0; i < nodeCount; i++) {
+        nodeIndex.add(block.getNodeId(i), block.getNodeX(i), block.getNodeY(i));
+      }
+    }
+  }
+
+  @Override
+  protected void closeDo() {
+    for (final ForkJoinTask<?> task : this.tasks) {
+      task.cancel(false);
+    }
+    this.tasks.clear();
+    this.block = null;
+    final DataInputStream in = this.in;
+    this.in = null;
+    if (in != null) {
+      try {
+        in.close();
+      } catch (final IOException e) {
+      }
+    }
+    final OsmNodeLocationIndex nodeIndex = this.nodeIndex;
+    this.nodeIndex = null;
+    if (nodeIndex != null) {
+      nodeIndex.close();
+    }
+  }
+
+  private byte[] decompress(final byte[] blob) {
+    final ProtocolBufferReader in = new ProtocolBufferReader(blob);
+    int rawSize = -1;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      final int fieldNumber = ProtocolBufferReader.getFieldNumber(tag);
+      switch (fieldNumber) {
+        case 1:
+          return in.readBytes();
+        case 2:
+          rawSize = in.readInt32();
+        break;
+        case 3:
+          if (rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IllegalArgumentException("Invalid raw size " + rawSize);
+          }
+          return inflate(in.readBytes(), rawSize);
+        default:
+          if (fieldNumber > 3 && fieldNumber < 8) {
+            throw new IllegalArgumentException(
+              "Unsupported compression " + fieldNumber + " in: " + this.resource);
+          } else {
+            in.skipField(tag);
+          }
+        break;
+      }
+    }
+    throw new IllegalArgumentException("Blob has no data in: " + this.resource);
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return OsmConstants.WGS84_2D;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    while (true) {
+      final OsmPbfBlock block = this.block;
+      if (block != null) {
+        final List<OsmElement> elements = block.getElements();
+        if (this.elementIndex < elements.size()) {
+          final int index = this.elementIndex++;
+          final OsmElement element = elements.get(index);
+          if (element instanceof OsmWay) {
+            setWayGeometry((OsmWay)element, block.getWayNodeIds(index));
+          }
+          return element;
+        }
+      }
+      this.block = null;
+      final OsmPbfBlock nextBlock = nextBlock();
+      if (nextBlock == null) {
+        throw new NoSuchElementException();
+      }
+      addNodes(nextBlock);
+      this.block = nextBlock;
+      this.elementIndex = 0;
+    }
+  }
+
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    return OsmElement.RECORD_DEFINITION;
+  }
+
+  private byte[] inflate(final byte[] bytes, final int rawSize) {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes);
+      final byte[] data = new byte[rawSize];
+      int offset = 0;
+      while (offset < rawSize && !inflater.finished()) {
+        final int count = inflater.inflate(data, offset, rawSize - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += count;
+      }
+      if (offset != rawSize) {
+        throw new IllegalArgumentException("Blob size " + offset + " != " + rawSize);
+      }
+      return data;
+    } catch (final DataFormatException e) {
+      throw Exceptions.wrap("Error decompressing: " + this.resource, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  @Override
+  protected void initDo() {
+    super.initDo();
+    this.in = new DataInputStream(this.resource.newBufferedInputStream());
+    final Blob header = readBlob();
+    if (header == null || !"OSMHeader".equals(header.type)) {
+      throw new IllegalArgumentException("Expecting OSMHeader: " + this.resource);
+    }
+    readHeader(decompress(header.data));
+    if (this.readWays) {
+      this.nodeIndex = new OsmNodeLocationIndex();
+    }
+  }
+
+  public boolean isReadNodes() {
+    return this.readNodes;
+  }
+
+  public boolean isReadRelations() {
+    return this.readRelations;
+  }
+
+  public boolean isReadWays() {
+    return this.readWays;
+  }
+
+  private OsmPbfBlock newBlock(final byte[] blob) {
+    final byte[] data = decompress(blob);
+    try {
+      return new OsmPbfBlock(data, this.readNodes, this.readWays, this.readRelations);
+    } catch (final RuntimeException e) {
+      throw Exceptions.wrap("Error reading block: " + this.resource, e);
+    }
+  }
+
+  /**
+   * Get the next decoded block, submitting tasks to decode the following blocks so there are up
+   * to maxPendingBlockCount blocks being decoded.
+   *
+   * @return The block or null if there are no more blocks.
+   */
+  private OsmPbfBlock nextBlock() {
+    final Deque<ForkJoinTask<OsmPbfBlock>> tasks = this.tasks;
+    while (tasks.size() < this.maxPendingBlockCount) {
+      final Blob blob = readBlob();
+      if (blob == null) {
+        break;
+      } else if ("OSMData".equals(blob.type)) {
+        final byte[] data = blob.data;
+        tasks.addLast(this.pool.submit(() -> newBlock(data)));
+      }
+    }
+    if (tasks.isEmpty()) {
+      return null;
+    } else {
+      return tasks.removeFirst().join();
+    }
+  }
+
+  /**
+   * Read the next BlobHeader and Blob.
+   *
+   * @return The blob or null at the end of the file.
+   */
+  private Blob readBlob() {
+    final DataInputStream in = this.in;
+    if (in == null) {
+      return null;
+    }
+    try {
+      final int headerSize;
+      try {
+        headerSize = in.readInt();
+      } catch (final EOFException e) {
+        return null;
+      }
+      if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+        throw new IllegalArgumentException("Invalid blob header size " + headerSize);
+      }
+      final byte[] headerBytes = new byte[headerSize];
+      in.readFully(headerBytes);
+      final ProtocolBufferReader header = new ProtocolBufferReader(headerBytes);
+      String type = null;
+      int dataSize = -1;
+      for (int tag = header.readTag(); tag != 0; tag = header.readTag()) {
+        switch (ProtocolBufferReader.getFieldNumber(tag)) {
+          case 1:
+            type = header.readString();
+          break;
+          case 3:
+            dataSize = header.readInt32();
+          break;
+          default:
+            header.skipField(tag);
+          break;
+        }
+      }
+      if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+        throw new IllegalArgumentException("Invalid blob header type=" + type + ", size="
+          + dataSize);
+      }
+      final byte[] data = new byte[dataSize];
+      in.readFully(data);
+      return new Blob(type, data);
+    } catch (final IOException | RuntimeException e) {
+      throw Exceptions.wrap("Error reading: " + this.resource, e);
+    }
+  }
+
+  private void readHeader(final byte[] bytes) {
+    final ProtocolBufferReader in = new ProtocolBufferReader(bytes);
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (ProtocolBufferReader.getFieldNumber(tag) == 4) {
+        final String feature = in.readString();
+        if (!SUPPORTED_FEATURES.contains(feature)) {
+          throw new IllegalArgumentException(
+            "Unsupported required feature " + feature + " in: " + this.resource);
+        }
+      } else {
+        in.skipField(tag);
+      }
+    }
+  }
+
+  private void setWayGeometry(final OsmWay way, final long[] nodeIds) {
+    final OsmNodeLocationIndex nodeIndex = this.nodeIndex;
+    double[] coordinates = this.coordinates;
+    if (coordinates.length < nodeIds.length * 2) {
+      coordinates = new double[nodeIds.length * 2];
+      this.coordinates = coordinates;
+    }
+    int vertexCount = 0;
+    for (final long nodeId : nodeIds) {
+      final long index = nodeIndex.indexOf(nodeId);
+      if (index >= 0) {
+        coordinates[vertexCount * 2] = nodeIndex.getX(index);
+        coordinates[vertexCount * 2 + 1] = nodeIndex.getY(index);
+        vertexCount++;
+      }
+    }
+    final GeometryFactory geometryFactory = OsmConstants.WGS84_2D;
+    if (vertexCount == 0) {
+      way.setGeometryValue(geometryFactory.point());
+    } else if (vertexCount == 1) {
+      way.setGeometryValue(geometryFactory.point(coordinates[0], coordinates[1]));
+    } else {
+      final LineString line = geometryFactory.lineString(2, vertexCount, coordinates);
+      way.setGeometry(line);
+    }
+  }
+
+  public void setPool(final ForkJoinPool pool) {
+    this.pool = pool;
+    this.maxPendingBlockCount = Math.max(2, pool.getParallelism() * 2);
+  }
+
+  /**
+   * Set if tagged nodes are returned as records.
+   *
+   * @param readNodes True to return the tagged nodes.
+   */
+  public void setReadNodes(final boolean readNodes) {
+    this.readNodes = readNodes;
+  }
+
+  public void setReadRelations(final boolean readRelations) {
+    this.readRelations = readRelations;
+  }
+
+  /**
+   * Set if the ways are returned as records. If false the node location index isn't created.
+   *
+   * @param readWays True to return the ways.
+   */
+  public void setReadWays(final boolean readWays) {
+    this.readWays = readWays;
+  }
+
+  @Override
+  public String toString() {
+    return this.resource.toString();
+  }
+}
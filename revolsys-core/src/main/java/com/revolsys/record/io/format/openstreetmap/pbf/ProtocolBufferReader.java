@@ -0,0 +1,200 @@
+package com.revolsys.record.io.format.openstreetmap.pbf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read the fields of a protocol buffer message from a byte array. Only the wire types used by the
+ * OpenStreetMap PBF format are supported. Length delimited fields (sub messages, strings, bytes
+ * and packed repeated fields) are returned as a new reader over the same array so they are not
+ * copied.
+ */
+public class ProtocolBufferReader {
+
+  public static final int WIRE_TYPE_FIXED_32 = 5;
+
+  public static final int WIRE_TYPE_FIXED_64 = 1;
+
+  public static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+  public static final int WIRE_TYPE_VARINT = 0;
+
+  public static int getFieldNumber(final int tag) {
+    return tag >>> 3;
+  }
+
+  public static int getWireType(final int tag) {
+    return tag & 0x7;
+  }
+
+  private final byte[] bytes;
+
+  private final int limit;
+
+  private int offset;
+
+  public ProtocolBufferReader(final byte[] bytes) {
+    this(bytes, 0, bytes.length);
+  }
+
+  public ProtocolBufferReader(final byte[] bytes, final int offset, final int length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.limit = offset + length;
+  }
+
+  /**
+   * Get the number of values in a packed repeated varint field. Each varint ends with a byte
+   * without the continuation bit set.
+   *
+   * @return The number of values.
+   */
+  public int getPackedVarintCount() {
+    final byte[] bytes = this.bytes;
+    int count = 0;
+    for (int i = this.offset; i < this.limit; i++) {
+      if (bytes[i] >= 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public boolean hasRemaining() {
+    return this.offset < this.limit;
+  }
+
+  public boolean readBool() {
+    return readVarint() != 0;
+  }
+
+  public byte[] readBytes() {
+    final int length = readLength();
+    final byte[] bytes = new byte[length];
+    System.arraycopy(this.bytes, this.offset, bytes, 0, length);
+    this.offset += length;
+    return bytes;
+  }
+
+  public int readInt32() {
+    return (int)readVarint();
+  }
+
+  private int readLength() {
+    final int length = readInt32();
+    if (length < 0 || length > this.limit - this.offset) {
+      throw new IllegalArgumentException("Invalid length " + length);
+    }
+    return length;
+  }
+
+  /**
+   * Read a length delimited field.
+   *
+   * @return The reader for the bytes of the field.
+   */
+  public ProtocolBufferReader readMessage() {
+    final int length = readLength();
+    final ProtocolBufferReader reader = new ProtocolBufferReader(this.bytes, this.offset, length);
+    this.offset += length;
+    return reader;
+  }
+
+  /**
+   * Read a packed repeated sint64 field where each value is the difference from the previous
+   * value.
+   *
+   * @return The values.
+   */
+  public long[] readPackedDeltaSInt64() {
+    final ProtocolBufferReader packed = readMessage();
+    final long[] values = new long[packed.getPackedVarintCount()];
+    long value = 0;
+    for (int i = 0; i < values.length; i++) {
+      value += packed.readSInt64();
+      values[i] = value;
+    }
+    return values;
+  }
+
+  public int[] readPackedInt32() {
+    final ProtocolBufferReader packed = readMessage();
+    final int[] values = new int[packed.getPackedVarintCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = packed.readInt32();
+    }
+    return values;
+  }
+
+  public int readSInt32() {
+    final int value = readInt32();
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public long readSInt64() {
+    final long value = readVarint();
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public String readString() {
+    final int length = readLength();
+    final String string = new String(this.bytes, this.offset, length, StandardCharsets.UTF_8);
+    this.offset += length;
+    return string;
+  }
+
+  /**
+   * Read the tag (field number and wire type) of the next field.
+   *
+   * @return The tag or 0 if there are no more fields.
+   */
+  public int readTag() {
+    if (this.offset < this.limit) {
+      return readInt32();
+    } else {
+      return 0;
+    }
+  }
+
+  public long readVarint() {
+    final byte[] bytes = this.bytes;
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (this.offset >= this.limit) {
+        throw new IllegalArgumentException("Unexpected end of message");
+      }
+      final byte b = bytes[this.offset++];
+      value |= (long)(b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Invalid varint");
+  }
+
+  public void skipField(final int tag) {
+    final int wireType = getWireType(tag);
+    switch (wireType) {
+      case WIRE_TYPE_VARINT:
+        readVarint();
+      break;
+      case WIRE_TYPE_FIXED_64:
+        skipBytes(8);
+      break;
+      case WIRE_TYPE_LENGTH_DELIMITED:
+        skipBytes(readLength());
+      break;
+      case WIRE_TYPE_FIXED_32:
+        skipBytes(4);
+      break;
+      default:
+        throw new IllegalArgumentException("Unsupported wire type " + wireType);
+    }
+  }
+
+  private void skipBytes(final int count) {
+    if (count > this.limit - this.offset) {
+      throw new IllegalArgumentException("Unexpected end of message");
+    }
+    this.offset += count;
+  }
+}
@@ -0,0 +1,653 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jeometry.common.compare.CompareUtil;
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.io.PathName;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.ClockDirection;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.channels.DataReader;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.format.json.Json;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.ColumnChunk;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.RowGroup;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.SchemaElement;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.Statistics;
+import com.revolsys.record.query.AbstractMultiCondition;
+import com.revolsys.record.query.And;
+import com.revolsys.record.query.Between;
+import com.revolsys.record.query.BinaryCondition;
+import com.revolsys.record.query.ColumnReference;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Equal;
+import com.revolsys.record.query.GreaterThan;
+import com.revolsys.record.query.GreaterThanEqual;
+import com.revolsys.record.query.LessThan;
+import com.revolsys.record.query.LessThanEqual;
+import com.revolsys.record.query.Or;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.query.Value;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Read the records from a GeoParquet (or plain Parquet) file. The file footer is read first and
+ * then one row group at a time is decoded.
+ *
+ * <p>If a {@link Query} is set, only the columns in the select list and the where condition are
+ * decoded, the other fields are null. The min and max statistics of each column chunk, and of the
+ * bbox covering columns for {@link EnvelopeIntersects}, are used to skip row groups that can't
+ * contain a matching record. The where condition itself must still be applied to the records
+ * returned.</p>
+ *
+ * <p>Only flat schemas are supported, repeated fields and nested groups other than the bbox
+ * covering are ignored. The UNCOMPRESSED, SNAPPY and GZIP codecs and the PLAIN and dictionary
+ * encodings are supported.</p>
+ */
+public class GeoParquetRecordReader extends AbstractIterator<Record> implements RecordReader {
+  private static final String[] COVERING_NAMES = {
+    "xmin", "ymin", "xmax", "ymax"
+  };
+
+  private static DataType getGeometryDataType(final List<?> geometryTypes) {
+    DataType dataType = null;
+    if (geometryTypes != null) {
+      for (final Object geometryType : geometryTypes) {
+        final String name = geometryType.toString().replaceAll(" .*", "");
+        DataType typeDataType;
+        switch (name) {
+          case "Point":
+            typeDataType = GeometryDataTypes.POINT;
+          break;
+          case "LineString":
+            typeDataType = GeometryDataTypes.LINE_STRING;
+          break;
+          case "Polygon":
+            typeDataType = GeometryDataTypes.POLYGON;
+          break;
+          case "MultiPoint":
+            typeDataType = GeometryDataTypes.MULTI_POINT;
+          break;
+          case "MultiLineString":
+            typeDataType = GeometryDataTypes.MULTI_LINE_STRING;
+          break;
+          case "MultiPolygon":
+            typeDataType = GeometryDataTypes.MULTI_POLYGON;
+          break;
+          default:
+            typeDataType = GeometryDataTypes.GEOMETRY;
+          break;
+        }
+        if (dataType == null) {
+          dataType = typeDataType;
+        } else if (dataType != typeDataType) {
+          return GeometryDataTypes.GEOMETRY;
+        }
+      }
+    }
+    if (dataType == null) {
+      return GeometryDataTypes.GEOMETRY;
+    } else {
+      return dataType;
+    }
+  }
+
+  private static GeometryFactory newGeometryFactory(final MapEx columnMetadata) {
+    int axisCount = 2;
+    final List<?> geometryTypes = columnMetadata.getValue("geometry_types");
+    if (geometryTypes != null) {
+      for (final Object geometryType : geometryTypes) {
+        final String name = geometryType.toString();
+        if (name.endsWith(" ZM")) {
+          axisCount = 4;
+        } else if (name.endsWith(" Z")) {
+          axisCount = Math.max(axisCount, 3);
+        }
+      }
+    }
+    // A missing crs is OGC:CRS84, a null crs is an unknown coordinate system
+    int coordinateSystemId = 4326;
+    if (columnMetadata.containsKey("crs")) {
+      coordinateSystemId = 0;
+      final Object crs = columnMetadata.getValue("crs");
+      if (crs instanceof MapEx) {
+        final Object id = ((MapEx)crs).getValue("id");
+        if (id instanceof MapEx) {
+          final MapEx crsId = (MapEx)id;
+          if ("EPSG".equalsIgnoreCase(crsId.getString("authority"))) {
+            coordinateSystemId = crsId.getInteger("code", 0);
+          }
+        }
+      }
+    }
+    if (coordinateSystemId > 0) {
+      return GeometryFactory.floating(coordinateSystemId, axisCount);
+    } else {
+      return GeometryFactory.DEFAULT_2D.convertAxisCount(axisCount);
+    }
+  }
+
+  private final Map<String, ParquetColumn> columnByName = new HashMap<>();
+
+  private final List<ParquetColumn> columns = new ArrayList<>();
+
+  private Object[][] columnValues;
+
+  private ParquetColumn[] coveringColumns;
+
+  private final Map<String, String> coveringPaths = new HashMap<>();
+
+  private GeometryFactory geometryFactory = GeometryFactory.DEFAULT_2D;
+
+  private final Map<String, MapEx> geometryColumns = new LinkedHashMap<>();
+
+  private DataReader in;
+
+  private ParquetFileMetaData metaData;
+
+  private ClockDirection polygonRingDirection = ClockDirection.NONE;
+
+  private String primaryColumn;
+
+  private Query query;
+
+  private ParquetColumn[] readColumns;
+
+  private int readRowGroupCount;
+
+  private RecordDefinition recordDefinition;
+
+  private RecordFactory<? extends Record> recordFactory;
+
+  private Resource resource;
+
+  private int rowCount;
+
+  private int rowGroupIndex;
+
+  private int rowIndex;
+
+  public GeoParquetRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory) {
+    this.resource = resource;
+    this.recordFactory = recordFactory;
+  }
+
+  private void addColumnNames(final Set<String> names, final QueryValue queryValue) {
+    if (queryValue instanceof ColumnReference) {
+      names.add(((ColumnReference)queryValue).getName());
+    } else if (queryValue != null) {
+      for (final QueryValue childValue : queryValue.getQueryValues()) {
+        addColumnNames(names, childValue);
+      }
+    }
+  }
+
+  private int addColumns(final RecordDefinitionImpl recordDefinition,
+    final List<SchemaElement> schema, int index, final int childCount, final String parentPath,
+    final int parentDefinitionLevel, final boolean parentRepeated) {
+    for (int i = 0; i < childCount && index < schema.size(); i++) {
+      final SchemaElement element = schema.get(index++);
+      final String name = element.getName();
+      String path;
+      if (parentPath == null) {
+        path = name;
+      } else {
+        path = parentPath + "." + name;
+      }
+      final int repetitionType = element.getRepetitionType();
+      int definitionLevel = parentDefinitionLevel;
+      if (repetitionType == ParquetConstants.REPETITION_OPTIONAL
+        || repetitionType == ParquetConstants.REPETITION_REPEATED) {
+        definitionLevel++;
+      }
+      final boolean repeated = parentRepeated
+        || repetitionType == ParquetConstants.REPETITION_REPEATED;
+      if (element.isGroup()) {
+        index = addColumns(recordDefinition, schema, index, element.getNumChildren(), path,
+          definitionLevel, repeated);
+      } else if (!repeated) {
+        if (parentPath == null) {
+          final MapEx geometryColumn = this.geometryColumns.get(name);
+          GeometryFactory geometryFactory = null;
+          if (geometryColumn != null) {
+            geometryFactory = newGeometryFactory(geometryColumn);
+          }
+          final int fieldIndex = recordDefinition.getFieldCount();
+          final ParquetColumn column = new ParquetColumn(path, element, definitionLevel,
+            fieldIndex, geometryFactory);
+          DataType dataType = column.getDataType();
+          if (geometryColumn != null) {
+            dataType = getGeometryDataType(geometryColumn.getValue("geometry_types"));
+            if (name.equals(this.primaryColumn)) {
+              this.geometryFactory = geometryFactory;
+            }
+          }
+          recordDefinition.addField(name, dataType,
+            repetitionType == ParquetConstants.REPETITION_REQUIRED);
+          this.columns.add(column);
+          this.columnByName.put(name, column);
+        } else {
+          final String coveringName = this.coveringPaths.get(path);
+          if (coveringName != null) {
+            final ParquetColumn column = new ParquetColumn(path, element, definitionLevel, -1,
+              null);
+            final int coveringIndex = Arrays.asList(COVERING_NAMES).indexOf(coveringName);
+            this.coveringColumns[coveringIndex] = column;
+          }
+        }
+      }
+    }
+    return index;
+  }
+
+  @Override
+  protected void closeDo() {
+    if (this.in != null) {
+      this.in.close();
+    }
+    this.in = null;
+    this.columnValues = null;
+    this.metaData = null;
+    this.recordFactory = null;
+    this.resource = null;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    while (this.rowIndex >= this.rowCount) {
+      if (!readNextRowGroup()) {
+        throw new NoSuchElementException();
+      }
+    }
+    final Record record = this.recordFactory.newRecord(this.recordDefinition);
+    final int rowIndex = this.rowIndex++;
+    for (int i = 0; i < this.readColumns.length; i++) {
+      final Object value = this.columnValues[i][rowIndex];
+      if (value != null) {
+        record.setValue(this.readColumns[i].getFieldIndex(), value);
+      }
+    }
+    return record;
+  }
+
+  @Override
+  public ClockDirection getPolygonRingDirection() {
+    return this.polygonRingDirection;
+  }
+
+  public Query getQuery() {
+    return this.query;
+  }
+
+  /**
+   * Get the number of row groups that have been decoded. Row groups skipped using the statistics
+   * are not included.
+   *
+   * @return The number of row groups.
+   */
+  public int getReadRowGroupCount() {
+    return this.readRowGroupCount;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    open();
+    return this.recordDefinition;
+  }
+
+  private Object[] getStatisticsValues(final RowGroup rowGroup, final ParquetColumn column) {
+    if (column != null) {
+      final ColumnChunk columnChunk = rowGroup.getColumn(column.getPath());
+      if (columnChunk != null) {
+        final Statistics statistics = columnChunk.getStatistics();
+        if (statistics != null) {
+          if (statistics.getNullCount() == rowGroup.getNumRows()) {
+            return new Object[0];
+          }
+          final Object min = column.getStatisticsValue(statistics, false);
+          final Object max = column.getStatisticsValue(statistics, true);
+          if (min != null && max != null) {
+            return new Object[] {
+              min, max
+            };
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected void initDo() {
+    final DataReader in = this.resource.newChannelReader(8192, ByteOrder.LITTLE_ENDIAN);
+    this.in = in;
+    if (!in.isSeekable()) {
+      throw new IllegalArgumentException(
+        "Parquet files must be read from a seekable resource " + this.resource);
+    }
+    in.seekEnd(8);
+    final int footerLength = in.getInt();
+    final byte[] magic = in.getBytes(4);
+    if (!Arrays.equals(magic, ParquetConstants.MAGIC)) {
+      throw new IllegalArgumentException(this.resource + " is not a Parquet file");
+    }
+    in.seekEnd(8 + footerLength);
+    this.metaData = ParquetFileMetaData.read(in.getBytes(footerLength));
+    readGeoMetadata();
+
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/" + this.resource.getBaseName()));
+    final List<SchemaElement> schema = this.metaData.getSchema();
+    if (!schema.isEmpty()) {
+      addColumns(recordDefinition, schema, 1, schema.get(0).getNumChildren(), null, 0, false);
+    }
+    for (final ParquetColumn coveringColumn : this.coveringColumns) {
+      if (coveringColumn == null) {
+        this.coveringColumns = null;
+        break;
+      }
+    }
+    recordDefinition.setGeometryFactory(this.geometryFactory);
+    recordDefinition.setPolygonRingDirection(this.polygonRingDirection);
+    this.recordDefinition = recordDefinition;
+  }
+
+  private boolean isMatch(final RowGroup rowGroup, final QueryValue condition) {
+    if (condition instanceof And) {
+      for (final Condition childCondition : ((AbstractMultiCondition)condition).getConditions()) {
+        if (!isMatch(rowGroup, childCondition)) {
+          return false;
+        }
+      }
+      return true;
+    } else if (condition instanceof Or) {
+      final List<Condition> conditions = ((AbstractMultiCondition)condition).getConditions();
+      if (conditions.isEmpty()) {
+        return true;
+      }
+      for (final Condition childCondition : conditions) {
+        if (isMatch(rowGroup, childCondition)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (condition instanceof Between) {
+      final Between between = (Between)condition;
+      final ParquetColumn column = this.columnByName.get(between.getColumn().getName());
+      final Object[] minMax = getStatisticsValues(rowGroup, column);
+      if (minMax == null) {
+        return true;
+      } else if (minMax.length == 0) {
+        return false;
+      } else {
+        final Object min = toColumnValue(column, between.getMin());
+        final Object max = toColumnValue(column, between.getMax());
+        if (min != null && CompareUtil.compare(minMax[1], min) < 0) {
+          return false;
+        } else if (max != null && CompareUtil.compare(minMax[0], max) > 0) {
+          return false;
+        } else {
+          return true;
+        }
+      }
+    } else if (condition instanceof EnvelopeIntersects) {
+      return isMatchEnvelopeIntersects(rowGroup, (EnvelopeIntersects)condition);
+    } else if (condition instanceof Equal || condition instanceof GreaterThan
+      || condition instanceof GreaterThanEqual || condition instanceof LessThan
+      || condition instanceof LessThanEqual) {
+      return isMatchComparison(rowGroup, (BinaryCondition)condition);
+    } else {
+      return true;
+    }
+  }
+
+  private boolean isMatchComparison(final RowGroup rowGroup, final BinaryCondition condition) {
+    final QueryValue left = condition.getLeft();
+    final QueryValue right = condition.getRight();
+    ColumnReference columnReference;
+    Value value;
+    boolean columnLeft;
+    if (left instanceof ColumnReference && right instanceof Value) {
+      columnReference = (ColumnReference)left;
+      value = (Value)right;
+      columnLeft = true;
+    } else if (left instanceof Value && right instanceof ColumnReference) {
+      columnReference = (ColumnReference)right;
+      value = (Value)left;
+      columnLeft = false;
+    } else {
+      return true;
+    }
+    final ParquetColumn column = this.columnByName.get(columnReference.getName());
+    final Object[] minMax = getStatisticsValues(rowGroup, column);
+    if (minMax == null) {
+      return true;
+    } else if (minMax.length == 0) {
+      // All values are null so no comparison can match
+      return false;
+    }
+    final Object compareValue = toColumnValue(column, value);
+    if (compareValue == null) {
+      return true;
+    }
+    final int minCompare = CompareUtil.compare(minMax[0], compareValue);
+    final int maxCompare = CompareUtil.compare(minMax[1], compareValue);
+    if (condition instanceof Equal) {
+      return minCompare <= 0 && maxCompare >= 0;
+    }
+    // Convert value < column to column > value
+    boolean greaterThan = condition instanceof GreaterThan
+      || condition instanceof GreaterThanEqual;
+    if (!columnLeft) {
+      greaterThan = !greaterThan;
+    }
+    final boolean orEqual = condition instanceof GreaterThanEqual
+      || condition instanceof LessThanEqual;
+    if (greaterThan) {
+      if (orEqual) {
+        return maxCompare >= 0;
+      } else {
+        return maxCompare > 0;
+      }
+    } else {
+      if (orEqual) {
+        return minCompare <= 0;
+      } else {
+        return minCompare < 0;
+      }
+    }
+  }
+
+  private boolean isMatchEnvelopeIntersects(final RowGroup rowGroup,
+    final EnvelopeIntersects condition) {
+    if (this.coveringColumns == null) {
+      return true;
+    }
+    final Set<String> names = new HashSet<>();
+    addColumnNames(names, condition);
+    if (!names.contains(this.primaryColumn)) {
+      return true;
+    }
+    BoundingBox boundingBox = QueryValue.getBoundingBox(condition);
+    if (boundingBox == null || boundingBox.isEmpty()) {
+      return true;
+    }
+    boundingBox = boundingBox.bboxToCs(this.geometryFactory);
+    final double[] bounds = new double[4];
+    for (int i = 0; i < 4; i++) {
+      final Object[] minMax = getStatisticsValues(rowGroup, this.coveringColumns[i]);
+      if (minMax == null) {
+        return true;
+      } else if (minMax.length == 0) {
+        return false;
+      }
+      // The minimum of the xmin and ymin and the maximum of the xmax and ymax
+      final Object value = minMax[i / 2];
+      if (value instanceof Number) {
+        bounds[i] = ((Number)value).doubleValue();
+      } else {
+        return true;
+      }
+    }
+    return bounds[0] <= boundingBox.getMaxX() && bounds[2] >= boundingBox.getMinX()
+      && bounds[1] <= boundingBox.getMaxY() && bounds[3] >= boundingBox.getMinY();
+  }
+
+  private void readGeoMetadata() {
+    final String geo = this.metaData.getKeyValueMetadata().get(ParquetConstants.GEO_METADATA_KEY);
+    this.coveringColumns = new ParquetColumn[4];
+    if (geo != null) {
+      final MapEx geoMetadata = Json.toObjectMap(geo);
+      this.primaryColumn = geoMetadata.getString("primary_column");
+      final MapEx columns = geoMetadata.getValue("columns");
+      if (columns != null) {
+        for (final String name : columns.keySet()) {
+          final MapEx columnMetadata = columns.getValue(name);
+          if (columnMetadata != null) {
+            this.geometryColumns.put(name, columnMetadata);
+          }
+        }
+      }
+      final MapEx primaryMetadata = this.geometryColumns.get(this.primaryColumn);
+      if (primaryMetadata != null) {
+        if ("counterclockwise".equals(primaryMetadata.getString("orientation"))) {
+          this.polygonRingDirection = ClockDirection.COUNTER_CLOCKWISE;
+        }
+        final MapEx covering = primaryMetadata.getValue("covering");
+        if (covering != null) {
+          final MapEx bbox = covering.getValue("bbox");
+          if (bbox != null) {
+            for (final String coveringName : COVERING_NAMES) {
+              final List<?> path = bbox.getValue(coveringName);
+              if (path != null) {
+                final StringBuilder pathString = new StringBuilder();
+                for (final Object pathElement : path) {
+                  if (pathString.length() > 0) {
+                    pathString.append('.');
+                  }
+                  pathString.append(pathElement);
+                }
+                this.coveringPaths.put(pathString.toString(), coveringName);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private boolean readNextRowGroup() {
+    final List<RowGroup> rowGroups = this.metaData.getRowGroups();
+    Condition whereCondition = null;
+    if (this.query != null) {
+      whereCondition = this.query.getWhereCondition();
+    }
+    while (this.rowGroupIndex < rowGroups.size()) {
+      final RowGroup rowGroup = rowGroups.get(this.rowGroupIndex++);
+      if (whereCondition == null || isMatch(rowGroup, whereCondition)) {
+        final int rowCount = (int)rowGroup.getNumRows();
+        ParquetColumn[] readColumns = this.readColumns;
+        if (readColumns == null) {
+          readColumns = selectColumns();
+          this.readColumns = readColumns;
+        }
+        final Object[][] columnValues = new Object[readColumns.length][];
+        for (int i = 0; i < readColumns.length; i++) {
+          final ParquetColumn column = readColumns[i];
+          final ColumnChunk columnChunk = rowGroup.getColumn(column.getPath());
+          if (columnChunk == null) {
+            columnValues[i] = new Object[rowCount];
+          } else {
+            this.in.seek(columnChunk.getStartOffset());
+            final byte[] bytes = this.in.getBytes((int)columnChunk.getTotalCompressedSize());
+            columnValues[i] = column.readColumnChunk(bytes, columnChunk.getCodec(), rowCount);
+          }
+        }
+        this.columnValues = columnValues;
+        this.readRowGroupCount++;
+        this.rowCount = rowCount;
+        this.rowIndex = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ParquetColumn[] selectColumns() {
+    final Query query = this.query;
+    if (query != null) {
+      final Set<String> names = new HashSet<>();
+      for (final QueryValue selectValue : query.getSelect()) {
+        if (selectValue instanceof ColumnReference) {
+          names.add(((ColumnReference)selectValue).getName());
+        } else {
+          // All columns or an expression that may reference any column
+          names.clear();
+          break;
+        }
+      }
+      if (!names.isEmpty()) {
+        addColumnNames(names, query.getWhereCondition());
+        final List<ParquetColumn> columns = new ArrayList<>();
+        for (final ParquetColumn column : this.columns) {
+          if (names.contains(column.getPath())) {
+            columns.add(column);
+          }
+        }
+        return columns.toArray(new ParquetColumn[columns.size()]);
+      }
+    }
+    return this.columns.toArray(new ParquetColumn[this.columns.size()]);
+  }
+
+  /**
+   * Set the query used to select the columns to read and to skip the row groups whose
+   * statistics show they can't contain a record matching the where condition. Must be set before
+   * the first record is read.
+   *
+   * @param query The query.
+   */
+  public void setQuery(final Query query) {
+    this.query = query;
+    this.readColumns = null;
+  }
+
+  private Object toColumnValue(final ParquetColumn column, final Value value) {
+    final Object queryValue = value.getValue();
+    if (queryValue == null) {
+      return null;
+    } else {
+      try {
+        return column.getDataType().toObject(queryValue);
+      } catch (final RuntimeException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,307 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataType;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.editor.BoundingBoxEditor;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.format.json.Json;
+import com.revolsys.record.io.format.json.JsonObject;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.ColumnChunk;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.RowGroup;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.SchemaElement;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+
+/**
+ * Write records to a GeoParquet file. The geometry fields are written as WKB and the bounding
+ * box of the primary geometry is written to a bbox covering group so readers can skip row groups
+ * using the column statistics.
+ *
+ * <p>Each row group is buffered in memory and written as one PLAIN encoded data page per column
+ * when {@link #getRowGroupSize()} records have been written.</p>
+ */
+public class GeoParquetRecordWriter extends AbstractRecordWriter {
+  public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+
+  private BoundingBoxEditor boundingBox;
+
+  private int codec = ParquetConstants.CODEC_UNCOMPRESSED;
+
+  private final List<ParquetColumnWriter> columns = new ArrayList<>();
+
+  private ParquetColumnWriter[] coveringColumns;
+
+  private String coveringName;
+
+  private final int[] fieldIndexes;
+
+  private final GeometryFactory geometryFactory;
+
+  private final Set<String> geometryTypes = new TreeSet<>();
+
+  private final ParquetFileMetaData metaData = new ParquetFileMetaData();
+
+  private OutputStream out;
+
+  private long position;
+
+  private final int primaryFieldIndex;
+
+  private int rowCount;
+
+  private int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+
+  public GeoParquetRecordWriter(final RecordDefinitionProxy recordDefinition,
+    final OutputStream out) {
+    super(recordDefinition);
+    this.out = new BufferedOutputStream(out);
+    this.geometryFactory = this.recordDefinition.getGeometryFactory();
+    this.primaryFieldIndex = this.recordDefinition.getGeometryFieldIndex();
+
+    final List<FieldDefinition> fields = this.recordDefinition.getFields();
+    this.fieldIndexes = new int[fields.size()];
+    for (final FieldDefinition field : fields) {
+      final String name = field.getName();
+      final DataType dataType = field.getDataType();
+      this.fieldIndexes[this.columns.size()] = field.getIndex();
+      this.columns.add(new ParquetColumnWriter(name, dataType, this.geometryFactory));
+    }
+    if (this.primaryFieldIndex != -1) {
+      String coveringName = "bbox";
+      if (this.recordDefinition.hasField(coveringName)) {
+        coveringName = this.recordDefinition.getGeometryFieldName() + "_bbox";
+      }
+      this.coveringName = coveringName;
+      this.coveringColumns = new ParquetColumnWriter[4];
+      final String[] names = {
+        "xmin", "ymin", "xmax", "ymax"
+      };
+      for (int i = 0; i < 4; i++) {
+        this.coveringColumns[i] = new ParquetColumnWriter(coveringName + "." + names[i],
+          DataTypes.DOUBLE, null);
+      }
+      this.boundingBox = new BoundingBoxEditor();
+    }
+    write(ParquetConstants.MAGIC);
+  }
+
+  @Override
+  public void close() {
+    if (this.out != null) {
+      try {
+        if (this.rowCount > 0) {
+          writeRowGroup();
+        }
+        writeFooter();
+      } finally {
+        try {
+          this.out.close();
+        } catch (final IOException e) {
+          throw Exceptions.wrap(e);
+        } finally {
+          this.out = null;
+        }
+      }
+    }
+  }
+
+  public int getCodec() {
+    return this.codec;
+  }
+
+  public int getRowGroupSize() {
+    return this.rowGroupSize;
+  }
+
+  private JsonObject newGeoMetadata() {
+    final JsonObject columns = JsonObject.hash();
+    final GeometryFactory geometryFactory = this.geometryFactory;
+    for (final FieldDefinition field : this.recordDefinition.getFields()) {
+      if (field.getDataType() instanceof GeometryDataType) {
+        final JsonObject column = JsonObject.hash("encoding", "WKB");
+        if (field.getIndex() == this.primaryFieldIndex) {
+          column.add("geometry_types", new ArrayList<>(this.geometryTypes));
+        } else {
+          column.add("geometry_types", new ArrayList<>());
+        }
+        if (geometryFactory != null) {
+          final int coordinateSystemId = geometryFactory.getCoordinateSystemId();
+          if (coordinateSystemId == 0) {
+            column.add("crs", null);
+          } else if (coordinateSystemId != 4326) {
+            // Only the id of the PROJJSON coordinate system is written
+            column.add("crs", JsonObject.hash("id",
+              JsonObject.hash("authority", "EPSG").add("code", coordinateSystemId)));
+          }
+        }
+        column.add("orientation", "counterclockwise");
+        if (field.getIndex() == this.primaryFieldIndex) {
+          final BoundingBox boundingBox = this.boundingBox;
+          if (!boundingBox.isEmpty()) {
+            column.add("bbox", Arrays.asList(boundingBox.getMinX(), boundingBox.getMinY(),
+              boundingBox.getMaxX(), boundingBox.getMaxY()));
+          }
+          final String coveringName = this.coveringName;
+          column.add("covering",
+            JsonObject.hash("bbox",
+              JsonObject.hash("xmin", Arrays.asList(coveringName, "xmin"))
+                .add("ymin", Arrays.asList(coveringName, "ymin"))
+                .add("xmax", Arrays.asList(coveringName, "xmax"))
+                .add("ymax", Arrays.asList(coveringName, "ymax"))));
+        }
+        columns.add(field.getName(), column);
+      }
+    }
+    return JsonObject.hash("version", ParquetConstants.GEO_PARQUET_VERSION)
+      .add("primary_column", this.recordDefinition.getGeometryFieldName())
+      .add("columns", columns);
+  }
+
+  /**
+   * Set the compression codec used for the pages, {@link ParquetConstants#CODEC_UNCOMPRESSED} or
+   * {@link ParquetConstants#CODEC_GZIP}.
+   *
+   * @param codec The compression codec.
+   */
+  public void setCodec(final int codec) {
+    if (codec == ParquetConstants.CODEC_UNCOMPRESSED || codec == ParquetConstants.CODEC_GZIP) {
+      this.codec = codec;
+    } else {
+      throw new IllegalArgumentException(
+        "Parquet compression codec " + codec + " not supported for writing");
+    }
+  }
+
+  public void setRowGroupSize(final int rowGroupSize) {
+    if (rowGroupSize < 1) {
+      throw new IllegalArgumentException("rowGroupSize must be > 0 not " + rowGroupSize);
+    }
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  private void write(final byte[] bytes) {
+    try {
+      this.out.write(bytes);
+      this.position += bytes.length;
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+  }
+
+  @Override
+  public void write(final Record record) {
+    for (int i = 0; i < this.fieldIndexes.length; i++) {
+      final int fieldIndex = this.fieldIndexes[i];
+      final Object value = record.getValue(fieldIndex);
+      this.columns.get(i).addValue(value);
+      if (fieldIndex == this.primaryFieldIndex) {
+        writeCovering((Geometry)value);
+      }
+    }
+    this.rowCount++;
+    if (this.rowCount >= this.rowGroupSize) {
+      writeRowGroup();
+    }
+  }
+
+  private void writeCovering(Geometry geometry) {
+    final ParquetColumnWriter[] coveringColumns = this.coveringColumns;
+    if (geometry == null || geometry.isEmpty()) {
+      for (final ParquetColumnWriter column : coveringColumns) {
+        column.addValue(null);
+      }
+    } else {
+      if (this.geometryFactory != null) {
+        geometry = geometry.convertGeometry(this.geometryFactory);
+      }
+      final int axisCount = geometry.getAxisCount();
+      String geometryType = geometry.getGeometryType();
+      if (axisCount == 3) {
+        geometryType += " Z";
+      } else if (axisCount > 3) {
+        geometryType += " ZM";
+      }
+      this.geometryTypes.add(geometryType);
+      final BoundingBox boundingBox = geometry.getBoundingBox();
+      this.boundingBox.addBbox(boundingBox.getMinX(), boundingBox.getMinY(),
+        boundingBox.getMaxX(), boundingBox.getMaxY());
+      coveringColumns[0].addValue(boundingBox.getMinX());
+      coveringColumns[1].addValue(boundingBox.getMinY());
+      coveringColumns[2].addValue(boundingBox.getMaxX());
+      coveringColumns[3].addValue(boundingBox.getMaxY());
+    }
+  }
+
+  private void writeFooter() {
+    final ParquetFileMetaData metaData = this.metaData;
+    final SchemaElement root = new SchemaElement("schema", -1, -1, -1);
+    metaData.addSchemaElement(root);
+    int childCount = 0;
+    for (final ParquetColumnWriter column : this.columns) {
+      metaData.addSchemaElement(column.newSchemaElement(ParquetConstants.REPETITION_OPTIONAL));
+      childCount++;
+    }
+    if (this.coveringColumns != null) {
+      final SchemaElement covering = new SchemaElement(this.coveringName, -1,
+        ParquetConstants.REPETITION_OPTIONAL, -1);
+      covering.setNumChildren(4);
+      metaData.addSchemaElement(covering);
+      for (final ParquetColumnWriter column : this.coveringColumns) {
+        metaData.addSchemaElement(column.newSchemaElement(ParquetConstants.REPETITION_REQUIRED));
+      }
+      childCount++;
+    }
+    root.setNumChildren(childCount);
+    if (this.primaryFieldIndex != -1) {
+      metaData.getKeyValueMetadata()
+        .put(ParquetConstants.GEO_METADATA_KEY, Json.toString(newGeoMetadata()));
+    }
+    metaData.setCreatedBy("revolsys");
+
+    final byte[] footer = metaData.toByteArray();
+    write(footer);
+    write(new byte[] {
+      (byte)footer.length, (byte)(footer.length >>> 8), (byte)(footer.length >>> 16),
+      (byte)(footer.length >>> 24)
+    });
+    write(ParquetConstants.MAGIC);
+  }
+
+  private void writeRowGroup() {
+    final List<ColumnChunk> columnChunks = new ArrayList<>();
+    long totalByteSize = 0;
+    final List<ParquetColumnWriter> columns = new ArrayList<>(this.columns);
+    if (this.coveringColumns != null) {
+      columns.addAll(Arrays.asList(this.coveringColumns));
+    }
+    try {
+      for (final ParquetColumnWriter column : columns) {
+        final ColumnChunk columnChunk = column.writeColumnChunk(this.out, this.position,
+          this.codec);
+        this.position += columnChunk.getTotalCompressedSize();
+        totalByteSize += columnChunk.getTotalUncompressedSize();
+        columnChunks.add(columnChunk);
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+    this.metaData.addRowGroup(new RowGroup(columnChunks, this.rowCount, totalByteSize));
+    this.rowCount = 0;
+  }
+}
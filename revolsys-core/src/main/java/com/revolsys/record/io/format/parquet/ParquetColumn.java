@@ -0,0 +1,515 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.SchemaElement;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.Statistics;
+
+/**
+ * A leaf column of a Parquet schema. Decodes the pages of a column chunk into the values for
+ * each row, converting the physical values to the Java type of the field.
+ */
+class ParquetColumn {
+  private static final long JULIAN_DAY_EPOCH = 2440588;
+
+  private static byte[] decompress(final int codec, final byte[] bytes, final int offset,
+    final int length, final int uncompressedSize) {
+    switch (codec) {
+      case ParquetConstants.CODEC_UNCOMPRESSED:
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+      case ParquetConstants.CODEC_SNAPPY:
+        return SnappyDecompressor.decompress(bytes, offset, length);
+      case ParquetConstants.CODEC_GZIP:
+        try (
+          InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+          return in.readNBytes(uncompressedSize);
+        } catch (final IOException e) {
+          throw Exceptions.wrap(e);
+        }
+      default:
+        throw new IllegalArgumentException("Parquet compression codec " + codec
+          + " not supported, only UNCOMPRESSED, SNAPPY and GZIP are supported");
+    }
+  }
+
+  private static int getInt(final byte[] bytes, final int offset) {
+    return bytes[offset] & 0xff | (bytes[offset + 1] & 0xff) << 8
+      | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+  }
+
+  private static long getLong(final byte[] bytes, final int offset) {
+    return getInt(bytes, offset) & 0xffffffffL | (long)getInt(bytes, offset + 4) << 32;
+  }
+
+  private final DataType dataType;
+
+  private final SchemaElement element;
+
+  private final int fieldIndex;
+
+  private final GeometryFactory geometryFactory;
+
+  private final int maxDefinitionLevel;
+
+  private final String path;
+
+  ParquetColumn(final String path, final SchemaElement element, final int maxDefinitionLevel,
+    final int fieldIndex, final GeometryFactory geometryFactory) {
+    this.path = path;
+    this.element = element;
+    this.maxDefinitionLevel = maxDefinitionLevel;
+    this.fieldIndex = fieldIndex;
+    this.geometryFactory = geometryFactory;
+    if (geometryFactory == null) {
+      this.dataType = newDataType(element);
+    } else {
+      this.dataType = GeometryDataTypes.GEOMETRY;
+    }
+  }
+
+  public DataType getDataType() {
+    return this.dataType;
+  }
+
+  /**
+   * Get the index of the field in the record definition, or -1 if the column is not a field,
+   * for example the bbox covering columns.
+   *
+   * @return The field index.
+   */
+  public int getFieldIndex() {
+    return this.fieldIndex;
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Get the statistics value converted to the Java type of the column. Values that can't be
+   * compared using the Java type are ignored.
+   *
+   * @param statistics The column chunk statistics.
+   * @param max True for the max value, false for the min value.
+   * @return The value or null if not available.
+   */
+  public Object getStatisticsValue(final Statistics statistics, final boolean max) {
+    if (statistics == null || this.geometryFactory != null) {
+      return null;
+    }
+    final byte[] bytes;
+    if (max) {
+      bytes = statistics.getMax();
+    } else {
+      bytes = statistics.getMin();
+    }
+    if (bytes == null) {
+      return null;
+    }
+    final int type = this.element.getType();
+    final int convertedType = this.element.getConvertedType();
+    if (!statistics.isValueOrder()) {
+      // The deprecated statistics used signed comparison for all values
+      if (type == ParquetConstants.TYPE_BYTE_ARRAY
+        || type == ParquetConstants.TYPE_FIXED_LEN_BYTE_ARRAY
+        || convertedType == ParquetConstants.CONVERTED_TYPE_UINT_8
+        || convertedType == ParquetConstants.CONVERTED_TYPE_UINT_16
+        || convertedType == ParquetConstants.CONVERTED_TYPE_UINT_32) {
+        return null;
+      }
+    }
+    switch (type) {
+      case ParquetConstants.TYPE_BOOLEAN:
+        if (bytes.length < 1) {
+          return null;
+        } else {
+          return bytes[0] != 0;
+        }
+      case ParquetConstants.TYPE_INT32:
+        if (bytes.length < 4) {
+          return null;
+        } else {
+          return toInt32Value(getInt(bytes, 0));
+        }
+      case ParquetConstants.TYPE_INT64:
+        if (bytes.length < 8) {
+          return null;
+        } else {
+          return toInt64Value(getLong(bytes, 0));
+        }
+      case ParquetConstants.TYPE_FLOAT:
+        if (bytes.length < 4) {
+          return null;
+        } else {
+          final float value = Float.intBitsToFloat(getInt(bytes, 0));
+          if (Float.isNaN(value)) {
+            return null;
+          } else {
+            return value;
+          }
+        }
+      case ParquetConstants.TYPE_DOUBLE:
+        if (bytes.length < 8) {
+          return null;
+        } else {
+          final double value = Double.longBitsToDouble(getLong(bytes, 0));
+          if (Double.isNaN(value)) {
+            return null;
+          } else {
+            return value;
+          }
+        }
+      case ParquetConstants.TYPE_BYTE_ARRAY:
+      case ParquetConstants.TYPE_FIXED_LEN_BYTE_ARRAY:
+        final Object value = toBinaryValue(bytes, 0, bytes.length);
+        if (value instanceof byte[]) {
+          return null;
+        } else {
+          return value;
+        }
+      default:
+        return null;
+    }
+  }
+
+  public boolean isGeometry() {
+    return this.geometryFactory != null;
+  }
+
+  private boolean isString() {
+    final int convertedType = this.element.getConvertedType();
+    final int logicalType = this.element.getLogicalType();
+    return convertedType == ParquetConstants.CONVERTED_TYPE_UTF8
+      || convertedType == ParquetConstants.CONVERTED_TYPE_ENUM
+      || convertedType == ParquetConstants.CONVERTED_TYPE_JSON
+      || logicalType == ParquetConstants.LOGICAL_TYPE_STRING
+      || logicalType == ParquetConstants.LOGICAL_TYPE_ENUM
+      || logicalType == ParquetConstants.LOGICAL_TYPE_JSON;
+  }
+
+  private DataType newDataType(final SchemaElement element) {
+    final int convertedType = element.getConvertedType();
+    final int logicalType = element.getLogicalType();
+    final boolean decimal = convertedType == ParquetConstants.CONVERTED_TYPE_DECIMAL
+      || logicalType == ParquetConstants.LOGICAL_TYPE_DECIMAL;
+    switch (element.getType()) {
+      case ParquetConstants.TYPE_BOOLEAN:
+        return DataTypes.BOOLEAN;
+      case ParquetConstants.TYPE_INT32:
+        if (decimal) {
+          return DataTypes.DECIMAL;
+        } else if (convertedType == ParquetConstants.CONVERTED_TYPE_INT_8) {
+          return DataTypes.BYTE;
+        } else if (convertedType == ParquetConstants.CONVERTED_TYPE_INT_16
+          || convertedType == ParquetConstants.CONVERTED_TYPE_UINT_8) {
+          return DataTypes.SHORT;
+        } else if (convertedType == ParquetConstants.CONVERTED_TYPE_UINT_32) {
+          return DataTypes.LONG;
+        } else if (convertedType == ParquetConstants.CONVERTED_TYPE_DATE
+          || logicalType == ParquetConstants.LOGICAL_TYPE_DATE) {
+          return DataTypes.SQL_DATE;
+        } else {
+          return DataTypes.INT;
+        }
+      case ParquetConstants.TYPE_INT64:
+        if (decimal) {
+          return DataTypes.DECIMAL;
+        } else if (convertedType == ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MILLIS
+          || convertedType == ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MICROS
+          || logicalType == ParquetConstants.LOGICAL_TYPE_TIMESTAMP) {
+          return DataTypes.INSTANT;
+        } else {
+          return DataTypes.LONG;
+        }
+      case ParquetConstants.TYPE_INT96:
+        return DataTypes.INSTANT;
+      case ParquetConstants.TYPE_FLOAT:
+        return DataTypes.FLOAT;
+      case ParquetConstants.TYPE_DOUBLE:
+        return DataTypes.DOUBLE;
+      case ParquetConstants.TYPE_BYTE_ARRAY:
+      case ParquetConstants.TYPE_FIXED_LEN_BYTE_ARRAY:
+        if (decimal) {
+          return DataTypes.DECIMAL;
+        } else if (isString()) {
+          return DataTypes.STRING;
+        } else {
+          return DataTypes.BLOB;
+        }
+      default:
+        return DataTypes.STRING;
+    }
+  }
+
+  /**
+   * Decode the pages of a column chunk.
+   *
+   * @param bytes The bytes of the column chunk.
+   * @param codec The compression codec.
+   * @param rowCount The number of rows in the row group.
+   * @return The value for each row.
+   */
+  public Object[] readColumnChunk(final byte[] bytes, final int codec, final int rowCount) {
+    final Object[] values = new Object[rowCount];
+    Object[] dictionary = null;
+    int valueIndex = 0;
+    int position = 0;
+    while (valueIndex < rowCount && position < bytes.length) {
+      final ParquetPageHeader header = ParquetPageHeader.read(bytes, position,
+        bytes.length - position);
+      position += header.getHeaderSize();
+      final int compressedSize = header.getCompressedSize();
+      final int uncompressedSize = header.getUncompressedSize();
+      final int numValues = Math.min(header.getNumValues(), rowCount - valueIndex);
+      switch (header.getType()) {
+        case ParquetConstants.PAGE_TYPE_DICTIONARY_PAGE: {
+          final byte[] page = decompress(codec, bytes, position, compressedSize,
+            uncompressedSize);
+          dictionary = new Object[header.getNumValues()];
+          readPlainValues(page, 0, dictionary, dictionary.length);
+        }
+        break;
+        case ParquetConstants.PAGE_TYPE_DATA_PAGE: {
+          final byte[] page = decompress(codec, bytes, position, compressedSize,
+            uncompressedSize);
+          int offset = 0;
+          int[] definitionLevels = null;
+          if (this.maxDefinitionLevel > 0) {
+            final int length = getInt(page, offset);
+            offset += 4;
+            definitionLevels = readLevels(page, offset, length, numValues);
+            offset += length;
+          }
+          readValues(header.getEncoding(), page, offset, page.length, dictionary,
+            definitionLevels, values, valueIndex, numValues);
+          valueIndex += numValues;
+        }
+        break;
+        case ParquetConstants.PAGE_TYPE_DATA_PAGE_V2: {
+          final int repetitionLength = header.getRepetitionLevelsLength();
+          final int definitionLength = header.getDefinitionLevelsLength();
+          int[] definitionLevels = null;
+          if (this.maxDefinitionLevel > 0) {
+            definitionLevels = readLevels(bytes, position + repetitionLength, definitionLength,
+              numValues);
+          }
+          final int levelsLength = repetitionLength + definitionLength;
+          final int valuesOffset = position + levelsLength;
+          final int valuesLength = compressedSize - levelsLength;
+          byte[] page;
+          if (header.isValuesCompressed()) {
+            page = decompress(codec, bytes, valuesOffset, valuesLength,
+              uncompressedSize - levelsLength);
+          } else {
+            page = Arrays.copyOfRange(bytes, valuesOffset, valuesOffset + valuesLength);
+          }
+          readValues(header.getEncoding(), page, 0, page.length, dictionary, definitionLevels,
+            values, valueIndex, numValues);
+          valueIndex += numValues;
+        }
+        break;
+        default:
+        break;
+      }
+      position += compressedSize;
+    }
+    return values;
+  }
+
+  private int[] readLevels(final byte[] bytes, final int offset, final int length,
+    final int count) {
+    final int[] levels = new int[count];
+    final int bitWidth = RleBitPackedHybrid.getBitWidth(this.maxDefinitionLevel);
+    RleBitPackedHybrid.decode(bytes, offset, offset + length, bitWidth, levels, count);
+    return levels;
+  }
+
+  private void readPlainValues(final byte[] bytes, int offset, final Object[] values,
+    final int count) {
+    final int type = this.element.getType();
+    for (int i = 0; i < count; i++) {
+      final Object value;
+      switch (type) {
+        case ParquetConstants.TYPE_BOOLEAN:
+          value = (bytes[offset + i / 8] >>> i % 8 & 1) != 0;
+        break;
+        case ParquetConstants.TYPE_INT32:
+          value = toInt32Value(getInt(bytes, offset));
+          offset += 4;
+        break;
+        case ParquetConstants.TYPE_INT64:
+          value = toInt64Value(getLong(bytes, offset));
+          offset += 8;
+        break;
+        case ParquetConstants.TYPE_INT96: {
+          final long nanos = getLong(bytes, offset);
+          final long julianDay = getInt(bytes, offset + 8) & 0xffffffffL;
+          value = Instant.ofEpochSecond((julianDay - JULIAN_DAY_EPOCH) * 86400, nanos);
+          offset += 12;
+        }
+        break;
+        case ParquetConstants.TYPE_FLOAT:
+          value = Float.intBitsToFloat(getInt(bytes, offset));
+          offset += 4;
+        break;
+        case ParquetConstants.TYPE_DOUBLE:
+          value = Double.longBitsToDouble(getLong(bytes, offset));
+          offset += 8;
+        break;
+        case ParquetConstants.TYPE_BYTE_ARRAY: {
+          final int length = getInt(bytes, offset);
+          offset += 4;
+          value = toBinaryValue(bytes, offset, length);
+          offset += length;
+        }
+        break;
+        case ParquetConstants.TYPE_FIXED_LEN_BYTE_ARRAY: {
+          final int length = this.element.getTypeLength();
+          value = toBinaryValue(bytes, offset, length);
+          offset += length;
+        }
+        break;
+        default:
+          throw new IllegalArgumentException("Parquet type " + type + " not supported");
+      }
+      values[i] = value;
+    }
+  }
+
+  private void readValues(final int encoding, final byte[] bytes, final int offset,
+    final int end, final Object[] dictionary, final int[] definitionLevels,
+    final Object[] values, final int valueIndex, final int numValues) {
+    int nonNullCount = numValues;
+    if (definitionLevels != null) {
+      nonNullCount = 0;
+      for (int i = 0; i < numValues; i++) {
+        if (definitionLevels[i] == this.maxDefinitionLevel) {
+          nonNullCount++;
+        }
+      }
+    }
+    final Object[] pageValues = new Object[nonNullCount];
+    switch (encoding) {
+      case ParquetConstants.ENCODING_PLAIN:
+        readPlainValues(bytes, offset, pageValues, nonNullCount);
+      break;
+      case ParquetConstants.ENCODING_PLAIN_DICTIONARY:
+      case ParquetConstants.ENCODING_RLE_DICTIONARY:
+        if (dictionary == null) {
+          throw new IllegalArgumentException(
+            "Parquet column " + this.path + " dictionary page not found");
+        }
+        if (nonNullCount > 0) {
+          final int bitWidth = bytes[offset] & 0xff;
+          final int[] indexes = new int[nonNullCount];
+          RleBitPackedHybrid.decode(bytes, offset + 1, end, bitWidth, indexes, nonNullCount);
+          for (int i = 0; i < nonNullCount; i++) {
+            pageValues[i] = dictionary[indexes[i]];
+          }
+        }
+      break;
+      case ParquetConstants.ENCODING_RLE:
+        if (this.element.getType() != ParquetConstants.TYPE_BOOLEAN) {
+          throw new IllegalArgumentException(
+            "Parquet RLE encoding only supported for boolean column " + this.path);
+        }
+        // The RLE encoded booleans have a 4 byte length prefix
+        final int[] booleans = new int[nonNullCount];
+        RleBitPackedHybrid.decode(bytes, offset + 4, end, 1, booleans, nonNullCount);
+        for (int i = 0; i < nonNullCount; i++) {
+          pageValues[i] = booleans[i] != 0;
+        }
+      break;
+      default:
+        throw new IllegalArgumentException(
+          "Parquet encoding " + encoding + " not supported for column " + this.path);
+    }
+    if (definitionLevels == null) {
+      System.arraycopy(pageValues, 0, values, valueIndex, numValues);
+    } else {
+      int pageValueIndex = 0;
+      for (int i = 0; i < numValues; i++) {
+        if (definitionLevels[i] == this.maxDefinitionLevel) {
+          values[valueIndex + i] = pageValues[pageValueIndex++];
+        }
+      }
+    }
+  }
+
+  private Object toBinaryValue(final byte[] bytes, final int offset, final int length) {
+    if (this.geometryFactory != null) {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+      return WkbByteBufferReader.readGeometry(this.geometryFactory, buffer);
+    } else if (DataTypes.DECIMAL.equals(this.dataType)) {
+      final BigInteger unscaledValue = new BigInteger(bytes, offset, length);
+      return new BigDecimal(unscaledValue, this.element.getScale());
+    } else if (DataTypes.STRING.equals(this.dataType)) {
+      return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    } else {
+      return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+  }
+
+  private Object toInt32Value(final int value) {
+    switch (this.element.getConvertedType()) {
+      case ParquetConstants.CONVERTED_TYPE_INT_8:
+        return (byte)value;
+      case ParquetConstants.CONVERTED_TYPE_INT_16:
+      case ParquetConstants.CONVERTED_TYPE_UINT_8:
+        return (short)value;
+      case ParquetConstants.CONVERTED_TYPE_UINT_32:
+        return Integer.toUnsignedLong(value);
+      default:
+        if (DataTypes.DECIMAL.equals(this.dataType)) {
+          return BigDecimal.valueOf(value, this.element.getScale());
+        } else if (DataTypes.SQL_DATE.equals(this.dataType)) {
+          return java.sql.Date.valueOf(LocalDate.ofEpochDay(value));
+        } else {
+          return value;
+        }
+    }
+  }
+
+  private Object toInt64Value(final long value) {
+    if (DataTypes.DECIMAL.equals(this.dataType)) {
+      return BigDecimal.valueOf(value, this.element.getScale());
+    } else if (DataTypes.INSTANT.equals(this.dataType)) {
+      final int convertedType = this.element.getConvertedType();
+      int timeUnit = this.element.getTimeUnit();
+      if (convertedType == ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MILLIS) {
+        timeUnit = ParquetConstants.TIME_UNIT_MILLIS;
+      } else if (convertedType == ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MICROS) {
+        timeUnit = ParquetConstants.TIME_UNIT_MICROS;
+      }
+      switch (timeUnit) {
+        case ParquetConstants.TIME_UNIT_MICROS:
+          return Instant.ofEpochSecond(Math.floorDiv(value, 1000000),
+            Math.floorMod(value, 1000000) * 1000);
+        case ParquetConstants.TIME_UNIT_NANOS:
+          return Instant.ofEpochSecond(Math.floorDiv(value, 1000000000),
+            Math.floorMod(value, 1000000000));
+        default:
+          return Instant.ofEpochMilli(value);
+      }
+    } else {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataType;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbChannelWriter;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.ColumnChunk;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.SchemaElement;
+import com.revolsys.record.io.format.parquet.ParquetFileMetaData.Statistics;
+
+/**
+ * Buffer the values of an optional column for a row group and write them as a column chunk with
+ * a single PLAIN encoded data page and the min and max statistics.
+ */
+class ParquetColumnWriter {
+  private static int compare(final Object value1, final Object value2) {
+    if (value1 instanceof byte[]) {
+      return Arrays.compareUnsigned((byte[])value1, (byte[])value2);
+    } else if (value1 instanceof Boolean) {
+      return Boolean.compare((Boolean)value1, (Boolean)value2);
+    } else if (value1 instanceof Integer) {
+      return Integer.compare((Integer)value1, (Integer)value2);
+    } else if (value1 instanceof Long) {
+      return Long.compare((Long)value1, (Long)value2);
+    } else if (value1 instanceof Float) {
+      return Float.compare((Float)value1, (Float)value2);
+    } else {
+      return Double.compare((Double)value1, (Double)value2);
+    }
+  }
+
+  private static byte[] getBytes(final Object value) {
+    if (value instanceof byte[]) {
+      return (byte[])value;
+    } else if (value instanceof Blob) {
+      final Blob blob = (Blob)value;
+      try {
+        return blob.getBytes(1, (int)blob.length());
+      } catch (final SQLException e) {
+        throw Exceptions.wrap(e);
+      }
+    } else {
+      return DataTypes.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static void writeInt(final ByteArrayOutputStream out, final int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+  private static void writeLong(final ByteArrayOutputStream out, final long value) {
+    writeInt(out, (int)value);
+    writeInt(out, (int)(value >>> 32));
+  }
+
+  private final int convertedType;
+
+  private int count;
+
+  private final DataType dataType;
+
+  private final GeometryFactory geometryFactory;
+
+  private Object max;
+
+  private Object min;
+
+  private final String name;
+
+  private int nullCount;
+
+  private final String path;
+
+  private final int type;
+
+  private Object[] values = new Object[1024];
+
+  ParquetColumnWriter(final String path, final DataType dataType,
+    final GeometryFactory geometryFactory) {
+    this.path = path;
+    this.name = path.substring(path.lastIndexOf('.') + 1);
+    this.dataType = dataType;
+    if (dataType instanceof GeometryDataType) {
+      this.geometryFactory = geometryFactory;
+      this.type = ParquetConstants.TYPE_BYTE_ARRAY;
+      this.convertedType = -1;
+    } else {
+      this.geometryFactory = null;
+      if (DataTypes.BOOLEAN.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_BOOLEAN;
+        this.convertedType = -1;
+      } else if (DataTypes.BYTE.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT32;
+        this.convertedType = ParquetConstants.CONVERTED_TYPE_INT_8;
+      } else if (DataTypes.SHORT.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT32;
+        this.convertedType = ParquetConstants.CONVERTED_TYPE_INT_16;
+      } else if (DataTypes.INT.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT32;
+        this.convertedType = -1;
+      } else if (DataTypes.LONG.equals(dataType) || DataTypes.BIG_INTEGER.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT64;
+        this.convertedType = -1;
+      } else if (DataTypes.FLOAT.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_FLOAT;
+        this.convertedType = -1;
+      } else if (DataTypes.DOUBLE.equals(dataType) || DataTypes.DECIMAL.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_DOUBLE;
+        this.convertedType = -1;
+      } else if (DataTypes.SQL_DATE.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT32;
+        this.convertedType = ParquetConstants.CONVERTED_TYPE_DATE;
+      } else if (DataTypes.DATE_TIME.equals(dataType) || DataTypes.TIMESTAMP.equals(dataType)
+        || DataTypes.UTIL_DATE.equals(dataType) || DataTypes.INSTANT.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_INT64;
+        this.convertedType = ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MILLIS;
+      } else if (DataTypes.BLOB.equals(dataType) || DataTypes.BASE64_BINARY.equals(dataType)) {
+        this.type = ParquetConstants.TYPE_BYTE_ARRAY;
+        this.convertedType = -1;
+      } else {
+        this.type = ParquetConstants.TYPE_BYTE_ARRAY;
+        this.convertedType = ParquetConstants.CONVERTED_TYPE_UTF8;
+      }
+    }
+  }
+
+  /**
+   * Add the value for the next row, converted to the physical type of the column.
+   *
+   * @param value The value.
+   */
+  public void addValue(final Object value) {
+    if (this.count == this.values.length) {
+      this.values = Arrays.copyOf(this.values, this.count * 2);
+    }
+    final Object physicalValue = toPhysicalValue(value);
+    this.values[this.count++] = physicalValue;
+    if (physicalValue == null) {
+      this.nullCount++;
+    } else if (this.geometryFactory == null) {
+      if (physicalValue instanceof Float && ((Float)physicalValue).isNaN()
+        || physicalValue instanceof Double && ((Double)physicalValue).isNaN()) {
+        // NaN values are not included in the statistics
+      } else if (this.min == null) {
+        this.min = physicalValue;
+        this.max = physicalValue;
+      } else if (compare(physicalValue, this.min) < 0) {
+        this.min = physicalValue;
+      } else if (compare(physicalValue, this.max) > 0) {
+        this.max = physicalValue;
+      }
+    }
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Create the schema element. The definition levels written are 0 for null and 1 for a value,
+   * so either the column or its parent group must be optional.
+   *
+   * @param repetitionType The repetition type of the column.
+   * @return The schema element.
+   */
+  public SchemaElement newSchemaElement(final int repetitionType) {
+    return new SchemaElement(this.name, this.type, repetitionType, this.convertedType);
+  }
+
+  private Object toPhysicalValue(final Object value) {
+    if (value == null) {
+      return null;
+    }
+    switch (this.type) {
+      case ParquetConstants.TYPE_BOOLEAN:
+        return DataTypes.BOOLEAN.toObject(value);
+      case ParquetConstants.TYPE_INT32:
+        if (this.convertedType == ParquetConstants.CONVERTED_TYPE_DATE) {
+          final Date date = DataTypes.SQL_DATE.toObject(value);
+          return (int)date.toLocalDate().toEpochDay();
+        } else {
+          return ((Number)this.dataType.toObject(value)).intValue();
+        }
+      case ParquetConstants.TYPE_INT64:
+        if (this.convertedType == ParquetConstants.CONVERTED_TYPE_TIMESTAMP_MILLIS) {
+          final Instant instant = DataTypes.INSTANT.toObject(value);
+          return instant.toEpochMilli();
+        } else {
+          return ((Number)this.dataType.toObject(value)).longValue();
+        }
+      case ParquetConstants.TYPE_FLOAT:
+        return ((Number)DataTypes.FLOAT.toObject(value)).floatValue();
+      case ParquetConstants.TYPE_DOUBLE:
+        return ((Number)DataTypes.DOUBLE.toObject(value)).doubleValue();
+      default:
+        if (this.geometryFactory != null) {
+          Geometry geometry = (Geometry)value;
+          geometry = geometry.convertGeometry(this.geometryFactory);
+          final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          final WkbChannelWriter writer = new WkbChannelWriter(bytes);
+          writer.writeGeometry(geometry);
+          writer.flush();
+          return bytes.toByteArray();
+        } else {
+          return getBytes(value);
+        }
+    }
+  }
+
+  private void writePlainValue(final ByteArrayOutputStream out, final Object value) {
+    switch (this.type) {
+      case ParquetConstants.TYPE_INT32:
+        writeInt(out, (Integer)value);
+      break;
+      case ParquetConstants.TYPE_INT64:
+        writeLong(out, (Long)value);
+      break;
+      case ParquetConstants.TYPE_FLOAT:
+        writeInt(out, Float.floatToIntBits((Float)value));
+      break;
+      case ParquetConstants.TYPE_DOUBLE:
+        writeLong(out, Double.doubleToLongBits((Double)value));
+      break;
+      default:
+        final byte[] bytes = (byte[])value;
+        out.write(bytes, 0, bytes.length);
+      break;
+    }
+  }
+
+  /**
+   * Write the buffered values as a column chunk and clear the buffer.
+   *
+   * @param out The output stream.
+   * @param offset The position in the file the column chunk will be written at.
+   * @param codec The compression codec.
+   * @return The column chunk metadata.
+   */
+  public ColumnChunk writeColumnChunk(final OutputStream out, final long offset,
+    final int codec) throws IOException {
+    final int count = this.count;
+    final Object[] values = this.values;
+    final ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+    final int[] definitionLevels = new int[count];
+    for (int i = 0; i < count; i++) {
+      if (values[i] != null) {
+        definitionLevels[i] = 1;
+      }
+    }
+    final byte[] levels = RleBitPackedHybrid.encode(definitionLevels, count, 1);
+    writeInt(page, levels.length);
+    page.write(levels, 0, levels.length);
+
+    if (this.type == ParquetConstants.TYPE_BOOLEAN) {
+      int bits = 0;
+      int bitCount = 0;
+      for (int i = 0; i < count; i++) {
+        final Object value = values[i];
+        if (value != null) {
+          if ((Boolean)value) {
+            bits |= 1 << bitCount;
+          }
+          if (++bitCount == 8) {
+            page.write(bits);
+            bits = 0;
+            bitCount = 0;
+          }
+        }
+      }
+      if (bitCount > 0) {
+        page.write(bits);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        final Object value = values[i];
+        if (value != null) {
+          if (this.type == ParquetConstants.TYPE_BYTE_ARRAY) {
+            writeInt(page, ((byte[])value).length);
+          }
+          writePlainValue(page, value);
+        }
+      }
+    }
+
+    final byte[] uncompressed = page.toByteArray();
+    byte[] compressed = uncompressed;
+    if (codec == ParquetConstants.CODEC_GZIP) {
+      final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream();
+      try (
+        GZIPOutputStream gzipOut = new GZIPOutputStream(gzipBytes)) {
+        gzipOut.write(uncompressed);
+      }
+      compressed = gzipBytes.toByteArray();
+    }
+    final byte[] header = new ParquetPageHeader(count, ParquetConstants.ENCODING_PLAIN,
+      uncompressed.length, compressed.length).toByteArray();
+    out.write(header);
+    out.write(compressed);
+
+    Statistics statistics = null;
+    if (this.geometryFactory == null) {
+      byte[] minBytes = null;
+      byte[] maxBytes = null;
+      if (this.min != null) {
+        minBytes = toStatisticsBytes(this.min);
+        maxBytes = toStatisticsBytes(this.max);
+      }
+      statistics = new Statistics(minBytes, maxBytes, this.nullCount);
+    }
+    final ColumnChunk columnChunk = new ColumnChunk(this.path, this.type, codec);
+    columnChunk.setPage(offset, count, header.length + uncompressed.length,
+      header.length + compressed.length, ParquetConstants.ENCODING_PLAIN, statistics);
+
+    Arrays.fill(values, 0, count, null);
+    this.count = 0;
+    this.nullCount = 0;
+    this.min = null;
+    this.max = null;
+    return columnChunk;
+  }
+
+  private byte[] toStatisticsBytes(final Object value) {
+    if (value instanceof Boolean) {
+      return new byte[] {
+        (byte)((Boolean)value ? 1 : 0)
+      };
+    } else {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writePlainValue(out, value);
+      return out.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.revolsys.record.io.format.parquet;
+
+/**
+ * The magic bytes and the enumeration values of the Parquet file format.
+ */
+public class ParquetConstants {
+  public static final int CODEC_GZIP = 2;
+
+  public static final int CODEC_SNAPPY = 1;
+
+  public static final int CODEC_UNCOMPRESSED = 0;
+
+  public static final int CONVERTED_TYPE_DATE = 6;
+
+  public static final int CONVERTED_TYPE_DECIMAL = 5;
+
+  public static final int CONVERTED_TYPE_ENUM = 4;
+
+  public static final int CONVERTED_TYPE_INT_16 = 16;
+
+  public static final int CONVERTED_TYPE_INT_8 = 15;
+
+  public static final int CONVERTED_TYPE_JSON = 19;
+
+  public static final int CONVERTED_TYPE_TIMESTAMP_MICROS = 10;
+
+  public static final int CONVERTED_TYPE_TIMESTAMP_MILLIS = 9;
+
+  public static final int CONVERTED_TYPE_UINT_16 = 12;
+
+  public static final int CONVERTED_TYPE_UINT_32 = 13;
+
+  public static final int CONVERTED_TYPE_UINT_8 = 11;
+
+  public static final int CONVERTED_TYPE_UTF8 = 0;
+
+  public static final String DESCRIPTION = "GeoParquet";
+
+  public static final int ENCODING_PLAIN = 0;
+
+  public static final int ENCODING_PLAIN_DICTIONARY = 2;
+
+  public static final int ENCODING_RLE = 3;
+
+  public static final int ENCODING_RLE_DICTIONARY = 8;
+
+  public static final String FILE_EXTENSION = "parquet";
+
+  /** The key of the GeoParquet metadata in the file key value metadata. */
+  public static final String GEO_METADATA_KEY = "geo";
+
+  public static final String GEO_PARQUET_VERSION = "1.1.0";
+
+  public static final int LOGICAL_TYPE_DATE = 6;
+
+  public static final int LOGICAL_TYPE_DECIMAL = 5;
+
+  public static final int LOGICAL_TYPE_ENUM = 4;
+
+  public static final int LOGICAL_TYPE_INTEGER = 10;
+
+  public static final int LOGICAL_TYPE_JSON = 12;
+
+  public static final int LOGICAL_TYPE_STRING = 1;
+
+  public static final int LOGICAL_TYPE_TIMESTAMP = 8;
+
+  public static final byte[] MAGIC = {
+    'P', 'A', 'R', '1'
+  };
+
+  public static final String MEDIA_TYPE = "application/vnd.apache.parquet";
+
+  public static final int PAGE_TYPE_DATA_PAGE = 0;
+
+  public static final int PAGE_TYPE_DATA_PAGE_V2 = 3;
+
+  public static final int PAGE_TYPE_DICTIONARY_PAGE = 2;
+
+  public static final int REPETITION_OPTIONAL = 1;
+
+  public static final int REPETITION_REPEATED = 2;
+
+  public static final int REPETITION_REQUIRED = 0;
+
+  public static final int TIME_UNIT_MICROS = 2;
+
+  public static final int TIME_UNIT_MILLIS = 1;
+
+  public static final int TIME_UNIT_NANOS = 3;
+
+  public static final int TYPE_BOOLEAN = 0;
+
+  public static final int TYPE_BYTE_ARRAY = 6;
+
+  public static final int TYPE_DOUBLE = 5;
+
+  public static final int TYPE_FIXED_LEN_BYTE_ARRAY = 7;
+
+  public static final int TYPE_FLOAT = 4;
+
+  public static final int TYPE_INT32 = 1;
+
+  public static final int TYPE_INT64 = 2;
+
+  public static final int TYPE_INT96 = 3;
+}
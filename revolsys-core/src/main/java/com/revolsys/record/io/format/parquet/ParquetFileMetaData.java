@@ -0,0 +1,681 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The footer of a Parquet file: the schema, the row groups and the location and statistics of
+ * each column chunk. Only the parts of the Thrift structures used by the reader and writer are
+ * stored, the other fields are skipped when read.
+ */
+class ParquetFileMetaData {
+  static class ColumnChunk {
+    private int codec = ParquetConstants.CODEC_UNCOMPRESSED;
+
+    private long dataPageOffset;
+
+    private long dictionaryPageOffset = -1;
+
+    private List<Integer> encodings = new ArrayList<>();
+
+    private long numValues;
+
+    private String path;
+
+    private Statistics statistics;
+
+    private long totalCompressedSize;
+
+    private long totalUncompressedSize;
+
+    private int type;
+
+    ColumnChunk() {
+    }
+
+    ColumnChunk(final String path, final int type, final int codec) {
+      this.path = path;
+      this.type = type;
+      this.codec = codec;
+    }
+
+    public int getCodec() {
+      return this.codec;
+    }
+
+    public String getPath() {
+      return this.path;
+    }
+
+    /**
+     * Get the position of the first page of the column chunk in the file.
+     *
+     * @return The position.
+     */
+    public long getStartOffset() {
+      final long dictionaryPageOffset = this.dictionaryPageOffset;
+      if (dictionaryPageOffset > 0 && dictionaryPageOffset < this.dataPageOffset) {
+        return dictionaryPageOffset;
+      } else {
+        return this.dataPageOffset;
+      }
+    }
+
+    public Statistics getStatistics() {
+      return this.statistics;
+    }
+
+    public long getTotalCompressedSize() {
+      return this.totalCompressedSize;
+    }
+
+    public long getTotalUncompressedSize() {
+      return this.totalUncompressedSize;
+    }
+
+    public int getType() {
+      return this.type;
+    }
+
+    private void read(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        if (in.getFieldId() == 3) {
+          readMetaData(in);
+        } else {
+          in.skip(fieldType);
+        }
+      }
+      in.readStructEnd();
+    }
+
+    private void readMetaData(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        switch (in.getFieldId()) {
+          case 1:
+            this.type = in.readI32();
+          break;
+          case 2: {
+            final int count = in.readListBegin();
+            for (int i = 0; i < count; i++) {
+              this.encodings.add(in.readI32());
+            }
+          }
+          break;
+          case 3: {
+            final int count = in.readListBegin();
+            final StringBuilder path = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+              if (i > 0) {
+                path.append('.');
+              }
+              path.append(in.readString());
+            }
+            this.path = path.toString();
+          }
+          break;
+          case 4:
+            this.codec = in.readI32();
+          break;
+          case 5:
+            this.numValues = in.readI64();
+          break;
+          case 6:
+            this.totalUncompressedSize = in.readI64();
+          break;
+          case 7:
+            this.totalCompressedSize = in.readI64();
+          break;
+          case 9:
+            this.dataPageOffset = in.readI64();
+          break;
+          case 11:
+            this.dictionaryPageOffset = in.readI64();
+          break;
+          case 12:
+            this.statistics = new Statistics();
+            this.statistics.read(in);
+          break;
+          default:
+            in.skip(fieldType);
+          break;
+        }
+      }
+      in.readStructEnd();
+    }
+
+    void setPage(final long dataPageOffset, final long numValues,
+      final long totalUncompressedSize, final long totalCompressedSize, final int encoding,
+      final Statistics statistics) {
+      this.dataPageOffset = dataPageOffset;
+      this.numValues = numValues;
+      this.totalUncompressedSize = totalUncompressedSize;
+      this.totalCompressedSize = totalCompressedSize;
+      this.encodings.clear();
+      this.encodings.add(encoding);
+      if (!this.encodings.contains(ParquetConstants.ENCODING_RLE)) {
+        this.encodings.add(ParquetConstants.ENCODING_RLE);
+      }
+      this.statistics = statistics;
+    }
+
+    private void write(final ThriftCompactWriter out) {
+      out.writeStructBegin();
+      out.writeI64Field(2, this.dataPageOffset);
+      out.writeStructFieldBegin(3);
+      out.writeI32Field(1, this.type);
+      out.writeListFieldBegin(2, ThriftCompactReader.TYPE_I32, this.encodings.size());
+      for (final int encoding : this.encodings) {
+        out.writeI32(encoding);
+      }
+      final String[] pathElements = this.path.split("\\.");
+      out.writeListFieldBegin(3, ThriftCompactReader.TYPE_BINARY, pathElements.length);
+      for (final String pathElement : pathElements) {
+        out.writeString(pathElement);
+      }
+      out.writeI32Field(4, this.codec);
+      out.writeI64Field(5, this.numValues);
+      out.writeI64Field(6, this.totalUncompressedSize);
+      out.writeI64Field(7, this.totalCompressedSize);
+      out.writeI64Field(9, this.dataPageOffset);
+      if (this.statistics != null) {
+        out.writeStructFieldBegin(12);
+        this.statistics.write(out);
+      }
+      out.writeStructEnd();
+      out.writeStructEnd();
+    }
+  }
+
+  static class RowGroup {
+    private final List<ColumnChunk> columns = new ArrayList<>();
+
+    private long numRows;
+
+    private long totalByteSize;
+
+    RowGroup() {
+    }
+
+    RowGroup(final List<ColumnChunk> columns, final long numRows, final long totalByteSize) {
+      this.columns.addAll(columns);
+      this.numRows = numRows;
+      this.totalByteSize = totalByteSize;
+    }
+
+    public ColumnChunk getColumn(final String path) {
+      for (final ColumnChunk column : this.columns) {
+        if (column.getPath().equals(path)) {
+          return column;
+        }
+      }
+      return null;
+    }
+
+    public List<ColumnChunk> getColumns() {
+      return this.columns;
+    }
+
+    public long getNumRows() {
+      return this.numRows;
+    }
+
+    private void read(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        switch (in.getFieldId()) {
+          case 1: {
+            final int count = in.readListBegin();
+            for (int i = 0; i < count; i++) {
+              final ColumnChunk column = new ColumnChunk();
+              column.read(in);
+              this.columns.add(column);
+            }
+          }
+          break;
+          case 2:
+            this.totalByteSize = in.readI64();
+          break;
+          case 3:
+            this.numRows = in.readI64();
+          break;
+          default:
+            in.skip(fieldType);
+          break;
+        }
+      }
+      in.readStructEnd();
+    }
+
+    private void write(final ThriftCompactWriter out) {
+      out.writeStructBegin();
+      out.writeListFieldBegin(1, ThriftCompactReader.TYPE_STRUCT, this.columns.size());
+      for (final ColumnChunk column : this.columns) {
+        column.write(out);
+      }
+      out.writeI64Field(2, this.totalByteSize);
+      out.writeI64Field(3, this.numRows);
+      out.writeStructEnd();
+    }
+  }
+
+  static class SchemaElement {
+    private int convertedType = -1;
+
+    private int logicalType = -1;
+
+    private String name;
+
+    private int numChildren;
+
+    private int precision;
+
+    private int repetitionType = -1;
+
+    private int scale;
+
+    private int timeUnit;
+
+    private int type = -1;
+
+    private int typeLength;
+
+    SchemaElement() {
+    }
+
+    SchemaElement(final String name, final int type, final int repetitionType,
+      final int convertedType) {
+      this.name = name;
+      this.type = type;
+      this.repetitionType = repetitionType;
+      this.convertedType = convertedType;
+    }
+
+    public int getConvertedType() {
+      return this.convertedType;
+    }
+
+    public int getLogicalType() {
+      return this.logicalType;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public int getNumChildren() {
+      return this.numChildren;
+    }
+
+    public int getPrecision() {
+      return this.precision;
+    }
+
+    public int getRepetitionType() {
+      return this.repetitionType;
+    }
+
+    public int getScale() {
+      return this.scale;
+    }
+
+    public int getTimeUnit() {
+      return this.timeUnit;
+    }
+
+    public int getType() {
+      return this.type;
+    }
+
+    public int getTypeLength() {
+      return this.typeLength;
+    }
+
+    public boolean isGroup() {
+      return this.type == -1;
+    }
+
+    private void read(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        switch (in.getFieldId()) {
+          case 1:
+            this.type = in.readI32();
+          break;
+          case 2:
+            this.typeLength = in.readI32();
+          break;
+          case 3:
+            this.repetitionType = in.readI32();
+          break;
+          case 4:
+            this.name = in.readString();
+          break;
+          case 5:
+            this.numChildren = in.readI32();
+          break;
+          case 6:
+            this.convertedType = in.readI32();
+          break;
+          case 7:
+            this.scale = in.readI32();
+          break;
+          case 8:
+            this.precision = in.readI32();
+          break;
+          case 10:
+            readLogicalType(in);
+          break;
+          default:
+            in.skip(fieldType);
+          break;
+        }
+      }
+      in.readStructEnd();
+    }
+
+    private void readLogicalType(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        final int logicalType = in.getFieldId();
+        this.logicalType = logicalType;
+        if (logicalType == ParquetConstants.LOGICAL_TYPE_DECIMAL
+          || logicalType == ParquetConstants.LOGICAL_TYPE_TIMESTAMP) {
+          in.readStructBegin();
+          int typeFieldType;
+          while ((typeFieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+            final int fieldId = in.getFieldId();
+            if (logicalType == ParquetConstants.LOGICAL_TYPE_DECIMAL && fieldId == 1) {
+              this.scale = in.readI32();
+            } else if (logicalType == ParquetConstants.LOGICAL_TYPE_DECIMAL && fieldId == 2) {
+              this.precision = in.readI32();
+            } else if (logicalType == ParquetConstants.LOGICAL_TYPE_TIMESTAMP && fieldId == 2) {
+              in.readStructBegin();
+              int unitFieldType;
+              while ((unitFieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+                this.timeUnit = in.getFieldId();
+                in.skip(unitFieldType);
+              }
+              in.readStructEnd();
+            } else {
+              in.skip(typeFieldType);
+            }
+          }
+          in.readStructEnd();
+        } else {
+          in.skip(fieldType);
+        }
+      }
+      in.readStructEnd();
+    }
+
+    void setNumChildren(final int numChildren) {
+      this.numChildren = numChildren;
+    }
+
+    private void write(final ThriftCompactWriter out) {
+      out.writeStructBegin();
+      if (this.type != -1) {
+        out.writeI32Field(1, this.type);
+      }
+      if (this.repetitionType != -1) {
+        out.writeI32Field(3, this.repetitionType);
+      }
+      out.writeStringField(4, this.name);
+      if (this.numChildren > 0) {
+        out.writeI32Field(5, this.numChildren);
+      }
+      if (this.convertedType != -1) {
+        out.writeI32Field(6, this.convertedType);
+      }
+      out.writeStructEnd();
+    }
+  }
+
+  static class Statistics {
+    private byte[] max;
+
+    private byte[] min;
+
+    private long nullCount = -1;
+
+    private boolean valueOrder;
+
+    Statistics() {
+    }
+
+    Statistics(final byte[] min, final byte[] max, final long nullCount) {
+      this.min = min;
+      this.max = max;
+      this.nullCount = nullCount;
+      this.valueOrder = true;
+    }
+
+    public byte[] getMax() {
+      return this.max;
+    }
+
+    public byte[] getMin() {
+      return this.min;
+    }
+
+    public long getNullCount() {
+      return this.nullCount;
+    }
+
+    /**
+     * Check if the min and max are the min_value and max_value using the column order, or the
+     * deprecated min and max which used signed byte comparison for binary values.
+     *
+     * @return True if the min and max use the column order.
+     */
+    public boolean isValueOrder() {
+      return this.valueOrder;
+    }
+
+    private void read(final ThriftCompactReader in) {
+      in.readStructBegin();
+      int fieldType;
+      while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+        switch (in.getFieldId()) {
+          case 1:
+            if (!this.valueOrder) {
+              this.max = in.readBinary();
+            } else {
+              in.skip(fieldType);
+            }
+          break;
+          case 2:
+            if (!this.valueOrder) {
+              this.min = in.readBinary();
+            } else {
+              in.skip(fieldType);
+            }
+          break;
+          case 3:
+            this.nullCount = in.readI64();
+          break;
+          case 5:
+            this.max = in.readBinary();
+            this.valueOrder = true;
+          break;
+          case 6:
+            this.min = in.readBinary();
+            this.valueOrder = true;
+          break;
+          default:
+            in.skip(fieldType);
+          break;
+        }
+      }
+      in.readStructEnd();
+    }
+
+    private void write(final ThriftCompactWriter out) {
+      if (this.nullCount >= 0) {
+        out.writeI64Field(3, this.nullCount);
+      }
+      out.writeBinaryField(5, this.max);
+      out.writeBinaryField(6, this.min);
+      out.writeStructEnd();
+    }
+  }
+
+  public static ParquetFileMetaData read(final byte[] bytes) {
+    final ParquetFileMetaData metaData = new ParquetFileMetaData();
+    final ThriftCompactReader in = new ThriftCompactReader(bytes);
+    in.readStructBegin();
+    int fieldType;
+    while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+      switch (in.getFieldId()) {
+        case 1:
+          metaData.version = in.readI32();
+        break;
+        case 2: {
+          final int count = in.readListBegin();
+          for (int i = 0; i < count; i++) {
+            final SchemaElement element = new SchemaElement();
+            element.read(in);
+            metaData.schema.add(element);
+          }
+        }
+        break;
+        case 3:
+          metaData.numRows = in.readI64();
+        break;
+        case 4: {
+          final int count = in.readListBegin();
+          for (int i = 0; i < count; i++) {
+            final RowGroup rowGroup = new RowGroup();
+            rowGroup.read(in);
+            metaData.rowGroups.add(rowGroup);
+          }
+        }
+        break;
+        case 5: {
+          final int count = in.readListBegin();
+          for (int i = 0; i < count; i++) {
+            String key = null;
+            String value = null;
+            in.readStructBegin();
+            int keyValueFieldType;
+            while ((keyValueFieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+              if (in.getFieldId() == 1) {
+                key = in.readString();
+              } else if (in.getFieldId() == 2) {
+                value = in.readString();
+              } else {
+                in.skip(keyValueFieldType);
+              }
+            }
+            in.readStructEnd();
+            metaData.keyValueMetadata.put(key, value);
+          }
+        }
+        break;
+        case 6:
+          metaData.createdBy = in.readString();
+        break;
+        default:
+          in.skip(fieldType);
+        break;
+      }
+    }
+    in.readStructEnd();
+    return metaData;
+  }
+
+  private String createdBy;
+
+  private final Map<String, String> keyValueMetadata = new LinkedHashMap<>();
+
+  private long numRows;
+
+  private final List<RowGroup> rowGroups = new ArrayList<>();
+
+  private final List<SchemaElement> schema = new ArrayList<>();
+
+  private int version = 1;
+
+  public void addRowGroup(final RowGroup rowGroup) {
+    this.rowGroups.add(rowGroup);
+    this.numRows += rowGroup.getNumRows();
+  }
+
+  public void addSchemaElement(final SchemaElement element) {
+    this.schema.add(element);
+  }
+
+  public String getCreatedBy() {
+    return this.createdBy;
+  }
+
+  public Map<String, String> getKeyValueMetadata() {
+    return this.keyValueMetadata;
+  }
+
+  public long getNumRows() {
+    return this.numRows;
+  }
+
+  public List<RowGroup> getRowGroups() {
+    return this.rowGroups;
+  }
+
+  public List<SchemaElement> getSchema() {
+    return this.schema;
+  }
+
+  public void setCreatedBy(final String createdBy) {
+    this.createdBy = createdBy;
+  }
+
+  public byte[] toByteArray() {
+    final ThriftCompactWriter out = new ThriftCompactWriter();
+    out.writeStructBegin();
+    out.writeI32Field(1, this.version);
+    out.writeListFieldBegin(2, ThriftCompactReader.TYPE_STRUCT, this.schema.size());
+    for (final SchemaElement element : this.schema) {
+      element.write(out);
+    }
+    out.writeI64Field(3, this.numRows);
+    out.writeListFieldBegin(4, ThriftCompactReader.TYPE_STRUCT, this.rowGroups.size());
+    for (final RowGroup rowGroup : this.rowGroups) {
+      rowGroup.write(out);
+    }
+    if (!this.keyValueMetadata.isEmpty()) {
+      out.writeListFieldBegin(5, ThriftCompactReader.TYPE_STRUCT, this.keyValueMetadata.size());
+      for (final Map.Entry<String, String> entry : this.keyValueMetadata.entrySet()) {
+        out.writeStructBegin();
+        out.writeStringField(1, entry.getKey());
+        out.writeStringField(2, entry.getValue());
+        out.writeStructEnd();
+      }
+    }
+    out.writeStringField(6, this.createdBy);
+    // The min_value and max_value statistics use the type defined order of each column
+    int leafCount = 0;
+    for (final SchemaElement element : this.schema) {
+      if (!element.isGroup()) {
+        leafCount++;
+      }
+    }
+    out.writeListFieldBegin(7, ThriftCompactReader.TYPE_STRUCT, leafCount);
+    for (int i = 0; i < leafCount; i++) {
+      out.writeStructBegin();
+      out.writeStructFieldBegin(1);
+      out.writeStructEnd();
+      out.writeStructEnd();
+    }
+    out.writeStructEnd();
+    return out.toByteArray();
+  }
+}
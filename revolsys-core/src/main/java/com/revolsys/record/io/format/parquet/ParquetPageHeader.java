@@ -0,0 +1,184 @@
+package com.revolsys.record.io.format.parquet;
+
+/**
+ * The header at the start of each page in a column chunk. Index pages and the statistics of
+ * each page are skipped.
+ */
+class ParquetPageHeader {
+  public static ParquetPageHeader read(final byte[] bytes, final int offset, final int length) {
+    final ParquetPageHeader header = new ParquetPageHeader();
+    final ThriftCompactReader in = new ThriftCompactReader(bytes, offset, length);
+    in.readStructBegin();
+    int fieldType;
+    while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+      switch (in.getFieldId()) {
+        case 1:
+          header.type = in.readI32();
+        break;
+        case 2:
+          header.uncompressedSize = in.readI32();
+        break;
+        case 3:
+          header.compressedSize = in.readI32();
+        break;
+        case 5:
+        case 7:
+          header.readPageHeader(in);
+        break;
+        case 8:
+          header.readDataPageHeaderV2(in);
+        break;
+        default:
+          in.skip(fieldType);
+        break;
+      }
+    }
+    in.readStructEnd();
+    header.headerSize = in.getPosition() - offset;
+    return header;
+  }
+
+  private int compressedSize;
+
+  private int definitionLevelsLength;
+
+  private int encoding;
+
+  private int headerSize;
+
+  private int numValues;
+
+  private int repetitionLevelsLength;
+
+  private int type;
+
+  private int uncompressedSize;
+
+  private boolean valuesCompressed = true;
+
+  ParquetPageHeader() {
+  }
+
+  ParquetPageHeader(final int numValues, final int encoding, final int uncompressedSize,
+    final int compressedSize) {
+    this.type = ParquetConstants.PAGE_TYPE_DATA_PAGE;
+    this.numValues = numValues;
+    this.encoding = encoding;
+    this.uncompressedSize = uncompressedSize;
+    this.compressedSize = compressedSize;
+  }
+
+  public int getCompressedSize() {
+    return this.compressedSize;
+  }
+
+  public int getDefinitionLevelsLength() {
+    return this.definitionLevelsLength;
+  }
+
+  public int getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * Get the number of bytes used by the Thrift encoded header.
+   *
+   * @return The number of bytes.
+   */
+  public int getHeaderSize() {
+    return this.headerSize;
+  }
+
+  public int getNumValues() {
+    return this.numValues;
+  }
+
+  public int getRepetitionLevelsLength() {
+    return this.repetitionLevelsLength;
+  }
+
+  public int getType() {
+    return this.type;
+  }
+
+  public int getUncompressedSize() {
+    return this.uncompressedSize;
+  }
+
+  /**
+   * Check if the values of a version 2 data page are compressed. The levels of a version 2
+   * data page are never compressed.
+   *
+   * @return True if the values are compressed.
+   */
+  public boolean isValuesCompressed() {
+    return this.valuesCompressed;
+  }
+
+  private void readDataPageHeaderV2(final ThriftCompactReader in) {
+    in.readStructBegin();
+    int fieldType;
+    while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+      switch (in.getFieldId()) {
+        case 1:
+          this.numValues = in.readI32();
+        break;
+        case 4:
+          this.encoding = in.readI32();
+        break;
+        case 5:
+          this.definitionLevelsLength = in.readI32();
+        break;
+        case 6:
+          this.repetitionLevelsLength = in.readI32();
+        break;
+        case 7:
+          this.valuesCompressed = in.readBoolean();
+        break;
+        default:
+          in.skip(fieldType);
+        break;
+      }
+    }
+    in.readStructEnd();
+  }
+
+  /**
+   * Read the num_values and encoding fields shared by the data page and dictionary page
+   * headers.
+   */
+  private void readPageHeader(final ThriftCompactReader in) {
+    in.readStructBegin();
+    int fieldType;
+    while ((fieldType = in.readFieldBegin()) != ThriftCompactReader.TYPE_STOP) {
+      switch (in.getFieldId()) {
+        case 1:
+          this.numValues = in.readI32();
+        break;
+        case 2:
+          this.encoding = in.readI32();
+        break;
+        default:
+          in.skip(fieldType);
+        break;
+      }
+    }
+    in.readStructEnd();
+  }
+
+  public byte[] toByteArray() {
+    final ThriftCompactWriter out = new ThriftCompactWriter();
+    out.writeStructBegin();
+    out.writeI32Field(1, this.type);
+    out.writeI32Field(2, this.uncompressedSize);
+    out.writeI32Field(3, this.compressedSize);
+    out.writeStructFieldBegin(5);
+    out.writeI32Field(1, this.numValues);
+    out.writeI32Field(2, this.encoding);
+    out.writeI32Field(3, ParquetConstants.ENCODING_RLE);
+    out.writeI32Field(4, ParquetConstants.ENCODING_RLE);
+    out.writeStructEnd();
+    out.writeStructEnd();
+    return out.toByteArray();
+  }
+}
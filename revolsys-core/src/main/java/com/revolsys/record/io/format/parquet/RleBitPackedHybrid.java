@@ -0,0 +1,151 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The run length encoding and bit packing hybrid used by Parquet for definition levels,
+ * repetition levels, booleans and dictionary indexes.
+ */
+final class RleBitPackedHybrid {
+  /**
+   * Decode the values from the bytes.
+   *
+   * @param bytes The encoded bytes.
+   * @param offset The offset of the first run header.
+   * @param end The offset after the last encoded byte.
+   * @param bitWidth The number of bits for each value.
+   * @param values The array to store the values in.
+   * @param count The number of values to decode.
+   * @return The offset after the last run that was read.
+   */
+  public static int decode(final byte[] bytes, final int offset, final int end,
+    final int bitWidth, final int[] values, final int count) {
+    final int byteWidth = (bitWidth + 7) / 8;
+    final long mask = (1L << bitWidth) - 1;
+    int position = offset;
+    int index = 0;
+    while (index < count) {
+      int header = 0;
+      int shift = 0;
+      int b;
+      do {
+        if (position >= end) {
+          throw new IllegalArgumentException("Truncated run length encoded data");
+        }
+        b = bytes[position++] & 0xff;
+        header |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+
+      if ((header & 1) == 0) {
+        final int runLength = header >>> 1;
+        if (position + byteWidth > end) {
+          throw new IllegalArgumentException("Truncated run length encoded data");
+        }
+        int value = 0;
+        for (int i = 0; i < byteWidth; i++) {
+          value |= (bytes[position++] & 0xff) << i * 8;
+        }
+        final int runEnd = Math.min(count, index + runLength);
+        while (index < runEnd) {
+          values[index++] = value;
+        }
+      } else {
+        final int valueCount = (header >>> 1) * 8;
+        final int packedEnd = position + (header >>> 1) * bitWidth;
+        if (packedEnd > end) {
+          throw new IllegalArgumentException("Truncated bit packed data");
+        }
+        long buffer = 0;
+        int bufferBits = 0;
+        for (int i = 0; i < valueCount; i++) {
+          while (bufferBits < bitWidth) {
+            buffer |= (long)(bytes[position++] & 0xff) << bufferBits;
+            bufferBits += 8;
+          }
+          if (index < count) {
+            values[index++] = (int)(buffer & mask);
+          }
+          buffer >>>= bitWidth;
+          bufferBits -= bitWidth;
+        }
+        position = packedEnd;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Encode the values using runs of repeated values and groups of 8 bit packed values for
+   * sequences that change frequently.
+   *
+   * @param values The values.
+   * @param count The number of values.
+   * @param bitWidth The number of bits for each value.
+   * @return The encoded bytes.
+   */
+  public static byte[] encode(final int[] values, final int count, final int bitWidth) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final int byteWidth = (bitWidth + 7) / 8;
+    int index = 0;
+    while (index < count) {
+      final int runLength = getRunLength(values, index, count);
+      if (runLength >= 8) {
+        writeVarint(out, runLength << 1);
+        final int value = values[index];
+        for (int i = 0; i < byteWidth; i++) {
+          out.write(value >>> i * 8);
+        }
+        index += runLength;
+      } else {
+        final int start = index;
+        int groupCount = 0;
+        do {
+          groupCount++;
+          index += 8;
+        } while (index < count && groupCount < 63 && getRunLength(values, index, count) < 8);
+        writeVarint(out, groupCount << 1 | 1);
+        long buffer = 0;
+        int bufferBits = 0;
+        for (int i = start; i < index; i++) {
+          int value = 0;
+          if (i < count) {
+            value = values[i];
+          }
+          buffer |= (long)value << bufferBits;
+          bufferBits += bitWidth;
+          while (bufferBits >= 8) {
+            out.write((int)buffer);
+            buffer >>>= 8;
+            bufferBits -= 8;
+          }
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  public static int getBitWidth(final int maxValue) {
+    return 32 - Integer.numberOfLeadingZeros(maxValue);
+  }
+
+  private static int getRunLength(final int[] values, final int index, final int count) {
+    final int value = values[index];
+    int end = index + 1;
+    while (end < count && values[end] == value) {
+      end++;
+    }
+    return end - index;
+  }
+
+  private static void writeVarint(final ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7f) != 0) {
+      out.write(value & 0x7f | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private RleBitPackedHybrid() {
+  }
+}
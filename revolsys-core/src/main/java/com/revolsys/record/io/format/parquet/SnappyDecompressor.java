@@ -0,0 +1,78 @@
+package com.revolsys.record.io.format.parquet;
+
+/**
+ * Decompress a raw (unframed) Snappy block as used for Parquet pages.
+ */
+final class SnappyDecompressor {
+  public static byte[] decompress(final byte[] bytes, final int offset, final int length) {
+    final int end = offset + length;
+    int position = offset;
+    int uncompressedLength = 0;
+    int shift = 0;
+    int b;
+    do {
+      if (position >= end) {
+        throw new IllegalArgumentException("Truncated Snappy data");
+      }
+      b = bytes[position++] & 0xff;
+      uncompressedLength |= (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+
+    final byte[] result = new byte[uncompressedLength];
+    int resultPosition = 0;
+    while (position < end) {
+      final int tag = bytes[position++] & 0xff;
+      final int elementType = tag & 3;
+      if (elementType == 0) {
+        int literalLength = tag >>> 2;
+        if (literalLength >= 60) {
+          final int byteCount = literalLength - 59;
+          literalLength = 0;
+          for (int i = 0; i < byteCount; i++) {
+            literalLength |= (bytes[position++] & 0xff) << i * 8;
+          }
+        }
+        literalLength++;
+        if (position + literalLength > end || resultPosition + literalLength > result.length) {
+          throw new IllegalArgumentException("Invalid Snappy literal");
+        }
+        System.arraycopy(bytes, position, result, resultPosition, literalLength);
+        position += literalLength;
+        resultPosition += literalLength;
+      } else {
+        int copyLength;
+        int copyOffset;
+        if (elementType == 1) {
+          copyLength = (tag >>> 2 & 7) + 4;
+          copyOffset = (tag >>> 5) << 8 | bytes[position++] & 0xff;
+        } else if (elementType == 2) {
+          copyLength = (tag >>> 2) + 1;
+          copyOffset = bytes[position] & 0xff | (bytes[position + 1] & 0xff) << 8;
+          position += 2;
+        } else {
+          copyLength = (tag >>> 2) + 1;
+          copyOffset = bytes[position] & 0xff | (bytes[position + 1] & 0xff) << 8
+            | (bytes[position + 2] & 0xff) << 16 | (bytes[position + 3] & 0xff) << 24;
+          position += 4;
+        }
+        if (copyOffset <= 0 || copyOffset > resultPosition
+          || resultPosition + copyLength > result.length) {
+          throw new IllegalArgumentException("Invalid Snappy copy");
+        }
+        // Copies can overlap the bytes they produce so copy one byte at a time
+        int from = resultPosition - copyOffset;
+        for (int i = 0; i < copyLength; i++) {
+          result[resultPosition++] = result[from++];
+        }
+      }
+    }
+    if (resultPosition != result.length) {
+      throw new IllegalArgumentException("Truncated Snappy data");
+    }
+    return result;
+  }
+
+  private SnappyDecompressor() {
+  }
+}
@@ -0,0 +1,281 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read structures encoded with the Thrift compact protocol used by the Parquet file and page
+ * metadata.
+ */
+class ThriftCompactReader {
+  public static final int TYPE_BINARY = 8;
+
+  public static final int TYPE_BOOLEAN_FALSE = 2;
+
+  public static final int TYPE_BOOLEAN_TRUE = 1;
+
+  public static final int TYPE_BYTE = 3;
+
+  public static final int TYPE_DOUBLE = 7;
+
+  public static final int TYPE_I16 = 4;
+
+  public static final int TYPE_I32 = 5;
+
+  public static final int TYPE_I64 = 6;
+
+  public static final int TYPE_LIST = 9;
+
+  public static final int TYPE_MAP = 11;
+
+  public static final int TYPE_SET = 10;
+
+  public static final int TYPE_STOP = 0;
+
+  public static final int TYPE_STRUCT = 12;
+
+  private static int zigZagDecode(final int value) {
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  private final byte[] bytes;
+
+  private int fieldId;
+
+  private int fieldType;
+
+  private int lastFieldId;
+
+  private int[] lastFieldIds = new int[8];
+
+  private int listElementType;
+
+  private final int limit;
+
+  private int position;
+
+  private int structDepth;
+
+  public ThriftCompactReader(final byte[] bytes) {
+    this(bytes, 0, bytes.length);
+  }
+
+  public ThriftCompactReader(final byte[] bytes, final int offset, final int length) {
+    this.bytes = bytes;
+    this.position = offset;
+    this.limit = offset + length;
+  }
+
+  private void checkAvailable(final int count) {
+    if (count < 0 || this.position + count > this.limit) {
+      throw new IllegalArgumentException("Truncated Thrift data");
+    }
+  }
+
+  public int getFieldId() {
+    return this.fieldId;
+  }
+
+  public int getListElementType() {
+    return this.listElementType;
+  }
+
+  public int getPosition() {
+    return this.position;
+  }
+
+  public byte[] readBinary() {
+    final int length = readVarint32();
+    checkAvailable(length);
+    final byte[] value = Arrays.copyOfRange(this.bytes, this.position, this.position + length);
+    this.position += length;
+    return value;
+  }
+
+  /**
+   * Read the value of a boolean field. The value of a boolean field is stored in the field
+   * header type.
+   *
+   * @return The value.
+   */
+  public boolean readBoolean() {
+    return this.fieldType == TYPE_BOOLEAN_TRUE;
+  }
+
+  private int readByte() {
+    checkAvailable(1);
+    return this.bytes[this.position++] & 0xff;
+  }
+
+  public double readDouble() {
+    return Double.longBitsToDouble(readLongLittleEndian());
+  }
+
+  /**
+   * Read the header of the next field of the current struct.
+   *
+   * @return The field type or {@link #TYPE_STOP} at the end of the struct.
+   */
+  public int readFieldBegin() {
+    final int header = readByte();
+    final int type = header & 0x0f;
+    this.fieldType = type;
+    if (type == TYPE_STOP) {
+      this.fieldId = 0;
+    } else {
+      final int delta = header >>> 4;
+      if (delta == 0) {
+        this.fieldId = zigZagDecode(readVarint32());
+      } else {
+        this.fieldId = this.lastFieldId + delta;
+      }
+      this.lastFieldId = this.fieldId;
+    }
+    return type;
+  }
+
+  public int readI32() {
+    return zigZagDecode(readVarint32());
+  }
+
+  public long readI64() {
+    final long value = readVarint64();
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  /**
+   * Read the header of a list or set.
+   *
+   * @return The number of elements.
+   */
+  public int readListBegin() {
+    final int header = readByte();
+    this.listElementType = header & 0x0f;
+    final int size = header >>> 4;
+    if (size == 15) {
+      return readVarint32();
+    } else {
+      return size;
+    }
+  }
+
+  private long readLongLittleEndian() {
+    checkAvailable(8);
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value |= (long)(this.bytes[this.position++] & 0xff) << i * 8;
+    }
+    return value;
+  }
+
+  public String readString() {
+    final int length = readVarint32();
+    checkAvailable(length);
+    final String value = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+    this.position += length;
+    return value;
+  }
+
+  public void readStructBegin() {
+    if (this.structDepth == this.lastFieldIds.length) {
+      this.lastFieldIds = Arrays.copyOf(this.lastFieldIds, this.structDepth * 2);
+    }
+    this.lastFieldIds[this.structDepth++] = this.lastFieldId;
+    this.lastFieldId = 0;
+  }
+
+  public void readStructEnd() {
+    this.lastFieldId = this.lastFieldIds[--this.structDepth];
+  }
+
+  private int readVarint32() {
+    return (int)readVarint64();
+  }
+
+  private long readVarint64() {
+    long value = 0;
+    int shift = 0;
+    while (shift < 64) {
+      final int b = readByte();
+      value |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+    }
+    throw new IllegalArgumentException("Malformed Thrift varint");
+  }
+
+  /**
+   * Skip a value of the type, including nested structs and collections.
+   *
+   * @param type The Thrift compact type.
+   */
+  public void skip(final int type) {
+    switch (type) {
+      case TYPE_BOOLEAN_TRUE:
+      case TYPE_BOOLEAN_FALSE:
+      break;
+      case TYPE_BYTE:
+        readByte();
+      break;
+      case TYPE_I16:
+      case TYPE_I32:
+      case TYPE_I64:
+        readVarint64();
+      break;
+      case TYPE_DOUBLE:
+        checkAvailable(8);
+        this.position += 8;
+      break;
+      case TYPE_BINARY:
+        final int length = readVarint32();
+        checkAvailable(length);
+        this.position += length;
+      break;
+      case TYPE_LIST:
+      case TYPE_SET: {
+        final int size = readListBegin();
+        final int elementType = this.listElementType;
+        for (int i = 0; i < size; i++) {
+          skipElement(elementType);
+        }
+      }
+      break;
+      case TYPE_MAP: {
+        final int size = readVarint32();
+        if (size > 0) {
+          final int types = readByte();
+          for (int i = 0; i < size; i++) {
+            skipElement(types >>> 4);
+            skipElement(types & 0x0f);
+          }
+        }
+      }
+      break;
+      case TYPE_STRUCT:
+        readStructBegin();
+        int fieldType;
+        while ((fieldType = readFieldBegin()) != TYPE_STOP) {
+          skip(fieldType);
+        }
+        readStructEnd();
+      break;
+      default:
+        throw new IllegalArgumentException("Unknown Thrift compact type " + type);
+    }
+  }
+
+  /**
+   * Skip an element of a collection. Unlike fields, boolean elements are stored as a byte.
+   *
+   * @param type The Thrift compact type.
+   */
+  private void skipElement(final int type) {
+    if (type == TYPE_BOOLEAN_TRUE || type == TYPE_BOOLEAN_FALSE) {
+      readByte();
+    } else {
+      skip(type);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.revolsys.record.io.format.parquet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Write structures encoded with the Thrift compact protocol used by the Parquet file and page
+ * metadata.
+ */
+class ThriftCompactWriter {
+  private byte[] bytes = new byte[256];
+
+  private int lastFieldId;
+
+  private int[] lastFieldIds = new int[8];
+
+  private int size;
+
+  private int structDepth;
+
+  private void ensureCapacity(final int count) {
+    if (this.size + count > this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + count));
+    }
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(this.bytes, this.size);
+  }
+
+  public void writeBinary(final byte[] value) {
+    writeVarint(value.length);
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, this.bytes, this.size, value.length);
+    this.size += value.length;
+  }
+
+  public void writeBinaryField(final int fieldId, final byte[] value) {
+    if (value != null) {
+      writeFieldBegin(fieldId, ThriftCompactReader.TYPE_BINARY);
+      writeBinary(value);
+    }
+  }
+
+  public void writeBooleanField(final int fieldId, final boolean value) {
+    if (value) {
+      writeFieldBegin(fieldId, ThriftCompactReader.TYPE_BOOLEAN_TRUE);
+    } else {
+      writeFieldBegin(fieldId, ThriftCompactReader.TYPE_BOOLEAN_FALSE);
+    }
+  }
+
+  private void writeByte(final int value) {
+    ensureCapacity(1);
+    this.bytes[this.size++] = (byte)value;
+  }
+
+  private void writeFieldBegin(final int fieldId, final int type) {
+    final int delta = fieldId - this.lastFieldId;
+    if (delta > 0 && delta <= 15) {
+      writeByte(delta << 4 | type);
+    } else {
+      writeByte(type);
+      writeI32(fieldId);
+    }
+    this.lastFieldId = fieldId;
+  }
+
+  public void writeI32(final int value) {
+    writeVarint(Integer.toUnsignedLong(value << 1 ^ value >> 31));
+  }
+
+  public void writeI32Field(final int fieldId, final int value) {
+    writeFieldBegin(fieldId, ThriftCompactReader.TYPE_I32);
+    writeI32(value);
+  }
+
+  public void writeI64Field(final int fieldId, final long value) {
+    writeFieldBegin(fieldId, ThriftCompactReader.TYPE_I64);
+    writeVarint(value << 1 ^ value >> 63);
+  }
+
+  /**
+   * Write the header of a list field. The elements must be written after the header.
+   *
+   * @param fieldId The field id.
+   * @param elementType The Thrift compact type of the elements.
+   * @param size The number of elements.
+   */
+  public void writeListFieldBegin(final int fieldId, final int elementType, final int size) {
+    writeFieldBegin(fieldId, ThriftCompactReader.TYPE_LIST);
+    if (size < 15) {
+      writeByte(size << 4 | elementType);
+    } else {
+      writeByte(0xf0 | elementType);
+      writeVarint(size);
+    }
+  }
+
+  public void writeString(final String value) {
+    writeBinary(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void writeStringField(final int fieldId, final String value) {
+    if (value != null) {
+      writeFieldBegin(fieldId, ThriftCompactReader.TYPE_BINARY);
+      writeString(value);
+    }
+  }
+
+  public void writeStructBegin() {
+    if (this.structDepth == this.lastFieldIds.length) {
+      this.lastFieldIds = Arrays.copyOf(this.lastFieldIds, this.structDepth * 2);
+    }
+    this.lastFieldIds[this.structDepth++] = this.lastFieldId;
+    this.lastFieldId = 0;
+  }
+
+  /**
+   * Write the stop marker at the end of the current struct.
+   */
+  public void writeStructEnd() {
+    writeByte(ThriftCompactReader.TYPE_STOP);
+    this.lastFieldId = this.lastFieldIds[--this.structDepth];
+  }
+
+  /**
+   * Write the header of a struct field and start the struct.
+   *
+   * @param fieldId The field id.
+   */
+  public void writeStructFieldBegin(final int fieldId) {
+    writeFieldBegin(fieldId, ThriftCompactReader.TYPE_STRUCT);
+    writeStructBegin();
+  }
+
+  private void writeVarint(long value) {
+    while ((value & ~0x7fL) != 0) {
+      writeByte((int)(value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    writeByte((int)value);
+  }
+}
@@ -79,6 +79,9 @@ public class ShapefileConstants {
 
   public static final int POLYLINE_ZM_SHAPE = 13;
 
+  /** The file extension of the {@link ShapefileSpatialIndex} sidecar file. */
+  public static final String SPATIAL_INDEX_FILE_EXTENSION = "rtx";
+
   public static final int UNKNOWN_SHAPE = -1;
 
   public static final int VERSION = 1000;
@@ -97,6 +97,63 @@ public final class ShapefileGeometryUtil {
       Geometry.class);
   }
 
+  public static int getAxisCount(final int shapeType) {
+    switch (shapeType) {
+      case ShapefileConstants.POINT_SHAPE: // 1
+      case ShapefileConstants.POLYLINE_SHAPE: // 3
+      case ShapefileConstants.POLYGON_SHAPE: // 5
+      case ShapefileConstants.MULTI_POINT_SHAPE: // 8
+        return 2;
+      case ShapefileConstants.POINT_Z_SHAPE: // 9
+      case ShapefileConstants.POLYLINE_Z_SHAPE: // 10
+      case ShapefileConstants.POLYGON_Z_SHAPE: // 19
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE: // 20
+        return 3;
+      case ShapefileConstants.POINT_ZM_SHAPE: // 11
+      case ShapefileConstants.POLYLINE_ZM_SHAPE: // 13
+      case ShapefileConstants.POLYGON_ZM_SHAPE: // 15
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE: // 18
+      case ShapefileConstants.POINT_M_SHAPE: // 21
+      case ShapefileConstants.POLYLINE_M_SHAPE: // 23
+      case ShapefileConstants.POLYGON_M_SHAPE: // 25
+      case ShapefileConstants.MULTI_POINT_M_SHAPE: // 28
+        return 4;
+      default:
+        throw new RuntimeException("Unknown shape type:" + shapeType);
+    }
+  }
+
+  public static DataType getGeometryDataType(final int shapeType) {
+    switch (shapeType) {
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        return GeometryDataTypes.POINT;
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return GeometryDataTypes.MULTI_LINE_STRING;
+
+      case ShapefileConstants.POLYGON_SHAPE:
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+      case ShapefileConstants.POLYGON_M_SHAPE:
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return GeometryDataTypes.MULTI_POLYGON;
+
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return GeometryDataTypes.MULTI_POINT;
+
+      default:
+        return GeometryDataTypes.GEOMETRY;
+    }
+  }
+
   public static Method getReadMethod(String geometryTypeKey) {
     geometryTypeKey = geometryTypeKey.toUpperCase();
     final Method method = GEOMETRY_TYPE_READ_METHOD_MAP.get(geometryTypeKey);
@@ -272,6 +329,86 @@ public final class ShapefileGeometryUtil {
     }
   }
 
+  /**
+   * Read the geometry from the content of a shape record starting at the shape type.
+   *
+   * @param geometryFactory The geometry factory.
+   * @param in The input positioned at the shape type of the record.
+   * @param fileShapeType The shape type from the file header used for null shapes.
+   * @param recordLength The content length of the record in 16-bit words.
+   * @return The geometry.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Geometry readGeometry(final GeometryFactory geometryFactory, final EndianInput in,
+    final int fileShapeType, final int recordLength) throws IOException {
+    final int shapeType = in.readLEInt();
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        switch (fileShapeType) {
+          case ShapefileConstants.POINT_SHAPE:
+          case ShapefileConstants.POINT_M_SHAPE:
+          case ShapefileConstants.POINT_Z_SHAPE:
+          case ShapefileConstants.POINT_ZM_SHAPE:
+          case ShapefileConstants.MULTI_POINT_SHAPE:
+          case ShapefileConstants.MULTI_POINT_M_SHAPE:
+          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+            return geometryFactory.point();
+
+          case ShapefileConstants.POLYLINE_SHAPE:
+          case ShapefileConstants.POLYLINE_M_SHAPE:
+          case ShapefileConstants.POLYLINE_Z_SHAPE:
+          case ShapefileConstants.POLYLINE_ZM_SHAPE:
+            return geometryFactory.lineString();
+
+          case ShapefileConstants.POLYGON_SHAPE:
+          case ShapefileConstants.POLYGON_M_SHAPE:
+          case ShapefileConstants.POLYGON_Z_SHAPE:
+          case ShapefileConstants.POLYGON_ZM_SHAPE:
+            return geometryFactory.polygon();
+          default:
+            throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+        }
+      case ShapefileConstants.POINT_SHAPE:
+        return readPoint(geometryFactory, in, recordLength);
+      case ShapefileConstants.POINT_M_SHAPE:
+        return readPointM(geometryFactory, in, recordLength);
+      case ShapefileConstants.POINT_Z_SHAPE:
+        return readPointZ(geometryFactory, in, recordLength);
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        return readPointZM(geometryFactory, in, recordLength);
+
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+        return readMultipoint(geometryFactory, in, recordLength);
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+        return readMultipointM(geometryFactory, in, recordLength);
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+        return readMultipointZ(geometryFactory, in, recordLength);
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return readMultipointZM(geometryFactory, in, recordLength);
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+        return readPolyline(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+        return readPolylineM(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+        return readPolylineZ(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return readPolylineZM(geometryFactory, in, recordLength);
+
+      case ShapefileConstants.POLYGON_SHAPE:
+        return readPolygon(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYGON_M_SHAPE:
+        return readPolygonM(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+        return readPolygonZ(geometryFactory, in, recordLength);
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return readPolygonZM(geometryFactory, in, recordLength);
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
   public int[] readIntArray(final EndianInput in, final int count) throws IOException {
     final int[] values = new int[count];
     for (int i = 0; i < count; i++) {
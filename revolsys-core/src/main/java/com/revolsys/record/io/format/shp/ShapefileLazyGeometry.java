@@ -0,0 +1,95 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LazyGeometry;
+import com.revolsys.io.endian.EndianByteBuffer;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A {@link LazyGeometry} for the content of a <code>.shp</code> record. The bounding box is read
+ * from the record header without reading the coordinates. If the content isn't a valid shape the
+ * error is logged and the geometry is null.
+ */
+public class ShapefileLazyGeometry extends LazyGeometry {
+
+  private ByteBuffer buffer;
+
+  private final int fileShapeType;
+
+  private boolean invalid;
+
+  private final Resource resource;
+
+  /**
+   * @param geometryFactory The geometry factory for the geometry.
+   * @param fileShapeType The shape type from the <code>.shp</code> file header.
+   * @param content The record content starting with the shape type (excluding the record number
+   * and content length).
+   * @param resource The <code>.shp</code> file, used in the error logged for an invalid shape.
+   */
+  public ShapefileLazyGeometry(final GeometryFactory geometryFactory, final int fileShapeType,
+    final byte[] content, final Resource resource) {
+    super(geometryFactory);
+    this.fileShapeType = fileShapeType;
+    this.buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+    this.resource = resource;
+  }
+
+  @Override
+  protected BoundingBox newBoundingBox() {
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final ByteBuffer buffer = this.buffer;
+    final int shapeType = buffer.getInt(0);
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        return geometryFactory.bboxEmpty();
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE: {
+        final double x = buffer.getDouble(4);
+        final double y = buffer.getDouble(12);
+        return geometryFactory.newBoundingBox(x, y);
+      }
+      default: {
+        final double minX = buffer.getDouble(4);
+        final double minY = buffer.getDouble(12);
+        final double maxX = buffer.getDouble(20);
+        final double maxY = buffer.getDouble(28);
+        return geometryFactory.newBoundingBox(minX, minY, maxX, maxY);
+      }
+    }
+  }
+
+  @Override
+  protected Geometry newGeometry() {
+    if (this.invalid) {
+      return null;
+    }
+    final ByteBuffer buffer = this.buffer;
+    final int recordLength = buffer.capacity() / 2;
+    try {
+      final Geometry geometry = ShapefileGeometryUtil.SHP_INSTANCE
+        .readGeometry(getGeometryFactory(), new EndianByteBuffer(buffer), this.fileShapeType,
+          recordLength);
+      this.buffer = null;
+      return geometry;
+    } catch (final IllegalArgumentException e) {
+      // Only log the error once, the bounding box can still be read from the header
+      this.invalid = true;
+      Logs.error(this, "Error reading geometry from:" + this.resource, e);
+      return null;
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+  }
+}
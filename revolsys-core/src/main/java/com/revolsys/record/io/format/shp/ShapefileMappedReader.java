@@ -0,0 +1,585 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.io.PathName;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.ClockDirection;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.endian.EndianByteBuffer;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.Records;
+import com.revolsys.record.io.format.xbase.XbaseRecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A random access reader for a shapefile that memory maps the <code>.shp</code>,
+ * <code>.shx</code> and <code>.dbf</code> files.
+ *
+ * The <code>.shx</code> index is used to locate each record so records can be read by record
+ * number ({@link #getRecord(int)}) and the file can be split into ranges that are read in
+ * parallel using a {@link ForkJoinPool} ({@link #forEachParallel(BoundingBox, Consumer)}). If a
+ * bounding box is specified the bounding box (or point) in the shape record header is compared
+ * before the attributes or geometry are read. If the {@link ShapefileSpatialIndex} sidecar file
+ * exists it is used to find the records for a bounding box without reading every record header.
+ *
+ * Records marked as deleted in the <code>.dbf</code> file are skipped.
+ */
+public class ShapefileMappedReader implements BaseCloseable {
+  private class ListTask extends RecursiveTask<List<Record>> {
+    private static final long serialVersionUID = 1L;
+
+    private final BoundingBox boundingBox;
+
+    private final int endIndex;
+
+    private final int startIndex;
+
+    private ListTask(final int startIndex, final int endIndex, final BoundingBox boundingBox) {
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.boundingBox = boundingBox;
+    }
+
+    @Override
+    protected List<Record> compute() {
+      final int startIndex = this.startIndex;
+      final int endIndex = this.endIndex;
+      final int splitIndex = getSplitIndex(startIndex, endIndex);
+      if (splitIndex == -1) {
+        final List<Record> records = new ArrayList<>();
+        forEach(startIndex, endIndex, this.boundingBox, records::add);
+        return records;
+      } else {
+        final ListTask firstTask = new ListTask(startIndex, splitIndex, this.boundingBox);
+        firstTask.fork();
+        final List<Record> lastRecords = new ListTask(splitIndex, endIndex, this.boundingBox)
+          .compute();
+        final List<Record> records = firstTask.join();
+        records.addAll(lastRecords);
+        return records;
+      }
+    }
+  }
+
+  private class ReadTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Consumer<? super Record> action;
+
+    private final BoundingBox boundingBox;
+
+    private final int endIndex;
+
+    private final int startIndex;
+
+    private ReadTask(final int startIndex, final int endIndex, final BoundingBox boundingBox,
+      final Consumer<? super Record> action) {
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.boundingBox = boundingBox;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      final int startIndex = this.startIndex;
+      final int endIndex = this.endIndex;
+      final int splitIndex = getSplitIndex(startIndex, endIndex);
+      if (splitIndex == -1) {
+        forEach(startIndex, endIndex, this.boundingBox, this.action);
+      } else {
+        invokeAll(new ReadTask(startIndex, splitIndex, this.boundingBox, this.action),
+          new ReadTask(splitIndex, endIndex, this.boundingBox, this.action));
+      }
+    }
+  }
+
+  public static final int DEFAULT_SPLIT_BYTE_COUNT = 4 * 1024 * 1024;
+
+  private static final int SHP_HEADER_SIZE = 100;
+
+  private static final int SHX_RECORD_SIZE = 8;
+
+  private static MappedByteBuffer map(final Resource resource, final ByteOrder byteOrder) {
+    final File file = resource.getFile();
+    try (
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("File too large to memory map: " + file);
+      }
+      final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+      buffer.order(byteOrder);
+      return buffer;
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to memory map: " + file, e);
+    }
+  }
+
+  private ByteBuffer dbfBuffer;
+
+  private int dbfHeaderSize;
+
+  private int dbfRecordSize;
+
+  private GeometryFactory geometryFactory;
+
+  private int recordCount;
+
+  private RecordDefinition recordDefinition;
+
+  private RecordFactory<? extends Record> recordFactory;
+
+  private final Resource resource;
+
+  private final int shapeType;
+
+  private ByteBuffer shpBuffer;
+
+  private ByteBuffer shxBuffer;
+
+  private ShapefileSpatialIndex spatialIndex;
+
+  private int splitByteCount = DEFAULT_SPLIT_BYTE_COUNT;
+
+  private XbaseRecordReader xbaseRecordReader;
+
+  public ShapefileMappedReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory) {
+    this(resource, recordFactory, null);
+  }
+
+  /**
+   * Open the shapefile. The resource must be a file and the <code>.shx</code> index must exist.
+   *
+   * @param resource The <code>.shp</code> file.
+   * @param recordFactory The factory used to create the records.
+   * @param geometryFactory The geometry factory, if null the <code>.prj</code> file is used.
+   */
+  public ShapefileMappedReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory, final GeometryFactory geometryFactory) {
+    if (!resource.isFile()) {
+      throw new IllegalArgumentException("Memory mapped shapefile must be a file: " + resource);
+    }
+    final Resource indexResource = resource.newResourceChangeExtension("shx");
+    if (indexResource == null || !indexResource.exists()) {
+      throw new IllegalArgumentException("Shapefile index (.shx) does not exist: " + resource);
+    }
+    this.resource = resource;
+    this.recordFactory = recordFactory;
+    this.shpBuffer = map(resource, ByteOrder.LITTLE_ENDIAN);
+    this.shxBuffer = map(indexResource, ByteOrder.BIG_ENDIAN);
+    if (this.shpBuffer.limit() < SHP_HEADER_SIZE || this.shxBuffer.limit() < SHP_HEADER_SIZE) {
+      throw new IllegalArgumentException("Invalid shapefile: " + resource);
+    }
+    this.shapeType = this.shpBuffer.getInt(32);
+    this.recordCount = (this.shxBuffer.limit() - SHP_HEADER_SIZE) / SHX_RECORD_SIZE;
+
+    final int axisCount = ShapefileGeometryUtil.getAxisCount(this.shapeType);
+    if (geometryFactory == null) {
+      this.geometryFactory = GeometryFactory.floating(resource, axisCount);
+      if (this.geometryFactory == null) {
+        this.geometryFactory = GeometryFactory.floating(0, axisCount);
+      }
+    } else {
+      this.geometryFactory = geometryFactory;
+    }
+
+    final PathName typeName = PathName.newPathName("/" + resource.getBaseName());
+    final Resource xbaseResource = resource.newResourceChangeExtension("dbf");
+    if (xbaseResource != null && xbaseResource.exists()) {
+      try {
+        this.xbaseRecordReader = new XbaseRecordReader(xbaseResource, recordFactory,
+          this::updateRecordDefinition);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to open: " + xbaseResource, e);
+      }
+      this.xbaseRecordReader.setTypeName(typeName);
+      this.xbaseRecordReader.getRecordDefinition();
+
+      this.dbfBuffer = map(xbaseResource, ByteOrder.LITTLE_ENDIAN);
+      final int dbfRecordCount = this.dbfBuffer.getInt(4);
+      this.dbfHeaderSize = this.dbfBuffer.getShort(8) & 0xFFFF;
+      this.dbfRecordSize = this.dbfBuffer.getShort(10) & 0xFFFF;
+      if (dbfRecordCount < this.recordCount) {
+        this.recordCount = dbfRecordCount;
+      }
+    }
+    if (this.recordDefinition == null) {
+      this.recordDefinition = Records.newGeometryRecordDefinition();
+    }
+    this.recordDefinition.setGeometryFactory(this.geometryFactory);
+    this.spatialIndex = ShapefileSpatialIndex.open(this);
+  }
+
+  private void checkIndex(final int index) {
+    if (this.shpBuffer == null) {
+      throw new IllegalStateException("Shapefile is closed: " + this.resource);
+    } else if (index < 0 || index >= this.recordCount) {
+      throw new IndexOutOfBoundsException(
+        "Record index " + index + " not in range 0.." + (this.recordCount - 1));
+    }
+  }
+
+  @Override
+  public void close() {
+    final XbaseRecordReader xbaseRecordReader = this.xbaseRecordReader;
+    this.xbaseRecordReader = null;
+    if (xbaseRecordReader != null) {
+      xbaseRecordReader.forceClose();
+    }
+    this.dbfBuffer = null;
+    this.shpBuffer = null;
+    this.shxBuffer = null;
+    this.spatialIndex = null;
+    this.recordFactory = null;
+  }
+
+  private BoundingBox convertBoundingBox(final BoundingBox boundingBox) {
+    if (boundingBox == null) {
+      return null;
+    } else {
+      return boundingBox.bboxToCs(this.geometryFactory);
+    }
+  }
+
+  /**
+   * Read the records in record number order. If the bounding box is not null only the records
+   * whose shape bounding box intersects the bounding box are read.
+   *
+   * @param boundingBox The bounding box to filter the records, may be null.
+   * @param action The action to perform on each record.
+   */
+  public void forEach(final BoundingBox boundingBox, final Consumer<? super Record> action) {
+    final BoundingBox convertedBoundingBox = convertBoundingBox(boundingBox);
+    if (convertedBoundingBox != null && this.spatialIndex != null) {
+      final EndianByteBuffer in = newShpIn();
+      final ByteBuffer dbfIn = newDbfIn();
+      for (final int index : this.spatialIndex.getRecordIndexes(convertedBoundingBox)) {
+        final Record record = readRecord(in, dbfIn, index, null);
+        if (record != null) {
+          action.accept(record);
+        }
+      }
+    } else {
+      forEach(0, this.recordCount, convertedBoundingBox, action);
+    }
+  }
+
+  public void forEach(final Consumer<? super Record> action) {
+    forEach(null, action);
+  }
+
+  private void forEach(final int startIndex, final int endIndex, final BoundingBox boundingBox,
+    final Consumer<? super Record> action) {
+    final EndianByteBuffer in = newShpIn();
+    final ByteBuffer dbfIn = newDbfIn();
+    for (int index = startIndex; index < endIndex; index++) {
+      final Record record = readRecord(in, dbfIn, index, boundingBox);
+      if (record != null) {
+        action.accept(record);
+      }
+    }
+  }
+
+  /**
+   * Read the records in parallel using the {@link ForkJoinPool#commonPool()}. The file is split
+   * into ranges of approximately {@link #getSplitByteCount()} bytes using the
+   * <code>.shx</code> offsets. The action will be called from multiple threads and in no
+   * particular order so it must be thread safe.
+   *
+   * @param boundingBox The bounding box to filter the records, may be null.
+   * @param action The action to perform on each record.
+   */
+  public void forEachParallel(final BoundingBox boundingBox,
+    final Consumer<? super Record> action) {
+    final BoundingBox convertedBoundingBox = convertBoundingBox(boundingBox);
+    final ReadTask task = new ReadTask(0, this.recordCount, convertedBoundingBox, action);
+    ForkJoinPool.commonPool().invoke(task);
+  }
+
+  public void forEachParallel(final Consumer<? super Record> action) {
+    forEachParallel(null, action);
+  }
+
+  /**
+   * Get the geometry for the record without reading the attributes.
+   *
+   * @param index The record index (record number - 1).
+   * @return The geometry.
+   */
+  public Geometry getGeometry(final int index) {
+    checkIndex(index);
+    return readGeometry(newShpIn(), getRecordOffset(index));
+  }
+
+  public long getFileLength() {
+    return this.shpBuffer.limit();
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  /**
+   * Get the record. The first record has the index 0 (record number 1).
+   *
+   * @param index The record index.
+   * @return The record or null if the record was deleted.
+   */
+  public Record getRecord(final int index) {
+    checkIndex(index);
+    return readRecord(newShpIn(), newDbfIn(), index, null);
+  }
+
+  public int getRecordCount() {
+    return this.recordCount;
+  }
+
+  /**
+   * Get the indexes of the records whose shape bounding box intersects the bounding box. The
+   * {@link ShapefileSpatialIndex} is used if it exists, otherwise the record headers are read.
+   *
+   * @param boundingBox The bounding box, null for all the records.
+   * @return The record indexes in ascending order.
+   */
+  public int[] getRecordIndexes(final BoundingBox boundingBox) {
+    final BoundingBox convertedBoundingBox = convertBoundingBox(boundingBox);
+    if (convertedBoundingBox == null) {
+      final int[] indexes = new int[this.recordCount];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+      }
+      return indexes;
+    } else if (this.spatialIndex == null) {
+      final double[] bounds = new double[4];
+      int[] indexes = new int[16];
+      int indexCount = 0;
+      for (int i = 0; i < this.recordCount; i++) {
+        if (readBoundingBox(i, bounds) && convertedBoundingBox.bboxIntersects(bounds[0],
+          bounds[1], bounds[2], bounds[3])) {
+          if (indexCount == indexes.length) {
+            indexes = Arrays.copyOf(indexes, indexCount * 2);
+          }
+          indexes[indexCount++] = i;
+        }
+      }
+      return Arrays.copyOf(indexes, indexCount);
+    } else {
+      return this.spatialIndex.getRecordIndexes(convertedBoundingBox);
+    }
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  private int getRecordOffset(final int index) {
+    return this.shxBuffer.getInt(SHP_HEADER_SIZE + index * SHX_RECORD_SIZE) * 2;
+  }
+
+  private int getRecordsEndOffset(final int endIndex) {
+    if (endIndex < this.recordCount) {
+      return getRecordOffset(endIndex);
+    } else {
+      return this.shpBuffer.limit();
+    }
+  }
+
+  /**
+   * Read all the records whose shape bounding box intersects the bounding box. The records are
+   * read in parallel and returned in record number order.
+   *
+   * @param boundingBox The bounding box to filter the records, may be null.
+   * @return The records.
+   */
+  public List<Record> getRecords(final BoundingBox boundingBox) {
+    final BoundingBox convertedBoundingBox = convertBoundingBox(boundingBox);
+    final ListTask task = new ListTask(0, this.recordCount, convertedBoundingBox);
+    return ForkJoinPool.commonPool().invoke(task);
+  }
+
+  public Resource getResource() {
+    return this.resource;
+  }
+
+  public int getShapeType() {
+    return this.shapeType;
+  }
+
+  public ShapefileSpatialIndex getSpatialIndex() {
+    return this.spatialIndex;
+  }
+
+  public int getSplitByteCount() {
+    return this.splitByteCount;
+  }
+
+  /**
+   * Get the index to split the range of records so each half contains approximately the same
+   * number of bytes.
+   *
+   * @return The split index or -1 if the range is smaller than the {@link #splitByteCount}.
+   */
+  private int getSplitIndex(final int startIndex, final int endIndex) {
+    if (endIndex - startIndex > 1) {
+      final int startOffset = getRecordOffset(startIndex);
+      final int endOffset = getRecordsEndOffset(endIndex);
+      final int byteCount = endOffset - startOffset;
+      if (byteCount > this.splitByteCount) {
+        final int midOffset = startOffset + byteCount / 2;
+        int low = startIndex + 1;
+        int high = endIndex - 1;
+        while (low < high) {
+          final int mid = low + high >>> 1;
+          if (getRecordOffset(mid) < midOffset) {
+            low = mid + 1;
+          } else {
+            high = mid;
+          }
+        }
+        return low;
+      }
+    }
+    return -1;
+  }
+
+  private ByteBuffer newDbfIn() {
+    if (this.dbfBuffer == null) {
+      return null;
+    } else {
+      return this.dbfBuffer.duplicate();
+    }
+  }
+
+  private EndianByteBuffer newShpIn() {
+    return new EndianByteBuffer(this.shpBuffer);
+  }
+
+  /**
+   * Read the bounding box (or point) from the header of the shape record.
+   *
+   * @param index The record index.
+   * @param bounds The array to store minX, minY, maxX, maxY in.
+   * @return False if the record has a null shape.
+   */
+  boolean readBoundingBox(final int index, final double[] bounds) {
+    final ByteBuffer buffer = this.shpBuffer;
+    final int contentOffset = getRecordOffset(index) + 8;
+    final int shapeType = buffer.getInt(contentOffset);
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        return false;
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        final double x = buffer.getDouble(contentOffset + 4);
+        final double y = buffer.getDouble(contentOffset + 12);
+        bounds[0] = x;
+        bounds[1] = y;
+        bounds[2] = x;
+        bounds[3] = y;
+        return true;
+      default:
+        bounds[0] = buffer.getDouble(contentOffset + 4);
+        bounds[1] = buffer.getDouble(contentOffset + 12);
+        bounds[2] = buffer.getDouble(contentOffset + 20);
+        bounds[3] = buffer.getDouble(contentOffset + 28);
+        return true;
+    }
+  }
+
+  private Geometry readGeometry(final EndianByteBuffer in, final int offset) {
+    final int recordLength = Integer.reverseBytes(this.shpBuffer.getInt(offset + 4));
+    in.seek(offset + 8);
+    try {
+      return ShapefileGeometryUtil.SHP_INSTANCE.readGeometry(this.geometryFactory, in,
+        this.shapeType, recordLength);
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Error reading geometry " + this.resource, e);
+    }
+  }
+
+  private Record readRecord(final EndianByteBuffer in, final ByteBuffer dbfIn, final int index,
+    final BoundingBox boundingBox) {
+    final int offset = getRecordOffset(index);
+    if (boundingBox != null) {
+      final double[] bounds = new double[4];
+      if (!readBoundingBox(index, bounds)
+        || !boundingBox.bboxIntersects(bounds[0], bounds[1], bounds[2], bounds[3])) {
+        return null;
+      }
+    }
+    final Record record;
+    if (dbfIn == null) {
+      record = this.recordFactory.newRecord(this.recordDefinition);
+    } else {
+      final int dbfOffset = this.dbfHeaderSize + index * this.dbfRecordSize;
+      dbfIn.limit(dbfOffset + this.dbfRecordSize);
+      dbfIn.position(dbfOffset);
+      final byte deleteFlag = dbfIn.get();
+      if (deleteFlag == '*') {
+        return null;
+      }
+      try {
+        record = this.xbaseRecordReader.loadRecord(dbfIn);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Error reading record " + index + " from " + this.resource, e);
+      }
+    }
+    try {
+      final Geometry geometry = readGeometry(in, offset);
+      record.setGeometryValue(geometry);
+    } catch (final IllegalArgumentException e) {
+      Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+    }
+    return record;
+  }
+
+  public void setSplitByteCount(final int splitByteCount) {
+    if (splitByteCount < 1) {
+      throw new IllegalArgumentException("splitByteCount must be > 0 not " + splitByteCount);
+    }
+    this.splitByteCount = splitByteCount;
+  }
+
+  @Override
+  public String toString() {
+    return ShapefileConstants.DESCRIPTION + " " + this.resource;
+  }
+
+  private void updateRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = this.xbaseRecordReader.getRecordDefinition();
+    recordDefinition.setPolygonRingDirection(ClockDirection.CLOCKWISE);
+    this.recordDefinition = recordDefinition;
+    if (recordDefinition.getGeometryFieldIndex() == -1) {
+      final DataType geometryType = ShapefileGeometryUtil.getGeometryDataType(this.shapeType);
+      recordDefinition.addField("geometry", geometryType, true);
+    }
+  }
+}
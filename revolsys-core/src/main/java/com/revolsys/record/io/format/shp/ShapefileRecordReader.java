@@ -9,9 +9,8 @@ import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
-import com.revolsys.geometry.model.Geometry;
-import com.revolsys.geometry.model.GeometryDataTypes;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.EndOfFileException;
 import com.revolsys.io.FileUtil;
@@ -31,6 +30,8 @@ import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 
 public class ShapefileRecordReader extends AbstractIterator<Record> implements RecordReader {
+  private BoundingBox boundingBox;
+
   private boolean closeFile = true;
 
   private GeometryFactory geometryFactory;
@@ -39,6 +40,8 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   private EndianMappedByteBuffer indexIn;
 
+  private ShapefileMappedReader mappedReader;
+
   private final String name;
 
   private int position;
@@ -47,6 +50,10 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   private RecordFactory recordFactory;
 
+  private int recordIndexPosition;
+
+  private int[] recordIndexes;
+
   private Resource resource;
 
   private RecordDefinition returnRecordDefinition;
@@ -78,17 +85,59 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     if (this.xbaseRecordReader != null) {
       this.xbaseRecordReader.forceClose();
     }
+    if (this.mappedReader != null) {
+      this.mappedReader.close();
+    }
     this.recordFactory = null;
     this.geometryFactory = null;
     this.in = null;
     this.indexIn = null;
+    this.mappedReader = null;
+    this.recordIndexes = null;
     this.recordDefinition = null;
     this.resource = null;
     this.xbaseRecordReader = null;
   }
 
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
   @Override
   protected Record getNext() {
+    if (this.recordIndexes != null) {
+      return getNextIndexed();
+    } else if (this.boundingBox == null) {
+      return getNextRecord();
+    } else {
+      while (true) {
+        final Record record = getNextRecord();
+        final BoundingBox boundingBox = record.getBoundingBox();
+        if (boundingBox != null && this.boundingBox.bboxIntersects(boundingBox)) {
+          return record;
+        }
+      }
+    }
+  }
+
+  private Record getNextIndexed() {
+    while (this.recordIndexPosition < this.recordIndexes.length) {
+      final int index = this.recordIndexes[this.recordIndexPosition++];
+      final Record record = this.mappedReader.getRecord(index);
+      if (record != null) {
+        RecordDefinition recordDefinition = this.returnRecordDefinition;
+        if (recordDefinition == null) {
+          recordDefinition = this.recordDefinition;
+        }
+        final Record copy = this.recordFactory.newRecord(recordDefinition);
+        copy.setValues(record);
+        return copy;
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  private Record getNextRecord() {
     Record record;
     try {
       if (this.xbaseRecordReader != null) {
@@ -96,7 +145,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
           record = this.xbaseRecordReader.next();
           for (int i = 0; i < this.xbaseRecordReader.getDeletedCount(); i++) {
             this.position++;
-            readGeometry();
+            readLazyGeometry();
           }
         } else {
           throw new NoSuchElementException();
@@ -105,11 +154,10 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
         record = this.recordFactory.newRecord(this.recordDefinition);
       }
 
-      try {
-        final Geometry geometry = readGeometry();
-        record.setGeometryValue(geometry);
-      } catch (final IllegalArgumentException e) {
-        Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+      final ShapefileLazyGeometry geometry = readLazyGeometry();
+      final int geometryFieldIndex = record.getRecordDefinition().getGeometryFieldIndex();
+      if (geometryFieldIndex != -1) {
+        record.setValue(geometryFieldIndex, geometry);
       }
     } catch (final EndOfFileException e) {
       throw new NoSuchElementException();
@@ -172,33 +220,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
           this.xbaseRecordReader.setCloseFile(this.closeFile);
         }
         loadHeader();
-        int axisCount;
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE: // 1
-          case ShapefileConstants.POLYLINE_SHAPE: // 3
-          case ShapefileConstants.POLYGON_SHAPE: // 5
-          case ShapefileConstants.MULTI_POINT_SHAPE: // 8
-            axisCount = 2;
-          break;
-          case ShapefileConstants.POINT_Z_SHAPE: // 9
-          case ShapefileConstants.POLYLINE_Z_SHAPE: // 10
-          case ShapefileConstants.POLYGON_Z_SHAPE: // 19
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE: // 20
-            axisCount = 3;
-          break;
-          case ShapefileConstants.POINT_ZM_SHAPE: // 11
-          case ShapefileConstants.POLYLINE_ZM_SHAPE: // 13
-          case ShapefileConstants.POLYGON_ZM_SHAPE: // 15
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE: // 18
-          case ShapefileConstants.POINT_M_SHAPE: // 21
-          case ShapefileConstants.POLYLINE_M_SHAPE: // 23
-          case ShapefileConstants.POLYGON_M_SHAPE: // 25
-          case ShapefileConstants.MULTI_POINT_M_SHAPE: // 28
-            axisCount = 4;
-          break;
-          default:
-            throw new RuntimeException("Unknown shape type:" + this.shapeType);
-        }
+        final int axisCount = ShapefileGeometryUtil.getAxisCount(this.shapeType);
         this.geometryFactory = getProperty(IoConstants.GEOMETRY_FACTORY);
         if (this.geometryFactory == null) {
           this.geometryFactory = GeometryFactory.floating(this.resource, axisCount);
@@ -215,12 +237,35 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
           this.recordDefinition = Records.newGeometryRecordDefinition();
         }
         this.recordDefinition.setGeometryFactory(this.geometryFactory);
+        if (this.boundingBox != null) {
+          initRecordIndexes();
+        }
       } catch (final IOException e) {
         throw new RuntimeException("Error initializing mappedFile " + this.resource, e);
       }
     }
   }
 
+  /**
+   * Use the memory mapped <code>.shp</code> and <code>.shx</code> files (and the
+   * {@link ShapefileSpatialIndex} if it exists) to find the records that intersect the bounding
+   * box.
+   */
+  private void initRecordIndexes() {
+    try {
+      if (this.resource.isFile()) {
+        final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+        if (indexResource != null && indexResource.exists()) {
+          this.mappedReader = new ShapefileMappedReader(this.resource, this.recordFactory,
+            this.geometryFactory);
+          this.recordIndexes = this.mappedReader.getRecordIndexes(this.boundingBox);
+        }
+      }
+    } catch (final IllegalArgumentException | UnsupportedOperationException e) {
+      Logs.debug(this, "Unable to use shapefile index for: " + this.resource, e);
+    }
+  }
+
   public boolean isCloseFile() {
     return this.closeFile;
   }
@@ -247,77 +292,28 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final double maxM = this.in.readLEDouble();
   }
 
-  @SuppressWarnings("unused")
-  private Geometry readGeometry() throws IOException {
-    final int recordNumber = this.in.readInt();
+  /**
+   * Read the content of the next record. The geometry is only created from the content when the
+   * geometry value of the record is first got.
+   */
+  private ShapefileLazyGeometry readLazyGeometry() throws IOException {
+    // Skip the record number
+    this.in.readInt();
     final int recordLength = this.in.readInt();
-    final int shapeType = this.in.readLEInt();
-    final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
-    switch (shapeType) {
-      case ShapefileConstants.NULL_SHAPE:
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE:
-          case ShapefileConstants.POINT_M_SHAPE:
-          case ShapefileConstants.POINT_Z_SHAPE:
-          case ShapefileConstants.POINT_ZM_SHAPE:
-          case ShapefileConstants.MULTI_POINT_SHAPE:
-          case ShapefileConstants.MULTI_POINT_M_SHAPE:
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-            return this.geometryFactory.point();
-
-          case ShapefileConstants.POLYLINE_SHAPE:
-          case ShapefileConstants.POLYLINE_M_SHAPE:
-          case ShapefileConstants.POLYLINE_Z_SHAPE:
-          case ShapefileConstants.POLYLINE_ZM_SHAPE:
-            return this.geometryFactory.lineString();
-
-          case ShapefileConstants.POLYGON_SHAPE:
-          case ShapefileConstants.POLYGON_M_SHAPE:
-          case ShapefileConstants.POLYGON_Z_SHAPE:
-          case ShapefileConstants.POLYGON_ZM_SHAPE:
-            return this.geometryFactory.polygon();
-          default:
-            throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
-        }
-      case ShapefileConstants.POINT_SHAPE:
-        return util.readPoint(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POINT_M_SHAPE:
-        return util.readPointM(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POINT_Z_SHAPE:
-        return util.readPointZ(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POINT_ZM_SHAPE:
-        return util.readPointZM(this.geometryFactory, this.in, recordLength);
-
-      case ShapefileConstants.MULTI_POINT_SHAPE:
-        return util.readMultipoint(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.MULTI_POINT_M_SHAPE:
-        return util.readMultipointM(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-        return util.readMultipointZ(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-        return util.readMultipointZM(this.geometryFactory, this.in, recordLength);
-
-      case ShapefileConstants.POLYLINE_SHAPE:
-        return util.readPolyline(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYLINE_M_SHAPE:
-        return util.readPolylineM(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYLINE_Z_SHAPE:
-        return util.readPolylineZ(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYLINE_ZM_SHAPE:
-        return util.readPolylineZM(this.geometryFactory, this.in, recordLength);
-
-      case ShapefileConstants.POLYGON_SHAPE:
-        return util.readPolygon(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYGON_M_SHAPE:
-        return util.readPolygonM(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYGON_Z_SHAPE:
-        return util.readPolygonZ(this.geometryFactory, this.in, recordLength);
-      case ShapefileConstants.POLYGON_ZM_SHAPE:
-        return util.readPolygonZM(this.geometryFactory, this.in, recordLength);
-      default:
-        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
-    }
+    final byte[] content = new byte[recordLength * 2];
+    this.in.readFully(content);
+    return new ShapefileLazyGeometry(this.geometryFactory, this.shapeType, content,
+      this.resource);
+  }
+
+  /**
+   * Only read the records whose bounding box intersects the bounding box. Must be set before the
+   * reader is opened.
+   *
+   * @param boundingBox The bounding box.
+   */
+  public void setBoundingBox(final BoundingBox boundingBox) {
+    this.boundingBox = boundingBox;
   }
 
   public void setCloseFile(final boolean closeFile) {
@@ -350,39 +346,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
       recordDefinition.setPolygonRingDirection(ClockDirection.CLOCKWISE);
       this.recordDefinition = recordDefinition;
       if (recordDefinition.getGeometryFieldIndex() == -1) {
-        DataType geometryType = GeometryDataTypes.GEOMETRY;
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE:
-          case ShapefileConstants.POINT_Z_SHAPE:
-          case ShapefileConstants.POINT_M_SHAPE:
-          case ShapefileConstants.POINT_ZM_SHAPE:
-            geometryType = GeometryDataTypes.POINT;
-          break;
-
-          case ShapefileConstants.POLYLINE_SHAPE:
-          case ShapefileConstants.POLYLINE_Z_SHAPE:
-          case ShapefileConstants.POLYLINE_M_SHAPE:
-          case ShapefileConstants.POLYLINE_ZM_SHAPE:
-            geometryType = GeometryDataTypes.MULTI_LINE_STRING;
-          break;
-
-          case ShapefileConstants.POLYGON_SHAPE:
-          case ShapefileConstants.POLYGON_Z_SHAPE:
-          case ShapefileConstants.POLYGON_M_SHAPE:
-          case ShapefileConstants.POLYGON_ZM_SHAPE:
-            geometryType = GeometryDataTypes.MULTI_POLYGON;
-          break;
-
-          case ShapefileConstants.MULTI_POINT_SHAPE:
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-          case ShapefileConstants.MULTI_POINT_M_SHAPE:
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-            geometryType = GeometryDataTypes.MULTI_POINT;
-          break;
-
-          default:
-          break;
-        }
+        final DataType geometryType = ShapefileGeometryUtil.getGeometryDataType(this.shapeType);
         recordDefinition.addField("geometry", geometryType, true);
       }
     }
@@ -0,0 +1,249 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.index.strtree.Boundable;
+import com.revolsys.geometry.index.strtree.StrTree;
+import com.revolsys.geometry.index.strtree.StrTreeLeaf;
+import com.revolsys.geometry.index.strtree.StrTreeNode;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.impl.BoundingBoxDoubleXY;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A packed (STR) R-tree of the record bounding boxes of a shapefile stored in a sidecar file
+ * with the extension {@link ShapefileConstants#SPATIAL_INDEX_FILE_EXTENSION}. The index file
+ * is memory mapped and queried without loading the tree into memory.
+ *
+ * <p>The file contains a header, the nodes written children first and the offset of the root
+ * node as the last int of the file. Each node contains the bounding box, the level and the child
+ * count followed by the bounding box and record index of each record (level 0) or the offset
+ * of each child node.</p>
+ *
+ * <p>The index records the length and record count of the shapefile it was built from and is
+ * ignored if the shapefile has changed.</p>
+ */
+public class ShapefileSpatialIndex {
+  public static final int DEFAULT_NODE_CAPACITY = 16;
+
+  private static final int FILE_CODE = 0x52535458;
+
+  private static final int HEADER_SIZE = 24;
+
+  private static final int VERSION = 1;
+
+  /**
+   * Build the spatial index for the shapefile and write it to the sidecar file.
+   *
+   * @param resource The <code>.shp</code> file.
+   * @return The spatial index.
+   */
+  public static ShapefileSpatialIndex build(final Resource resource) {
+    try (
+      ShapefileMappedReader reader = new ShapefileMappedReader(resource, null)) {
+      return build(reader);
+    }
+  }
+
+  /**
+   * Build the spatial index from the record headers of the shapefile and write it to the sidecar
+   * file.
+   *
+   * @param reader The shapefile reader.
+   * @return The spatial index.
+   */
+  public static ShapefileSpatialIndex build(final ShapefileMappedReader reader) {
+    final StrTree<Integer> tree = new StrTree<>(DEFAULT_NODE_CAPACITY);
+    final int recordCount = reader.getRecordCount();
+    final double[] bounds = new double[4];
+    for (int i = 0; i < recordCount; i++) {
+      if (reader.readBoundingBox(i, bounds)) {
+        final BoundingBox boundingBox = new BoundingBoxDoubleXY(bounds[0], bounds[1], bounds[2],
+          bounds[3]);
+        tree.insertItem(boundingBox, i);
+      }
+    }
+    final StrTreeNode<Integer> root = tree.getRoot();
+
+    final File file = getFile(reader.getResource());
+    final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    try {
+      try (
+        OutputStream fileOut = Files.newOutputStream(tempFile.toPath());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+        out.writeInt(FILE_CODE);
+        out.writeInt(VERSION);
+        out.writeInt(recordCount);
+        out.writeInt(tree.getNodeCapacity());
+        out.writeLong(reader.getFileLength());
+        final int rootOffset = writeNode(out, root);
+        out.writeInt(rootOffset);
+      }
+      Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (final IOException e) {
+      tempFile.delete();
+      throw Exceptions.wrap("Unable to write spatial index: " + file, e);
+    }
+    return open(file, reader.getFileLength(), recordCount);
+  }
+
+  private static File getFile(final Resource resource) {
+    final Resource indexResource = resource
+      .newResourceChangeExtension(ShapefileConstants.SPATIAL_INDEX_FILE_EXTENSION);
+    return indexResource.getFile();
+  }
+
+  private static ShapefileSpatialIndex open(final File file, final long fileLength,
+    final int recordCount) {
+    try (
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < HEADER_SIZE + 4 || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt(0) != FILE_CODE || buffer.getInt(4) != VERSION) {
+        return null;
+      } else if (buffer.getInt(8) != recordCount || buffer.getLong(16) != fileLength) {
+        return null;
+      } else {
+        return new ShapefileSpatialIndex(buffer);
+      }
+    } catch (final IOException e) {
+      Logs.debug(ShapefileSpatialIndex.class, "Unable to open spatial index: " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Open the spatial index for the shapefile.
+   *
+   * @param reader The shapefile reader.
+   * @return The spatial index or null if it doesn't exist or is out of date.
+   */
+  public static ShapefileSpatialIndex open(final ShapefileMappedReader reader) {
+    final Resource resource = reader.getResource();
+    final File file = getFile(resource);
+    if (file.exists() && file.lastModified() >= resource.getFile().lastModified()) {
+      return open(file, reader.getFileLength(), reader.getRecordCount());
+    } else {
+      return null;
+    }
+  }
+
+  private static int writeNode(final DataOutputStream out, final StrTreeNode<Integer> node)
+    throws IOException {
+    final int level = node.getLevel();
+    final int childCount = node.getChildCount();
+    final Boundable<Integer>[] children = node.getChildren();
+    int[] childOffsets = null;
+    if (level > 0) {
+      childOffsets = new int[childCount];
+      for (int i = 0; i < childCount; i++) {
+        childOffsets[i] = writeNode(out, (StrTreeNode<Integer>)children[i]);
+      }
+    }
+    final int offset = out.size();
+    out.writeDouble(node.getMinX());
+    out.writeDouble(node.getMinY());
+    out.writeDouble(node.getMaxX());
+    out.writeDouble(node.getMaxY());
+    out.writeInt(level);
+    out.writeInt(childCount);
+    for (int i = 0; i < childCount; i++) {
+      if (level == 0) {
+        final StrTreeLeaf<Integer> leaf = (StrTreeLeaf<Integer>)children[i];
+        out.writeDouble(leaf.getMinX());
+        out.writeDouble(leaf.getMinY());
+        out.writeDouble(leaf.getMaxX());
+        out.writeDouble(leaf.getMaxY());
+        out.writeInt(leaf.getItem());
+      } else {
+        out.writeInt(childOffsets[i]);
+      }
+    }
+    return offset;
+  }
+
+  private final ByteBuffer buffer;
+
+  private final int rootOffset;
+
+  private ShapefileSpatialIndex(final ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.rootOffset = buffer.getInt(buffer.limit() - 4);
+  }
+
+  private boolean bboxIntersects(final int offset, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    final ByteBuffer buffer = this.buffer;
+    return !(buffer.getDouble(offset) > maxX || buffer.getDouble(offset + 16) < minX
+      || buffer.getDouble(offset + 8) > maxY || buffer.getDouble(offset + 24) < minY);
+  }
+
+  public int getRecordCount() {
+    return this.buffer.getInt(8);
+  }
+
+  /**
+   * Get the indexes of the records whose bounding box intersects the bounding box.
+   *
+   * @param boundingBox The bounding box in the coordinate system of the shapefile.
+   * @return The record indexes in ascending order.
+   */
+  public int[] getRecordIndexes(final BoundingBox boundingBox) {
+    final double minX = boundingBox.getMinX();
+    final double minY = boundingBox.getMinY();
+    final double maxX = boundingBox.getMaxX();
+    final double maxY = boundingBox.getMaxY();
+    final ByteBuffer buffer = this.buffer;
+
+    int[] indexes = new int[16];
+    int indexCount = 0;
+    int[] nodeOffsets = new int[64];
+    int nodeCount = 0;
+    nodeOffsets[nodeCount++] = this.rootOffset;
+    while (nodeCount > 0) {
+      final int nodeOffset = nodeOffsets[--nodeCount];
+      final int childCount = buffer.getInt(nodeOffset + 36);
+      if (childCount > 0 && bboxIntersects(nodeOffset, minX, minY, maxX, maxY)) {
+        final int level = buffer.getInt(nodeOffset + 32);
+        int childOffset = nodeOffset + 40;
+        for (int i = 0; i < childCount; i++) {
+          if (level == 0) {
+            if (bboxIntersects(childOffset, minX, minY, maxX, maxY)) {
+              if (indexCount == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexCount * 2);
+              }
+              indexes[indexCount++] = buffer.getInt(childOffset + 32);
+            }
+            childOffset += 36;
+          } else {
+            if (nodeCount == nodeOffsets.length) {
+              nodeOffsets = Arrays.copyOf(nodeOffsets, nodeCount * 2);
+            }
+            nodeOffsets[nodeCount++] = buffer.getInt(childOffset);
+            childOffset += 4;
+          }
+        }
+      }
+    }
+    indexes = Arrays.copyOf(indexes, indexCount);
+    Arrays.sort(indexes);
+    return indexes;
+  }
+}
@@ -129,8 +129,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.resource = null;
   }
 
-  private Boolean getBoolean() {
-    final char c = (char)this.recordBuffer.get();
+  private Boolean getBoolean(final ByteBuffer recordBuffer) {
+    final char c = (char)recordBuffer.get();
     switch (c) {
       case 't':
       case 'T':
@@ -148,8 +148,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private Date getDate(final int len) {
-    final String dateString = getString(len);
+  private Date getDate(final ByteBuffer recordBuffer, final int len) {
+    final String dateString = getString(recordBuffer, len);
     if (dateString.trim().length() == 0 || dateString.equals("0")) {
       return null;
     } else {
@@ -216,9 +216,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private BigDecimal getNumber(final int len) {
+  private BigDecimal getNumber(final ByteBuffer recordBuffer, final int len) {
     BigDecimal number = null;
-    final String string = getString(len);
+    final String string = getString(recordBuffer, len);
     final String numberString = string.replace('*', ' ');
     if (numberString.trim().length() != 0) {
       try {
@@ -244,9 +244,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.recordDefinition;
   }
 
-  private String getString(final int len) {
+  private String getString(final ByteBuffer recordBuffer, final int len) {
     final byte[] bytes = new byte[len];
-    this.recordBuffer.get(bytes, 0, len);
+    recordBuffer.get(bytes, 0, len);
     final String text = new String(bytes, this.charset);
     return text.trim();
   }
@@ -307,6 +307,18 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   protected Record loadRecord() throws IOException {
+    return loadRecord(this.recordBuffer);
+  }
+
+  /**
+   * Load the record from the buffer positioned after the delete flag. The buffer is not stored
+   * so this can be used by multiple threads with separate buffers once the header has been read.
+   *
+   * @param recordBuffer The buffer containing the record.
+   * @return The record.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Record loadRecord(final ByteBuffer recordBuffer) throws IOException {
     final Record record = this.recordFactory.newRecord(this.recordDefinition);
     for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
       int length = this.recordDefinition.getFieldLength(i);
@@ -315,17 +327,17 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
       if (type == DataTypes.STRING) {
         if (length < 255) {
-          value = getString(length);
+          value = getString(recordBuffer, length);
         } else {
           value = getMemo(length);
           length = 10;
         }
       } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
-        value = getNumber(length);
+        value = getNumber(recordBuffer, length);
       } else if (type == DataTypes.BOOLEAN) {
-        value = getBoolean();
+        value = getBoolean(recordBuffer);
       } else if (type == DataTypes.DATE_TIME) {
-        value = getDate(length);
+        value = getDate(recordBuffer, length);
       }
       record.setValue(i, value);
     }
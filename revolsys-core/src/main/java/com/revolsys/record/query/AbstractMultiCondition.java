@@ -3,10 +3,13 @@ package com.revolsys.record.query;
 import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.exception.Exceptions;
 
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordStore;
 
 public abstract class AbstractMultiCondition extends AbstractMultiQueryValue
@@ -106,6 +109,17 @@ public abstract class AbstractMultiCondition extends AbstractMultiQueryValue
     return this.operator;
   }
 
+  @SuppressWarnings("unchecked")
+  protected Predicate<MapEx>[] newPredicates(final RecordDefinition recordDefinition) {
+    final QueryValue[] values = this.values;
+    final Predicate<MapEx>[] predicates = new Predicate[values.length];
+    for (int i = 0; i < values.length; i++) {
+      final Condition condition = (Condition)values[i];
+      predicates[i] = condition.newPredicate(recordDefinition);
+    }
+    return predicates;
+  }
+
   @Override
   public String toString() {
     final StringBuilder string = new StringBuilder();
@@ -1,6 +1,7 @@
 package com.revolsys.record.query;
 
 import java.sql.PreparedStatement;
+import java.util.function.Predicate;
 
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.record.schema.RecordDefinition;
@@ -47,6 +48,11 @@ public class AcceptAllCondition implements Condition {
     return true;
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    return record -> true;
+  }
+
   @Override
   public Condition or(final Condition condition) {
     if (condition == null) {
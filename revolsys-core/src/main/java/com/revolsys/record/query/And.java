@@ -1,8 +1,10 @@
 package com.revolsys.record.query;
 
 import java.util.Arrays;
+import java.util.function.Predicate;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Property;
 
 public class And extends AbstractMultiCondition {
@@ -40,6 +42,19 @@ public class And extends AbstractMultiCondition {
     return false;
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final Predicate<MapEx>[] predicates = newPredicates(recordDefinition);
+    return record -> {
+      for (final Predicate<MapEx> predicate : predicates) {
+        if (!predicate.test(record)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue[] values = this.values;
@@ -1,11 +1,16 @@
 package com.revolsys.record.query;
 
 import java.io.IOException;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
 import org.jeometry.common.exception.Exceptions;
 
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordStore;
 
 public class BinaryCondition extends AbstractBinaryQueryValue implements Condition {
@@ -61,6 +66,25 @@ public class BinaryCondition extends AbstractBinaryQueryValue implements Conditi
     return this.operator;
   }
 
+  /**
+   * Construct a new predicate that applies the test to the left and right values of records with
+   * the record definition.
+   *
+   * @param recordDefinition The record definition of the records.
+   * @param test The test for the left and right values.
+   * @return The predicate.
+   */
+  protected Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition,
+    final BiPredicate<Object, Object> test) {
+    final Function<MapEx, Object> leftFunction = getLeft().newValueFunction(recordDefinition);
+    final Function<MapEx, Object> rightFunction = getRight().newValueFunction(recordDefinition);
+    return record -> {
+      final Object value1 = leftFunction.apply(record);
+      final Object value2 = rightFunction.apply(record);
+      return test.test(value1, value2);
+    };
+  }
+
   @Override
   public String toString() {
     final Object value = getLeft();
@@ -5,7 +5,10 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.exception.Exceptions;
@@ -19,6 +22,10 @@ import com.revolsys.record.schema.RecordStore;
 import com.revolsys.util.Strings;
 
 public class CollectionValue extends AbstractMultiQueryValue {
+  /** Classes where equals is the same as {@link DataType#equal(Object, Object)}. */
+  private static final Set<Class<?>> HASH_CLASSES = Set.of(String.class, Integer.class, Long.class,
+    Short.class, Byte.class, Boolean.class);
+
   private FieldDefinition field;
 
   private JdbcFieldDefinition jdbcField;
@@ -171,6 +178,56 @@ public class CollectionValue extends AbstractMultiQueryValue {
     return values;
   }
 
+  /**
+   * Construct a new predicate that returns the same result as {@link #containsValue(Object)}. If
+   * all the values are constants of the same class (e.g. all strings or all integers) and there
+   * is no code table the values are looked up in a hash set. Values of another class use
+   * {@link #containsValue(Object)}.
+   *
+   * @return The predicate.
+   */
+  public Predicate<Object> newContainsPredicate() {
+    if (this.codeTable == null) {
+      final Set<Object> valueSet = new HashSet<>();
+      Class<?> valueClass = null;
+      for (final QueryValue queryValue : this.values) {
+        if (queryValue instanceof Value) {
+          final Object value = Value.getValue(((Value)queryValue).getValue());
+          if (value != null) {
+            final Class<?> currentClass = value.getClass();
+            if (valueClass == null) {
+              if (HASH_CLASSES.contains(currentClass)) {
+                valueClass = currentClass;
+              } else {
+                return this::containsValue;
+              }
+            } else if (valueClass != currentClass) {
+              return this::containsValue;
+            }
+            valueSet.add(value);
+          }
+        } else {
+          return this::containsValue;
+        }
+      }
+      if (valueClass == null) {
+        return value -> false;
+      } else {
+        final Class<?> setClass = valueClass;
+        return value -> {
+          if (value == null) {
+            return false;
+          } else if (value.getClass() == setClass) {
+            return valueSet.contains(value);
+          } else {
+            return containsValue(value);
+          }
+        };
+      }
+    }
+    return this::containsValue;
+  }
+
   @Override
   public void setFieldDefinition(final FieldDefinition field) {
     this.field = field;
@@ -4,12 +4,14 @@ import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Function;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
 import org.jeometry.common.exception.Exceptions;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.Record;
 import com.revolsys.record.RecordState;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
@@ -189,6 +191,41 @@ public class Column implements QueryValue, ColumnReference {
     return field.getValueFromResultSet(recordDefinition, resultSet, indexes, internStrings);
   }
 
+  @Override
+  public Function<MapEx, String> newStringValueFunction(final RecordDefinition recordDefinition) {
+    final Function<MapEx, Object> valueFunction = newValueFunction(recordDefinition);
+    final FieldDefinition fieldDefinition = this.fieldDefinition;
+    if (fieldDefinition == null) {
+      return record -> DataTypes.toString(valueFunction.apply(record));
+    } else {
+      return record -> fieldDefinition.toString(valueFunction.apply(record));
+    }
+  }
+
+  /**
+   * Get the value using the index of the field in the record definition for records with the
+   * record definition. Other records use the field name.
+   */
+  @Override
+  public Function<MapEx, Object> newValueFunction(final RecordDefinition recordDefinition) {
+    final String name = this.name;
+    if (recordDefinition != null && name.indexOf('.') == -1) {
+      final int fieldIndex = recordDefinition.getFieldIndex(name);
+      if (fieldIndex != -1) {
+        return record -> {
+          if (record instanceof Record) {
+            final Record fieldRecord = (Record)record;
+            if (fieldRecord.getRecordDefinition() == recordDefinition) {
+              return fieldRecord.getValue(fieldIndex);
+            }
+          }
+          return getValue(record);
+        };
+      }
+    }
+    return record -> getValue(record);
+  }
+
   @Override
   public <V> V toColumnTypeException(final Object value) {
     if (value == null) {
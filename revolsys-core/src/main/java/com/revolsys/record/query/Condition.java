@@ -3,6 +3,7 @@ package com.revolsys.record.query;
 import java.util.function.Predicate;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Emptyable;
 import com.revolsys.util.Property;
 
@@ -37,6 +38,19 @@ public interface Condition extends QueryValue, Predicate<MapEx>, Emptyable {
     return false;
   }
 
+  /**
+   * Construct a new predicate that returns the same result as {@link #test(MapEx)} for records
+   * with the record definition. Implementations resolve the field indexes, compile patterns and
+   * hash the constant values once so the predicate is faster when filtering many records. The
+   * default implementation returns this condition.
+   *
+   * @param recordDefinition The record definition of the records to filter.
+   * @return The predicate.
+   */
+  default Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    return this;
+  }
+
   default Condition not() {
     if (Property.isEmpty(this)) {
       return this;
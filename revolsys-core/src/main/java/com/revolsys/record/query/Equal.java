@@ -1,8 +1,11 @@
 package com.revolsys.record.query;
 
+import java.util.function.Predicate;
+
 import org.jeometry.common.data.type.DataType;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 
 public class Equal extends BinaryCondition {
 
@@ -15,6 +18,11 @@ public class Equal extends BinaryCondition {
     return (Equal)super.clone();
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    return newPredicate(recordDefinition, (value1, value2) -> DataType.equal(value1, value2));
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue left = getLeft();
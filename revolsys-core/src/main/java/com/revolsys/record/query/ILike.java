@@ -1,8 +1,12 @@
 package com.revolsys.record.query;
 
+import java.util.function.Function;
+import java.util.function.Predicate;
+
 import org.jeometry.common.data.type.DataType;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Property;
 
 public class ILike extends BinaryCondition {
@@ -16,6 +20,22 @@ public class ILike extends BinaryCondition {
     return (ILike)super.clone();
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final QueryValue right = getRight();
+    if (right instanceof Value) {
+      final QueryValue left = getLeft();
+      final Function<MapEx, String> valueFunction = left.newStringValueFunction(recordDefinition);
+      String match = right.getStringValue(null);
+      if (match != null) {
+        match = match.toUpperCase();
+      }
+      return Like.newPredicate(valueFunction, match, true);
+    } else {
+      return this;
+    }
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue left = getLeft();
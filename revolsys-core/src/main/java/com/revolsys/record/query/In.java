@@ -3,12 +3,15 @@ package com.revolsys.record.query;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.jeometry.common.data.type.DataTypes;
 import org.jeometry.common.exception.Exceptions;
 
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordStore;
 
 public class In extends AbstractBinaryQueryValue implements Condition {
@@ -96,6 +99,17 @@ public class In extends AbstractBinaryQueryValue implements Condition {
     return getValues().isEmpty();
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final QueryValue left = getLeft();
+    final Function<MapEx, Object> valueFunction = left.newValueFunction(recordDefinition);
+    final Predicate<Object> containsPredicate = getValues().newContainsPredicate();
+    return record -> {
+      final Object value = valueFunction.apply(record);
+      return containsPredicate.test(value);
+    };
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue left = getLeft();
@@ -1,6 +1,10 @@
 package com.revolsys.record.query;
 
+import java.util.function.Function;
+import java.util.function.Predicate;
+
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 
 public class IsNull extends RightUnaryCondition {
 
@@ -8,6 +12,13 @@ public class IsNull extends RightUnaryCondition {
     super(value, "IS NULL");
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final QueryValue queryValue = getValue();
+    final Function<MapEx, Object> valueFunction = queryValue.newValueFunction(recordDefinition);
+    return record -> valueFunction.apply(record) == null;
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue queryValue = getValue();
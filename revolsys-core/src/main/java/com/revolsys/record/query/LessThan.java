@@ -1,8 +1,11 @@
 package com.revolsys.record.query;
 
+import java.util.function.Predicate;
+
 import org.jeometry.common.compare.CompareUtil;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 
 public class LessThan extends BinaryCondition {
 
@@ -15,6 +18,12 @@ public class LessThan extends BinaryCondition {
     return (LessThan)super.clone();
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    return newPredicate(recordDefinition,
+      (value1, value2) -> CompareUtil.compare(value1, value2) < 0);
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue left = getLeft();
@@ -1,12 +1,59 @@
 package com.revolsys.record.query;
 
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
 import org.jeometry.common.data.type.DataType;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Property;
 
 public class Like extends BinaryCondition {
 
+  /**
+   * Construct a new predicate for a constant LIKE match. The pattern is compiled once instead of
+   * for each record.
+   *
+   * @param valueFunction The function to get the value from the record.
+   * @param match The value to match (% is any characters).
+   * @param upperCase True if the value should be converted to upper case before matching
+   * (ILIKE), the match must already be upper case.
+   * @return The predicate.
+   */
+  static Predicate<MapEx> newPredicate(final Function<MapEx, String> valueFunction,
+    final String match, final boolean upperCase) {
+    if (!Property.hasValue(match)) {
+      return record -> !Property.hasValue(valueFunction.apply(record));
+    } else if (match.contains("%")) {
+      final Pattern pattern = Pattern.compile(toPattern(match));
+      return record -> {
+        String value = valueFunction.apply(record);
+        if (Property.hasValue(value)) {
+          if (upperCase) {
+            value = value.toUpperCase();
+          }
+          return pattern.matcher(value).matches();
+        } else {
+          return false;
+        }
+      };
+    } else {
+      return record -> {
+        String value = valueFunction.apply(record);
+        if (Property.hasValue(value)) {
+          if (upperCase) {
+            value = value.toUpperCase();
+          }
+          return DataType.equal(value, match);
+        } else {
+          return false;
+        }
+      };
+    }
+  }
+
   public static String toPattern(String value2) {
     value2 = value2.replaceAll("\\\\", "\\\\");
     value2 = value2.replaceAll("\\[", "\\[");
@@ -41,6 +88,19 @@ public class Like extends BinaryCondition {
     return (Like)super.clone();
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final QueryValue right = getRight();
+    if (right instanceof Value) {
+      final QueryValue left = getLeft();
+      final Function<MapEx, String> valueFunction = left.newStringValueFunction(recordDefinition);
+      final String match = right.getStringValue(null);
+      return newPredicate(valueFunction, match, false);
+    } else {
+      return this;
+    }
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue left = getLeft();
@@ -1,6 +1,9 @@
 package com.revolsys.record.query;
 
+import java.util.function.Predicate;
+
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 
 public class Not extends LeftUnaryCondition {
 
@@ -25,6 +28,13 @@ public class Not extends LeftUnaryCondition {
     return false;
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final Condition condition = getValue();
+    final Predicate<MapEx> predicate = condition.newPredicate(recordDefinition);
+    return predicate.negate();
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final Condition condition = getValue();
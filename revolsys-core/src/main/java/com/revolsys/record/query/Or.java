@@ -1,8 +1,10 @@
 package com.revolsys.record.query;
 
 import java.util.Arrays;
+import java.util.function.Predicate;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 
 public class Or extends AbstractMultiCondition {
 
@@ -31,6 +33,23 @@ public class Or extends AbstractMultiCondition {
     return false;
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final Predicate<MapEx>[] predicates = newPredicates(recordDefinition);
+    if (predicates.length == 0) {
+      return record -> true;
+    } else {
+      return record -> {
+        for (final Predicate<MapEx> predicate : predicates) {
+          if (predicate.test(record)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+  }
+
   @Override
   public Condition or(final Condition condition) {
     if (condition != null && !condition.isEmpty()) {
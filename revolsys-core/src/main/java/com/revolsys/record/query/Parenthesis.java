@@ -1,10 +1,12 @@
 package com.revolsys.record.query;
 
 import java.io.IOException;
+import java.util.function.Predicate;
 
 import org.jeometry.common.exception.Exceptions;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordStore;
 
 public class Parenthesis extends AbstractUnaryQueryValue implements Condition {
@@ -43,6 +45,17 @@ public class Parenthesis extends AbstractUnaryQueryValue implements Condition {
     return false;
   }
 
+  @Override
+  public Predicate<MapEx> newPredicate(final RecordDefinition recordDefinition) {
+    final QueryValue value = getValue();
+    if (value instanceof Condition) {
+      final Condition condition = (Condition)value;
+      return condition.newPredicate(recordDefinition);
+    } else {
+      return record -> false;
+    }
+  }
+
   @Override
   public boolean test(final MapEx record) {
     final QueryValue value = getValue();
@@ -171,6 +171,8 @@ public class Query extends BaseObjectWithProperties
 
   private boolean distinct = false;
 
+  private int fetchSize = 0;
+
   private Cancellable cancellable;
 
   private RecordFactory<Record> recordFactory;
@@ -561,6 +563,16 @@ public class Query extends BaseObjectWithProperties
     return this.cancellable;
   }
 
+  /**
+   * Get the number of rows to fetch from the database in each round trip. A value of 0 uses the
+   * record store's fetch size.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public From getFrom() {
     return this.from;
   }
@@ -1108,6 +1120,15 @@ public class Query extends BaseObjectWithProperties
     return this;
   }
 
+  public Query setFetchSize(final int fetchSize) {
+    if (fetchSize < 0) {
+      this.fetchSize = 0;
+    } else {
+      this.fetchSize = fetchSize;
+    }
+    return this;
+  }
+
   public Query setFrom(final From from, final String alias) {
     this.from = new FromAlias(from, alias);
     return this;
@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
@@ -183,6 +184,29 @@ public interface QueryValue extends Cloneable {
     throw new UnsupportedOperationException("getValueFromResultSet not implemented");
   }
 
+  /**
+   * Construct a new function to get the value as a string from records with the record
+   * definition. See {@link #newValueFunction(RecordDefinition)}.
+   *
+   * @param recordDefinition The record definition of the records.
+   * @return The function.
+   */
+  default Function<MapEx, String> newStringValueFunction(final RecordDefinition recordDefinition) {
+    return record -> getStringValue(record);
+  }
+
+  /**
+   * Construct a new function to get the value from records with the record definition. The
+   * function returns the same value as {@link #getValue(MapEx)} but implementations can resolve
+   * the field index or constant value once instead of for each record.
+   *
+   * @param recordDefinition The record definition of the records.
+   * @return The function.
+   */
+  default Function<MapEx, Object> newValueFunction(final RecordDefinition recordDefinition) {
+    return record -> getValue(record);
+  }
+
   default void setFieldDefinition(final FieldDefinition fieldDefinition) {
   }
 
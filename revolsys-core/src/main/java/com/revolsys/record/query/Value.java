@@ -8,6 +8,7 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Function;
 
 import org.jeometry.common.data.identifier.Identifier;
 import org.jeometry.common.data.identifier.TypedIdentifier;
@@ -231,6 +232,12 @@ public class Value implements QueryValue {
     return (V)this.queryValue;
   }
 
+  @Override
+  public Function<MapEx, Object> newValueFunction(final RecordDefinition recordDefinition) {
+    final Object value = this.queryValue;
+    return record -> value;
+  }
+
   private void setColumn(final ColumnReference column) {
     this.column = column;
     if (column != null) {
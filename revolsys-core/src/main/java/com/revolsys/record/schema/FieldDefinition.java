@@ -10,6 +10,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.jeometry.common.compare.NumericComparator;
 import org.jeometry.common.data.identifier.Identifier;
@@ -662,6 +663,31 @@ public class FieldDefinition extends BaseObjectWithProperties implements CharSeq
     return this.name.length();
   }
 
+  /**
+   * Get the value using the index of the field in the record definition for records with the
+   * record definition. Other records use {@link #getValue(MapEx)}.
+   */
+  @Override
+  public Function<MapEx, Object> newValueFunction(final RecordDefinition recordDefinition) {
+    if (recordDefinition != null) {
+      final int fieldIndex = recordDefinition.getFieldIndex(this.name);
+      if (fieldIndex != -1) {
+        final DataType dataType = this.type;
+        return record -> {
+          if (record instanceof Record) {
+            final Record fieldRecord = (Record)record;
+            if (fieldRecord.getRecordDefinition() == recordDefinition) {
+              final Object value = fieldRecord.getValue(fieldIndex);
+              return dataType.toObject(value);
+            }
+          }
+          return getValue(record);
+        };
+      }
+    }
+    return record -> getValue(record);
+  }
+
   protected void postClone(final FieldDefinition clone) {
     clone.generated = this.generated;
   }
@@ -14,14 +14,28 @@ import org.jeometry.common.data.type.DataType;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
-import com.revolsys.geometry.wkb.WkbByteBufferReader;
 import com.revolsys.geometry.wkb.WkbChannelWriter;
+import com.revolsys.geometry.wkb.WkbLazyGeometry;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.record.query.ColumnIndexes;
 import com.revolsys.record.schema.RecordDefinition;
 
 public class GeoPackageGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
-  public static Geometry parseWkb(GeometryFactory geometryFactory, final byte[] data) {
+  public static Geometry parseWkb(final GeometryFactory geometryFactory, final byte[] data) {
+    return parseWkbLazy(geometryFactory, data).getGeometry();
+  }
+
+  /**
+   * Parse the GeoPackage geometry header and return a lazy geometry for the WKB. The envelope in
+   * the header (if there is one) is used as the bounding box so the WKB is only read if the
+   * geometry is used.
+   *
+   * @param geometryFactory The geometry factory.
+   * @param data The GeoPackage geometry blob.
+   * @return The lazy geometry.
+   */
+  public static WkbLazyGeometry parseWkbLazy(GeometryFactory geometryFactory,
+    final byte[] data) {
     final ByteBuffer buffer = ByteBuffer.wrap(data);
     if (buffer.get() == 'G') {
       if (buffer.get() == 'P') {
@@ -61,10 +75,18 @@ public class GeoPackageGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
           default:
           break;
         }
-        for (int i = 0; i < envelopeCoordinateCount; i++) {
-          buffer.getDouble();
+        BoundingBox boundingBox = null;
+        if (empty) {
+          boundingBox = geometryFactory.bboxEmpty();
+        } else if (envelopeCoordinateCount > 0) {
+          final double minX = buffer.getDouble();
+          final double maxX = buffer.getDouble();
+          final double minY = buffer.getDouble();
+          final double maxY = buffer.getDouble();
+          boundingBox = geometryFactory.newBoundingBox(minX, minY, maxX, maxY);
         }
-        return WkbByteBufferReader.readGeometry(geometryFactory, buffer);
+        final int offset = 8 + envelopeCoordinateCount * 8;
+        return new WkbLazyGeometry(geometryFactory, data, offset, boundingBox);
       }
     }
     throw new IllegalArgumentException(
@@ -92,6 +114,21 @@ public class GeoPackageGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
       getGeometryFactory());
   }
 
+  /**
+   * Get a lazy geometry for records so the WKB is only parsed if the geometry is used.
+   */
+  @Override
+  public Object getRecordValueFromResultSet(final RecordDefinition recordDefinition,
+    final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings)
+    throws SQLException {
+    final Object databaseValue = resultSet.getObject(indexes.incrementAndGet());
+    if (databaseValue instanceof byte[]) {
+      final byte[] bytes = (byte[])databaseValue;
+      return parseWkbLazy(getGeometryFactory(), bytes);
+    }
+    return databaseValue;
+  }
+
   @Override
   public Object getValueFromResultSet(final RecordDefinition recordDefinition,
     final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings)
@@ -8,7 +8,6 @@ import org.sqlite.Function;
 import org.sqlite.SQLiteConnection;
 
 import com.revolsys.geometry.model.BoundingBox;
-import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geopackage.field.GeoPackageGeometryJdbcFieldDefinition;
 
@@ -69,9 +68,9 @@ public class GeoPackageEnvelopeValueFunction extends Function {
             case 0:
               final GeometryFactory geometryFactory = GeometryFactory
                 .floating2d(coordinateSystemId);
-              final Geometry geometry = GeoPackageGeometryJdbcFieldDefinition
-                .parseWkb(geometryFactory, bytes);
-              final BoundingBox boundingBox = geometry.getBoundingBox();
+              final BoundingBox boundingBox = GeoPackageGeometryJdbcFieldDefinition
+                .parseWkbLazy(geometryFactory, bytes)
+                .getBoundingBox();
               switch (this.envelopeValueIndex) {
                 case 0:
                   value = boundingBox.getMinX();
@@ -0,0 +1,525 @@
+package com.revolsys.gis.postgresql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jeometry.common.exception.Exceptions;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.io.format.json.Json;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+import com.revolsys.record.schema.RecordStore;
+import com.revolsys.transaction.Transaction;
+
+/**
+ * Insert records using the PostgreSQL COPY FROM STDIN in binary format. The values are encoded
+ * directly to the binary form of each column type, geometries are written as EWKB.
+ *
+ * Only inserts are supported. The columns are chosen when the first record for a table is
+ * written. Generated columns and primary key columns without a value in the first record are
+ * excluded so the column default (e.g. a sequence) is used.
+ *
+ * The writer must be used in a transaction. The records are only marked as persisted once the
+ * COPY for the table has completed, when a record for another table is written or the writer is
+ * closed.
+ */
+public class PostgreSQLCopyRecordWriter extends AbstractRecordWriter {
+
+  private static class CopyField {
+    private final JdbcFieldDefinition field;
+
+    private final int fieldIndex;
+
+    private final String typeName;
+
+    private final PostgreSQLEwkbWriter geometryWriter;
+
+    private CopyField(final JdbcFieldDefinition field, final String typeName) {
+      this.field = field;
+      this.fieldIndex = field.getIndex();
+      this.typeName = typeName;
+      if ("geometry".equals(typeName)) {
+        this.geometryWriter = new PostgreSQLEwkbWriter(field.getDataType(),
+          field.getGeometryFactory());
+      } else {
+        this.geometryWriter = null;
+      }
+    }
+  }
+
+  private static final byte[] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0
+  };
+
+  /** Seconds between 1970-01-01 and the PostgreSQL epoch of 2000-01-01. */
+  private static final long POSTGRESQL_EPOCH_SECONDS = 946684800;
+
+  private static final long POSTGRESQL_EPOCH_DAYS = 10957;
+
+  private static final short NUMERIC_NEGATIVE = 0x4000;
+
+  private static Instant toInstant(final FieldDefinition field, final Object value) {
+    if (value instanceof Instant) {
+      return (Instant)value;
+    } else if (value instanceof Timestamp) {
+      return ((Timestamp)value).toInstant();
+    } else if (value instanceof java.util.Date) {
+      return Instant.ofEpochMilli(((java.util.Date)value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime)value).atZone(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof LocalDate) {
+      return ((LocalDate)value).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof ZonedDateTime) {
+      return ((ZonedDateTime)value).toInstant();
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime)value).toInstant();
+    } else {
+      final Object fieldValue = field.toFieldValue(value);
+      if (fieldValue == value) {
+        throw new IllegalArgumentException(
+          "Cannot convert " + value.getClass() + " to a timestamp for " + field);
+      } else {
+        return toInstant(field, fieldValue);
+      }
+    }
+  }
+
+  private static LocalDate toLocalDate(final FieldDefinition field, final Object value) {
+    if (value instanceof LocalDate) {
+      return (LocalDate)value;
+    } else if (value instanceof java.sql.Date) {
+      return ((java.sql.Date)value).toLocalDate();
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime)value).toLocalDate();
+    } else {
+      final Instant instant = toInstant(field, value);
+      return LocalDate.ofInstant(instant, ZoneId.systemDefault());
+    }
+  }
+
+  private static Number toNumber(final FieldDefinition field, final Object value) {
+    if (value instanceof Number) {
+      return (Number)value;
+    } else {
+      return field.toFieldValue(value);
+    }
+  }
+
+  private static long toPostgreSQLMicros(final long epochSecond, final int nanos) {
+    return (epochSecond - POSTGRESQL_EPOCH_SECONDS) * 1000000 + nanos / 1000;
+  }
+
+  private PostgreSQLRecordStore recordStore;
+
+  private JdbcConnection connection;
+
+  private JdbcRecordDefinition copyRecordDefinition;
+
+  private CopyField[] copyFields;
+
+  private PGCopyOutputStream copyOut;
+
+  private final List<Record> copyRecords = new ArrayList<>();
+
+  private ChannelWriter out;
+
+  private int bufferSize = 65536;
+
+  public PostgreSQLCopyRecordWriter(final PostgreSQLRecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition) {
+    super(recordDefinition);
+    Transaction.assertInTransaction();
+    this.recordStore = recordStore;
+    this.connection = recordStore.getJdbcConnection();
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      endCopy();
+    } finally {
+      final JdbcConnection connection = this.connection;
+      this.connection = null;
+      this.recordStore = null;
+      if (connection != null) {
+        connection.close();
+      }
+    }
+  }
+
+  private void endCopy() {
+    final PGCopyOutputStream copyOut = this.copyOut;
+    if (copyOut != null) {
+      this.copyOut = null;
+      this.copyFields = null;
+      this.copyRecordDefinition = null;
+      try {
+        final ChannelWriter out = this.out;
+        this.out = null;
+        out.putShort((short)-1);
+        out.close();
+        copyOut.endCopy();
+      } catch (final Exception e) {
+        this.copyRecords.clear();
+        try {
+          if (copyOut.isActive()) {
+            copyOut.cancelCopy();
+          }
+        } catch (final SQLException e1) {
+        }
+        throw Exceptions.wrap("Unable to complete COPY", e);
+      }
+      for (final Record record : this.copyRecords) {
+        record.setState(RecordState.PERSISTED);
+        this.recordStore.addStatistic("Insert", record);
+      }
+      this.copyRecords.clear();
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (this.out != null) {
+      this.out.flush();
+      try {
+        this.copyOut.flush();
+      } catch (final Exception e) {
+        throw Exceptions.wrap("Unable to flush COPY", e);
+      }
+    }
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  private Map<String, String> getColumnTypes(final JdbcRecordDefinition recordDefinition) {
+    final String tableName = recordDefinition.getDbTableQualifiedName();
+    final String sql = "SELECT a.attname, t.typname FROM pg_attribute a"
+      + " JOIN pg_type t ON t.oid = a.atttypid"
+      + " WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped";
+    final Map<String, String> columnTypes = new HashMap<>();
+    try (
+      PreparedStatement statement = this.connection.prepareStatement(sql)) {
+      statement.setString(1, tableName);
+      try (
+        ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          columnTypes.put(resultSet.getString(1), resultSet.getString(2));
+        }
+      }
+    } catch (final SQLException e) {
+      throw this.connection.getException("Get Column Types", sql, e);
+    }
+    return columnTypes;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <R extends RecordStore> R getRecordStore() {
+    return (R)this.recordStore;
+  }
+
+  public void setBufferSize(final int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  private void startCopy(final JdbcRecordDefinition recordDefinition, final Record record) {
+    final Map<String, String> columnTypes = getColumnTypes(recordDefinition);
+    final boolean hasRowIdField = this.recordStore.isIdFieldRowid(recordDefinition);
+    final List<CopyField> copyFields = new ArrayList<>();
+    final StringBuilder sql = new StringBuilder("COPY ");
+    sql.append(recordDefinition.getDbTableQualifiedName());
+    sql.append(" (");
+    for (final FieldDefinition fieldDefinition : recordDefinition.getFields()) {
+      final JdbcFieldDefinition field = (JdbcFieldDefinition)fieldDefinition;
+      final boolean idField = field.isIdField();
+      if (field.isGenerated() || hasRowIdField && idField
+        || idField && !record.hasValue(field.getIndex())) {
+      } else {
+        final String typeName = columnTypes.get(field.getDbName());
+        if (typeName == null) {
+          throw new IllegalArgumentException(
+            "Cannot find column type for " + recordDefinition.getPath() + "." + field.getName());
+        }
+        if (!copyFields.isEmpty()) {
+          sql.append(',');
+        }
+        field.appendColumnName(sql);
+        copyFields.add(new CopyField(field, typeName));
+      }
+    }
+    sql.append(") FROM STDIN (FORMAT binary)");
+    try {
+      final PGConnection pgConnection = this.connection.unwrap(PGConnection.class);
+      final CopyIn copyIn = pgConnection.getCopyAPI().copyIn(sql.toString());
+      this.copyOut = new PGCopyOutputStream(copyIn, this.bufferSize);
+    } catch (final SQLException e) {
+      throw this.connection.getException("Start COPY", sql.toString(), e);
+    }
+    this.copyRecordDefinition = recordDefinition;
+    this.copyFields = copyFields.toArray(new CopyField[copyFields.size()]);
+    this.out = new ChannelWriter(this.copyOut);
+    this.out.putBytes(SIGNATURE);
+    this.out.putInt(0);
+    this.out.putInt(0);
+  }
+
+  @Override
+  public String toString() {
+    if (this.recordStore == null) {
+      return super.toString();
+    } else {
+      return this.recordStore.toString() + " copy writer";
+    }
+  }
+
+  @Override
+  public synchronized void write(final Record record) {
+    final RecordState state = record.getState();
+    if (record.getRecordStore() == this.recordStore && state != RecordState.NEW) {
+      if (state == RecordState.PERSISTED) {
+        return;
+      } else {
+        throw new UnsupportedOperationException("COPY can only insert records not " + state);
+      }
+    } else if (state == RecordState.DELETED) {
+      return;
+    }
+    final JdbcRecordDefinition recordDefinition = this.recordStore
+      .getRecordDefinition(record.getPathName());
+    if (recordDefinition != this.copyRecordDefinition) {
+      endCopy();
+      startCopy(recordDefinition, record);
+    }
+    final ChannelWriter out = this.out;
+    final CopyField[] copyFields = this.copyFields;
+    out.putShort((short)copyFields.length);
+    for (final CopyField copyField : copyFields) {
+      final Object value = record.getValue(copyField.fieldIndex);
+      try {
+        writeValue(out, copyField, value);
+      } catch (final RuntimeException e) {
+        throw Exceptions.wrap("Unable to write " + copyField.field.getName() + "\n" + record, e);
+      }
+    }
+    this.copyRecords.add(record);
+  }
+
+  private void writeBytes(final ChannelWriter out, final byte[] bytes) {
+    out.putInt(bytes.length);
+    out.putBytes(bytes);
+  }
+
+  private void writeNumeric(final ChannelWriter out, final BigDecimal value) {
+    final BigDecimal absValue = value.abs();
+    final int scale = Math.max(0, absValue.scale());
+    final String plain = absValue.setScale(scale).toPlainString();
+    final int pointIndex = plain.indexOf('.');
+    final String integerPart;
+    final String fractionPart;
+    if (pointIndex == -1) {
+      integerPart = plain;
+      fractionPart = "";
+    } else {
+      integerPart = plain.substring(0, pointIndex);
+      fractionPart = plain.substring(pointIndex + 1);
+    }
+    final int integerGroupCount = (integerPart.length() + 3) / 4;
+    final int fractionGroupCount = (fractionPart.length() + 3) / 4;
+    final short[] digits = new short[integerGroupCount + fractionGroupCount];
+    int end = integerPart.length();
+    for (int i = integerGroupCount - 1; i >= 0; i--) {
+      final int start = Math.max(0, end - 4);
+      digits[i] = Short.parseShort(integerPart.substring(start, end));
+      end = start;
+    }
+    for (int i = 0; i < fractionGroupCount; i++) {
+      final int start = i * 4;
+      final StringBuilder group = new StringBuilder(
+        fractionPart.substring(start, Math.min(start + 4, fractionPart.length())));
+      while (group.length() < 4) {
+        group.append('0');
+      }
+      digits[integerGroupCount + i] = Short.parseShort(group.toString());
+    }
+    int first = 0;
+    int weight = integerGroupCount - 1;
+    while (first < digits.length && digits[first] == 0) {
+      first++;
+      weight--;
+    }
+    int last = digits.length;
+    while (last > first && digits[last - 1] == 0) {
+      last--;
+    }
+    final int digitCount = last - first;
+    short sign = 0;
+    if (digitCount == 0) {
+      weight = 0;
+    } else if (value.signum() < 0) {
+      sign = NUMERIC_NEGATIVE;
+    }
+    out.putInt(8 + digitCount * 2);
+    out.putShort((short)digitCount);
+    out.putShort((short)weight);
+    out.putShort(sign);
+    out.putShort((short)scale);
+    for (int i = first; i < last; i++) {
+      out.putShort(digits[i]);
+    }
+  }
+
+  private void writeValue(final ChannelWriter out, final CopyField copyField, final Object value) {
+    if (value == null) {
+      out.putInt(-1);
+      return;
+    }
+    final JdbcFieldDefinition field = copyField.field;
+    switch (copyField.typeName) {
+      case "geometry": {
+        final Geometry geometry = field.toFieldValue(value);
+        if (geometry == null || geometry.isEmpty()) {
+          out.putInt(-1);
+        } else {
+          final PostgreSQLEwkbWriter geometryWriter = copyField.geometryWriter;
+          final int size = geometryWriter.prepare(geometry);
+          out.putInt(size);
+          geometryWriter.write(out);
+        }
+      }
+      break;
+      case "bool":
+        out.putInt(1);
+        final Boolean booleanValue = field.toFieldValue(value);
+        out.putByte(booleanValue ? (byte)1 : (byte)0);
+      break;
+      case "int2":
+        out.putInt(2);
+        out.putShort(toNumber(field, value).shortValue());
+      break;
+      case "int4":
+        out.putInt(4);
+        out.putInt(toNumber(field, value).intValue());
+      break;
+      case "int8":
+        out.putInt(8);
+        out.putLong(toNumber(field, value).longValue());
+      break;
+      case "float4":
+        out.putInt(4);
+        out.putFloat(toNumber(field, value).floatValue());
+      break;
+      case "float8":
+        out.putInt(8);
+        out.putDouble(toNumber(field, value).doubleValue());
+      break;
+      case "numeric": {
+        final Number number = toNumber(field, value);
+        BigDecimal decimal;
+        if (number instanceof BigDecimal) {
+          decimal = (BigDecimal)number;
+        } else if (number instanceof BigInteger) {
+          decimal = new BigDecimal((BigInteger)number);
+        } else if (number instanceof Double || number instanceof Float) {
+          decimal = BigDecimal.valueOf(number.doubleValue());
+        } else {
+          decimal = BigDecimal.valueOf(number.longValue());
+        }
+        writeNumeric(out, decimal);
+      }
+      break;
+      case "date": {
+        final LocalDate date = toLocalDate(field, value);
+        out.putInt(4);
+        out.putInt((int)(date.toEpochDay() - POSTGRESQL_EPOCH_DAYS));
+      }
+      break;
+      case "timestamp": {
+        final Instant instant = toInstant(field, value);
+        final LocalDateTime localTime = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        out.putInt(8);
+        out.putLong(
+          toPostgreSQLMicros(localTime.toEpochSecond(ZoneOffset.UTC), localTime.getNano()));
+      }
+      break;
+      case "timestamptz": {
+        final Instant instant = toInstant(field, value);
+        out.putInt(8);
+        out.putLong(toPostgreSQLMicros(instant.getEpochSecond(), instant.getNano()));
+      }
+      break;
+      case "uuid": {
+        UUID uuid;
+        if (value instanceof UUID) {
+          uuid = (UUID)value;
+        } else {
+          uuid = UUID.fromString(value.toString());
+        }
+        out.putInt(16);
+        out.putLong(uuid.getMostSignificantBits());
+        out.putLong(uuid.getLeastSignificantBits());
+      }
+      break;
+      case "bytea":
+        if (value instanceof byte[]) {
+          writeBytes(out, (byte[])value);
+        } else {
+          throw new IllegalArgumentException("Expecting a byte[] not " + value.getClass());
+        }
+      break;
+      case "json": {
+        final String json = Json.JSON_OBJECT.toString(value);
+        writeBytes(out, json.getBytes(StandardCharsets.UTF_8));
+      }
+      break;
+      case "jsonb": {
+        final String json = Json.JSON_OBJECT.toString(value);
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length + 1);
+        out.putByte((byte)1);
+        out.putBytes(bytes);
+      }
+      break;
+      case "text":
+      case "varchar":
+      case "bpchar":
+      case "name":
+      case "citext":
+        writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+      break;
+      default:
+        throw new IllegalArgumentException(
+          "COPY binary not supported for PostgreSQL type " + copyField.typeName);
+    }
+  }
+}
@@ -6,6 +6,11 @@ import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcRecordStore;
 import com.revolsys.record.query.Query;
 
+/**
+ * The PostgreSQL driver only streams the results using a cursor (honouring the fetch size) if
+ * auto commit is off, otherwise the whole result set is read into memory. Auto commit is off
+ * unless the autoCommit property is true.
+ */
 public class PostgreSQLJdbcQueryIterator extends JdbcQueryIterator {
 
   public PostgreSQLJdbcQueryIterator(final JdbcRecordStore recordStore, final Query query,
@@ -50,6 +50,7 @@ import com.revolsys.record.query.functions.JsonRawValue;
 import com.revolsys.record.query.functions.JsonValue;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
 import com.revolsys.util.Property;
 
 public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
@@ -412,6 +413,18 @@ order by 1, 2, 3
     return super.newRecordDefinition(schema, pathName, dbTableName);
   }
 
+  /**
+   * Create a writer that inserts records using COPY FROM STDIN in binary format. This is much
+   * faster than batched inserts for bulk loading but only supports inserting new records.
+   *
+   * @param recordDefinition The record definition of the records to write.
+   * @return The writer.
+   */
+  public PostgreSQLCopyRecordWriter newRecordWriterCopy(
+    final RecordDefinitionProxy recordDefinition) {
+    return new PostgreSQLCopyRecordWriter(this, recordDefinition);
+  }
+
   @Override
   protected PostgreSQLRecordStoreSchema newRootSchema() {
     return new PostgreSQLRecordStoreSchema(this);
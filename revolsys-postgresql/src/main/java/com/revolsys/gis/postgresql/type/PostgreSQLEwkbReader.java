@@ -0,0 +1,122 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.geometry.wkb.WkbLazyGeometry;
+
+/**
+ * Read PostGIS EWKB geometries from the raw bytes returned by the JDBC driver. The bytes can
+ * either be the binary EWKB (e.g. from a bytea column) or the hex encoded EWKB which is the
+ * text form PostGIS returns for geometry columns. The geometry is decoded using
+ * {@link WkbByteBufferReader} without creating a {@link String} or boxing any values.
+ */
+public class PostgreSQLEwkbReader {
+  private static final byte[] HEX_VALUES = new byte[128];
+
+  static {
+    for (int i = 0; i < HEX_VALUES.length; i++) {
+      HEX_VALUES[i] = -1;
+    }
+    for (int i = 0; i < 10; i++) {
+      HEX_VALUES['0' + i] = (byte)i;
+    }
+    for (int i = 0; i < 6; i++) {
+      HEX_VALUES['A' + i] = (byte)(10 + i);
+      HEX_VALUES['a' + i] = (byte)(10 + i);
+    }
+  }
+
+  private static int hexValue(final byte c) {
+    if (c >= 0) {
+      final int value = HEX_VALUES[c];
+      if (value != -1) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("No valid Hex char " + (char)c);
+  }
+
+  /**
+   * Check if the bytes are an EWKB geometry in either the binary or hex form.
+   *
+   * @param bytes The bytes.
+   * @return True if the bytes can be read by this reader.
+   */
+  public static boolean isEwkb(final byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return false;
+    } else {
+      final byte first = bytes[0];
+      if (first == 0 || first == 1) {
+        return true;
+      } else if (first == '0') {
+        return true;
+      } else if (first == '\\') {
+        return bytes.length > 2 && bytes[1] == 'x';
+      } else {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Read the geometry from the binary or hex encoded EWKB.
+   *
+   * @param geometryFactory The geometry factory the geometry will be converted to.
+   * @param bytes The EWKB bytes.
+   * @return The geometry or null if there were no bytes.
+   */
+  public static Geometry read(final GeometryFactory geometryFactory, final byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    } else {
+      final byte[] ewkb = toEwkb(bytes);
+      final ByteBuffer buffer = ByteBuffer.wrap(ewkb);
+      return WkbByteBufferReader.readGeometry(geometryFactory, buffer);
+    }
+  }
+
+  /**
+   * Read a lazy geometry from the binary or hex encoded EWKB. The hex is decoded but the
+   * geometry is only created when it is first used.
+   *
+   * @param geometryFactory The geometry factory the geometry will be converted to.
+   * @param bytes The EWKB bytes.
+   * @return The lazy geometry or null if there were no bytes.
+   */
+  public static WkbLazyGeometry readLazy(final GeometryFactory geometryFactory,
+    final byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    } else {
+      final byte[] ewkb = toEwkb(bytes);
+      return new WkbLazyGeometry(geometryFactory, ewkb);
+    }
+  }
+
+  private static byte[] toBinary(final byte[] hex, final int offset) {
+    final int length = (hex.length - offset) / 2;
+    final byte[] bytes = new byte[length];
+    int hexIndex = offset;
+    for (int i = 0; i < length; i++) {
+      final int high = hexValue(hex[hexIndex++]);
+      final int low = hexValue(hex[hexIndex++]);
+      bytes[i] = (byte)(high << 4 | low);
+    }
+    return bytes;
+  }
+
+  private static byte[] toEwkb(final byte[] bytes) {
+    final byte first = bytes[0];
+    if (first == 0 || first == 1) {
+      return bytes;
+    } else if (first == '\\') {
+      return toBinary(bytes, 2);
+    } else {
+      return toBinary(bytes, 0);
+    }
+  }
+}
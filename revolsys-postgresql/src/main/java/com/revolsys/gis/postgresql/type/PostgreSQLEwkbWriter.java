@@ -0,0 +1,314 @@
+package com.revolsys.gis.postgresql.type;
+
+import org.jeometry.common.data.type.DataType;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Write geometries in the big endian PostGIS EWKB format directly from the {@link Geometry} model.
+ * The geometry type written for each field {@link DataType}, the polygon ring orientation and the
+ * axis handling match the text form written by {@link PostgreSQLGeometryWrapper}.
+ */
+public class PostgreSQLEwkbWriter {
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_Z = 0x80000000;
+
+  private static final int POINT = 1;
+
+  private static final int LINE_STRING = 2;
+
+  private static final int POLYGON = 3;
+
+  private static final int MULTI_POINT = 4;
+
+  private static final int MULTI_LINE_STRING = 5;
+
+  private static final int MULTI_POLYGON = 6;
+
+  private static final int GEOMETRY_COLLECTION = 7;
+
+  private static int getGeometrySize(final int geometryType, final Geometry geometry,
+    final int axisCount) {
+    final int vertexSize = axisCount * 8;
+    switch (geometryType) {
+      case POINT:
+        return 5 + vertexSize;
+      case LINE_STRING:
+        return 5 + 4 + ((LineString)geometry).getVertexCount() * vertexSize;
+      case POLYGON: {
+        final Polygon polygon = (Polygon)geometry;
+        int size = 5 + 4;
+        if (!polygon.isEmpty()) {
+          for (final LineString ring : polygon.rings()) {
+            size += 4 + ring.getVertexCount() * vertexSize;
+          }
+        }
+        return size;
+      }
+      case MULTI_POINT:
+      case MULTI_LINE_STRING:
+      case MULTI_POLYGON:
+      case GEOMETRY_COLLECTION: {
+        int size = 5 + 4;
+        final int partType = getPartType(geometryType);
+        final int partCount = geometry.getGeometryCount();
+        for (int partIndex = 0; partIndex < partCount; partIndex++) {
+          final Geometry part = geometry.getGeometry(partIndex);
+          final int type = partType == 0 ? getGeometryType(part) : partType;
+          size += getGeometrySize(type, part, axisCount);
+        }
+        return size;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown geometry type" + geometry.getClass());
+    }
+  }
+
+  private static int getGeometryType(final DataType dataType) {
+    if (dataType == GeometryDataTypes.POINT) {
+      return POINT;
+    } else if (dataType == GeometryDataTypes.LINE_STRING
+      || dataType == GeometryDataTypes.LINEAR_RING) {
+      return LINE_STRING;
+    } else if (dataType == GeometryDataTypes.POLYGON) {
+      return POLYGON;
+    } else if (dataType == GeometryDataTypes.MULTI_POINT) {
+      return MULTI_POINT;
+    } else if (dataType == GeometryDataTypes.MULTI_LINE_STRING) {
+      return MULTI_LINE_STRING;
+    } else if (dataType == GeometryDataTypes.MULTI_POLYGON) {
+      return MULTI_POLYGON;
+    } else {
+      return 0;
+    }
+  }
+
+  private static int getGeometryType(final Geometry geometry) {
+    if (geometry instanceof Point) {
+      return POINT;
+    } else if (geometry instanceof Punctual) {
+      return MULTI_POINT;
+    } else if (geometry instanceof LineString) {
+      return LINE_STRING;
+    } else if (geometry instanceof Lineal) {
+      return MULTI_LINE_STRING;
+    } else if (geometry instanceof Polygon) {
+      return POLYGON;
+    } else if (geometry instanceof Polygonal) {
+      return MULTI_POLYGON;
+    } else if (geometry.isGeometryCollection()) {
+      return GEOMETRY_COLLECTION;
+    } else {
+      throw new IllegalArgumentException("Unknown geometry type" + geometry.getClass());
+    }
+  }
+
+  private static int getPartType(final int geometryType) {
+    switch (geometryType) {
+      case MULTI_POINT:
+        return POINT;
+      case MULTI_LINE_STRING:
+        return LINE_STRING;
+      case MULTI_POLYGON:
+        return POLYGON;
+      default:
+        return 0;
+    }
+  }
+
+  private static void writeCoordinates(final ChannelWriter out, final LineString line,
+    final int axisCount, final boolean reverse) {
+    final int vertexCount = line.getVertexCount();
+    out.putInt(vertexCount);
+    final int lineAxisCount = line.getAxisCount();
+    if (reverse) {
+      for (int vertexIndex = vertexCount - 1; vertexIndex >= 0; vertexIndex--) {
+        writeVertex(out, line, vertexIndex, axisCount, lineAxisCount);
+      }
+    } else {
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        writeVertex(out, line, vertexIndex, axisCount, lineAxisCount);
+      }
+    }
+  }
+
+  private static void writeGeometry(final ChannelWriter out, final int geometryType,
+    final Geometry geometry, final int axisCount, final int srid) {
+    out.putByte((byte)0);
+    int typeWord = geometryType;
+    if (axisCount > 2) {
+      typeWord |= EWKB_Z;
+    }
+    if (axisCount > 3) {
+      typeWord |= EWKB_M;
+    }
+    if (srid > 0) {
+      out.putInt(typeWord | EWKB_SRID);
+      out.putInt(srid);
+    } else {
+      out.putInt(typeWord);
+    }
+    switch (geometryType) {
+      case POINT: {
+        final Point point = (Point)geometry;
+        final int pointAxisCount = point.getAxisCount();
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          double value;
+          if (axisIndex < pointAxisCount) {
+            value = point.getCoordinate(axisIndex);
+          } else {
+            value = 0;
+          }
+          writeOrdinate(out, value);
+        }
+      }
+      break;
+      case LINE_STRING:
+        writeCoordinates(out, (LineString)geometry, axisCount, false);
+      break;
+      case POLYGON:
+        writePolygon(out, (Polygon)geometry, axisCount);
+      break;
+      case MULTI_POINT:
+      case MULTI_LINE_STRING:
+      case MULTI_POLYGON:
+      case GEOMETRY_COLLECTION: {
+        final int partType = getPartType(geometryType);
+        final int partCount = geometry.getGeometryCount();
+        out.putInt(partCount);
+        for (int partIndex = 0; partIndex < partCount; partIndex++) {
+          final Geometry part = geometry.getGeometry(partIndex);
+          final int type = partType == 0 ? getGeometryType(part) : partType;
+          writeGeometry(out, type, part, axisCount, 0);
+        }
+      }
+      break;
+      default:
+        throw new IllegalArgumentException("Unknown geometry type" + geometry.getClass());
+    }
+  }
+
+  private static void writeOrdinate(final ChannelWriter out, final double value) {
+    if (Double.isNaN(value)) {
+      out.putDouble(0);
+    } else {
+      out.putDouble(value);
+    }
+  }
+
+  private static void writePolygon(final ChannelWriter out, final Polygon polygon,
+    final int axisCount) {
+    if (polygon.isEmpty()) {
+      out.putInt(0);
+    } else {
+      out.putInt(polygon.getRingCount());
+      final LineString shell = polygon.getShell();
+      writeCoordinates(out, shell, axisCount, shell.isClockwise());
+      for (final LineString hole : polygon.holes()) {
+        writeCoordinates(out, hole, axisCount, !hole.isClockwise());
+      }
+    }
+  }
+
+  private static void writeVertex(final ChannelWriter out, final LineString line,
+    final int vertexIndex, final int axisCount, final int lineAxisCount) {
+    for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+      double value;
+      if (axisIndex < lineAxisCount) {
+        value = line.getCoordinate(vertexIndex, axisIndex);
+      } else {
+        value = 0;
+      }
+      writeOrdinate(out, value);
+    }
+  }
+
+  private final int axisCount;
+
+  private final int dataTypeGeometryType;
+
+  private final GeometryFactory geometryFactory;
+
+  private Geometry geometry;
+
+  private int geometryType;
+
+  private int srid;
+
+  /**
+   * Create a writer for a geometry field.
+   *
+   * @param dataType The geometry data type of the field.
+   * @param geometryFactory The geometry factory of the field, geometries will be converted to this.
+   */
+  public PostgreSQLEwkbWriter(final DataType dataType, final GeometryFactory geometryFactory) {
+    this.dataTypeGeometryType = getGeometryType(dataType);
+    this.geometryFactory = geometryFactory;
+    this.axisCount = geometryFactory.getAxisCount();
+  }
+
+  /**
+   * Prepare a geometry to be written and return the number of bytes of the EWKB.
+   *
+   * @param geometry The geometry.
+   * @return The number of bytes.
+   */
+  public int prepare(final Geometry geometry) {
+    final Geometry convertedGeometry = geometry.convertGeometry(this.geometryFactory);
+    switch (this.dataTypeGeometryType) {
+      case POINT:
+        this.geometry = PostgreSQLGeometryWrapper.getGeometry(convertedGeometry, Point.class);
+      break;
+      case LINE_STRING:
+        this.geometry = PostgreSQLGeometryWrapper.getGeometry(convertedGeometry,
+          LineString.class);
+      break;
+      case POLYGON:
+        this.geometry = PostgreSQLGeometryWrapper.getGeometry(convertedGeometry, Polygon.class);
+      break;
+      default:
+        this.geometry = convertedGeometry;
+      break;
+    }
+    if (this.dataTypeGeometryType == 0) {
+      this.geometryType = getGeometryType(this.geometry);
+    } else {
+      this.geometryType = this.dataTypeGeometryType;
+    }
+    this.srid = this.geometry.getHorizontalCoordinateSystemId();
+    try {
+      int size = getGeometrySize(this.geometryType, this.geometry, this.axisCount);
+      if (this.srid > 0) {
+        size += 4;
+      }
+      return size;
+    } catch (final ClassCastException e) {
+      throw new IllegalArgumentException("Geometry type not supported: " + this.geometry, e);
+    }
+  }
+
+  /**
+   * Write the geometry passed to the last call of {@link #prepare(Geometry)}.
+   *
+   * @param out The writer to write to.
+   */
+  public void write(final ChannelWriter out) {
+    try {
+      writeGeometry(out, this.geometryType, this.geometry, this.axisCount, this.srid);
+    } finally {
+      this.geometry = null;
+    }
+  }
+}
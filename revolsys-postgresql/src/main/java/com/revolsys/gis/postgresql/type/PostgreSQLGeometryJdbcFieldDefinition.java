@@ -65,13 +65,41 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     }
   }
 
+  /**
+   * Get a lazy geometry for records so the EWKB is only parsed if the geometry is used.
+   */
+  @Override
+  public Object getRecordValueFromResultSet(final RecordDefinition recordDefinition,
+    final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings)
+    throws SQLException {
+    final int columnIndex = indexes.incrementAndGet();
+    final byte[] bytes = resultSet.getBytes(columnIndex);
+    if (bytes == null) {
+      return null;
+    } else if (PostgreSQLEwkbReader.isEwkb(bytes)) {
+      final GeometryFactory geometryFactory = getGeometryFactory();
+      return PostgreSQLEwkbReader.readLazy(geometryFactory, bytes);
+    } else {
+      final Object postgresValue = resultSet.getObject(columnIndex);
+      return toJava(postgresValue);
+    }
+  }
+
   @Override
   public Object getValueFromResultSet(final RecordDefinition recordDefinition,
     final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings)
     throws SQLException {
-    final Object postgresValue = resultSet.getObject(indexes.incrementAndGet());
-    final Object value = toJava(postgresValue);
-    return value;
+    final int columnIndex = indexes.incrementAndGet();
+    final byte[] bytes = resultSet.getBytes(columnIndex);
+    if (bytes == null) {
+      return null;
+    } else if (PostgreSQLEwkbReader.isEwkb(bytes)) {
+      final GeometryFactory geometryFactory = getGeometryFactory();
+      return PostgreSQLEwkbReader.read(geometryFactory, bytes);
+    } else {
+      final Object postgresValue = resultSet.getObject(columnIndex);
+      return toJava(postgresValue);
+    }
   }
 
   @Override
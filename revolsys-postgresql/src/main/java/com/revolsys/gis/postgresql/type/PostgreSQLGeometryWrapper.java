@@ -82,7 +82,7 @@ public class PostgreSQLGeometryWrapper extends PGobject {
   }
 
   @SuppressWarnings("unchecked")
-  private static <G extends Geometry> G getGeometry(final Geometry geometry,
+  static <G extends Geometry> G getGeometry(final Geometry geometry,
     final Class<G> expectedClass) {
     if (expectedClass.isAssignableFrom(geometry.getClass())) {
       return (G)geometry;
@@ -90,7 +90,7 @@ public class PostgreSQLGeometryWrapper extends PGobject {
       if (geometry.getGeometryCount() == 1) {
         final Geometry firstGeometry = geometry.getGeometry(0);
         if (expectedClass.isAssignableFrom(firstGeometry.getClass())) {
-          return (G)geometry;
+          return (G)firstGeometry;
         } else {
           throw new RuntimeException(geometry.getGeometryType() + " must contain a single "
             + expectedClass.getSimpleName() + " not a " + firstGeometry.getGeometryType());
@@ -88,6 +88,45 @@ public class ArcGisRestServerTileCacheLayer
     setName(mapService.getParent().getName());
   }
 
+  private void addMapTiles(final List<ArcGisRestServerTileCacheMapTile> tiles,
+    final MapService mapService, final int zoomLevel, final BoundingBox viewBoundingBox,
+    final int tileBuffer) {
+    final double resolution = mapService.getResolution(zoomLevel);
+    if (resolution > 0) {
+      final BoundingBox maxBoundingBox = getBoundingBox();
+      final BoundingBox boundingBox = viewBoundingBox.bboxToCs(this)
+        .bboxIntersection(maxBoundingBox);
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+
+      // Tiles start at the North-West corner of the map
+      int minTileX = mapService.getTileX(zoomLevel, minX);
+      int minTileY = mapService.getTileY(zoomLevel, maxY);
+      int maxTileX = mapService.getTileX(zoomLevel, maxX);
+      int maxTileY = mapService.getTileY(zoomLevel, minY);
+      if (tileBuffer > 0) {
+        minTileX = Math.max(mapService.getTileX(zoomLevel, maxBoundingBox.getMinX()),
+          minTileX - tileBuffer);
+        minTileY = Math.max(mapService.getTileY(zoomLevel, maxBoundingBox.getMaxY()),
+          minTileY - tileBuffer);
+        maxTileX = Math.min(mapService.getTileX(zoomLevel, maxBoundingBox.getMaxX()),
+          maxTileX + tileBuffer);
+        maxTileY = Math.min(mapService.getTileY(zoomLevel, maxBoundingBox.getMinY()),
+          maxTileY + tileBuffer);
+      }
+
+      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+          final ArcGisRestServerTileCacheMapTile tile = new ArcGisRestServerTileCacheMapTile(this,
+            mapService, zoomLevel, resolution, tileX, tileY);
+          tiles.add(tile);
+        }
+      }
+    }
+  }
+
   @Override
   public boolean equals(final Object other) {
     if (other instanceof ArcGisRestServerTileCacheLayer) {
@@ -120,31 +159,26 @@ public class ArcGisRestServerTileCacheLayer
       try {
         final double viewResolution = view.getMetresPerPixel();
         final int zoomLevel = mapService.getZoomLevel(viewResolution);
-        final double resolution = mapService.getResolution(zoomLevel);
-        if (resolution > 0) {
-          final BoundingBox viewBoundingBox = view.getBoundingBox();
-          final BoundingBox maxBoundingBox = getBoundingBox();
-          final BoundingBox boundingBox = viewBoundingBox.bboxToCs(this)
-            .bboxIntersection(maxBoundingBox);
-          final double minX = boundingBox.getMinX();
-          final double minY = boundingBox.getMinY();
-          final double maxX = boundingBox.getMaxX();
-          final double maxY = boundingBox.getMaxY();
-
-          // Tiles start at the North-West corner of the map
-          final int minTileX = mapService.getTileX(zoomLevel, minX);
-          final int minTileY = mapService.getTileY(zoomLevel, maxY);
-          final int maxTileX = mapService.getTileX(zoomLevel, maxX);
-          final int maxTileY = mapService.getTileY(zoomLevel, minY);
-
-          for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-              final ArcGisRestServerTileCacheMapTile tile = new ArcGisRestServerTileCacheMapTile(
-                this, mapService, zoomLevel, resolution, tileX, tileY);
-              tiles.add(tile);
-            }
-          }
-        }
+        addMapTiles(tiles, mapService, zoomLevel, view.getBoundingBox(), 0);
+      } catch (final Throwable e) {
+        setError(e);
+      }
+    }
+    return tiles;
+  }
+
+  @Override
+  public List<ArcGisRestServerTileCacheMapTile> getPrefetchMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    final List<ArcGisRestServerTileCacheMapTile> tiles = new ArrayList<>();
+    final MapService mapService = getMapService();
+    if (mapService != null) {
+      try {
+        final double viewResolution = view.getMetresPerPixel();
+        final int zoomLevel = mapService.getZoomLevel(viewResolution);
+        final BoundingBox viewBoundingBox = view.getBoundingBox();
+        addMapTiles(tiles, mapService, zoomLevel, viewBoundingBox, 1);
+        addMapTiles(tiles, mapService, zoomLevel - 1, viewBoundingBox, 0);
       } catch (final Throwable e) {
         setError(e);
       }
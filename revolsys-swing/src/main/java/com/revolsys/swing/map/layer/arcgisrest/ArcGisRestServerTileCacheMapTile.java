@@ -2,6 +2,7 @@ package com.revolsys.swing.map.layer.arcgisrest;
 
 import java.awt.image.BufferedImage;
 
+import com.revolsys.io.FileUtil;
 import com.revolsys.raster.GeoreferencedImageMapTile;
 import com.revolsys.record.io.format.esri.rest.map.MapService;
 
@@ -45,6 +46,13 @@ public class ArcGisRestServerTileCacheMapTile extends GeoreferencedImageMapTile
     return false;
   }
 
+  @Override
+  public String getCacheKey() {
+    final String serviceUrl = this.mapService.getServiceUrl().getURL().toString();
+    return "arcGisRest/" + FileUtil.getSafeFileName(serviceUrl) + "/" + this.zoomLevel + "/"
+      + this.tileX + "/" + this.tileY;
+  }
+
   public MapService getMapService() {
     return this.mapService;
   }
@@ -76,6 +84,16 @@ public class ArcGisRestServerTileCacheMapTile extends GeoreferencedImageMapTile
     }
   }
 
+  @Override
+  protected byte[] loadImageBytes() {
+    try {
+      return this.mapService.getTileImageBytes(this.zoomLevel, this.tileX, this.tileY);
+    } catch (final Throwable e) {
+      this.layer.setError(e);
+      return null;
+    }
+  }
+
   @Override
   public String toString() {
     return this.mapService.getMapName() + " " + this.zoomLevel + "/" + this.tileX + "/"
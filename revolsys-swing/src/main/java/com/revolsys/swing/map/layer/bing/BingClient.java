@@ -164,6 +164,24 @@ public class BingClient {
     return BufferedImages.readImageIo(url);
   }
 
+  /**
+   * Get the encoded bytes of the tile image as returned by the server.
+   *
+   * @param imagerySet The imagery set.
+   * @param mapLayer The map layer.
+   * @param quadKey The tile quad key.
+   * @return The bytes or null if there is no URL for the tile.
+   */
+  public byte[] getMapImageBytes(final ImagerySet imagerySet, final MapLayer mapLayer,
+    final String quadKey) {
+    final String url = getMapUrl(imagerySet, mapLayer, quadKey);
+    if (url == null) {
+      return null;
+    } else {
+      return BufferedImages.readBytes(url);
+    }
+  }
+
   public int getMapSizePixels(final int zoomLevel) {
     return TILE_SIZE << zoomLevel;
   }
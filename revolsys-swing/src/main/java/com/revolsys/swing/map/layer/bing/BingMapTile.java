@@ -38,6 +38,16 @@ public class BingMapTile extends GeoreferencedImageMapTile {
     return false;
   }
 
+  @Override
+  public String getCacheKey() {
+    if (this.quadKey.isEmpty()) {
+      return null;
+    } else {
+      final BingTiledLayer layer = this.layer;
+      return "bing/" + layer.getImagerySet() + "/" + layer.getMapLayer() + "/" + this.quadKey;
+    }
+  }
+
   public BingTiledLayer getLayer() {
     return this.layer;
   }
@@ -66,6 +76,20 @@ public class BingMapTile extends GeoreferencedImageMapTile {
     }
   }
 
+  @Override
+  protected byte[] loadImageBytes() {
+    final BingTiledLayer layer = this.layer;
+    try {
+      final BingClient client = layer.getClient();
+      final ImagerySet imagerySet = layer.getImagerySet();
+      final MapLayer mapLayer = layer.getMapLayer();
+      return client.getMapImageBytes(imagerySet, mapLayer, this.quadKey);
+    } catch (final Throwable t) {
+      layer.setError(t);
+      return null;
+    }
+  }
+
   @Override
   public String toString() {
     return this.layer + " " + this.quadKey;
@@ -41,6 +41,32 @@ public class BingTiledLayer extends AbstractTiledGeoreferencedImageLayer<BingMap
     setGeometryFactory(GeometryFactory.worldMercator());
   }
 
+  private void addMapTiles(final List<BingMapTile> tiles, final int zoomLevel,
+    final BoundingBox geographicBoundingBox, final int tileBuffer) {
+    final BingClient client = this.client;
+    final double resolution = client.getResolution(zoomLevel);
+    final double minX = geographicBoundingBox.getMinX();
+    final double minY = geographicBoundingBox.getMinY();
+    final double maxX = geographicBoundingBox.getMaxX();
+    final double maxY = geographicBoundingBox.getMaxY();
+    final int maxTileIndex = (1 << zoomLevel) - 1;
+
+    // Tiles start at the North-West corner of the map
+    final int minTileX = Math.max(0, client.getTileX(zoomLevel, minX) - tileBuffer);
+    final int minTileY = Math.max(0, client.getTileY(zoomLevel, maxY) - tileBuffer);
+    final int maxTileX = Math.min(maxTileIndex, client.getTileX(zoomLevel, maxX) + tileBuffer);
+    final int maxTileY = Math.min(maxTileIndex, client.getTileY(zoomLevel, minY) + tileBuffer);
+
+    for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+      for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+        final String quadKey = client.getQuadKey(zoomLevel, tileX, tileY);
+        final BoundingBox boundingBox = client.getBoundingBox(zoomLevel, tileX, tileY);
+        final BingMapTile tile = new BingMapTile(this, boundingBox, quadKey, resolution);
+        tiles.add(tile);
+      }
+    }
+  }
+
   @Override
   public boolean equals(final Object other) {
     if (other instanceof BingTiledLayer) {
@@ -77,32 +103,31 @@ public class BingTiledLayer extends AbstractTiledGeoreferencedImageLayer<BingMap
     final List<BingMapTile> tiles = new ArrayList<>();
     try {
       final double metresPerPixel = view.getMetresPerPixel();
-      final BingClient client = this.client;
-      final int zoomLevel = client.getZoomLevel(this.imagerySet, metresPerPixel);
-      final double resolution = client.getResolution(zoomLevel);
+      final int zoomLevel = this.client.getZoomLevel(this.imagerySet, metresPerPixel);
       final BoundingBox geographicBoundingBox = view.getBoundingBox()
         .bboxToCs(GEOMETRY_FACTORY)
         .bboxIntersection(MAX_BOUNDING_BOX);
-      final double minX = geographicBoundingBox.getMinX();
-      final double minY = geographicBoundingBox.getMinY();
-      final double maxX = geographicBoundingBox.getMaxX();
-      final double maxY = geographicBoundingBox.getMaxY();
-
-      // Tiles start at the North-West corner of the map
-      final int minTileX = client.getTileX(zoomLevel, minX);
-      final int minTileY = client.getTileY(zoomLevel, maxY);
-      final int maxTileX = client.getTileX(zoomLevel, maxX);
-      final int maxTileY = client.getTileY(zoomLevel, minY);
-
-      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-          final String quadKey = client.getQuadKey(zoomLevel, tileX, tileY);
-          final BoundingBox boundingBox = client.getBoundingBox(zoomLevel, tileX, tileY);
-          final BingMapTile tile = new BingMapTile(this, boundingBox, quadKey, resolution);
-          tiles.add(tile);
-        }
-      }
+      addMapTiles(tiles, zoomLevel, geographicBoundingBox, 0);
+    } catch (final Throwable e) {
+      Logs.error(this, "Error getting tile envelopes", e);
+    }
+    return tiles;
+  }
 
+  @Override
+  public List<BingMapTile> getPrefetchMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
+    final ViewRenderer view) {
+    final List<BingMapTile> tiles = new ArrayList<>();
+    try {
+      final double metresPerPixel = view.getMetresPerPixel();
+      final int zoomLevel = this.client.getZoomLevel(this.imagerySet, metresPerPixel);
+      final BoundingBox geographicBoundingBox = view.getBoundingBox()
+        .bboxToCs(GEOMETRY_FACTORY)
+        .bboxIntersection(MAX_BOUNDING_BOX);
+      addMapTiles(tiles, zoomLevel, geographicBoundingBox, 1);
+      if (zoomLevel > 1) {
+        addMapTiles(tiles, zoomLevel - 1, geographicBoundingBox, 0);
+      }
     } catch (final Throwable e) {
       Logs.error(this, "Error getting tile envelopes", e);
     }
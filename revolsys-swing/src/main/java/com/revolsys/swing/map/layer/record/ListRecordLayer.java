@@ -133,7 +133,8 @@ public class ListRecordLayer extends AbstractRecordLayer {
   @Override
   public int getRecordCount(final Query query) {
     synchronized (this.records) {
-      final Predicate<MapEx> filter = query.getWhereCondition();
+      final Condition whereCondition = query.getWhereCondition();
+      final Predicate<MapEx> filter = whereCondition.newPredicate(getRecordDefinition());
       return Predicates.count(this.records, filter);
     }
   }
@@ -160,7 +161,8 @@ public class ListRecordLayer extends AbstractRecordLayer {
 
   @Override
   public int getRecordCountPersisted(final Query query) {
-    final Condition filter = query.getWhereCondition();
+    final Condition whereCondition = query.getWhereCondition();
+    final Predicate<MapEx> filter = whereCondition.newPredicate(getRecordDefinition());
     return Predicates.count(this.records, filter);
   }
 
@@ -174,7 +176,8 @@ public class ListRecordLayer extends AbstractRecordLayer {
   @Override
   public List<LayerRecord> getRecordsPersisted(final Query query) {
     final List<LayerRecord> records = getRecords();
-    final Condition filter = query.getWhereCondition();
+    final Condition whereCondition = query.getWhereCondition();
+    final Predicate<MapEx> filter = whereCondition.newPredicate(getRecordDefinition());
     final List<OrderBy> orderBy = query.getOrderBy();
     Records.filterAndSort(records, filter, orderBy);
     return records;
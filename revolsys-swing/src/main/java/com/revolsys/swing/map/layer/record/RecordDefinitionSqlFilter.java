@@ -23,6 +23,8 @@ public class RecordDefinitionSqlFilter implements Predicate<MapEx>, MapSerialize
 
   private boolean initialized;
 
+  private Predicate<MapEx> predicate;
+
   private final RecordDefinitionProxy recordDefinitionProxy;
 
   private final String query;
@@ -51,7 +53,11 @@ public class RecordDefinitionSqlFilter implements Predicate<MapEx>, MapSerialize
             }
 
             final String query = new UriTemplate(this.query).expandString(uriVariables);
-            this.condition = QueryValue.parseWhere(recordDefinition, query);
+            final Condition condition = QueryValue.parseWhere(recordDefinition, query);
+            if (condition != null) {
+              this.predicate = condition.newPredicate(recordDefinition);
+              this.condition = condition;
+            }
           } catch (final Throwable e) {
             Logs.error(this, "Invalid query: " + this.query, e);
           }
@@ -71,7 +77,7 @@ public class RecordDefinitionSqlFilter implements Predicate<MapEx>, MapSerialize
     if (condition == null) {
       return false;
     } else {
-      if (condition.test(record)) {
+      if (this.predicate.test(record)) {
         return true;
       } else {
         return false;
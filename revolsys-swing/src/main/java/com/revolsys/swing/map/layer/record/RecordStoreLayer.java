@@ -143,7 +143,8 @@ public class RecordStoreLayer extends AbstractRecordLayer {
       try {
         final RecordStore recordStore = getRecordStore();
         if (recordStore != null && query != null) {
-          final Predicate<MapEx> filter = query.getWhereCondition();
+          final Condition whereCondition = query.getWhereCondition();
+          final Predicate<MapEx> filter = whereCondition.newPredicate(getRecordDefinition());
           final List<OrderBy> orderBy = query.getOrderBy();
 
           final List<LayerRecord> changedRecords = new ArrayList<>();
@@ -348,11 +349,13 @@ public class RecordStoreLayer extends AbstractRecordLayer {
 
   @Override
   public int getRecordCount(final Query query) {
+    final Condition whereCondition = query.getWhereCondition();
+    final Predicate<MapEx> filter = whereCondition.newPredicate(getRecordDefinition());
     int count = 0;
-    count += Predicates.count(getRecordsNew(), query.getWhereCondition());
+    count += Predicates.count(getRecordsNew(), filter);
     count += getRecordCountChangeModified(query);
     count += getRecordCountPersisted(query);
-    count -= Predicates.count(getRecordsDeleted(), query.getWhereCondition());
+    count -= Predicates.count(getRecordsDeleted(), filter);
     return count;
   }
 
@@ -1,6 +1,7 @@
 package com.revolsys.swing.map.layer.tile;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.revolsys.record.io.format.json.JsonObject;
@@ -23,6 +24,20 @@ public abstract class AbstractTiledLayer<D, T extends AbstractMapTile<D>> extend
   public abstract List<T> getOverlappingMapTiles(AbstractTiledLayerRenderer<?, ?> renderer,
     final ViewRenderer view);
 
+  /**
+   * Get the tiles to load in the background after the visible tiles have been requested. For
+   * example the tiles adjacent to the view and the tiles from the next zoom level out. These are
+   * loaded into the renderer's tile cache so panning and zooming can use them without waiting.
+   *
+   * @param renderer The renderer.
+   * @param view The view.
+   * @return The tiles.
+   */
+  public List<T> getPrefetchMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
+    final ViewRenderer view) {
+    return Collections.emptyList();
+  }
+
   public abstract double getResolution(final ViewRenderer view);
 
   protected abstract AbstractTiledLayerRenderer<D, T> newRenderer();
@@ -3,10 +3,15 @@ package com.revolsys.swing.map.layer.tile;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.swing.Icon;
 
@@ -23,15 +28,36 @@ import com.revolsys.util.BooleanCancellable;
 import com.revolsys.util.Cancellable;
 import com.revolsys.util.Property;
 
+/**
+ * Renderer for tiled layers. Loaded tiles are kept in a least recently used cache that is shared
+ * across zoom levels so zooming back in or out reuses the tiles from the previous zoom level. While
+ * a tile is loading the smallest loaded tile from another zoom level that covers it is drawn
+ * (scaled) underneath it. After the visible tiles are requested the
+ * {@link AbstractTiledLayer#getPrefetchMapTiles(AbstractTiledLayerRenderer, ViewRenderer)} are
+ * loaded in the background.
+ */
 public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>>
   extends AbstractLayerRenderer<AbstractTiledLayer<D, T>> implements PropertyChangeListener {
 
+  public static final int DEFAULT_MAX_CACHED_TILE_COUNT = 512;
+
   public static final String TILES_LOADED = "loading";
 
   private static RunnableSwingWorkerManager tileLoaderManager = new RunnableSwingWorkerManager(
     "Load Map Tiles");
 
-  private final Map<T, T> cachedTiles = new HashMap<>();
+  private int maxCachedTileCount = DEFAULT_MAX_CACHED_TILE_COUNT;
+
+  private final Map<T, T> cachedTiles = new LinkedHashMap<T, T>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Entry<T, T> eldest) {
+      return size() > AbstractTiledLayerRenderer.this.maxCachedTileCount;
+    }
+  };
+
+  private volatile Set<T> visibleTiles = Collections.emptySet();
 
   private BooleanCancellable cancellable = new BooleanCancellable();
 
@@ -51,6 +77,38 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
     super(type, name, icon);
   }
 
+  private void addAncestorTile(final List<T> ancestorTiles, final T mapTile) {
+    T ancestorTile = null;
+    double ancestorArea = Double.MAX_VALUE;
+    for (final T cachedTile : this.cachedTiles.keySet()) {
+      if (cachedTile.getData() != null && cachedTile != mapTile) {
+        final BoundingBox boundingBox = cachedTile.getBoundingBox();
+        final double area = boundingBox.getArea();
+        if (area < ancestorArea && boundingBox.bboxCovers(mapTile)) {
+          ancestorTile = cachedTile;
+          ancestorArea = area;
+        }
+      }
+    }
+    if (ancestorTile != null && !ancestorTiles.contains(ancestorTile)) {
+      ancestorTiles.add(ancestorTile);
+    }
+  }
+
+  /**
+   * Cancel the tiles waiting to be loaded and remove them from the cache. The loaded tiles are
+   * kept.
+   */
+  private void cancelLoadingTiles() {
+    synchronized (this.cachedTiles) {
+      tileLoaderManager.removeTasks(this.loadingTasks);
+      this.loadingTasks.clear();
+      this.cancellable.cancel();
+      this.cancellable = new BooleanCancellable();
+      this.cachedTiles.values().removeIf(tile -> tile.getData() == null);
+    }
+  }
+
   protected void clearCachedTiles() {
     synchronized (this.cachedTiles) {
       this.cachedTiles.clear();
@@ -62,13 +120,19 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
   }
 
   public T getCachedTile(final T mapTile) {
-    return this.cachedTiles.get(mapTile);
+    synchronized (this.cachedTiles) {
+      return this.cachedTiles.get(mapTile);
+    }
   }
 
   public double getLayerResolution() {
     return this.layerResolution;
   }
 
+  public int getMaxCachedTileCount() {
+    return this.maxCachedTileCount;
+  }
+
   @Override
   public void propertyChange(final PropertyChangeEvent event) {
     final Object newValue = event.getNewValue();
@@ -106,17 +170,18 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
           this.layerResolution = layerResolution;
           this.viewResolution = viewResolution;
           this.geometryFactory = viewportGeometryFactory;
-          clearCachedTiles();
+          cancelLoadingTiles();
         }
       }
       final List<Runnable> tasks = new ArrayList<>();
       final List<T> mapTiles = layer.getOverlappingMapTiles(this, view);
+      final List<T> ancestorTiles = new ArrayList<>();
       final BooleanCancellable cancellable = this.cancellable;
       for (final ListIterator<T> iterator = mapTiles.listIterator(); !cancellable.isCancelled()
         && iterator.hasNext();) {
         final T mapTile = iterator.next();
         synchronized (this.cachedTiles) {
-          T cachedTile = getCachedTile(mapTile);
+          T cachedTile = this.cachedTiles.get(mapTile);
           if (cachedTile == null) {
             cachedTile = mapTile;
             this.cachedTiles.put(cachedTile, cachedTile);
@@ -124,10 +189,35 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
             tasks.add(task);
           }
           iterator.set(cachedTile);
+          if (cachedTile.getData() == null) {
+            addAncestorTile(ancestorTiles, cachedTile);
+          }
         }
       }
+      this.visibleTiles = new HashSet<>(mapTiles);
       if (!mapTiles.isEmpty()) {
-        renderTiles(view, cancellable, mapTiles);
+        if (ancestorTiles.isEmpty()) {
+          renderTiles(view, cancellable, mapTiles);
+        } else {
+          // Draw the largest ancestors first so the more detailed tiles are on top
+          ancestorTiles.sort((tile1, tile2) -> Double
+            .compare(tile2.getBoundingBox().getArea(), tile1.getBoundingBox().getArea()));
+          final List<T> renderTiles = new ArrayList<>(ancestorTiles);
+          renderTiles.addAll(mapTiles);
+          renderTiles(view, cancellable, renderTiles);
+        }
+      }
+      for (final T mapTile : layer.getPrefetchMapTiles(this, view)) {
+        if (cancellable.isCancelled()) {
+          break;
+        }
+        synchronized (this.cachedTiles) {
+          if (!this.cachedTiles.containsKey(mapTile)) {
+            this.cachedTiles.put(mapTile, mapTile);
+            final Runnable task = new TileLoadTask<>(this, cancellable, mapTile);
+            tasks.add(task);
+          }
+        }
       }
       synchronized (this.loadingTasks) {
         this.loadingTasks.addAll(tasks);
@@ -172,9 +262,31 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
   public void setLoaded(final TileLoadTask<D, T> tileLoadTask) {
     this.loadingTasks.remove(tileLoadTask);
     final AbstractTiledLayer<D, T> layer = getLayer();
-    if (layer != null) {
+    // Prefetched tiles that aren't visible don't need a redraw
+    if (layer != null && this.visibleTiles.contains(tileLoadTask.getMapTile())) {
       layer.firePropertyChange(TILES_LOADED, false, true);
     }
   }
 
+  /**
+   * Set the maximum number of tiles kept in memory. The least recently used tiles are removed when
+   * the maximum is exceeded.
+   *
+   * @param maxCachedTileCount The maximum number of tiles.
+   */
+  public void setMaxCachedTileCount(final int maxCachedTileCount) {
+    if (maxCachedTileCount < 1) {
+      throw new IllegalArgumentException(
+        "maxCachedTileCount must be > 0 not " + maxCachedTileCount);
+    }
+    synchronized (this.cachedTiles) {
+      this.maxCachedTileCount = maxCachedTileCount;
+      final Iterator<T> iterator = this.cachedTiles.keySet().iterator();
+      while (this.cachedTiles.size() > maxCachedTileCount && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+
 }
@@ -54,6 +54,19 @@ public class WebMercatorTileCacheClient {
     return BufferedImages.readImageIo(url);
   }
 
+  /**
+   * Get the encoded bytes of the tile image as returned by the server.
+   *
+   * @param zoomLevel The zoom level.
+   * @param tileX The tile x index.
+   * @param tileY The tile y index.
+   * @return The bytes.
+   */
+  public byte[] getMapImageBytes(final int zoomLevel, final int tileX, final int tileY) {
+    final String url = getMapUrl(zoomLevel, tileX, tileY);
+    return BufferedImages.readBytes(url);
+  }
+
   public String getMapUrl(final int zoomLevel, final double longitude, final double latitude) {
     final int tileX = getTileX(zoomLevel, longitude);
     final int tileY = getTileY(zoomLevel, latitude);
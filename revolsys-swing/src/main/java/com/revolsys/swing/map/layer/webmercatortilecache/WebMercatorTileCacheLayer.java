@@ -42,6 +42,31 @@ public class WebMercatorTileCacheLayer
     setGeometryFactory(GeometryFactory.worldMercator());
   }
 
+  private void addMapTiles(final List<WebMercatorTileCacheMapTile> tiles, final int zoomLevel,
+    final BoundingBox geographicBoundingBox, final int tileBuffer) {
+    final WebMercatorTileCacheClient client = this.client;
+    final double resolution = client.getResolution(zoomLevel);
+    final double minX = geographicBoundingBox.getMinX();
+    final double minY = geographicBoundingBox.getMinY();
+    final double maxX = geographicBoundingBox.getMaxX();
+    final double maxY = geographicBoundingBox.getMaxY();
+    final int maxTileIndex = (1 << zoomLevel) - 1;
+
+    // Tiles start at the North-West corner of the map
+    final int minTileY = Math.max(0, client.getTileY(zoomLevel, maxY) - tileBuffer);
+    final int maxTileY = Math.min(maxTileIndex, client.getTileY(zoomLevel, minY) + tileBuffer);
+    final int minTileX = Math.max(0, client.getTileX(zoomLevel, minX) - tileBuffer);
+    final int maxTileX = Math.min(maxTileIndex, client.getTileX(zoomLevel, maxX) + tileBuffer);
+
+    for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+      for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+        final WebMercatorTileCacheMapTile tile = new WebMercatorTileCacheMapTile(this, zoomLevel,
+          resolution, tileX, tileY);
+        tiles.add(tile);
+      }
+    }
+  }
+
   @Override
   public boolean equals(final Object other) {
     if (other instanceof WebMercatorTileCacheLayer) {
@@ -64,29 +89,30 @@ public class WebMercatorTileCacheLayer
     try {
       final double metresPerPixel = view.getMetresPerPixel();
       final int zoomLevel = this.client.getZoomLevel(metresPerPixel);
-      final double resolution = this.client.getResolution(zoomLevel);
       final BoundingBox geographicBoundingBox = view.getBoundingBox()
         .bboxToCs(GEOMETRY_FACTORY)
         .bboxIntersection(MAX_BOUNDING_BOX);
-      final double minX = geographicBoundingBox.getMinX();
-      final double minY = geographicBoundingBox.getMinY();
-      final double maxX = geographicBoundingBox.getMaxX();
-      final double maxY = geographicBoundingBox.getMaxY();
-
-      // Tiles start at the North-West corner of the map
-      final int minTileY = this.client.getTileY(zoomLevel, maxY);
-      final int maxTileY = this.client.getTileY(zoomLevel, minY);
-      final int minTileX = this.client.getTileX(zoomLevel, minX);
-      final int maxTileX = this.client.getTileX(zoomLevel, maxX);
-
-      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-          final WebMercatorTileCacheMapTile tile = new WebMercatorTileCacheMapTile(this, zoomLevel,
-            resolution, tileX, tileY);
-          tiles.add(tile);
-        }
-      }
+      addMapTiles(tiles, zoomLevel, geographicBoundingBox, 0);
+    } catch (final Throwable e) {
+      setError(e);
+    }
+    return tiles;
+  }
 
+  @Override
+  public List<WebMercatorTileCacheMapTile> getPrefetchMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    final List<WebMercatorTileCacheMapTile> tiles = new ArrayList<>();
+    try {
+      final double metresPerPixel = view.getMetresPerPixel();
+      final int zoomLevel = this.client.getZoomLevel(metresPerPixel);
+      final BoundingBox geographicBoundingBox = view.getBoundingBox()
+        .bboxToCs(GEOMETRY_FACTORY)
+        .bboxIntersection(MAX_BOUNDING_BOX);
+      addMapTiles(tiles, zoomLevel, geographicBoundingBox, 1);
+      if (zoomLevel > 0) {
+        addMapTiles(tiles, zoomLevel - 1, geographicBoundingBox, 0);
+      }
     } catch (final Throwable e) {
       setError(e);
     }
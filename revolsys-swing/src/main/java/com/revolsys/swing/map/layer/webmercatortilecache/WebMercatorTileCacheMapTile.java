@@ -2,6 +2,7 @@ package com.revolsys.swing.map.layer.webmercatortilecache;
 
 import java.awt.image.BufferedImage;
 
+import com.revolsys.io.FileUtil;
 import com.revolsys.raster.GeoreferencedImageMapTile;
 
 public class WebMercatorTileCacheMapTile extends GeoreferencedImageMapTile {
@@ -39,6 +40,13 @@ public class WebMercatorTileCacheMapTile extends GeoreferencedImageMapTile {
     return false;
   }
 
+  @Override
+  public String getCacheKey() {
+    final String serverUrl = this.layer.getClient().getServerUrl();
+    return "webMercator/" + FileUtil.getSafeFileName(serverUrl) + "/" + this.zoomLevel + "/"
+      + this.tileX + "/" + this.tileY;
+  }
+
   public int getTileX() {
     return this.tileX;
   }
@@ -68,6 +76,17 @@ public class WebMercatorTileCacheMapTile extends GeoreferencedImageMapTile {
     }
   }
 
+  @Override
+  protected byte[] loadImageBytes() {
+    try {
+      final WebMercatorTileCacheClient client = this.layer.getClient();
+      return client.getMapImageBytes(this.zoomLevel, this.tileX, this.tileY);
+    } catch (final Throwable e) {
+      this.layer.setError(e);
+      return null;
+    }
+  }
+
   @Override
   public String toString() {
     return this.layer + " " + this.zoomLevel + "/" + this.tileX + "/" + this.tileY;
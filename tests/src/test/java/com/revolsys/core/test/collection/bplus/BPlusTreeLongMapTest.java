@@ -0,0 +1,80 @@
+package com.revolsys.core.test.collection.bplus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.bplus.BPlusTreeLongMap;
+import com.revolsys.collection.bplus.BPlusTreeLongMap.Loader;
+import com.revolsys.io.page.MemoryPageManager;
+
+public class BPlusTreeLongMapTest {
+
+  @Test
+  public void testEmpty() {
+    final Loader loader = BPlusTreeLongMap.newLongLoader(new MemoryPageManager(), 8);
+    final BPlusTreeLongMap map = loader.build();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertNull(map.get(1));
+    Assert.assertEquals(0, map.forEach((key, bytes, length) -> {
+    }));
+  }
+
+  @Test
+  public void testIntKeysVariableValues() {
+    final Loader loader = BPlusTreeLongMap.newIntTempDisk(-1);
+    final int count = 100000;
+    for (int i = 0; i < count; i++) {
+      loader.add(i * 3, ("v" + i).getBytes(StandardCharsets.UTF_8));
+    }
+    try (
+      BPlusTreeLongMap map = loader.build()) {
+      Assert.assertEquals(count, map.size());
+      Assert.assertEquals(4, map.getKeySize());
+      for (int i = 0; i < count; i += 7) {
+        Assert.assertEquals("v" + i, new String(map.get(i * 3), StandardCharsets.UTF_8));
+        Assert.assertNull(map.get(i * 3 + 1));
+      }
+      final List<String> values = new ArrayList<>();
+      map.forEach(10, 20, (key, bytes, length) -> {
+        values.add(key + "=" + new String(bytes, 0, length, StandardCharsets.UTF_8));
+      });
+      Assert.assertEquals(List.of("12=v4", "15=v5", "18=v6"), values);
+    }
+  }
+
+  @Test
+  public void testLongKeysFixedValues() {
+    final Loader loader = BPlusTreeLongMap.newLongLoader(new MemoryPageManager(), 8);
+    final int count = 1000;
+    for (int i = 0; i < count; i++) {
+      loader.add(1000000000000L + i * 2, (long)i);
+    }
+    final BPlusTreeLongMap map = loader.build();
+    Assert.assertEquals(count, map.size());
+    Assert.assertTrue(map.getHeight() > 2);
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals(i, map.getLong(1000000000000L + i * 2, -1));
+      Assert.assertEquals(-1, map.getLong(1000000000000L + i * 2 + 1, -1));
+    }
+    Assert.assertEquals(-1, map.getLong(0, -1));
+    Assert.assertEquals(-1, map.getLong(Long.MAX_VALUE, -1));
+
+    final long[] total = new long[1];
+    final long visitCount = map.forEach((key, bytes, length) -> {
+      total[0] += key;
+    });
+    Assert.assertEquals(count, visitCount);
+    Assert.assertEquals(count * 1000000000000L + (long)count * (count - 1), total[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedKeys() {
+    final Loader loader = BPlusTreeLongMap.newLongLoader(new MemoryPageManager(), 4);
+    loader.add(2, 1);
+    loader.add(1, 2);
+  }
+}
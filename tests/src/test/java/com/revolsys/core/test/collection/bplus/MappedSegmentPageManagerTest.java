@@ -0,0 +1,134 @@
+package com.revolsys.core.test.collection.bplus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.bplus.BPlusTreeMap;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.page.MappedSegmentPageManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.io.page.PageValueManager;
+
+public class MappedSegmentPageManagerTest {
+
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    final Map<Integer, String> map = BPlusTreeMap.newTempDisk(PageValueManager.INT,
+      PageValueManager.STRING, 4096);
+    final int count = 20000;
+    for (int i = 0; i < count; i++) {
+      map.put(i, "value" + i);
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Integer>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        futures.add(executor.submit(() -> {
+          int found = 0;
+          for (int i = 0; i < count; i++) {
+            if (("value" + i).equals(map.get(i))) {
+              found++;
+            }
+          }
+          return found;
+        }));
+      }
+      for (final Future<Integer> future : futures) {
+        Assert.assertEquals(count, future.get().intValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPages() {
+    final File file = FileUtil.newTempFile("pages", ".pf");
+    try (
+      MappedSegmentPageManager pageManager = new MappedSegmentPageManager(file, 1024, 8192)) {
+      final int pageCount = 20;
+      for (int i = 0; i < pageCount; i++) {
+        final Page page = pageManager.newPage();
+        Assert.assertEquals(i, page.getIndex());
+        page.writeInt(i);
+        pageManager.releasePage(page);
+      }
+      Assert.assertEquals(pageCount, pageManager.getNumPages());
+
+      final Page page1 = pageManager.getPageRead(5);
+      final Page page2 = pageManager.getPageRead(5);
+      Assert.assertEquals(5, page1.readInt());
+      Assert.assertEquals(5, page2.readInt());
+      pageManager.releasePage(page1);
+      pageManager.releasePage(page2);
+
+      final Page removedPage = pageManager.getPage(3);
+      pageManager.removePage(removedPage);
+      Assert.assertEquals(pageCount - 1, pageManager.getNumPages());
+      final Page reusedPage = pageManager.newPage();
+      Assert.assertEquals(3, reusedPage.getIndex());
+      Assert.assertEquals(0, reusedPage.readInt());
+      pageManager.releasePage(reusedPage);
+
+      Assert.assertEquals(3, pageManager.getMissCount());
+    }
+  }
+
+  @Test
+  public void testReadLatchUpgrade() {
+    final File file = FileUtil.newTempFile("pages", ".pf");
+    try (
+      MappedSegmentPageManager pageManager = new MappedSegmentPageManager(file, 1024, 8192)) {
+      for (int i = 0; i < 300; i++) {
+        pageManager.releasePage(pageManager.newPage());
+      }
+      final Page readPage = pageManager.getPageRead(1);
+      // A page with a different latch can be written
+      final Page writePage = pageManager.getPage(2);
+      pageManager.releasePage(writePage);
+      try {
+        pageManager.getPage(1);
+        Assert.fail("Expected exception");
+      } catch (final IllegalStateException e) {
+      }
+      // The latches are striped, page 257 shares the latch of page 1
+      try {
+        pageManager.getPage(257);
+        Assert.fail("Expected exception");
+      } catch (final IllegalStateException e) {
+      }
+      pageManager.releasePage(readPage);
+      pageManager.releasePage(pageManager.getPage(257));
+    }
+  }
+
+  @Test
+  public void testReopen() {
+    final File file = FileUtil.newTempFile("pages", ".pf");
+    try (
+      MappedSegmentPageManager pageManager = new MappedSegmentPageManager(file, 1024, 8192)) {
+      for (int i = 0; i < 3; i++) {
+        final Page page = pageManager.newPage();
+        page.writeInt(i + 100);
+        pageManager.releasePage(page);
+      }
+    }
+    try (
+      MappedSegmentPageManager pageManager = new MappedSegmentPageManager(file, 1024, 8192)) {
+      // The file is extended a segment at a time, only the written pages exist
+      Assert.assertEquals(3, pageManager.getNumPages());
+      final Page page = pageManager.getPageRead(2);
+      Assert.assertEquals(102, page.readInt());
+      pageManager.releasePage(page);
+      Assert.assertEquals(3, pageManager.newPage().getIndex());
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.revolsys.core.test.collection.map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.StripedLongLruCache;
+
+public class StripedLongLruCacheTest {
+
+  @Test
+  public void testConcurrentLoad() {
+    final StripedLongLruCache<Long> cache = new StripedLongLruCache<>(10000);
+    final AtomicInteger loadCount = new AtomicInteger();
+    IntStream.range(0, 100000).parallel().forEach(i -> {
+      final long key = StripedLongLruCache.toKey(i % 100, i % 7);
+      final Long value = cache.getOrLoad(key, k -> {
+        loadCount.incrementAndGet();
+        return k;
+      });
+      Assert.assertEquals(key, value.longValue());
+    });
+    Assert.assertEquals(700, cache.size());
+    Assert.assertTrue(loadCount.get() >= 700);
+  }
+
+  @Test
+  public void testEviction() {
+    final StripedLongLruCache<String> cache = new StripedLongLruCache<>(64, 1);
+    for (int i = 0; i < 100; i++) {
+      cache.getOrLoad(i, Long::toString);
+      Assert.assertNotNull(cache.get(0));
+    }
+    Assert.assertEquals(64, cache.size());
+    Assert.assertEquals("0", cache.get(0));
+    Assert.assertNull(cache.get(1));
+    Assert.assertEquals("99", cache.get(99));
+
+    cache.setMaxSize(10);
+    Assert.assertEquals(10, cache.size());
+  }
+
+  @Test
+  public void testPinAndWeight() {
+    final StripedLongLruCache<String> cache = new StripedLongLruCache<>(1000, 1);
+    cache.setWeigher(String::length);
+    cache.setMaxWeight(10);
+    Assert.assertEquals("pinned", cache.pin(-1, key -> "pinned"));
+    for (int i = 0; i < 10; i++) {
+      cache.getOrLoad(i, key -> "a");
+    }
+    Assert.assertEquals(10, cache.getWeight());
+    Assert.assertEquals("pinned", cache.get(-1));
+
+    cache.unpin(-1);
+    for (int i = 100; i < 110; i++) {
+      cache.getOrLoad(i, key -> "b");
+    }
+    Assert.assertNull(cache.get(-1));
+    Assert.assertEquals(10, cache.getWeight());
+  }
+
+  @Test
+  public void testToKey() {
+    Assert.assertNotEquals(StripedLongLruCache.toKey(1, 2), StripedLongLruCache.toKey(2, 1));
+    Assert.assertNotEquals(StripedLongLruCache.toKey(-1, 0), StripedLongLruCache.toKey(0, -1));
+    Assert.assertEquals(0x0000000100000002L, StripedLongLruCache.toKey(1, 2));
+  }
+}
@@ -0,0 +1,78 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.DoubleArrayGriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.rasterizer.ColorGradientGriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.GriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.HillShadeGriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.SlopeColorGradientGriddedElevationModelRasterizer;
+
+public class GriddedElevationModelRasterizerTest {
+
+  private static void assertRasterize(final GriddedElevationModelRasterizer rasterizer) {
+    final int width = rasterizer.getWidth();
+    final int height = rasterizer.getHeight();
+    final DataBuffer imageBuffer = new DataBufferInt(width * height);
+    rasterizer.rasterize(imageBuffer);
+    for (int index = 0; index < width * height; index++) {
+      Assert.assertEquals("Pixel " + index, rasterizer.getValue(index),
+        imageBuffer.getElem(index));
+    }
+  }
+
+  private static GriddedElevationModel newDoubleArrayModel() {
+    final int width = 301;
+    final int height = 203;
+    final double[] values = new double[width * height];
+    for (int gridY = 0; gridY < height; gridY++) {
+      for (int gridX = 0; gridX < width; gridX++) {
+        final double elevation;
+        if (gridX % 17 == 0 && gridY % 13 == 0) {
+          elevation = Double.NaN;
+        } else {
+          elevation = Math.sin(gridX / 10.0) * 50 + Math.cos(gridY / 7.0) * 30;
+        }
+        values[gridY * width + gridX] = elevation;
+      }
+    }
+    return new DoubleArrayGriddedElevationModel(0, 0, width, height, 1, values);
+  }
+
+  @Test
+  public void testCancel() {
+    final GriddedElevationModelRasterizer rasterizer = new HillShadeGriddedElevationModelRasterizer(
+      newDoubleArrayModel());
+    final DataBuffer imageBuffer = new DataBufferInt(
+      rasterizer.getWidth() * rasterizer.getHeight());
+    rasterizer.rasterize(imageBuffer, () -> true);
+    for (int index = 0; index < imageBuffer.getSize(); index++) {
+      Assert.assertEquals(0, imageBuffer.getElem(index));
+    }
+  }
+
+  @Test
+  public void testRasterizeColorGradient() {
+    assertRasterize(new ColorGradientGriddedElevationModelRasterizer(newDoubleArrayModel()));
+  }
+
+  @Test
+  public void testRasterizeHillShade() {
+    assertRasterize(new HillShadeGriddedElevationModelRasterizer(newDoubleArrayModel()));
+    assertRasterize(new HillShadeGriddedElevationModelRasterizer(
+      GriddedElevationModelTest.newIntArrayModelNaNOnDiagonal(3005)));
+  }
+
+  @Test
+  public void testRasterizeSlope() {
+    assertRasterize(
+      new SlopeColorGradientGriddedElevationModelRasterizer(newDoubleArrayModel()));
+    assertRasterize(new SlopeColorGradientGriddedElevationModelRasterizer(
+      GriddedElevationModelTest.newIntArrayModelNaNOnDiagonal(3005)));
+  }
+}
@@ -5,12 +5,14 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.gridded.test.EsriAsciiGriddedElevationModelTest;
+import com.revolsys.core.test.elevation.gridded.test.GriddedElevationModelRasterizerTest;
 import com.revolsys.core.test.elevation.gridded.test.ScaledIntegerGriddedDigitalElevationModelTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   ScaledIntegerGriddedDigitalElevationModelTest.class, //
-  EsriAsciiGriddedElevationModelTest.class //
+  EsriAsciiGriddedElevationModelTest.class, //
+  GriddedElevationModelRasterizerTest.class //
 })
 public class ElevationTestSuite {
 
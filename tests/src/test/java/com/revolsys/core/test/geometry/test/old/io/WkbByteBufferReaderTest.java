@@ -0,0 +1,143 @@
+package com.revolsys.core.test.geometry.test.old.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.geometry.wkb.WkbChannelWriter;
+import com.revolsys.geometry.wkb.WkbLazyGeometry;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+public class WkbByteBufferReaderTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY_2D = GeometryFactory.floating2d(4326);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.floating(4326, 3);
+
+  private static void assertRead(final GeometryFactory geometryFactory, final String wkt) {
+    final Geometry geometry = geometryFactory.geometry(wkt);
+    final byte[] bytes = toWkb(geometry);
+    for (final ByteBuffer buffer : new ByteBuffer[] {
+      ByteBuffer.wrap(bytes), toDirect(bytes)
+    }) {
+      final Geometry actual = WkbByteBufferReader.readGeometry(geometryFactory, buffer);
+      Assert.assertEquals(wkt, geometry.getGeometryType(), actual.getGeometryType());
+      Assert.assertTrue(wkt, geometry.equals(geometryFactory.getAxisCount(), actual));
+      Assert.assertEquals(bytes.length, buffer.position());
+
+      buffer.position(0);
+      Assert.assertTrue(wkt, geometry.getBoundingBox()
+        .bboxEquals(WkbByteBufferReader.readBoundingBox(geometryFactory, buffer)));
+      Assert.assertEquals(bytes.length, buffer.position());
+    }
+  }
+
+  private static ByteBuffer toDirect(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    return buffer;
+  }
+
+  private static byte[] toWkb(final Geometry geometry) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final WkbChannelWriter writer = new WkbChannelWriter(bytes);
+    writer.writeGeometry(geometry);
+    writer.flush();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testEwkbSrid() {
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 3 * 8)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put((byte)1);
+    buffer.putInt(0x80000001 | 0x20000000);
+    buffer.putInt(4326);
+    buffer.putDouble(-123.5);
+    buffer.putDouble(49.25);
+    buffer.putDouble(10);
+    buffer.flip();
+
+    final Point point = WkbByteBufferReader.readGeometry(GEOMETRY_FACTORY_3D, buffer);
+    Assert.assertEquals(GEOMETRY_FACTORY_3D, point.getGeometryFactory());
+    Assert.assertEquals(-123.5, point.getX(), 0);
+    Assert.assertEquals(49.25, point.getY(), 0);
+    Assert.assertEquals(10, point.getZ(), 0);
+  }
+
+  @Test
+  public void testGeometries() {
+    assertRead(GEOMETRY_FACTORY_2D, "POINT(1 2)");
+    assertRead(GEOMETRY_FACTORY_2D, "LINESTRING(1 2,3 4,5 1)");
+    assertRead(GEOMETRY_FACTORY_2D,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(2 2,2 4,4 4,4 2,2 2))");
+    assertRead(GEOMETRY_FACTORY_2D, "MULTIPOINT((1 2),(3 4))");
+    assertRead(GEOMETRY_FACTORY_2D, "MULTILINESTRING((1 2,3 4),(5 6,7 8))");
+    assertRead(GEOMETRY_FACTORY_2D,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((20 20,30 20,30 30,20 30,20 20)))");
+    assertRead(GEOMETRY_FACTORY_3D, "POINT Z(1 2 3)");
+    assertRead(GEOMETRY_FACTORY_3D, "LINESTRING Z(1 2 3,3 4 5,5 1 2)");
+    assertRead(GEOMETRY_FACTORY_3D, "POLYGON Z((0 0 1,10 0 2,10 10 3,0 10 4,0 0 1))");
+  }
+
+  @Test
+  public void testLazyGeometry() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/lines"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.LINE_STRING, true);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY_2D);
+
+    final LineString line = GEOMETRY_FACTORY_2D.lineString(2, 1.0, 2, 3, 4, 5, 1);
+    final WkbLazyGeometry lazyGeometry = new WkbLazyGeometry(GEOMETRY_FACTORY_2D, toWkb(line));
+    final ArrayRecord record = new ArrayRecord(recordDefinition);
+    record.setValue("ID", 1);
+    record.setValue("GEOMETRY", lazyGeometry);
+
+    final BoundingBox boundingBox = record.getBoundingBox();
+    Assert.assertTrue(line.getBoundingBox().bboxEquals(boundingBox));
+    Assert.assertFalse(lazyGeometry.isGeometryCreated());
+
+    final LineString actual = record.getGeometry();
+    Assert.assertTrue(lazyGeometry.isGeometryCreated());
+    Assert.assertTrue(line.equals(2, actual));
+    Assert.assertSame(actual, record.getValue("GEOMETRY"));
+  }
+
+  @Test
+  public void testLineStringM() {
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 2 * 3 * 8);
+    buffer.put((byte)0);
+    buffer.putInt(2002);
+    buffer.putInt(2);
+    buffer.putDouble(1).putDouble(2).putDouble(100);
+    buffer.putDouble(3).putDouble(4).putDouble(200);
+    buffer.flip();
+
+    final GeometryFactory geometryFactory = GeometryFactory.floating(4326, 4);
+    final LineString line = WkbByteBufferReader.readGeometry(geometryFactory, buffer);
+    Assert.assertEquals(2, line.getVertexCount());
+    Assert.assertEquals(3, line.getX(1), 0);
+    Assert.assertEquals(4, line.getY(1), 0);
+    Assert.assertTrue(Double.isNaN(line.getZ(1)));
+    Assert.assertEquals(200, line.getM(1), 0);
+
+    buffer.position(0);
+    Assert.assertTrue(geometryFactory.newBoundingBox(1, 2, 3, 4)
+      .bboxEquals(WkbByteBufferReader.readBoundingBox(geometryFactory, buffer)));
+  }
+}
@@ -57,6 +57,7 @@ import com.revolsys.core.test.geometry.test.old.geom.RectanglePredicateSynthetic
 import com.revolsys.core.test.geometry.test.old.geom.RectanglePredicateTest;
 import com.revolsys.core.test.geometry.test.old.io.GeometryFactoryWktTest;
 import com.revolsys.core.test.geometry.test.old.io.WKBTest;
+import com.revolsys.core.test.geometry.test.old.io.WkbByteBufferReaderTest;
 import com.revolsys.core.test.geometry.test.old.operation.CascadedPolygonUnionTest;
 import com.revolsys.core.test.geometry.test.old.operation.DistanceTest;
 import com.revolsys.core.test.geometry.test.old.operation.IsValidTest;
@@ -87,8 +88,9 @@ import junit.framework.TestCase;
   PointImplTest.class, PolygonizeTest.class, PredicateShortCircuitTest.class,
   RectanglePredicateSyntheticTest.class, RectanglePredicateTest.class,
   RelateBoundaryNodeRuleTest.class, RobustLineIntersectionTest.class, SimpleTest.class,
-  GeometryFactoryWktTest.class, WKBTest.class, UnaryUnionTest.class, ValidClosedRingTest.class,
-  ValidSelfTouchingRingFormingHoleTest.class, InteriorPointTest.class
+  GeometryFactoryWktTest.class, WKBTest.class, WkbByteBufferReaderTest.class,
+  UnaryUnionTest.class, ValidClosedRingTest.class, ValidSelfTouchingRingFormingHoleTest.class,
+  InteriorPointTest.class
 })
 public class MasterTester extends TestCase {
 }
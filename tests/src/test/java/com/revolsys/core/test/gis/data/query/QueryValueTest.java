@@ -1,10 +1,12 @@
 package com.revolsys.core.test.gis.data.query;
 
 import java.util.Arrays;
+import java.util.function.Predicate;
 
 import org.jeometry.common.data.type.DataTypes;
 import org.jeometry.common.io.PathName;
 
+import com.revolsys.collection.map.MapEx;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
 import com.revolsys.record.query.Condition;
@@ -44,11 +46,15 @@ public class QueryValueTest {
   public void assertConditionFalse(final Condition trueCondition1, final Record record) {
     final boolean result1 = trueCondition1.test(record);
     Assert.assertFalse(result1);
+    final Predicate<MapEx> predicate = trueCondition1.newPredicate(this.recordDefinition);
+    Assert.assertFalse(predicate.test(record));
   }
 
   public void assertConditionTrue(final Condition trueCondition1, final Record record) {
     final boolean result1 = trueCondition1.test(record);
     Assert.assertTrue(result1);
+    final Predicate<MapEx> predicate = trueCondition1.newPredicate(this.recordDefinition);
+    Assert.assertTrue(predicate.test(record));
   }
 
   public void run() {
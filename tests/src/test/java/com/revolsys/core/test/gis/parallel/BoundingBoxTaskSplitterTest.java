@@ -0,0 +1,131 @@
+package com.revolsys.core.test.gis.parallel;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.parallel.BoundingBoxTaskSplitter;
+import com.revolsys.parallel.ThreadInterruptedException;
+
+public class BoundingBoxTaskSplitterTest {
+
+  private static class CellSplitter extends BoundingBoxTaskSplitter {
+    private final Set<BoundingBox> cells = ConcurrentHashMap.newKeySet();
+
+    private long delayMillis;
+
+    private final Predicate<BoundingBox> fail;
+
+    private final AtomicInteger runningCount = new AtomicInteger();
+
+    private int runningCountAfterRun = -1;
+
+    private final AtomicInteger startedCount = new AtomicInteger();
+
+    private CellSplitter(final Predicate<BoundingBox> fail) {
+      this.fail = fail;
+      setBoundingBox(GEOMETRY_FACTORY.newBoundingBox(0, 0, 100, 50));
+      setNumX(10);
+      setNumY(5);
+    }
+
+    @Override
+    public void execute(final BoundingBox cellBoundingBox) {
+      this.startedCount.incrementAndGet();
+      this.runningCount.incrementAndGet();
+      try {
+        if (this.fail.test(cellBoundingBox)) {
+          throw new IllegalStateException("Failed " + cellBoundingBox);
+        }
+        if (this.delayMillis > 0) {
+          Thread.sleep(this.delayMillis);
+        }
+        this.cells.add(cellBoundingBox);
+      } catch (final InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } finally {
+        this.runningCount.decrementAndGet();
+      }
+    }
+
+    @Override
+    protected void postRun() {
+      this.runningCountAfterRun = this.runningCount.get();
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1.0,
+    1.0);
+
+  @Test
+  public void testBoundary() {
+    final CellSplitter splitter = new CellSplitter(cell -> false);
+    splitter.setThreadCount(4);
+    splitter.setBoundary(GEOMETRY_FACTORY.newBoundingBox(5, 5, 25, 15).toPolygon(1));
+    splitter.run();
+    Assert.assertEquals(6, splitter.getCellCount());
+    Assert.assertEquals(6, splitter.cells.size());
+    Assert.assertTrue(splitter.cells.contains(GEOMETRY_FACTORY.newBoundingBox(20, 10, 30, 20)));
+  }
+
+  @Test
+  public void testParallel() {
+    for (final boolean workStealing : new boolean[] {
+      false, true
+    }) {
+      final CellSplitter splitter = new CellSplitter(cell -> false);
+      splitter.setThreadCount(4);
+      splitter.setWorkStealing(workStealing);
+      splitter.run();
+      Assert.assertEquals(50, splitter.cells.size());
+      Assert.assertEquals(50, splitter.getCompletedCellCount());
+      Assert.assertEquals(49, splitter.getCompletedCellIndex());
+      Assert.assertEquals(splitter.getCellBoundingBox(49),
+        GEOMETRY_FACTORY.newBoundingBox(90, 40, 100, 50));
+    }
+  }
+
+  @Test
+  public void testParallelFailure() {
+    final CellSplitter splitter = new CellSplitter(
+      cell -> cell.getMinX() == 30 && cell.getMinY() == 0);
+    splitter.setThreadCount(4);
+    splitter.delayMillis = 20;
+    try {
+      splitter.run();
+      Assert.fail("Expected exception");
+    } catch (final IllegalStateException e) {
+    }
+    // The cells already running finish before the error is thrown, no more cells are started
+    Assert.assertEquals(0, splitter.runningCountAfterRun);
+    Assert.assertTrue("Started " + splitter.startedCount, splitter.startedCount.get() < 50);
+    Assert.assertEquals(2, splitter.getCompletedCellIndex());
+  }
+
+  @Test
+  public void testRestart() {
+    final CellSplitter splitter = new CellSplitter(cell -> cell.getMinX() == 30);
+    try {
+      splitter.run();
+      Assert.fail("Expected exception");
+    } catch (final IllegalStateException e) {
+    }
+    Assert.assertEquals(2, splitter.getCompletedCellIndex());
+
+    final CellSplitter restartSplitter = new CellSplitter(cell -> false);
+    restartSplitter.setThreadCount(3);
+    restartSplitter.setStartCellIndex(splitter.getCompletedCellIndex() + 1);
+    restartSplitter.run();
+    Assert.assertEquals(47, restartSplitter.getCellCount());
+    Assert.assertFalse(
+      restartSplitter.cells.contains(GEOMETRY_FACTORY.newBoundingBox(20, 0, 30, 10)));
+    Assert.assertTrue(
+      restartSplitter.cells.contains(GEOMETRY_FACTORY.newBoundingBox(30, 0, 40, 10)));
+  }
+}
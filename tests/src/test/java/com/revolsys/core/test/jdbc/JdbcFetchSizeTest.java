@@ -0,0 +1,123 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.postgresql.PostgreSQLJdbcQueryIterator;
+import com.revolsys.gis.postgresql.PostgreSQLRecordStore;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.io.JdbcFetchSize;
+import com.revolsys.jdbc.io.JdbcRecordStore;
+import com.revolsys.record.query.Query;
+import com.revolsys.transaction.Transaction;
+
+public class JdbcFetchSizeTest {
+
+  private static class TestIterator extends PostgreSQLJdbcQueryIterator {
+    private TestIterator(final JdbcRecordStore recordStore, final Map<String, Object> properties) {
+      super(recordStore, new Query("/TEST"), properties);
+    }
+
+    private void connect() {
+      newJdbcConnection();
+    }
+  }
+
+  private static class TestRecordStore extends PostgreSQLRecordStore {
+    private final List<Boolean> autoCommits = new ArrayList<>();
+
+    @Override
+    public JdbcConnection getJdbcConnection(final boolean autoCommit) {
+      this.autoCommits.add(autoCommit);
+      return null;
+    }
+  }
+
+  /**
+   * Create a result set with an infinite number of rows where each call to next takes 1ms, as if
+   * it was a round trip to the server.
+   */
+  private static ResultSet newResultSet(final List<Integer> fetchSizes) {
+    return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {
+      ResultSet.class
+    }, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "next":
+          Thread.sleep(1);
+          return true;
+        case "setFetchSize":
+          fetchSizes.add((Integer)args[0]);
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  private static List<Integer> readRows(final JdbcFetchSize fetchSize, final int rowCount)
+    throws SQLException {
+    final List<Integer> fetchSizes = new ArrayList<>();
+    final ResultSet resultSet = newResultSet(fetchSizes);
+    for (int i = 0; i < rowCount; i++) {
+      Assert.assertTrue(fetchSize.next(resultSet));
+      fetchSize.rowRead(resultSet, null);
+    }
+    return fetchSizes;
+  }
+
+  @Test
+  public void testAdaptive() throws SQLException {
+    final JdbcFetchSize fetchSize = new JdbcFetchSize(10, true, 10000, 1000000);
+    Assert.assertEquals(Arrays.asList(20, 40, 80), readRows(fetchSize, 10 + 20 + 40));
+    Assert.assertEquals(80, fetchSize.getFetchSize());
+
+    final JdbcFetchSize maxFetchSize = new JdbcFetchSize(10, true, 25, 1000000);
+    Assert.assertEquals(Arrays.asList(20, 25), readRows(maxFetchSize, 100));
+    Assert.assertEquals(25, maxFetchSize.getFetchSize());
+
+    final JdbcFetchSize fixedFetchSize = new JdbcFetchSize(10);
+    Assert.assertEquals(Collections.emptyList(), readRows(fixedFetchSize, 100));
+    Assert.assertEquals(10, fixedFetchSize.getFetchSize());
+  }
+
+  @Test
+  public void testNewFetchSize() {
+    final PostgreSQLRecordStore recordStore = new PostgreSQLRecordStore();
+    Assert.assertEquals(JdbcFetchSize.DEFAULT_FETCH_SIZE,
+      recordStore.newFetchSize(new Query("/TEST")).getFetchSize());
+
+    recordStore.setFetchSize(200);
+    final JdbcFetchSize storeFetchSize = recordStore.newFetchSize(new Query("/TEST"));
+    Assert.assertEquals(200, storeFetchSize.getFetchSize());
+    Assert.assertFalse(storeFetchSize.isAdaptive());
+
+    // The query's fetch size is used instead of the record store's
+    recordStore.setFetchSizeAdaptive(true);
+    final Query query = new Query("/TEST").setFetchSize(50);
+    final JdbcFetchSize queryFetchSize = recordStore.newFetchSize(query);
+    Assert.assertEquals(50, queryFetchSize.getFetchSize());
+    Assert.assertTrue(queryFetchSize.isAdaptive());
+  }
+
+  @Test
+  public void testPostgreSQLAutoCommit() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    try (
+      Transaction transaction = new Transaction(null)) {
+      new TestIterator(recordStore, Collections.emptyMap()).connect();
+      final Map<String, Object> properties = Collections.singletonMap("autoCommit", true);
+      new TestIterator(recordStore, properties).connect();
+    }
+    // The driver only uses a cursor for the fetch size if auto commit is off
+    Assert.assertEquals(Arrays.asList(false, true), recordStore.autoCommits);
+  }
+}
@@ -0,0 +1,176 @@
+package com.revolsys.core.test.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.jdbc.io.JdbcPartitionedRecordWriter;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+public class JdbcPartitionedRecordWriterTest {
+
+  private static class PartitionWriter extends AbstractRecordWriter {
+    private boolean committed;
+
+    private final int failId;
+
+    private final List<Record> records = Collections.synchronizedList(new ArrayList<>());
+
+    private boolean rolledBack;
+
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    private PartitionWriter(final int failId) {
+      super(RECORD_DEFINITION);
+      this.failId = failId;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void write(final Record record) {
+      this.threads.add(Thread.currentThread());
+      if (record.getInteger("ID", -1) == this.failId) {
+        throw new IllegalStateException("Failed " + this.failId);
+      }
+      this.records.add(record);
+    }
+  }
+
+  private static class TestWriter extends JdbcPartitionedRecordWriter {
+    private TestWriter(final int batchSize, final List<PartitionWriter> writers) {
+      super(null, RECORD_DEFINITION, batchSize, writers);
+    }
+
+    @Override
+    protected void commit(final RecordWriter writer) {
+      ((PartitionWriter)writer).committed = true;
+    }
+
+    @Override
+    protected void rollback(final RecordWriter writer) {
+      ((PartitionWriter)writer).rolledBack = true;
+    }
+  }
+
+  private static final RecordDefinitionImpl RECORD_DEFINITION = newRecordDefinition();
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/partitioned"));
+    recordDefinition.addField("ID", DataTypes.INT, false);
+    recordDefinition.addField("VERSION", DataTypes.INT, true);
+    recordDefinition.setIdFieldName("ID");
+    return recordDefinition;
+  }
+
+  private static List<PartitionWriter> newWriters(final int count, final int failId) {
+    final List<PartitionWriter> writers = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      writers.add(new PartitionWriter(failId));
+    }
+    return writers;
+  }
+
+  private static Record record(final Integer id, final int version) {
+    final Record record = new ArrayRecord(RECORD_DEFINITION);
+    record.setValue("ID", id);
+    record.setValue("VERSION", version);
+    return record;
+  }
+
+  @Test
+  public void testBatchOrder() {
+    final List<PartitionWriter> writers = newWriters(3, -1);
+    try (
+      TestWriter writer = new TestWriter(4, writers)) {
+      for (int version = 0; version < 5; version++) {
+        for (int id = 0; id < 20; id++) {
+          writer.write(record(id, version));
+        }
+      }
+    }
+    int recordCount = 0;
+    for (final PartitionWriter partitionWriter : writers) {
+      Assert.assertTrue(partitionWriter.committed);
+      Assert.assertFalse(partitionWriter.rolledBack);
+      // Each partition is written on its own thread, not the caller's thread
+      Assert.assertEquals(1, partitionWriter.threads.size());
+      Assert.assertFalse(partitionWriter.threads.contains(Thread.currentThread()));
+      final int[] versions = new int[20];
+      for (final Record record : partitionWriter.records) {
+        final int id = record.getInteger("ID");
+        // The changes to a record are written in order
+        Assert.assertEquals(versions[id]++, record.getInteger("VERSION").intValue());
+        recordCount++;
+      }
+    }
+    Assert.assertEquals(100, recordCount);
+  }
+
+  @Test
+  public void testErrorPropagation() {
+    final List<PartitionWriter> writers = newWriters(2, 7);
+    final TestWriter writer = new TestWriter(2, writers);
+    try {
+      for (int id = 0; id < 100; id++) {
+        writer.write(record(id, 0));
+      }
+      writer.flush();
+      Assert.fail("Expected exception");
+    } catch (final IllegalStateException e) {
+      Assert.assertEquals("Failed 7", e.getMessage());
+    }
+    try {
+      writer.close();
+      Assert.fail("Expected exception");
+    } catch (final IllegalStateException e) {
+      Assert.assertEquals("Failed 7", e.getMessage());
+    }
+    for (final PartitionWriter partitionWriter : writers) {
+      Assert.assertFalse(partitionWriter.committed);
+      Assert.assertTrue(partitionWriter.rolledBack);
+    }
+  }
+
+  @Test
+  public void testPartitionRouting() {
+    final List<PartitionWriter> writers = newWriters(4, -1);
+    try (
+      TestWriter writer = new TestWriter(3, writers)) {
+      for (int id = 0; id < 50; id++) {
+        writer.write(record(id, 0));
+      }
+      for (int i = 0; i < 8; i++) {
+        writer.write(record(null, i));
+      }
+    }
+    for (int partitionIndex = 0; partitionIndex < writers.size(); partitionIndex++) {
+      final List<Integer> versionsWithoutId = new ArrayList<>();
+      for (final Record record : writers.get(partitionIndex).records) {
+        final Integer id = record.getInteger("ID");
+        if (id == null) {
+          versionsWithoutId.add(record.getInteger("VERSION"));
+        } else {
+          final int hash = record.getIdentifier().hashCode();
+          Assert.assertEquals(Math.floorMod(hash, writers.size()), partitionIndex);
+        }
+      }
+      // Records without an identifier are written to the partitions in turn
+      Assert.assertEquals(List.of(partitionIndex, partitionIndex + 4), versionsWithoutId);
+    }
+  }
+}
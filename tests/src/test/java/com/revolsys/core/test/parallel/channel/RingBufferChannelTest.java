@@ -0,0 +1,137 @@
+package com.revolsys.core.test.parallel.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+import com.revolsys.parallel.channel.store.RingBuffer;
+
+public class RingBufferChannelTest {
+
+  private static void assertTransfer(final Channel<Integer> channel, final int writerCount,
+    final int valueCount, final boolean batch) throws InterruptedException {
+    channel.readConnect();
+    for (int i = 0; i < writerCount; i++) {
+      channel.writeConnect();
+    }
+    final List<Thread> threads = new ArrayList<>();
+    for (int writerIndex = 0; writerIndex < writerCount; writerIndex++) {
+      final int startValue = writerIndex * valueCount;
+      final Thread thread = new Thread(() -> {
+        if (batch) {
+          final Integer[] values = new Integer[37];
+          int count = 0;
+          for (int i = 0; i < valueCount; i++) {
+            values[count++] = startValue + i;
+            if (count == values.length) {
+              channel.writeBatch(values, 0, count);
+              count = 0;
+            }
+          }
+          channel.writeBatch(values, 0, count);
+        } else {
+          for (int i = 0; i < valueCount; i++) {
+            channel.write(startValue + i);
+          }
+        }
+        channel.writeDisconnect();
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    final int[] lastValues = new int[writerCount];
+    int readCount = 0;
+    final Integer[] values = new Integer[64];
+    try {
+      while (true) {
+        final int count = channel.readBatch(values);
+        for (int i = 0; i < count; i++) {
+          final int value = values[i];
+          final int writerIndex = value / valueCount;
+          // Values from each writer are read in the order they were written
+          Assert.assertEquals(lastValues[writerIndex], value % valueCount);
+          lastValues[writerIndex]++;
+          readCount++;
+        }
+      }
+    } catch (final ClosedException e) {
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(writerCount * valueCount, readCount);
+    Assert.assertEquals(0, channel.getSize());
+  }
+
+  @Test
+  public void testMultipleWriters() throws InterruptedException {
+    assertTransfer(new RingBufferChannel<>("multiple", 100), 4, 20000, false);
+    assertTransfer(new RingBufferChannel<>("batch", 16), 4, 20000, true);
+    assertTransfer(new RingBufferChannel<>("one", 1), 2, 2000, false);
+  }
+
+  @Test(timeout = 10000)
+  public void testNullValue() {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>("null", 4);
+    channel.readConnect();
+    channel.writeConnect();
+    try {
+      channel.write(null);
+      Assert.fail("Expected exception");
+    } catch (final IllegalArgumentException e) {
+    }
+    try {
+      channel.writeBatch(new Integer[] {
+        1, null, 3
+      }, 0, 3);
+      Assert.fail("Expected exception");
+    } catch (final IllegalArgumentException e) {
+    }
+    // Nothing was written so the reader isn't blocked by an unpublished value
+    Assert.assertEquals(0, channel.getSize());
+    channel.writeBatch(new Integer[] {
+      null, 1, 2
+    }, 1, 2);
+    channel.writeDisconnect();
+    Assert.assertEquals(1, channel.read().intValue());
+    Assert.assertEquals(2, channel.read().intValue());
+    Assert.assertTrue(channel.isClosed());
+  }
+
+  @Test
+  public void testRingBuffer() throws InterruptedException {
+    assertTransfer(new Channel<>("ring", new RingBuffer<>(10)), 1, 20000, false);
+    assertTransfer(new Channel<>("ringBatch", new RingBuffer<>(10)), 3, 20000, true);
+  }
+
+  @Test
+  public void testSingleWriter() throws InterruptedException {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>("single", 100, false);
+    Assert.assertEquals(128, channel.getCapacity());
+    assertTransfer(channel, 1, 50000, false);
+    assertTransfer(new RingBufferChannel<>("singleBatch", 8, false), 1, 50000, true);
+  }
+
+  @Test
+  public void testTimeout() {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>("timeout", 4);
+    channel.readConnect();
+    channel.writeConnect();
+    Assert.assertNull(channel.read(10));
+    Assert.assertTrue(channel.getReadBlockedTime() > 0);
+    channel.write(1);
+    channel.write(2);
+    Assert.assertEquals(2, channel.getSize());
+    Assert.assertEquals(1, channel.read(10).intValue());
+    channel.writeDisconnect();
+    Assert.assertFalse(channel.isClosed());
+    Assert.assertEquals(2, channel.read().intValue());
+    Assert.assertTrue(channel.isClosed());
+  }
+}
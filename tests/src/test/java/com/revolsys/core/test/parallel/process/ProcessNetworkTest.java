@@ -0,0 +1,124 @@
+package com.revolsys.core.test.parallel.process;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ThreadSharedProperties;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.process.AbstractInOutProcess;
+import com.revolsys.parallel.process.AbstractOutProcess;
+import com.revolsys.parallel.process.ProcessNetwork;
+
+public class ProcessNetworkTest {
+
+  @Test
+  public void testBufferedProcessChannels() {
+    final AbstractInOutProcess<Integer, Integer> process = new AbstractInOutProcess<>() {
+      @Override
+      protected void run(final Channel<Integer> in, final Channel<Integer> out) {
+      }
+    };
+    process.setInBufferSize(10);
+    process.setOutBufferSize(-1);
+    final Channel<Integer> in = process.getIn();
+    Assert.assertTrue(in instanceof RingBufferChannel);
+    Assert.assertEquals(16, ((RingBufferChannel<Integer>)in).getCapacity());
+    Assert.assertFalse(process.getOut() instanceof RingBufferChannel);
+
+    final AbstractOutProcess<Integer> outProcess = new AbstractOutProcess<>(4) {
+      @Override
+      protected void run(final Channel<Integer> out) {
+      }
+    };
+    Assert.assertTrue(outProcess.getOut() instanceof RingBufferChannel);
+  }
+
+  /**
+   * More writers than carrier threads block on a full {@link Channel}. If a blocked writer pinned
+   * its carrier thread the reader would never run. Only runs on a JDK with virtual threads.
+   */
+  @Test(timeout = 60000)
+  public void testVirtualThreadsBlockingChannel() {
+    Assume.assumeTrue(ProcessNetwork.isVirtualThreadsSupported());
+    final int writerCount = Runtime.getRuntime().availableProcessors() * 4 + 10;
+    final ProcessNetwork processNetwork = new ProcessNetwork();
+    processNetwork.setVirtualThreads(true);
+    processNetwork.init();
+    final Channel<Integer> channel = new Channel<>("values", new Buffer<>(1));
+    final AtomicLong sum = new AtomicLong();
+    channel.readConnect();
+    for (int i = 0; i < writerCount; i++) {
+      final int value = i;
+      channel.writeConnect();
+      processNetwork.addProcess(() -> {
+        try {
+          for (int j = 0; j < 100; j++) {
+            channel.write(value);
+          }
+        } finally {
+          channel.writeDisconnect();
+        }
+      });
+    }
+    processNetwork.addProcess(() -> {
+      try {
+        while (true) {
+          sum.addAndGet(channel.read());
+        }
+      } catch (final ClosedException e) {
+      }
+    });
+    processNetwork.startAndWait();
+    Assert.assertEquals(100L * writerCount * (writerCount - 1) / 2, sum.get());
+  }
+
+  @Test
+  public void testVirtualThreads() {
+    final int writerCount = 200;
+    final ProcessNetwork processNetwork = new ProcessNetwork();
+    processNetwork.setVirtualThreads(true);
+    ThreadSharedProperties.setProperty("networkName", "virtual");
+    try {
+      processNetwork.init();
+      final RingBufferChannel<Integer> channel = new RingBufferChannel<>("values", 16);
+      final Set<Object> propertyValues = ConcurrentHashMap.newKeySet();
+      final AtomicLong sum = new AtomicLong();
+      channel.readConnect();
+      processNetwork.addProcess(() -> {
+        try {
+          while (true) {
+            sum.addAndGet(channel.read());
+          }
+        } catch (final ClosedException e) {
+        }
+      });
+      for (int i = 0; i < writerCount; i++) {
+        final int value = i;
+        channel.writeConnect();
+        processNetwork.addProcess(() -> {
+          propertyValues.add(ThreadSharedProperties.getProperty("networkName"));
+          try {
+            for (int j = 0; j < 100; j++) {
+              channel.write(value);
+            }
+          } finally {
+            channel.writeDisconnect();
+          }
+        });
+      }
+      processNetwork.startAndWait();
+      Assert.assertEquals(100L * writerCount * (writerCount - 1) / 2, sum.get());
+      Assert.assertEquals(Set.of("virtual"), propertyValues);
+    } finally {
+      ThreadSharedProperties.setProperty("networkName", null);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.revolsys.core.test.raster;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.raster.MapTileDiskCache;
+
+public class MapTileDiskCacheTest {
+
+  private static final byte[] JPEG = newBytes(1000, 0xFF, 0xD8, 0xFF, 0xE0);
+
+  private static final byte[] PNG = newBytes(1000, 0x89, 'P', 'N', 'G');
+
+  private static byte[] newBytes(final int size, final int... header) {
+    final byte[] bytes = new byte[size];
+    for (int i = 0; i < header.length; i++) {
+      bytes[i] = (byte)header[i];
+    }
+    return bytes;
+  }
+
+  private static MapTileDiskCache newCache() throws IOException {
+    final File directory = Files.createTempDirectory("tileCache").toFile();
+    return new MapTileDiskCache(directory);
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    final MapTileDiskCache cache = newCache();
+    cache.write("test/1/0/0", PNG);
+    Assert.assertNotNull(cache.read("test/1/0/0"));
+    cache.setMaxAgeMillis(0);
+    Thread.sleep(10);
+    Assert.assertNull(cache.read("test/1/0/0"));
+
+    cache.write("test/1/0/1", PNG);
+    Thread.sleep(10);
+    cache.sweep();
+    Assert.assertFalse(cache.getFile("test/1/0/1", "png").exists());
+    Assert.assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testFormat() throws Exception {
+    final MapTileDiskCache cache = newCache();
+    cache.write("test/1/2/3", PNG);
+    Assert.assertTrue(cache.getFile("test/1/2/3", "png").exists());
+    Assert.assertArrayEquals(PNG, cache.read("test/1/2/3"));
+
+    // The tile is stored as the bytes written, in the new format
+    cache.write("test/1/2/3", JPEG);
+    Assert.assertFalse(cache.getFile("test/1/2/3", "png").exists());
+    Assert.assertTrue(cache.getFile("test/1/2/3", "jpg").exists());
+    Assert.assertArrayEquals(JPEG, cache.read("test/1/2/3"));
+    Assert.assertEquals(JPEG.length, cache.getSize());
+
+    cache.remove("test/1/2/3");
+    Assert.assertNull(cache.read("test/1/2/3"));
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    final MapTileDiskCache cache = newCache();
+    cache.setMaxSize(5000);
+    for (int i = 0; i < 10; i++) {
+      cache.write("test/1/" + i + "/0", PNG);
+      Thread.sleep(20);
+    }
+    Assert.assertTrue("Size " + cache.getSize(), cache.getSize() <= 5000);
+    Assert.assertNull(cache.read("test/1/0/0"));
+    Assert.assertArrayEquals(PNG, cache.read("test/1/9/0"));
+  }
+}
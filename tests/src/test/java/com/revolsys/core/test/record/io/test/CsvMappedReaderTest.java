@@ -0,0 +1,145 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.Record;
+import com.revolsys.record.batch.DoubleBatchColumn;
+import com.revolsys.record.batch.IntBatchColumn;
+import com.revolsys.record.batch.RecordBatch;
+import com.revolsys.record.batch.StringBatchColumn;
+import com.revolsys.record.io.format.csv.Csv;
+import com.revolsys.record.io.format.csv.CsvMappedReader;
+import com.revolsys.record.io.format.tsv.Tsv;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+public class CsvMappedReaderTest {
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/values"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("VALUE", DataTypes.DOUBLE, false);
+    return recordDefinition;
+  }
+
+  private static PathResource writeFile(final String fileName, final String text) {
+    final File directory = FileUtil.newTempDirectory("csv", "mapped");
+    final File file = new File(directory, fileName);
+    try {
+      Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+    return new PathResource(file);
+  }
+
+  @Test
+  public void testParallel() {
+    final StringBuilder text = new StringBuilder("ID,NAME,VALUE\r\n");
+    for (int i = 0; i < 1000; i++) {
+      text.append(i).append(',');
+      if (i % 10 == 0) {
+        text.append("\"Line\n").append(i).append("\"");
+      } else {
+        text.append("Name ").append(i);
+      }
+      text.append(',').append(i / 4.0).append("\r\n");
+    }
+    final PathResource resource = writeFile("parallel.csv", text.toString());
+    try (
+      CsvMappedReader reader = new CsvMappedReader(resource, Csv.FIELD_SEPARATOR,
+        newRecordDefinition())) {
+      reader.setSplitByteCount(1000);
+      Assert.assertTrue(reader.getSplitOffsets().length > 10);
+
+      final Map<Integer, String> sequential = new TreeMap<>();
+      reader.forEachBatch(64, batch -> {
+        for (final Record record : batch) {
+          sequential.put(record.getInteger("ID"), record.getString("NAME"));
+        }
+      });
+
+      final AtomicInteger count = new AtomicInteger();
+      final Map<Integer, String> parallel = new ConcurrentHashMap<>();
+      reader.forEachBatchParallel(64, batch -> {
+        count.addAndGet(batch.size());
+        final IntBatchColumn ids = batch.getColumn("ID");
+        final DoubleBatchColumn values = batch.getColumn("VALUE");
+        for (int row = 0; row < batch.size(); row++) {
+          final int id = ids.getInt(row);
+          Assert.assertEquals(id / 4.0, values.getDouble(row), 0);
+          parallel.put(id, batch.getValue(row, 1));
+        }
+      });
+      Assert.assertEquals(1000, count.get());
+      Assert.assertEquals(1000, sequential.size());
+      Assert.assertEquals(sequential, new TreeMap<>(parallel));
+      Assert.assertEquals("Line\n990", parallel.get(990));
+    }
+  }
+
+  @Test
+  public void testQuotedValues() {
+    final PathResource resource = writeFile("quoted.csv", "\uFEFFID,NAME,VALUE,OTHER\n" //
+      + "1,\"a,b\",1.5,x\n" //
+      + "\n" //
+      + "2,\"say \"\"hi\"\"\",-2.25e3,\n" //
+      + "3,\"line\nbreak\",,\n" //
+      + "4,Caf\u00e9 \u2615,0.1,\n" //
+      + "5,\"\",1e-3,");
+    try (
+      CsvMappedReader reader = new CsvMappedReader(resource, Csv.FIELD_SEPARATOR,
+        newRecordDefinition())) {
+      final List<String> names = new ArrayList<>();
+      final List<Object> values = new ArrayList<>();
+      reader.forEachBatch(10, batch -> {
+        Assert.assertEquals(5, batch.size());
+        final StringBatchColumn nameColumn = batch.getColumn("NAME");
+        final DoubleBatchColumn valueColumn = batch.getColumn("VALUE");
+        for (int row = 0; row < batch.size(); row++) {
+          names.add(nameColumn.getString(row));
+          values.add(valueColumn.getValue(row));
+        }
+      });
+      Assert.assertEquals(
+        List.of("a,b", "say \"hi\"", "line\nbreak", "Caf\u00e9 \u2615", ""), names);
+      Assert.assertEquals(1.5, values.get(0));
+      Assert.assertEquals(-2250.0, values.get(1));
+      Assert.assertNull(values.get(2));
+      Assert.assertEquals(0.1, values.get(3));
+      Assert.assertEquals(0.001, values.get(4));
+    }
+  }
+
+  @Test
+  public void testTsvRecordDefinition() {
+    final PathResource resource = writeFile("values.tsv", "ID\tNAME\n1\tOne\n2\tTwo\n");
+    try (
+      CsvMappedReader reader = new CsvMappedReader(resource, Tsv.FIELD_SEPARATOR, null)) {
+      Assert.assertEquals(List.of("ID", "NAME"), reader.getRecordDefinition().getFieldNames());
+      final List<String> names = new ArrayList<>();
+      reader.forEachBatch(1, (final RecordBatch batch) -> {
+        Assert.assertEquals(1, batch.size());
+        names.add(batch.getRow(0).getString("NAME"));
+      });
+      Assert.assertEquals(List.of("One", "Two"), names);
+    }
+  }
+}
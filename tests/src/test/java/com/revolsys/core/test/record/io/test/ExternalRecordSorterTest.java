@@ -0,0 +1,199 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.comparator.RecordFieldComparator;
+import com.revolsys.record.io.ExternalRecordSorter;
+import com.revolsys.record.io.ListRecordReader;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+public class ExternalRecordSorterTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static List<Record> newRecords(final RecordDefinitionImpl recordDefinition,
+    final int count) {
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      record.setValue("ID", i);
+      // Many duplicate keys to check that equal records keep the order they were added
+      record.setValue("KEY", (i * 7919) % 97);
+      if (i % 5 != 0) {
+        record.setValue("NAME", "Name " + i);
+      }
+      record.setValue("VALUE", i / 8.0);
+      record.setValue("ACTIVE", i % 2 == 0);
+      record.setGeometryValue(GEOMETRY_FACTORY.point(1000 + i, 2000 + i));
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/sort"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("KEY", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("VALUE", DataTypes.DOUBLE, false);
+    recordDefinition.addField("ACTIVE", DataTypes.BOOLEAN, false);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, false);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    return recordDefinition;
+  }
+
+  private void assertSorted(final List<Record> expected, final RecordReader reader) {
+    final List<Record> actual = new ArrayList<>();
+    for (final Record record : reader) {
+      actual.add(record);
+    }
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final Record expectedRecord = expected.get(i);
+      final Record actualRecord = actual.get(i);
+      Assert.assertEquals(expectedRecord.getValue("ID"), actualRecord.getValue("ID"));
+      Assert.assertEquals(expectedRecord.getValue("KEY"), actualRecord.getValue("KEY"));
+      Assert.assertEquals(expectedRecord.getValue("NAME"), actualRecord.getValue("NAME"));
+      Assert.assertEquals(expectedRecord.getValue("VALUE"), actualRecord.getValue("VALUE"));
+      Assert.assertEquals(expectedRecord.getValue("ACTIVE"), actualRecord.getValue("ACTIVE"));
+      final Point point = actualRecord.getGeometry();
+      Assert.assertEquals(expectedRecord.getGeometry(), point);
+      Assert.assertEquals(GEOMETRY_FACTORY, point.getGeometryFactory());
+    }
+  }
+
+  /**
+   * Close the sorter while large runs are still being written by other threads.
+   */
+  @Test(timeout = 60000)
+  public void testCloseWhileWriting() {
+    final File directory = FileUtil.newTempDirectory("sort", "runs");
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition, 100000);
+    final ExternalRecordSorter sorter = new ExternalRecordSorter(
+      new RecordFieldComparator("KEY"));
+    sorter.setRecordDefinition(recordDefinition);
+    sorter.setRunSize(20000);
+    sorter.setMaxPendingRunCount(4);
+    sorter.setTempDirectory(directory);
+    for (final Record record : records) {
+      sorter.addRecord(record);
+    }
+    sorter.close();
+    Assert.assertEquals(0, sorter.getRunCount());
+    Assert.assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test
+  public void testInMemory() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition, 50);
+    final Comparator<Record> comparator = new RecordFieldComparator("KEY");
+    try (
+      ExternalRecordSorter sorter = new ExternalRecordSorter(comparator)) {
+      sorter.setRecordDefinition(recordDefinition);
+      for (final Record record : records) {
+        sorter.addRecord(record);
+      }
+      Assert.assertEquals(0, sorter.getRunCount());
+      final List<Record> expected = new ArrayList<>(records);
+      expected.sort(comparator);
+      try (
+        RecordReader reader = sorter.newSortedReader()) {
+        final List<Record> actual = new ArrayList<>();
+        for (final Record record : reader) {
+          actual.add(record);
+        }
+        Assert.assertEquals(expected, actual);
+        // Records that fit in one run are not copied
+        Assert.assertSame(expected.get(0), actual.get(0));
+      }
+    }
+  }
+
+  @Test
+  public void testReaderSort() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition, 1000);
+    final Comparator<Record> comparator = new RecordFieldComparator("KEY");
+    final List<Record> expected = new ArrayList<>(records);
+    expected.sort(comparator);
+    final RecordReader source = new ListRecordReader(recordDefinition, records);
+    try (
+      RecordReader reader = ExternalRecordSorter.sort(source, comparator)) {
+      Assert.assertEquals(recordDefinition, reader.getRecordDefinition());
+      assertSorted(expected, reader);
+    }
+  }
+
+  /**
+   * Get the sorted reader while large runs are still being written by other threads.
+   */
+  @Test(timeout = 60000)
+  public void testReaderWhileWriting() {
+    final File directory = FileUtil.newTempDirectory("sort", "runs");
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition, 100000);
+    final Comparator<Record> comparator = new RecordFieldComparator("KEY");
+    final List<Record> expected = new ArrayList<>(records);
+    expected.sort(comparator);
+    try (
+      ExternalRecordSorter sorter = new ExternalRecordSorter(comparator)) {
+      sorter.setRecordDefinition(recordDefinition);
+      sorter.setRunSize(20000);
+      sorter.setMaxPendingRunCount(4);
+      sorter.setTempDirectory(directory);
+      for (final Record record : records) {
+        sorter.addRecord(record);
+      }
+      try (
+        RecordReader reader = sorter.newSortedReader()) {
+        assertSorted(expected, reader);
+      }
+      Assert.assertEquals(0, directory.listFiles().length);
+    }
+  }
+
+  @Test
+  public void testSpilledRuns() {
+    final File directory = FileUtil.newTempDirectory("sort", "runs");
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final List<Record> records = newRecords(recordDefinition, 1000);
+    final Comparator<Record> comparator = new RecordFieldComparator("KEY");
+    final List<Record> expected = new ArrayList<>(records);
+    expected.sort(comparator);
+    try (
+      ExternalRecordSorter sorter = new ExternalRecordSorter(comparator)) {
+      sorter.setRecordDefinition(recordDefinition);
+      sorter.setRunSize(64);
+      sorter.setMaxPendingRunCount(2);
+      sorter.setTempDirectory(directory);
+      for (final Record record : records) {
+        sorter.addRecord(record);
+      }
+      Assert.assertEquals(15, sorter.getRunCount());
+      try (
+        RecordReader reader = sorter.newSortedReader()) {
+        Assert.assertEquals(16, directory.listFiles().length);
+        assertSorted(expected, reader);
+      }
+      Assert.assertEquals(0, directory.listFiles().length);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.revolsys.core.test.record.io.test;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class FlatGeobufIoTest {
+
+  public static Test suite() {
+    final TestSuite suite = new TestSuite("FlatGeobuf Geometry");
+    RecordIoTestSuite.addWriteReadTest(suite, "FlatGeobuf", "fgb");
+    return suite;
+  }
+}
@@ -0,0 +1,106 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.flatgeobuf.FlatGeobufRecordReader;
+import com.revolsys.record.io.format.flatgeobuf.PackedHilbertRTree;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+public class FlatGeobufTest {
+
+  private static final int GRID_SIZE = 40;
+
+  private static List<Record> read(final PathResource resource, final BoundingBox boundingBox) {
+    try (
+      FlatGeobufRecordReader reader = new FlatGeobufRecordReader(resource, ArrayRecord.FACTORY)) {
+      reader.setBoundingBox(boundingBox);
+      return reader.toList();
+    }
+  }
+
+  @Test
+  public void testBoundingBoxQuery() {
+    final File file = FileUtil.newTempFile("points", ".fgb");
+    try {
+      final PathResource resource = new PathResource(file);
+      final GeometryFactory geometryFactory = GeometryFactory.floating2d(EpsgId.WGS84);
+      final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+        PathName.newPathName("/points"));
+      recordDefinition.addField("ID", DataTypes.INT, true);
+      recordDefinition.addField("NAME", DataTypes.STRING, false);
+      recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, true);
+      recordDefinition.setGeometryFactory(geometryFactory);
+      try (
+        RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition, resource)) {
+        for (int i = 0; i < GRID_SIZE * GRID_SIZE; i++) {
+          final ArrayRecord record = new ArrayRecord(recordDefinition);
+          record.setValue("ID", i);
+          if (i % 2 == 0) {
+            record.setValue("NAME", "Point " + i);
+          }
+          record.setGeometryValue(geometryFactory.point(i % GRID_SIZE, i / GRID_SIZE));
+          writer.write(record);
+        }
+      }
+
+      final List<Record> allRecords = read(resource, null);
+      Assert.assertEquals(GRID_SIZE * GRID_SIZE, allRecords.size());
+      for (final Record record : allRecords) {
+        final int id = record.getInteger("ID");
+        final Point point = record.getGeometry();
+        Assert.assertEquals(id % GRID_SIZE, point.getX(), 0);
+        Assert.assertEquals(id / GRID_SIZE, point.getY(), 0);
+        if (id % 2 == 0) {
+          Assert.assertEquals("Point " + id, record.getValue("NAME"));
+        } else {
+          Assert.assertNull(record.getValue("NAME"));
+        }
+      }
+
+      final BoundingBox boundingBox = geometryFactory.newBoundingBox(9.5, 19.5, 14.5, 22.5);
+      final List<Record> records = read(resource, boundingBox);
+      Assert.assertEquals(15, records.size());
+      for (final Record record : records) {
+        Assert.assertTrue(boundingBox.bboxIntersects(record.getGeometry()));
+      }
+
+      final BoundingBox outside = geometryFactory.newBoundingBox(100, 100, 101, 101);
+      Assert.assertTrue(read(resource, outside).isEmpty());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testLevelBounds() {
+    final long[][] levelBounds = PackedHilbertRTree.getLevelBounds(1000, 16);
+    Assert.assertEquals(4, levelBounds.length);
+    Assert.assertArrayEquals(new long[] {
+      68, 1068
+    }, levelBounds[0]);
+    Assert.assertArrayEquals(new long[] {
+      5, 68
+    }, levelBounds[1]);
+    Assert.assertArrayEquals(new long[] {
+      0, 1
+    }, levelBounds[3]);
+    Assert.assertEquals(1068 * PackedHilbertRTree.NODE_ITEM_SIZE,
+      PackedHilbertRTree.getSize(1000, 16));
+  }
+}
@@ -0,0 +1,13 @@
+package com.revolsys.core.test.record.io.test;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class GeoParquetIoTest {
+
+  public static Test suite() {
+    final TestSuite suite = new TestSuite("GeoParquet Geometry");
+    RecordIoTestSuite.addWriteReadTest(suite, "GeoParquet", "parquet");
+    return suite;
+  }
+}
@@ -0,0 +1,139 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.format.parquet.GeoParquetRecordReader;
+import com.revolsys.record.io.format.parquet.GeoParquetRecordWriter;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.functions.F;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+public class GeoParquetTest {
+
+  private static final int GRID_SIZE = 40;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(EpsgId.WGS84);
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/points"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, true);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    return recordDefinition;
+  }
+
+  private static List<Record> read(final PathResource resource, final Query query,
+    final int expectedRowGroupCount) {
+    try (
+      GeoParquetRecordReader reader = new GeoParquetRecordReader(resource, ArrayRecord.FACTORY)) {
+      reader.setQuery(query);
+      final List<Record> records = new ArrayList<>();
+      final Condition whereCondition = query == null ? null : query.getWhereCondition();
+      for (final Record record : reader) {
+        if (whereCondition == null || whereCondition.test(record)) {
+          records.add(record);
+        }
+      }
+      Assert.assertEquals("Row groups read", expectedRowGroupCount,
+        reader.getReadRowGroupCount());
+      return records;
+    }
+  }
+
+  private static void write(final File file, final RecordDefinitionImpl recordDefinition)
+    throws IOException {
+    try (
+      GeoParquetRecordWriter writer = new GeoParquetRecordWriter(recordDefinition,
+        new FileOutputStream(file))) {
+      // One row of the grid per row group
+      writer.setRowGroupSize(GRID_SIZE);
+      for (int i = 0; i < GRID_SIZE * GRID_SIZE; i++) {
+        final ArrayRecord record = new ArrayRecord(recordDefinition);
+        record.setValue("ID", i);
+        if (i % 2 == 0) {
+          record.setValue("NAME", "Point " + i);
+        }
+        record.setGeometryValue(GEOMETRY_FACTORY.point(i % GRID_SIZE, i / GRID_SIZE));
+        writer.write(record);
+      }
+    }
+  }
+
+  @Test
+  public void testQueryPushdown() throws IOException {
+    final File file = FileUtil.newTempFile("points", ".parquet");
+    try {
+      final PathResource resource = new PathResource(file);
+      final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+      write(file, recordDefinition);
+
+      final List<Record> allRecords = read(resource, null, GRID_SIZE);
+      Assert.assertEquals(GRID_SIZE * GRID_SIZE, allRecords.size());
+      for (final Record record : allRecords) {
+        final int id = record.getInteger("ID");
+        final Point point = record.getGeometry();
+        Assert.assertEquals(id % GRID_SIZE, point.getX(), 0);
+        Assert.assertEquals(id / GRID_SIZE, point.getY(), 0);
+        if (id % 2 == 0) {
+          Assert.assertEquals("Point " + id, record.getValue("NAME"));
+        } else {
+          Assert.assertNull(record.getValue("NAME"));
+        }
+      }
+
+      final Query equalQuery = new Query(recordDefinition)
+        .and(Q.equal(recordDefinition.getField("ID"), 85));
+      final List<Record> equalRecords = read(resource, equalQuery, 1);
+      Assert.assertEquals(1, equalRecords.size());
+      Assert.assertEquals(85, equalRecords.get(0).getInteger("ID").intValue());
+
+      final Query rangeQuery = new Query(recordDefinition)
+        .and(Q.greaterThanEqual(recordDefinition.getField("ID"), GRID_SIZE * (GRID_SIZE - 2)));
+      Assert.assertEquals(GRID_SIZE * 2, read(resource, rangeQuery, 2).size());
+
+      final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(9.5, 19.5, 14.5, 22.5);
+      final Query bboxQuery = new Query(recordDefinition);
+      F.envelopeIntersects(bboxQuery, boundingBox);
+      final List<Record> bboxRecords = read(resource, bboxQuery, 3);
+      Assert.assertEquals(15, bboxRecords.size());
+
+      final BoundingBox outside = GEOMETRY_FACTORY.newBoundingBox(100, 100, 101, 101);
+      final Query outsideQuery = new Query(recordDefinition);
+      F.envelopeIntersects(outsideQuery, outside);
+      Assert.assertTrue(read(resource, outsideQuery, 0).isEmpty());
+
+      final Query selectQuery = new Query(recordDefinition).select("ID")
+        .and(Q.lessThan(recordDefinition.getField("ID"), 10));
+      final List<Record> selectRecords = read(resource, selectQuery, 1);
+      Assert.assertEquals(10, selectRecords.size());
+      for (final Record record : selectRecords) {
+        Assert.assertNull(record.getValue("NAME"));
+        Assert.assertNull(record.getGeometry());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
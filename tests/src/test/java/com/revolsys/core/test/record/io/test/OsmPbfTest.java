@@ -0,0 +1,207 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.format.openstreetmap.model.OsmMember;
+import com.revolsys.record.io.format.openstreetmap.model.OsmNode;
+import com.revolsys.record.io.format.openstreetmap.model.OsmRelation;
+import com.revolsys.record.io.format.openstreetmap.model.OsmWay;
+import com.revolsys.record.io.format.openstreetmap.pbf.OsmNodeLocationIndex;
+import com.revolsys.record.io.format.openstreetmap.pbf.OsmPbfRecordReader;
+import com.revolsys.record.io.format.openstreetmap.pbf.ProtocolBufferReader;
+import com.revolsys.spring.resource.PathResource;
+
+public class OsmPbfTest {
+
+  private static byte[] bytesField(final int fieldNumber, final byte[] bytes) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint(out, fieldNumber << 3 | 2);
+    writeVarint(out, bytes.length);
+    out.write(bytes, 0, bytes.length);
+    return out.toByteArray();
+  }
+
+  private static byte[] concat(final byte[]... fields) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (final byte[] field : fields) {
+      out.write(field, 0, field.length);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] packedDelta(final int fieldNumber, final long... values) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long previous = 0;
+    for (final long value : values) {
+      final long delta = value - previous;
+      writeVarint(out, delta << 1 ^ delta >> 63);
+      previous = value;
+    }
+    return bytesField(fieldNumber, out.toByteArray());
+  }
+
+  private static byte[] packedInt(final int fieldNumber, final int... values) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (final int value : values) {
+      writeVarint(out, value);
+    }
+    return bytesField(fieldNumber, out.toByteArray());
+  }
+
+  private static byte[] stringField(final int fieldNumber, final String value) {
+    return bytesField(fieldNumber, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] varintField(final int fieldNumber, final long value) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint(out, fieldNumber << 3);
+    writeVarint(out, value);
+    return out.toByteArray();
+  }
+
+  private static void writeBlob(final DataOutputStream out, final String type,
+    final byte[] data, final boolean compress) throws IOException {
+    final byte[] blob;
+    if (compress) {
+      final Deflater deflater = new Deflater();
+      deflater.setInput(data);
+      deflater.finish();
+      final byte[] buffer = new byte[data.length + 100];
+      final int size = deflater.deflate(buffer);
+      deflater.end();
+      final byte[] compressed = new byte[size];
+      System.arraycopy(buffer, 0, compressed, 0, size);
+      blob = concat(varintField(2, data.length), bytesField(3, compressed));
+    } else {
+      blob = bytesField(1, data);
+    }
+    final byte[] header = concat(stringField(1, type), varintField(3, blob.length));
+    out.writeInt(header.length);
+    out.write(header);
+    out.write(blob);
+  }
+
+  private static void writeVarint(final ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int)(value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    out.write((int)value);
+  }
+
+  @Test
+  public void testNodeLocationIndex() {
+    try (
+      OsmNodeLocationIndex index = new OsmNodeLocationIndex()) {
+      for (int i = 0; i < 10000; i++) {
+        index.add(i * 3L, i, -i);
+      }
+      Assert.assertEquals(10000, index.getCount());
+      for (int i = 0; i < 10000; i++) {
+        final long entryIndex = index.indexOf(i * 3L);
+        Assert.assertEquals(i, entryIndex);
+        Assert.assertEquals(i * 1e-7, index.getX(entryIndex), 1e-12);
+        Assert.assertEquals(-i * 1e-7, index.getY(entryIndex), 1e-12);
+        Assert.assertEquals(-1, index.indexOf(i * 3L + 1));
+      }
+      Assert.assertEquals(-1, index.indexOf(-1));
+      Assert.assertEquals(-1, index.indexOf(30000));
+      try {
+        index.add(5, 0, 0);
+        Assert.fail("Unsorted node id should not be added");
+      } catch (final IllegalArgumentException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testProtocolBufferReader() {
+    final byte[] bytes = concat(varintField(1, 300), packedDelta(2, -5, 10, 10, 1L << 40),
+      stringField(3, "text"), varintField(4, 1));
+    final ProtocolBufferReader in = new ProtocolBufferReader(bytes);
+    int tag = in.readTag();
+    Assert.assertEquals(1, ProtocolBufferReader.getFieldNumber(tag));
+    Assert.assertEquals(300, in.readVarint());
+    tag = in.readTag();
+    Assert.assertEquals(2, ProtocolBufferReader.getFieldNumber(tag));
+    Assert.assertArrayEquals(new long[] {
+      -5, 10, 10, 1L << 40
+    }, in.readPackedDeltaSInt64());
+    tag = in.readTag();
+    in.skipField(tag);
+    tag = in.readTag();
+    Assert.assertEquals(4, ProtocolBufferReader.getFieldNumber(tag));
+    Assert.assertTrue(in.readBool());
+    Assert.assertEquals(0, in.readTag());
+  }
+
+  @Test
+  public void testReadRecords() throws IOException {
+    final byte[] headerBlock = concat(stringField(4, "OsmSchema-V0.6"),
+      stringField(4, "DenseNodes"));
+
+    final byte[] stringTable = concat(stringField(1, ""), stringField(1, "name"),
+      stringField(1, "A"), stringField(1, "area"), stringField(1, "yes"),
+      stringField(1, "outer"));
+    final byte[] denseNodes = concat(packedDelta(1, 1, 2, 3), packedDelta(8, 0, 0, 10000000),
+      packedDelta(9, 0, 10000000, 10000000), packedInt(10, 1, 2, 0, 0, 0));
+    final byte[] way = concat(varintField(1, 10), packedInt(2, 3), packedInt(3, 4),
+      packedDelta(8, 1, 2, 3, 1));
+    final byte[] relation = concat(varintField(1, 20), packedInt(2, 1), packedInt(3, 2),
+      packedInt(8, 5), packedDelta(9, 10), packedInt(10, 1));
+    final byte[] primitiveBlock = concat(bytesField(1, stringTable),
+      bytesField(2, bytesField(2, denseNodes)), bytesField(2, bytesField(3, way)),
+      bytesField(2, bytesField(4, relation)));
+
+    final Path file = Files.createTempFile("test", ".osm.pbf");
+    try {
+      try (
+        DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+        writeBlob(out, "OSMHeader", headerBlock, false);
+        writeBlob(out, "OSMData", primitiveBlock, true);
+      }
+      final List<Record> records = new ArrayList<>();
+      try (
+        OsmPbfRecordReader reader = new OsmPbfRecordReader(new PathResource(file))) {
+        for (final Record record : reader) {
+          records.add(record);
+        }
+      }
+      Assert.assertEquals(3, records.size());
+
+      final OsmNode node = (OsmNode)records.get(0);
+      Assert.assertEquals(1, node.getId());
+      Assert.assertEquals("A", node.getTag("name"));
+
+      final OsmWay way10 = (OsmWay)records.get(1);
+      Assert.assertEquals(10, way10.getId());
+      final Polygon polygon = way10.getGeometry();
+      Assert.assertEquals(4, polygon.getVertexCount());
+      Assert.assertEquals(1, polygon.getShell().getX(2), 1e-9);
+      Assert.assertEquals(1, polygon.getShell().getY(2), 1e-9);
+
+      final OsmRelation relation20 = (OsmRelation)records.get(2);
+      Assert.assertEquals(20, relation20.getId());
+      Assert.assertEquals("A", relation20.getTag("name"));
+      final OsmMember member = relation20.getMembers().get(0);
+      Assert.assertEquals("way", member.getType());
+      Assert.assertEquals(10, member.getRef());
+      Assert.assertEquals("outer", member.getRole());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.batch.BooleanBatchColumn;
+import com.revolsys.record.batch.DoubleBatchColumn;
+import com.revolsys.record.batch.IntBatchColumn;
+import com.revolsys.record.batch.LineStringBatchColumn;
+import com.revolsys.record.batch.PointBatchColumn;
+import com.revolsys.record.batch.RecordBatch;
+import com.revolsys.record.batch.StringBatchColumn;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+public class RecordBatchTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static RecordDefinitionImpl newRecordDefinition() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/batch"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("LENGTH", DataTypes.DOUBLE, false);
+    recordDefinition.addField("ACTIVE", DataTypes.BOOLEAN, false);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, false);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    return recordDefinition;
+  }
+
+  @Test
+  public void testColumns() {
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    final RecordBatch batch = new RecordBatch(recordDefinition, 3);
+    Assert.assertTrue(batch.getColumn("ID") instanceof IntBatchColumn);
+    Assert.assertTrue(batch.getColumn("NAME") instanceof StringBatchColumn);
+    Assert.assertTrue(batch.getColumn("LENGTH") instanceof DoubleBatchColumn);
+    Assert.assertTrue(batch.getColumn("ACTIVE") instanceof BooleanBatchColumn);
+    Assert.assertTrue(batch.getColumn("GEOMETRY") instanceof PointBatchColumn);
+
+    for (int i = 0; i < 3; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      record.setValue("ID", i);
+      record.setValue("NAME", i % 2 == 0 ? "Even" : "Odd");
+      if (i != 1) {
+        record.setValue("LENGTH", i * 1.5);
+      }
+      record.setValue("ACTIVE", i == 2);
+      record.setGeometryValue(GEOMETRY_FACTORY.point(1000 + i, 2000 + i));
+      batch.addRecord(record);
+    }
+    Assert.assertTrue(batch.isFull());
+
+    final IntBatchColumn ids = batch.getColumn("ID");
+    Assert.assertEquals(2, ids.getInt(2));
+    final StringBatchColumn names = batch.getColumn("NAME");
+    Assert.assertEquals(2, names.getDictionarySize());
+    Assert.assertEquals(names.getCode(0), names.getCode(2));
+    final DoubleBatchColumn lengths = batch.getColumn("LENGTH");
+    Assert.assertTrue(lengths.isNull(1));
+    Assert.assertEquals(3.0, lengths.getDouble(2), 0);
+    final PointBatchColumn points = batch.getColumn("GEOMETRY");
+    Assert.assertEquals(1001, points.getX(1), 0);
+
+    final Record row = batch.getRow(1);
+    Assert.assertEquals(1, row.getInteger("ID").intValue());
+    Assert.assertEquals("Odd", row.getString("NAME"));
+    Assert.assertNull(row.getValue("LENGTH"));
+    Assert.assertEquals(Boolean.FALSE, row.getValue("ACTIVE"));
+    final Point point = row.getGeometry();
+    Assert.assertEquals(GEOMETRY_FACTORY.point(1001, 2001), point);
+
+    row.setValue("ID", "42");
+    row.setValue("LENGTH", 7.25);
+    Assert.assertEquals(42, ids.getInt(1));
+    Assert.assertEquals(7.25, lengths.getDouble(1), 0);
+
+    batch.clear();
+    Assert.assertTrue(batch.isEmpty());
+    Assert.assertEquals(0, names.getDictionarySize());
+    final int newRow = batch.addRow();
+    Assert.assertNull(batch.getValue(newRow, 0));
+    Assert.assertNull(batch.getValue(newRow, 4));
+
+    names.setString(newRow, "");
+    Assert.assertEquals("", names.getString(newRow));
+    Assert.assertFalse(names.isNull(newRow));
+    names.setString(newRow, null);
+    Assert.assertTrue(names.isNull(newRow));
+  }
+
+  @Test
+  public void testCsvBatches() {
+    final File directory = FileUtil.newTempDirectory("batch", "csv");
+    final PathResource resource = new PathResource(new File(directory, "points.csv"));
+    final RecordDefinitionImpl recordDefinition = newRecordDefinition();
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition, resource)) {
+      final RecordBatch batch = new RecordBatch(recordDefinition, 10);
+      for (int i = 0; i < 10; i++) {
+        final Record record = batch.newRecord();
+        record.setValue("ID", i);
+        record.setValue("NAME", "Point " + i);
+        record.setGeometryValue(GEOMETRY_FACTORY.point(1000 + i, 2000 + i));
+      }
+      writer.writeBatch(batch);
+    }
+
+    final List<Integer> batchSizes = new ArrayList<>();
+    final List<String> ids = new ArrayList<>();
+    try (
+      RecordReader reader = RecordReader.newRecordReader(resource)) {
+      reader.forEachBatch(4, batch -> {
+        batchSizes.add(batch.size());
+        final StringBatchColumn idColumn = batch.getColumn("ID");
+        for (int row = 0; row < batch.size(); row++) {
+          ids.add(idColumn.getString(row));
+        }
+        final int geometryIndex = batch.getRecordDefinition().getGeometryFieldIndex();
+        final Point point = batch.getValue(0, geometryIndex);
+        Assert.assertEquals(1000 + Integer.parseInt(idColumn.getString(0)), point.getX(), 0);
+      });
+    }
+    Assert.assertEquals(List.of(4, 4, 2), batchSizes);
+    Assert.assertEquals(10, ids.size());
+    Assert.assertEquals("9", ids.get(9));
+  }
+
+  @Test
+  public void testLineStringColumn() {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/lines"));
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.LINE_STRING, false);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    final RecordBatch batch = new RecordBatch(recordDefinition, 2);
+    final LineString line1 = GEOMETRY_FACTORY.lineString(2, 0.0, 0, 10, 10, 20, 0);
+    final LineString line2 = GEOMETRY_FACTORY.lineString(2, 5.0, 5, 6, 6);
+    batch.setValue(batch.addRow(), 0, line1);
+    batch.setValue(batch.addRow(), 0, line2);
+    // Replacing a value appends the coordinates
+    batch.setValue(0, 0, line2);
+
+    final LineStringBatchColumn column = batch.getColumn(0);
+    Assert.assertEquals(2, column.getVertexCount(1));
+    Assert.assertEquals(6, column.getCoordinate(1, 1, 1), 0);
+    Assert.assertTrue(line2.equals(2, batch.<LineString> getValue(0, 0)));
+    Assert.assertTrue(line2.equals(2, batch.<LineString> getValue(1, 0)));
+  }
+}
@@ -42,8 +42,10 @@ import junit.framework.TestSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-  GeoJsonIoTest.class, GmlIoTest.class, KmlIoTest.class, ShapefileIoTest.class, WktlIoTest.class,
-  XBaseIoTest.class
+  CsvMappedReaderTest.class, ExternalRecordSorterTest.class, FlatGeobufIoTest.class,
+  FlatGeobufTest.class, GeoJsonIoTest.class, GeoParquetIoTest.class, GeoParquetTest.class,
+  GmlIoTest.class, KmlIoTest.class, OsmPbfTest.class, RecordBatchTest.class, ShapefileIoTest.class,
+  ShapefileMappedReaderTest.class, WktlIoTest.class, XBaseIoTest.class
 })
 public class RecordIoTestSuite {
   public static void addGeometryTestSuites(final TestSuite suite, final String namePrefix,
@@ -0,0 +1,146 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileMappedReader;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.io.format.shp.ShapefileSpatialIndex;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+public class ShapefileMappedReaderTest {
+
+  private static final int RECORD_COUNT = 10000;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(3005, 2);
+
+  @Test
+  public void testReadLazy() {
+    final PathResource resource = writePoints();
+    try (
+      RecordReader reader = RecordReader.newRecordReader(resource);
+      ShapefileMappedReader mappedReader = new ShapefileMappedReader(resource,
+        ArrayRecord.FACTORY)) {
+      int i = 0;
+      for (final Record record : reader) {
+        if (i % 997 == 0) {
+          final BoundingBox boundingBox = record.getBoundingBox();
+          Assert.assertEquals(1000000 + i, boundingBox.getMinX(), 0);
+          Assert.assertEquals(500000 + i % 100, boundingBox.getMaxY(), 0);
+          final Point point = record.getGeometry();
+          Assert.assertEquals(mappedReader.getGeometry(i), point);
+        }
+        i++;
+      }
+      Assert.assertEquals(RECORD_COUNT, i);
+    }
+  }
+
+  @Test
+  public void testReadMapped() {
+    final PathResource resource = writePoints();
+    try (
+      ShapefileMappedReader reader = new ShapefileMappedReader(resource, ArrayRecord.FACTORY)) {
+      reader.setSplitByteCount(1024);
+      Assert.assertEquals(RECORD_COUNT, reader.getRecordCount());
+
+      for (int i = 0; i < RECORD_COUNT; i += 997) {
+        final Record record = reader.getRecord(i);
+        Assert.assertEquals(i, record.getInteger("ID").intValue());
+        Assert.assertEquals("Point " + i, record.getString("NAME"));
+        final Point point = record.getGeometry();
+        Assert.assertEquals(1000000 + i, point.getX(), 0);
+        Assert.assertEquals(point, reader.getGeometry(i));
+      }
+
+      final AtomicInteger count = new AtomicInteger();
+      reader.forEachParallel(record -> count.incrementAndGet());
+      Assert.assertEquals(RECORD_COUNT, count.get());
+
+      final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1000100, 500000, 1000199,
+        500010);
+      final List<Record> records = reader.getRecords(boundingBox);
+      Assert.assertEquals(11, records.size());
+      int previousId = -1;
+      for (final Record record : records) {
+        final int id = record.getInteger("ID");
+        Assert.assertTrue(id > previousId);
+        Assert.assertTrue(boundingBox.bboxIntersects(record.getGeometry()));
+        previousId = id;
+      }
+    }
+  }
+
+  @Test
+  public void testSpatialIndex() {
+    final PathResource resource = writePoints();
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1000100, 500000, 1000199,
+      500010);
+    try (
+      ShapefileMappedReader reader = new ShapefileMappedReader(resource, ArrayRecord.FACTORY)) {
+      Assert.assertNull(reader.getSpatialIndex());
+      final int[] expectedIndexes = reader.getRecordIndexes(boundingBox);
+      Assert.assertEquals(11, expectedIndexes.length);
+      Assert.assertEquals(RECORD_COUNT, reader.getRecordIndexes(null).length);
+
+      final ShapefileSpatialIndex spatialIndex = ShapefileSpatialIndex.build(reader);
+      Assert.assertEquals(RECORD_COUNT, spatialIndex.getRecordCount());
+      Assert.assertArrayEquals(expectedIndexes, spatialIndex.getRecordIndexes(boundingBox));
+    }
+    try (
+      ShapefileMappedReader reader = new ShapefileMappedReader(resource, ArrayRecord.FACTORY)) {
+      Assert.assertNotNull(reader.getSpatialIndex());
+      Assert.assertEquals(RECORD_COUNT, reader.getRecordIndexes(null).length);
+      final List<Record> records = new ArrayList<>();
+      reader.forEach(boundingBox, records::add);
+      Assert.assertEquals(11, records.size());
+    }
+    try (
+      ShapefileRecordReader reader = (ShapefileRecordReader)RecordReader
+        .newRecordReader(resource)) {
+      reader.setBoundingBox(boundingBox);
+      final List<Record> records = reader.toList();
+      Assert.assertEquals(11, records.size());
+      Assert.assertEquals(100, records.get(0).getInteger("ID").intValue());
+    }
+  }
+
+  private PathResource writePoints() {
+    final File directory = FileUtil.newTempDirectory("shp", "mapped");
+    final PathResource resource = new PathResource(new File(directory, "points.shp"));
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/points"));
+    recordDefinition.addField("ID", DataTypes.INT, 10, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, 20, true);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.POINT, true);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition, resource)) {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        final ArrayRecord record = new ArrayRecord(recordDefinition);
+        record.setValue("ID", i);
+        record.setValue("NAME", "Point " + i);
+        record.setGeometryValue(GEOMETRY_FACTORY.point(1000000 + i, 500000 + i % 100));
+        writer.write(record);
+      }
+    }
+    return resource;
+  }
+}
@@ -0,0 +1,138 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.util.Stopwatch;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbReader;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Compare reading large polygons from the hex EWKB returned by PostGIS using the
+ * {@link PostgreSQLGeometryWrapper} with the {@link PostgreSQLEwkbReader} reading the hex and
+ * binary bytes.
+ */
+public class PostgreSQLEwkbReaderPerf {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(3005, 2);
+
+  public static void main(final String[] args) throws Exception {
+    final PostgreSQLEwkbReaderPerf test = new PostgreSQLEwkbReaderPerf(1000, 2000);
+    for (int i = 0; i < 5; i++) {
+      test.run();
+    }
+  }
+
+  private static LinearRing newRing(final double centreX, final double centreY,
+    final double radius, final int vertexCount, final boolean clockwise) {
+    final double[] coordinates = new double[(vertexCount + 1) * 2];
+    for (int i = 0; i < vertexCount; i++) {
+      double angle = 2 * Math.PI * i / vertexCount;
+      if (clockwise) {
+        angle = -angle;
+      }
+      coordinates[i * 2] = centreX + radius * Math.cos(angle);
+      coordinates[i * 2 + 1] = centreY + radius * Math.sin(angle);
+    }
+    coordinates[vertexCount * 2] = coordinates[0];
+    coordinates[vertexCount * 2 + 1] = coordinates[1];
+    return GEOMETRY_FACTORY.linearRing(2, coordinates);
+  }
+
+  private final byte[][] binaryValues;
+
+  private final byte[][] hexValues;
+
+  private final String[] textValues;
+
+  public PostgreSQLEwkbReaderPerf(final int polygonCount, final int vertexCount) {
+    this.binaryValues = new byte[polygonCount][];
+    this.hexValues = new byte[polygonCount][];
+    this.textValues = new String[polygonCount];
+    final PostgreSQLEwkbWriter writer = new PostgreSQLEwkbWriter(GeometryDataTypes.POLYGON,
+      GEOMETRY_FACTORY);
+    for (int i = 0; i < polygonCount; i++) {
+      final double x = 1000000 + i * 1000;
+      final double y = 500000;
+      final Polygon polygon = GEOMETRY_FACTORY.polygon(newRing(x, y, 400, vertexCount, false),
+        newRing(x, y, 100, vertexCount / 4, true));
+
+      writer.prepare(polygon);
+      final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+      try (
+        ChannelWriter out = new ChannelWriter(bytesOut)) {
+        writer.write(out);
+      }
+      final byte[] bytes = bytesOut.toByteArray();
+      final char[] hex = new char[bytes.length * 2];
+      for (int j = 0; j < bytes.length; j++) {
+        final int b = bytes[j] & 0xFF;
+        hex[j * 2] = HEX[b >> 4];
+        hex[j * 2 + 1] = HEX[b & 0xF];
+      }
+      this.binaryValues[i] = bytes;
+      this.textValues[i] = new String(hex);
+      this.hexValues[i] = this.textValues[i].getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private double checkVertexCount(final Stopwatch sw, final long vertexCount) {
+    if (vertexCount == 0) {
+      throw new IllegalStateException("No vertices read");
+    }
+    return sw.getTime();
+  }
+
+  public void run() throws SQLException {
+    final double wrapperTime = runWrapper();
+    final double hexTime = runReaderHex();
+    final double binaryTime = runReaderBinary();
+    System.out.println("wrapper=" + wrapperTime + "ms\thex=" + hexTime + "ms\tbinary="
+      + binaryTime + "ms\tspeedup=" + wrapperTime / hexTime);
+  }
+
+  public double runReaderBinary() {
+    final Stopwatch sw = new Stopwatch();
+    long vertexCount = 0;
+    for (final byte[] value : this.binaryValues) {
+      final Geometry geometry = PostgreSQLEwkbReader.read(GEOMETRY_FACTORY, value);
+      vertexCount += geometry.getVertexCount();
+    }
+    sw.stop();
+    return checkVertexCount(sw, vertexCount);
+  }
+
+  public double runReaderHex() {
+    final Stopwatch sw = new Stopwatch();
+    long vertexCount = 0;
+    for (final byte[] value : this.hexValues) {
+      final Geometry geometry = PostgreSQLEwkbReader.read(GEOMETRY_FACTORY, value);
+      vertexCount += geometry.getVertexCount();
+    }
+    sw.stop();
+    return checkVertexCount(sw, vertexCount);
+  }
+
+  public double runWrapper() throws SQLException {
+    final Stopwatch sw = new Stopwatch();
+    long vertexCount = 0;
+    for (final String value : this.textValues) {
+      final PostgreSQLGeometryWrapper wrapper = new PostgreSQLGeometryWrapper();
+      wrapper.setValue(value);
+      final Geometry geometry = wrapper.getGeometry(GEOMETRY_FACTORY);
+      vertexCount += geometry.getVertexCount();
+    }
+    sw.stop();
+    return checkVertexCount(sw, vertexCount);
+  }
+}
@@ -0,0 +1,97 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.ByteArrayOutputStream;
+
+import org.jeometry.common.data.type.DataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbReader;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Write geometries using the {@link PostgreSQLEwkbWriter} and read them back using the
+ * {@link PostgreSQLEwkbReader}. Polygon shells are counter clockwise and holes clockwise as that
+ * is the orientation written.
+ */
+public class PostgreSQLEwkbWriterTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY_2D = GeometryFactory.floating2d(3005);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.floating3d(3005);
+
+  private static void assertRoundTrip(final DataType dataType,
+    final GeometryFactory geometryFactory, final String wkt) {
+    final Geometry geometry = geometryFactory.geometry(wkt);
+    final PostgreSQLEwkbWriter writer = new PostgreSQLEwkbWriter(dataType, geometryFactory);
+    final int size = writer.prepare(geometry);
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    try (
+      ChannelWriter out = new ChannelWriter(bytesOut)) {
+      writer.write(out);
+    }
+    final byte[] bytes = bytesOut.toByteArray();
+    Assert.assertEquals("Size " + wkt, size, bytes.length);
+    Assert.assertTrue("EWKB " + wkt, PostgreSQLEwkbReader.isEwkb(bytes));
+
+    final Geometry actual = PostgreSQLEwkbReader.read(geometryFactory, bytes);
+    Assert.assertEquals("Coordinate system " + wkt, geometry.getHorizontalCoordinateSystemId(),
+      actual.getHorizontalCoordinateSystemId());
+    Assert.assertEquals("Axis count " + wkt, geometry.getAxisCount(), actual.getAxisCount());
+    if (!geometry.equalsExact(actual)) {
+      Assert.fail("Geometry not equal\n" + geometry + "\n" + actual);
+    }
+  }
+
+  @Test
+  public void testGeometryCollection() {
+    assertRoundTrip(GeometryDataTypes.GEOMETRY, GEOMETRY_FACTORY_2D,
+      "GEOMETRYCOLLECTION(POINT(1 2),LINESTRING(1 2,3 4))");
+  }
+
+  @Test
+  public void testLineString() {
+    assertRoundTrip(GeometryDataTypes.LINE_STRING, GEOMETRY_FACTORY_2D,
+      "LINESTRING(1000000 500000,1000010.5 500020.25,1000030 500000)");
+    assertRoundTrip(GeometryDataTypes.LINE_STRING, GEOMETRY_FACTORY_3D,
+      "LINESTRING Z(1000000 500000 10,1000010.5 500020.25 11,1000030 500000 12)");
+  }
+
+  @Test
+  public void testMultiLineString() {
+    assertRoundTrip(GeometryDataTypes.MULTI_LINE_STRING, GEOMETRY_FACTORY_2D,
+      "MULTILINESTRING((1 2,3 4),(5 6,7 8,9 10))");
+  }
+
+  @Test
+  public void testMultiPoint() {
+    assertRoundTrip(GeometryDataTypes.MULTI_POINT, GEOMETRY_FACTORY_2D,
+      "MULTIPOINT((1 2),(3 4))");
+  }
+
+  @Test
+  public void testMultiPolygon() {
+    assertRoundTrip(GeometryDataTypes.MULTI_POLYGON, GEOMETRY_FACTORY_2D,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((20 0,30 0,30 10,20 10,20 0),"
+        + "(22 2,22 8,28 8,28 2,22 2)))");
+  }
+
+  @Test
+  public void testPoint() {
+    assertRoundTrip(GeometryDataTypes.POINT, GEOMETRY_FACTORY_2D, "POINT(1000000.5 500000.25)");
+    assertRoundTrip(GeometryDataTypes.POINT, GEOMETRY_FACTORY_3D, "POINT Z(1000000 500000 12.5)");
+    assertRoundTrip(GeometryDataTypes.GEOMETRY, GEOMETRY_FACTORY_2D, "POINT(-1 -2)");
+  }
+
+  @Test
+  public void testPolygon() {
+    assertRoundTrip(GeometryDataTypes.POLYGON, GEOMETRY_FACTORY_2D,
+      "POLYGON((0 0,100 0,100 100,0 100,0 0),(10 10,10 90,90 90,90 10,10 10))");
+    assertRoundTrip(GeometryDataTypes.POLYGON, GEOMETRY_FACTORY_3D,
+      "POLYGON Z((0 0 1,100 0 2,100 100 3,0 100 4,0 0 1))");
+  }
+}
@@ -4,6 +4,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -521,6 +523,38 @@ public class LasTest {
     };
   }
 
+  @Test
+  public void testDecompressSelective() {
+    final LasPointFormat recordFormat = LasPointFormat.ExtendedGpsTimeRgb;
+    final Path file = DIR.resolve("laz/selective/selective.laz");
+    com.revolsys.io.file.Paths.createParentDirectories(file);
+    try (
+      LasPointCloud cloud = new LasPointCloud(recordFormat, GEOMETRY_FACTORY_0)) {
+      addRgbPoints(cloud);
+      addGpsTimePoints(cloud);
+      addIntensityPoints(cloud);
+      addClassificationAndFlags(cloud);
+      addRandomPoints(cloud, 100000);
+      cloud.writePointCloud(file, JsonObject.hash("lasZipVersion", 3));
+
+      final List<LasPoint> points1 = cloud.getPoints();
+      try (
+        LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
+        cloud2.setDecompressSelectiveFieldNames(Arrays.asList("x", "y", "z", "classification"));
+        final Iterator<LasPoint> iterator1 = points1.iterator();
+        cloud2.forEachPoint(point2 -> {
+          final LasPoint point1 = iterator1.next();
+          Assert.assertEquals("xInt", point1.getXInt(), point2.getXInt());
+          Assert.assertEquals("yInt", point1.getYInt(), point2.getYInt());
+          Assert.assertEquals("zInt", point1.getZInt(), point2.getZInt());
+          Assert.assertEquals("classification", point1.getClassification(),
+            point2.getClassification());
+        });
+        Assert.assertFalse(iterator1.hasNext());
+      }
+    }
+  }
+
   @Test
   public void testManyLas() {
     for (final LasPointFormat recordFormat : LasPointFormat.values()) {
@@ -548,6 +582,41 @@ public class LasTest {
     }
   }
 
+  @Test
+  public void testParallelLaz() {
+    final int pointCount = 120001;
+    final Consumer<LasPointCloud> cloudAction = newPointsAction(pointCount);
+    for (final LasPointFormat recordFormat : LAZ_TEST_FORMATS) {
+      final Map<String, MapEx> writeVariations = getWriteVariations(recordFormat, "laz");
+      try (
+        LasPointCloud cloud = new LasPointCloud(recordFormat, GEOMETRY_FACTORY_OFFSET)) {
+        cloudAction.accept(cloud);
+        final Comparator<LasPoint> comparator = Comparator.comparingInt(LasPoint::getXInt)
+          .thenComparingInt(LasPoint::getYInt)
+          .thenComparingInt(LasPoint::getZInt);
+        final List<LasPoint> points1 = new ArrayList<>(cloud.getPoints());
+        points1.sort(comparator);
+        for (final Entry<String, MapEx> entry : writeVariations.entrySet()) {
+          final String label = "parallel_" + recordFormat.name() + "_" + entry.getKey();
+          final Path file = DIR.resolve("laz/parallel/" + label + ".laz");
+          com.revolsys.io.file.Paths.createParentDirectories(file);
+          cloud.writePointCloud(file, entry.getValue());
+
+          final List<LasPoint> points2 = Collections.synchronizedList(new ArrayList<>());
+          try (
+            LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
+            cloud2.forEachPointParallel(points2::add);
+          }
+          Assert.assertEquals(label, points1.size(), points2.size());
+          points2.sort(comparator);
+          for (int i = 0; i < points1.size(); i++) {
+            assertPointEqual(points1.get(i), points2.get(i));
+          }
+        }
+      }
+    }
+  }
+
   @Test
   public void testWriter() {
     final BiFunction<LasPointCloudWriter, Integer, List<LasPoint>> writerAction = (writer,